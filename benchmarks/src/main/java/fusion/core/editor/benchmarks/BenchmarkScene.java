@@ -0,0 +1,56 @@
+package fusion.core.editor.benchmarks;
+
+import com.bulletphysics.collision.shapes.CollisionShape;
+import com.bulletphysics.dynamics.RigidBody;
+import fusion.core.editor.physics.PhysicsScheduler;
+import fusion.core.editor.physics.ShapeCache;
+import fusion.core.editor.scene.Picker;
+import fusion.core.editor.scene.SceneCuller;
+import open.gl.gameobject.Mesh;
+import open.gl.gameobject.MeshInstance;
+import open.gl.gameobject.PhysicsComponent;
+import open.gl.physics.PhysicsWorld;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//The GL free part of a Viewport scene: a cube grid of static bodies sharing one mesh, registered with the
+//physics scheduler, culler and picker the way Viewport spawns them
+public class BenchmarkScene {
+
+    //objects are this far apart on a square grid in x and z
+    public static final float SPACING = 2.0f;
+
+    public final Mesh mesh = Headless.mesh(Headless.cube());
+    public final PhysicsWorld physicsWorld = new PhysicsWorld();
+    public final PhysicsScheduler physicsScheduler = new PhysicsScheduler(physicsWorld);
+    public final ShapeCache shapeCache = new ShapeCache();
+    public final SceneCuller sceneCuller = new SceneCuller();
+    public final Picker picker = new Picker(sceneCuller);
+    public final List<PhysicsComponent> components = new ArrayList<>();
+
+    public BenchmarkScene(int objects) {
+        int side = (int) Math.ceil(Math.sqrt(objects));
+        float offset = (side - 1) * SPACING / 2;
+        for (int i = 0; i < objects; i++) {
+            MeshInstance instance = new MeshInstance(mesh, null);
+            instance.getPosition().set((i % side) * SPACING - offset, 0, (i / side) * SPACING - offset);
+            add(instance);
+        }
+    }
+
+    private void add(MeshInstance instance) {
+        sceneCuller.add(instance);
+        CollisionShape shape = shapeCache.getShape(instance.getMesh(), instance.getScale());
+        RigidBody rigidBody = physicsWorld.addShapeToWorld(shape, 0.0f, instance.getRotation(), instance.getPosition(), 1.0f);
+        PhysicsComponent component = new PhysicsComponent(rigidBody, instance);
+        components.add(component);
+        physicsScheduler.add(component);
+        picker.setOwner(instance, component);
+    }
+
+    //length of the side of the square the objects cover
+    public float getExtent() {
+        return (float) Math.ceil(Math.sqrt(components.size())) * SPACING;
+    }
+}
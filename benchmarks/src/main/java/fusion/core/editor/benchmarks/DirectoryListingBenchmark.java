@@ -0,0 +1,82 @@
+package fusion.core.editor.benchmarks;
+
+import fusion.core.editor.explorer.DirectoryCache;
+import fusion.core.editor.explorer.DirectorySnapshot;
+import fusion.core.editor.explorer.ExplorerGrid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Listing a folder the way the directory cache scans it and laying out the visible part of the explorer grid,
+//the folder is a temporary one filled with empty files
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DirectoryListingBenchmark {
+
+    private static final float CELL_WIDTH = 84;
+    private static final float CELL_HEIGHT = 100;
+
+    @Param({"1000", "10000", "100000"})
+    public int files;
+
+    private File directory;
+    private final ExplorerGrid grid = new ExplorerGrid();
+    private float scroll = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("explorer-benchmark").toFile();
+        for (int i = 0; i < files; i++) {
+            if (i % 50 == 0) {
+                new File(directory, "folder" + i).mkdir();
+            } else {
+                new File(directory, "model" + i + (i % 3 == 0 ? ".png" : ".obj")).createNewFile();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                child.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public List<DirectorySnapshot.Entry> list() throws IOException {
+        return DirectoryCache.list(directory);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int layout() {
+        grid.layout(files, 1280, CELL_WIDTH, CELL_HEIGHT);
+        scroll = (scroll + CELL_HEIGHT / 3) % grid.getContentHeight();
+        grid.clip(scroll, 400);
+        return grid.getLastIndex() - grid.getFirstIndex();
+    }
+}
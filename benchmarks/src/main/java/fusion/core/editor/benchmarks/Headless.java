@@ -0,0 +1,99 @@
+package fusion.core.editor.benchmarks;
+
+import open.gl.Model;
+import open.gl.gameobject.Mesh;
+import org.joml.Matrix4f;
+import org.objenesis.ObjenesisStd;
+
+import java.lang.reflect.Field;
+
+//Stand-ins for the GL side of the engine. Meshes are created by objenesis without their constructor, which would
+//upload buffers, and only get the model and matrix the editor reads on the CPU
+public final class Headless {
+
+    private static final ObjenesisStd OBJENESIS = new ObjenesisStd();
+    private static final Field MODEL;
+    private static final Field TRANSFORMATION_MATRIX;
+
+    static {
+        try {
+            MODEL = Mesh.class.getDeclaredField("model");
+            MODEL.setAccessible(true);
+            TRANSFORMATION_MATRIX = Mesh.class.getDeclaredField("transformationMatrix");
+            TRANSFORMATION_MATRIX.setAccessible(true);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Headless() {
+    }
+
+    //a mesh that was never uploaded, rendering it is not possible but the editor can cull, pick and build shapes from it
+    public static Mesh mesh(Model model) {
+        try {
+            Mesh mesh = OBJENESIS.newInstance(Mesh.class);
+            MODEL.set(mesh, model);
+            TRANSFORMATION_MATRIX.set(mesh, new Matrix4f());
+            return mesh;
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //unit cube around the origin, 8 shared corners
+    public static Model cube() {
+        float[] vertices = {
+                -0.5f, -0.5f, -0.5f, 0.5f, -0.5f, -0.5f, 0.5f, 0.5f, -0.5f, -0.5f, 0.5f, -0.5f,
+                -0.5f, -0.5f, 0.5f, 0.5f, -0.5f, 0.5f, 0.5f, 0.5f, 0.5f, -0.5f, 0.5f, 0.5f
+        };
+        int[] indices = {
+                0, 2, 1, 0, 3, 2, 4, 5, 6, 4, 6, 7, 0, 1, 5, 0, 5, 4,
+                3, 6, 2, 3, 7, 6, 0, 4, 7, 0, 7, 3, 1, 2, 6, 1, 6, 5
+        };
+        return new Model(vertices, new float[8 * 2], vertices.clone(), indices);
+    }
+
+    //uv sphere of radius 0.5, dense enough that hull simplification has real work to do
+    public static Model sphere(int rings, int segments) {
+        int count = (rings + 1) * (segments + 1);
+        float[] vertices = new float[count * 3];
+        float[] normals = new float[count * 3];
+        float[] texCoords = new float[count * 2];
+        int v = 0;
+        for (int r = 0; r <= rings; r++) {
+            double phi = java.lang.Math.PI * r / rings;
+            for (int s = 0; s <= segments; s++) {
+                double theta = 2 * java.lang.Math.PI * s / segments;
+                float x = (float) (java.lang.Math.sin(phi) * java.lang.Math.cos(theta));
+                float y = (float) java.lang.Math.cos(phi);
+                float z = (float) (java.lang.Math.sin(phi) * java.lang.Math.sin(theta));
+                normals[v * 3] = x;
+                normals[v * 3 + 1] = y;
+                normals[v * 3 + 2] = z;
+                vertices[v * 3] = x * 0.5f;
+                vertices[v * 3 + 1] = y * 0.5f;
+                vertices[v * 3 + 2] = z * 0.5f;
+                texCoords[v * 2] = (float) s / segments;
+                texCoords[v * 2 + 1] = (float) r / rings;
+                v++;
+            }
+        }
+
+        int[] indices = new int[rings * segments * 6];
+        int i = 0;
+        for (int r = 0; r < rings; r++) {
+            for (int s = 0; s < segments; s++) {
+                int a = r * (segments + 1) + s;
+                int b = a + segments + 1;
+                indices[i++] = a;
+                indices[i++] = b;
+                indices[i++] = a + 1;
+                indices[i++] = a + 1;
+                indices[i++] = b;
+                indices[i++] = b + 1;
+            }
+        }
+        return new Model(vertices, texCoords, normals, indices);
+    }
+}
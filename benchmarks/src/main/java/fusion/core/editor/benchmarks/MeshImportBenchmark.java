@@ -0,0 +1,101 @@
+package fusion.core.editor.benchmarks;
+
+import fusion.core.editor.assets.CookedMeshCache;
+import fusion.core.editor.assets.ImportedModel;
+import fusion.core.editor.assets.ModelImporter;
+import open.gl.Model;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Importing a large mesh the way the asset manager does, through assimp and the hull build every time or through the
+//cooked file next to it. The mesh is a dense sphere written out as an obj file
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MeshImportBenchmark {
+
+    //rings and segments of the sphere, 256 is about 66000 vertices and 512 about 263000
+    @Param({"256", "512"})
+    public int rings;
+
+    private File directory;
+    private File source;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("import-benchmark").toFile();
+        source = new File(directory, "sphere.obj");
+        writeObj(Headless.sphere(rings, rings), source);
+        //cooked once up front, every cooked import after it is a cache hit
+        CookedMeshCache.importModels(source.getPath());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        CookedMeshCache.cookedFile(source).delete();
+        source.delete();
+        directory.delete();
+    }
+
+    @Benchmark
+    public List<ImportedModel> assimp() throws IOException {
+        List<ImportedModel> models = ModelImporter.importModels(source.getPath());
+        for (ImportedModel model : models) {
+            CookedMeshCache.cook(model);
+        }
+        return models;
+    }
+
+    @Benchmark
+    public List<ImportedModel> cooked() throws IOException {
+        return CookedMeshCache.importModels(source.getPath());
+    }
+
+    private static void writeObj(Model model, File file) throws IOException {
+        float[] vertices = model.getVertices();
+        float[] texCoords = model.getTexCoords();
+        float[] normals = model.getNormals();
+        int[] indices = model.getIndices();
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath())) {
+            for (int i = 0; i < vertices.length; i += 3) {
+                writer.write("v " + vertices[i] + " " + vertices[i + 1] + " " + vertices[i + 2] + "\n");
+            }
+            for (int i = 0; i < texCoords.length; i += 2) {
+                writer.write("vt " + texCoords[i] + " " + texCoords[i + 1] + "\n");
+            }
+            for (int i = 0; i < normals.length; i += 3) {
+                writer.write("vn " + normals[i] + " " + normals[i + 1] + " " + normals[i + 2] + "\n");
+            }
+            //obj indices start at 1, position, uv and normal share the same index here
+            for (int i = 0; i < indices.length; i += 3) {
+                writer.write("f");
+                for (int j = 0; j < 3; j++) {
+                    int index = indices[i + j] + 1;
+                    writer.write(" " + index + "/" + index + "/" + index);
+                }
+                writer.write("\n");
+            }
+        }
+    }
+}
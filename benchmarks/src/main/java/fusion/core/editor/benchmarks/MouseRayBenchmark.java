@@ -0,0 +1,53 @@
+package fusion.core.editor.benchmarks;
+
+import fusion.core.editor.scene.Picker;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//Picker.getMouseRay, run every frame while a new object is dragged into the scene
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MouseRayBenchmark {
+
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+
+    private final Matrix4f projection = new Matrix4f();
+    private final Matrix4f view = new Matrix4f();
+    private final Vector3f cameraPosition = new Vector3f(4, 3, 8);
+
+    private final Matrix4f inverseProjection = new Matrix4f();
+    private final Matrix4f inverseView = new Matrix4f();
+    private final Vector4f ray = new Vector4f();
+    private final Vector3f mouseRay = new Vector3f();
+    private float mouseX = 0;
+
+    @Setup
+    public void setup() {
+        projection.setPerspective((float) Math.toRadians(70), (float) WIDTH / HEIGHT, 0.1f, 1000f);
+        view.setLookAt(cameraPosition.x, cameraPosition.y, cameraPosition.z, 0, 0, 0, 0, 1, 0);
+    }
+
+    @Benchmark
+    public Vector3f getMouseRay() {
+        mouseX = (mouseX + 7) % WIDTH;
+        return Picker.getMouseRay(mouseX, HEIGHT / 2f, WIDTH, HEIGHT, projection, view, cameraPosition, inverseProjection, inverseView, ray, mouseRay);
+    }
+}
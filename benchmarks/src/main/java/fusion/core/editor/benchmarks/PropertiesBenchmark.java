@@ -0,0 +1,57 @@
+package fusion.core.editor.benchmarks;
+
+import fusion.core.editor.TransformFields;
+import imgui.ImGui;
+import open.gl.Transform;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//The Properties panel's decompose of the selected transform every frame and recompose on edit, both through
+//ImGuizmo which needs the imgui natives but no context
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PropertiesBenchmark {
+
+    private final TransformFields fields = new TransformFields();
+    private final Transform transform = new Transform();
+    private final Vector3f position = new Vector3f();
+    private final Quaternionf rotation = new Quaternionf();
+    private final Vector3f scale = new Vector3f();
+
+    @Setup
+    public void setup() {
+        //loads the imgui natives, ImGuizmo does not do it on its own
+        ImGui.init();
+        transform.getPosition().set(3, -2, 7);
+        transform.getRotation().rotationXYZ(0.3f, 1.1f, -0.4f);
+        transform.getScale().set(1.5f, 2, 0.75f);
+    }
+
+    @Benchmark
+    public void decompose() {
+        fields.decompose(transform);
+    }
+
+    @Benchmark
+    public Vector3f roundTrip() {
+        fields.decompose(transform);
+        fields.recompose(position, rotation, scale);
+        return position;
+    }
+}
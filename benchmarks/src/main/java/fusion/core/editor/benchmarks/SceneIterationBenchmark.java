@@ -0,0 +1,106 @@
+package fusion.core.editor.benchmarks;
+
+import fusion.core.editor.render.InstanceBuffer;
+import open.gl.gameobject.Mesh;
+import open.gl.gameobject.MeshInstance;
+import open.gl.gameobject.PhysicsComponent;
+import org.joml.Matrix4f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//The per frame walk over the scene on the CPU: culling, packing the visible matrices and box selecting,
+//seen from the editor's default camera so only part of a large scene is on screen
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SceneIterationBenchmark {
+
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+
+    @Param({"1000", "10000", "100000"})
+    public int objects;
+
+    private BenchmarkScene scene;
+    private final Matrix4f projection = new Matrix4f();
+    private final Matrix4f view = new Matrix4f();
+    private final Matrix4f topView = new Matrix4f();
+
+    private final Map<Mesh, List<MeshInstance>> visible = new HashMap<>();
+    private final InstanceBuffer instanceBuffer = new InstanceBuffer();
+    private final List<PhysicsComponent> picked = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        scene = new BenchmarkScene(objects);
+        projection.setPerspective((float) Math.toRadians(70), (float) WIDTH / HEIGHT, 0.1f, 1000f);
+        view.setLookAt(0, 10, 30, 0, 0, 0, 0, 1, 0);
+        //high enough above the grid to see all of it
+        float height = scene.getExtent();
+        topView.setLookAt(0, height, 0.01f, 0, 0, 0, 0, 1, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scene.physicsScheduler.shutdown();
+    }
+
+    @Benchmark
+    public int cull() {
+        return scene.sceneCuller.cull(projection, view, visible);
+    }
+
+    @Benchmark
+    public int cullEverything() {
+        return scene.sceneCuller.cull(projection, topView, visible);
+    }
+
+    //what Viewport hands to the instanced renderer every frame, minus the upload
+    @Benchmark
+    public InstanceBuffer cullAndPack() {
+        scene.sceneCuller.cull(projection, view, visible);
+        for (List<MeshInstance> instances : visible.values()) {
+            instanceBuffer.pack(instances);
+        }
+        return instanceBuffer;
+    }
+
+    //packing every instance, e.g. with culling off
+    @Benchmark
+    public InstanceBuffer packAll() {
+        List<MeshInstance> all = visible.computeIfAbsent(scene.mesh, mesh -> new ArrayList<>());
+        all.clear();
+        for (int i = 0; i < scene.components.size(); i++) {
+            all.add(scene.components.get(i).getInstance());
+        }
+        instanceBuffer.pack(all);
+        return instanceBuffer;
+    }
+
+    //a box over the middle quarter of the screen
+    @Benchmark
+    public int boxPick() {
+        picked.clear();
+        return scene.picker.boxPick(WIDTH / 4.0, HEIGHT / 4.0, WIDTH * 3 / 4.0, HEIGHT * 3 / 4.0, WIDTH, HEIGHT, projection, topView, picked);
+    }
+}
@@ -0,0 +1,106 @@
+package fusion.core.editor.benchmarks;
+
+import fusion.core.editor.assets.AssetManager;
+import fusion.core.editor.scene.SceneBatch;
+import fusion.core.editor.scene.SceneFile;
+import fusion.core.editor.scene.SceneLoader;
+import fusion.core.editor.scene.SceneWriter;
+import open.gl.Transform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+//Saving a scene through SceneWriter and loading it back through SceneLoader, binary and text. Loading drains the
+//loader the way Viewport.restoreScene does, applying every object's transform, only the mesh upload is left out
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SceneLoadBenchmark {
+
+    private static final int MESHES = 16;
+
+    @Param({"100000"})
+    public int objects;
+
+    @Param({SceneFile.EXTENSION, SceneFile.TEXT_EXTENSION})
+    public String format;
+
+    private File directory;
+    private File file;
+    private AssetManager assets;
+    private final String[] meshPaths = new String[MESHES];
+    private final Transform transform = new Transform();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("scene-benchmark").toFile();
+        file = new File(directory, "Benchmark" + format);
+        //the mesh files do not exist, they fail to load in the background without holding up the objects
+        assets = new AssetManager(1);
+        for (int i = 0; i < MESHES; i++) {
+            meshPaths[i] = "Meshes/mesh" + i + ".obj";
+        }
+        save();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        assets.close();
+        file.delete();
+        directory.delete();
+    }
+
+    @Benchmark
+    public int save() throws IOException {
+        try (SceneWriter writer = SceneFile.openWriter(file)) {
+            for (int i = 0; i < objects; i++) {
+                int mesh = writer.mesh(meshPaths[i % MESHES], 0);
+                transform.getPosition().set(i % 100, (i / 100) % 100, i / 10000);
+                transform.getRotation().rotationY(i * 0.01f);
+                transform.getScale().set(1 + (i & 3) * 0.25f);
+                writer.add(mesh, transform, i % 7 == 0 ? 0 : 1);
+            }
+            return writer.getObjectCount();
+        }
+    }
+
+    @Benchmark
+    public int load() {
+        SceneLoader loader = new SceneLoader(file, assets);
+        int restored = 0;
+        while (!loader.isDone()) {
+            SceneBatch batch = loader.next();
+            if (batch == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            for (int i = batch.getNext(); i < batch.size(); i++) {
+                batch.apply(i, transform);
+                restored++;
+            }
+            batch.setNext(batch.size());
+        }
+        if (loader.getError() != null) {
+            throw new RuntimeException(loader.getError());
+        }
+        return restored;
+    }
+}
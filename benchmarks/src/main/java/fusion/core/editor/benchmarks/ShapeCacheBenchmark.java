@@ -0,0 +1,68 @@
+package fusion.core.editor.benchmarks;
+
+import com.bulletphysics.collision.shapes.CollisionShape;
+import fusion.core.editor.physics.ShapeCache;
+import open.gl.gameobject.Mesh;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//Viewport.createShape for a hit, a new scale and a cold hull
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShapeCacheBenchmark {
+
+    //more scales than the small cache holds, so cycling through them never hits
+    private static final int SCALES = 64;
+
+    private Mesh mesh;
+    private float[] sphereVertices;
+    private ShapeCache cache;
+    private ShapeCache smallCache;
+    private final Vector3f scale = new Vector3f(1.5f, 2.0f, 0.5f);
+    private final Vector3f[] scales = new Vector3f[SCALES];
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        mesh = Headless.mesh(Headless.sphere(32, 32));
+        sphereVertices = mesh.getModel().getVertices();
+        cache = new ShapeCache();
+        cache.getShape(mesh, scale);
+        smallCache = new ShapeCache(SCALES / 4);
+        for (int i = 0; i < SCALES; i++) {
+            scales[i] = new Vector3f(1 + i * 0.1f, 1, 1 + i * 0.05f);
+        }
+    }
+
+    @Benchmark
+    public CollisionShape hit() {
+        return cache.getShape(mesh, scale);
+    }
+
+    @Benchmark
+    public CollisionShape miss() {
+        next = (next + 1) % SCALES;
+        return smallCache.getShape(mesh, scales[next]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public float[] coldHull() {
+        return ShapeCache.simplifyHull(sphereVertices);
+    }
+}
@@ -0,0 +1,125 @@
+package fusion.core.editor.benchmarks;
+
+import com.bulletphysics.collision.shapes.CollisionShape;
+import fusion.core.editor.history.EditHistory;
+import fusion.core.editor.history.TransformEdit;
+import open.gl.gameobject.MeshInstance;
+import open.gl.gameobject.PhysicsComponent;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//What Viewport.updateComponent does for one edited object, one call is one frame of a gizmo drag
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransformSyncBenchmark {
+
+    @Param({"1000", "10000"})
+    public int objects;
+
+    private BenchmarkScene scene;
+    private EditHistory history;
+    private final float[] historyBefore = new float[TransformEdit.STRIDE];
+    private final float[] historyAfter = new float[TransformEdit.STRIDE];
+
+    private final Vector3f position = new Vector3f();
+    private final Quaternionf rotation = new Quaternionf();
+    private final Vector3f scale = new Vector3f(1, 1, 1);
+    private int frame = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        scene = new BenchmarkScene(objects);
+        history = new EditHistory(new EditHistory.Target() {
+            @Override
+            public void applyTransform(int object, float[] values, int offset) {
+            }
+
+            @Override
+            public PhysicsComponent remove(int object) {
+                return null;
+            }
+
+            @Override
+            public void restore(PhysicsComponent component) {
+            }
+
+            @Override
+            public int getObjectCount() {
+                return scene.components.size();
+            }
+        }, 16 << 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scene.physicsScheduler.shutdown();
+    }
+
+    //a drag moves the same object every frame, the history folds it into one entry
+    @Benchmark
+    public void drag() {
+        frame++;
+        int object = objects / 2;
+        MeshInstance instance = scene.components.get(object).getInstance();
+        position.set(instance.getPosition()).add(0.01f, 0, (frame & 1) == 0 ? 0.01f : -0.01f);
+        update(object, position, instance.getRotation(), instance.getScale());
+    }
+
+    //scale edits cycle through a few sizes, so the shape comes from the cache rather than being rebuilt
+    @Benchmark
+    public void dragScale() {
+        frame++;
+        int object = objects / 2;
+        MeshInstance instance = scene.components.get(object).getInstance();
+        scale.set(1 + (frame & 7) * 0.25f);
+        update(object, instance.getPosition(), instance.getRotation(), scale);
+    }
+
+    //a new object every call, each one is its own undo entry
+    @Benchmark
+    public void editEach() {
+        int object = frame++ % objects;
+        MeshInstance instance = scene.components.get(object).getInstance();
+        rotation.set(instance.getRotation()).rotateY(0.01f);
+        history.close();
+        update(object, instance.getPosition(), rotation, instance.getScale());
+    }
+
+    //kept in step with Viewport.updateComponent
+    private void update(int index, Vector3f newPosition, Quaternionf newRotation, Vector3f newScale) {
+        PhysicsComponent component = scene.components.get(index);
+        TransformEdit.copy(component.getInstance(), historyBefore, 0);
+        component.getInstance().getPosition().set(newPosition);
+        component.getInstance().getRotation().set(newRotation);
+        component.getInstance().getScale().set(newScale);
+
+        CollisionShape shape = scene.shapeCache.getShape(component.getInstance().getMesh(), component.getInstance().getScale());
+        synchronized (scene.physicsScheduler.getLock()) {
+            scene.physicsScheduler.setTransform(component, shape);
+        }
+        scene.physicsScheduler.teleport(component);
+
+        scene.sceneCuller.update(component.getInstance());
+        TransformEdit.copy(component.getInstance(), historyAfter, 0);
+        history.recordTransform(index, historyBefore, historyAfter);
+    }
+}
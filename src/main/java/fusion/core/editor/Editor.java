@@ -0,0 +1,89 @@
+package fusion.core.editor;
+
+import com.fusion.core.GlfwWindow;
+import fusion.core.editor.assets.AssetManager;
+import fusion.core.editor.explorer.DirectoryCache;
+import fusion.core.editor.profiler.Profiler;
+import fusion.core.editor.profiler.ProfilerOverlay;
+import open.gl.OpenGlRenderer;
+
+import java.io.File;
+
+//The editor's panels in the order they are shown, shared by the plugin and the headless runner.
+//Needs a current GL and ImGui context, the caller starts and renders the ImGui frame around show
+public class Editor {
+
+    private final Viewport viewport;
+    private final Properties properties;
+    private final Toolbar toolbar;
+    private final FileExplorer fileExplorer;
+
+    private final Profiler profiler;
+    private final ProfilerOverlay profilerOverlay;
+    private final int viewportZone;
+    private final int propertiesZone;
+    private final int toolbarZone;
+    private final int fileExplorerZone;
+    private final int directoryHitCounter, directoryMissCounter, directoryScanCounter, lastScanCounter, averageScanCounter;
+
+    public Editor(GlfwWindow window, AssetManager assets, Profiler profiler, File sceneDirectory) {
+        this.profiler = profiler;
+        //traces are exported into Profiles/
+        profilerOverlay = new ProfilerOverlay(profiler, new File("Profiles"));
+        viewportZone = profiler.zone("Viewport");
+        propertiesZone = profiler.zone("Properties");
+        toolbarZone = profiler.zone("Toolbar");
+        fileExplorerZone = profiler.zone("File Explorer");
+        //totals since startup, scan times in microseconds
+        directoryHitCounter = profiler.counter("Directory Cache Hits");
+        directoryMissCounter = profiler.counter("Directory Cache Misses");
+        directoryScanCounter = profiler.counter("Directory Scans");
+        lastScanCounter = profiler.counter("Last Scan us");
+        averageScanCounter = profiler.counter("Average Scan us");
+
+        viewport = new Viewport(window, assets, profiler, sceneDirectory);
+        properties = new Properties();
+        toolbar = new Toolbar(window);
+        fileExplorer = new FileExplorer();
+    }
+
+    public void show(OpenGlRenderer renderer) {
+        profiler.begin(viewportZone);
+        viewport.show(renderer);
+        profiler.end();
+        profiler.begin(propertiesZone);
+        properties.show(viewport);
+        profiler.end();
+        profiler.begin(toolbarZone);
+        toolbar.show(viewport);
+        profiler.end();
+        profiler.begin(fileExplorerZone);
+        fileExplorer.show();
+        profiler.end();
+        DirectoryCache directories = fileExplorer.getDirectoryCache();
+        profiler.setCounter(directoryHitCounter, directories.getHits());
+        profiler.setCounter(directoryMissCounter, directories.getMisses());
+        profiler.setCounter(directoryScanCounter, directories.getScans());
+        profiler.setCounter(lastScanCounter, directories.getLastScanNanos() / 1000);
+        profiler.setCounter(averageScanCounter, directories.getAverageScanNanos() / 1000);
+        profilerOverlay.show();
+    }
+
+    //whether the next frames will still change without any input
+    public boolean isBusy() {
+        return viewport.isBusy() || fileExplorer.isBusy();
+    }
+
+    public Viewport getViewport() {
+        return viewport;
+    }
+
+    public FileExplorer getFileExplorer() {
+        return fileExplorer;
+    }
+
+    public void cleanup() {
+        viewport.cleanup();
+        fileExplorer.cleanup();
+    }
+}
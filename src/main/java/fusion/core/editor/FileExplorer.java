@@ -1,37 +1,62 @@
 package fusion.core.editor;
 
 import com.fusion.core.engine.Global;
+import fusion.core.editor.explorer.DirectoryCache;
+import fusion.core.editor.explorer.DirectorySnapshot;
+import fusion.core.editor.explorer.ExplorerGrid;
+import fusion.core.editor.explorer.GlThumbnailUploader;
+import fusion.core.editor.explorer.ThumbnailCache;
+import fusion.core.editor.explorer.ThumbnailDiskCache;
+import fusion.core.editor.explorer.ThumbnailGenerator;
 import imgui.ImGui;
 import open.gl.texture.Texture;
 import open.gl.texture.TextureLoader;
 
 import java.io.File;
+import java.util.List;
 
 public class FileExplorer {
 
     private File rootDir;
     private File currentDir;
+    private String displayPath;
+    private boolean scrollToTop = false;
+
+    //folders are listed in the background, show() only reads the cached snapshots
+    private DirectoryCache directories = new DirectoryCache();
 
     private Texture fileIcon;
     private Texture folderIcon;
 
+    //previews of images and models, generated in the background and uploaded a few per frame
+    private static final int THUMBNAIL_SIZE = 128;
+    private static final int THUMBNAIL_UPLOADS_PER_FRAME = 4;
+    private static final long THUMBNAIL_MEMORY = 64L * 1024 * 1024;
+    private ThumbnailCache thumbnails;
+
     private int[] iconSize = {75};
+    private static final int NAME_LINES = 2;
+    private ExplorerGrid grid = new ExplorerGrid();
 
     public FileExplorer() {
         this.rootDir = Global.getAssetDir();
-        this.currentDir = new File(rootDir.getAbsolutePath());
+        openDirectory(new File(rootDir.getAbsolutePath()));
 
         fileIcon = TextureLoader.loadTexture(Global.getAssetDir().getAbsolutePath() + File.separator + "FusionCoreEditor" + File.separator + "fileIcon.png");
         folderIcon = TextureLoader.loadTexture(Global.getAssetDir().getAbsolutePath() + File.separator + "FusionCoreEditor" + File.separator + "folderIcon.png");
+
+        thumbnails = new ThumbnailCache(new ThumbnailGenerator(THUMBNAIL_SIZE), new ThumbnailDiskCache(new File("Config/Thumbnails")), new GlThumbnailUploader(), THUMBNAIL_MEMORY);
     }
 
     public void show() {
-        if (ImGui.begin("File Explorer")) {
-            String displayPath = currentDir.getAbsolutePath().replace(rootDir.getAbsolutePath(), rootDir.getName());
-            ImGui.text("Current Directory: " + (displayPath.isEmpty() ? "\\" : displayPath));
+        thumbnails.update(THUMBNAIL_UPLOADS_PER_FRAME);
 
-            float windowWidth = ImGui.getContentRegionAvailX();
-            int numColumns = (int) (windowWidth / (iconSize[0] + 20));
+        if (ImGui.begin("File Explorer")) {
+            if (scrollToTop) {
+                ImGui.setScrollY(0);
+                scrollToTop = false;
+            }
+            ImGui.text(displayPath);
 
             ImGui.setNextItemWidth(100);
             ImGui.sameLine(ImGui.getWindowWidth() - 120);
@@ -41,34 +66,90 @@ public class FileExplorer {
 
             if (!currentDir.getAbsolutePath().equals(rootDir.getAbsolutePath())) {
                 if (ImGui.button("..")) {
-                    currentDir = currentDir.getParentFile();
+                    openDirectory(currentDir.getParentFile());
                 }
             }
 
 
-            File[] files = currentDir.listFiles();
-            if (files != null) {
-                ImGui.columns(numColumns, "My Columns", false);
-                for (File file : files) {
-                    Texture icon = file.isDirectory() ? folderIcon : fileIcon;
-                    ImGui.pushID(file.getName());
-                    {
-                        if (ImGui.imageButton(icon.getID(), iconSize[0], iconSize[0])) {
-                            if (file.isDirectory()) {
-                                currentDir = file;
-                            } else {
-                            }
-                        }
-                        ImGui.pushTextWrapPos(ImGui.getCursorPosX() + iconSize[0]);
-                        ImGui.text(file.getName());
-                        ImGui.popTextWrapPos();
+            DirectorySnapshot snapshot = directories.get(currentDir);
+            if (snapshot == null) {
+                ImGui.text("Loading...");
+            } else {
+                showGrid(snapshot);
+            }
+        }
+        ImGui.end();
+    }
+
+    //only the rows inside the scrolled view are submitted, the rest of the folder is just reserved space
+    private void showGrid(DirectorySnapshot snapshot) {
+        float buttonSize = iconSize[0] + ImGui.getStyle().getFramePaddingX() * 2;
+        float spacing = ImGui.getStyle().getItemSpacingY();
+        float textHeight = ImGui.getTextLineHeight() * NAME_LINES;
+        float cellWidth = iconSize[0] + 20;
+        float cellHeight = buttonSize + spacing + textHeight + spacing;
+
+        float startX = ImGui.getCursorPosX();
+        float startY = ImGui.getCursorPosY();
+        grid.layout(snapshot.size(), ImGui.getContentRegionAvailX(), cellWidth, cellHeight);
+        grid.clip(ImGui.getScrollY() - startY, ImGui.getWindowHeight());
+
+        List<DirectorySnapshot.Entry> entries = snapshot.getEntries();
+        for (int i = grid.getFirstIndex(); i < grid.getLastIndex(); i++) {
+            DirectorySnapshot.Entry file = entries.get(i);
+            int icon = file.isDirectory() ? folderIcon.getID() : fileIcon.getID();
+            if (!file.isDirectory() && ThumbnailGenerator.isSupported(file.getName())) {
+                int thumbnail = thumbnails.get(file.getFile(), file.getLastModified());
+                if (thumbnail != 0) {
+                    icon = thumbnail;
+                }
+            }
+            float x = startX + grid.getX(i);
+            ImGui.setCursorPos(x, startY + grid.getY(i));
+            ImGui.pushID(file.getName());
+            {
+                if (ImGui.imageButton(icon, iconSize[0], iconSize[0])) {
+                    if (file.isDirectory()) {
+                        openDirectory(file.getFile());
+                    } else {
                     }
-                    ImGui.popID();
-                    ImGui.nextColumn();
                 }
-                ImGui.columns(1);
+                //names longer than the cell are cut off so every cell keeps the same height
+                ImGui.setCursorPosX(x);
+                float textX = ImGui.getCursorScreenPosX();
+                float textY = ImGui.getCursorScreenPosY();
+                ImGui.pushClipRect(textX, textY, textX + buttonSize, textY + textHeight, true);
+                ImGui.pushTextWrapPos(x + iconSize[0]);
+                ImGui.text(file.getName());
+                ImGui.popTextWrapPos();
+                ImGui.popClipRect();
             }
+            ImGui.popID();
         }
-        ImGui.end();
+
+        //reserve the height of all rows so the scroll bar covers the whole folder
+        ImGui.setCursorPos(startX, startY + grid.getContentHeight());
+        ImGui.dummy(0, 0);
+    }
+
+    private void openDirectory(File directory) {
+        currentDir = directory;
+        scrollToTop = true;
+        String path = currentDir.getAbsolutePath().replace(rootDir.getAbsolutePath(), rootDir.getName());
+        displayPath = "Current Directory: " + (path.isEmpty() ? "\\" : path);
+    }
+
+    //thumbnails or folder scans still on their way
+    public boolean isBusy() {
+        return thumbnails.getPendingCount() > 0 || directories.isScanning();
+    }
+
+    public DirectoryCache getDirectoryCache() {
+        return directories;
+    }
+
+    public void cleanup() {
+        directories.close();
+        thumbnails.close();
     }
 }
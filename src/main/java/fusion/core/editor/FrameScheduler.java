@@ -0,0 +1,141 @@
+package fusion.core.editor;
+
+import org.lwjgl.glfw.GLFWCharCallback;
+import org.lwjgl.glfw.GLFWCursorEnterCallback;
+import org.lwjgl.glfw.GLFWCursorPosCallback;
+import org.lwjgl.glfw.GLFWFramebufferSizeCallback;
+import org.lwjgl.glfw.GLFWKeyCallback;
+import org.lwjgl.glfw.GLFWMouseButtonCallback;
+import org.lwjgl.glfw.GLFWScrollCallback;
+import org.lwjgl.glfw.GLFWWindowFocusCallback;
+import org.lwjgl.glfw.GLFWWindowRefreshCallback;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.lwjgl.glfw.GLFW.*;
+
+//Lets an editor with nothing to do stop spinning. Input, window events, invalidate and frames reporting work
+//mark it as changed, after IDLE_FRAMES frames without any waitForEvents blocks for up to IDLE_TIMEOUT seconds
+public class FrameScheduler {
+
+    //frames drawn after the last change, ImGui needs a few to finish hover and fade effects
+    private static final int IDLE_FRAMES = 30;
+    //longest an idle editor sleeps, picks up work that finished on other threads without waking it
+    private static final double IDLE_TIMEOUT = 0.1;
+
+    private final AtomicBoolean changed = new AtomicBoolean(true);
+    private int quietFrames = 0;
+
+    private long idleFrameCount = 0;
+    private long sleptNanos = 0;
+
+    //chains onto the callbacks installed so far, has to run before the ImGui backend installs its own
+    public void installCallbacks(long window) {
+        GLFWKeyCallback key = glfwSetKeyCallback(window, null);
+        glfwSetKeyCallback(window, (w, k, scancode, action, mods) -> {
+            invalidate();
+            if (key != null) {
+                key.invoke(w, k, scancode, action, mods);
+            }
+        });
+        GLFWCharCallback character = glfwSetCharCallback(window, null);
+        glfwSetCharCallback(window, (w, codepoint) -> {
+            invalidate();
+            if (character != null) {
+                character.invoke(w, codepoint);
+            }
+        });
+        GLFWMouseButtonCallback button = glfwSetMouseButtonCallback(window, null);
+        glfwSetMouseButtonCallback(window, (w, b, action, mods) -> {
+            invalidate();
+            if (button != null) {
+                button.invoke(w, b, action, mods);
+            }
+        });
+        GLFWCursorPosCallback cursor = glfwSetCursorPosCallback(window, null);
+        glfwSetCursorPosCallback(window, (w, x, y) -> {
+            invalidate();
+            if (cursor != null) {
+                cursor.invoke(w, x, y);
+            }
+        });
+        GLFWCursorEnterCallback enter = glfwSetCursorEnterCallback(window, null);
+        glfwSetCursorEnterCallback(window, (w, entered) -> {
+            invalidate();
+            if (enter != null) {
+                enter.invoke(w, entered);
+            }
+        });
+        GLFWScrollCallback scroll = glfwSetScrollCallback(window, null);
+        glfwSetScrollCallback(window, (w, x, y) -> {
+            invalidate();
+            if (scroll != null) {
+                scroll.invoke(w, x, y);
+            }
+        });
+        GLFWWindowFocusCallback focus = glfwSetWindowFocusCallback(window, null);
+        glfwSetWindowFocusCallback(window, (w, focused) -> {
+            invalidate();
+            if (focus != null) {
+                focus.invoke(w, focused);
+            }
+        });
+        GLFWFramebufferSizeCallback size = glfwSetFramebufferSizeCallback(window, null);
+        glfwSetFramebufferSizeCallback(window, (w, width, height) -> {
+            invalidate();
+            if (size != null) {
+                size.invoke(w, width, height);
+            }
+        });
+        //the window was uncovered or needs repainting for another reason
+        GLFWWindowRefreshCallback refresh = glfwSetWindowRefreshCallback(window, null);
+        glfwSetWindowRefreshCallback(window, w -> {
+            invalidate();
+            if (refresh != null) {
+                refresh.invoke(w);
+            }
+        });
+    }
+
+    //something changed that has to be drawn, safe to call from any thread
+    public void invalidate() {
+        if (!changed.getAndSet(true)) {
+            //wakes waitForEvents
+            glfwPostEmptyEvent();
+        }
+    }
+
+    //call before building a frame, returns straight away unless the editor is idle
+    public void waitForEvents() {
+        if (!isIdle() || changed.get()) {
+            return;
+        }
+        long start = System.nanoTime();
+        glfwWaitEventsTimeout(IDLE_TIMEOUT);
+        sleptNanos += System.nanoTime() - start;
+    }
+
+    //busy is true when the frame did work that has to be followed up, e.g. the viewport drew or assets were uploaded
+    public void endFrame(boolean busy) {
+        if (changed.getAndSet(false) || busy) {
+            quietFrames = 0;
+        } else if (quietFrames < IDLE_FRAMES) {
+            quietFrames++;
+        } else {
+            idleFrameCount++;
+        }
+    }
+
+    public boolean isIdle() {
+        return quietFrames >= IDLE_FRAMES;
+    }
+
+    //frames drawn while idle and the time spent waiting for events since the editor started
+    public long getIdleFrameCount() {
+        return idleFrameCount;
+    }
+
+    public long getSleptNanos() {
+        return sleptNanos;
+    }
+}
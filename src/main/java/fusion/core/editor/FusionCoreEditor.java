@@ -6,6 +6,8 @@ import com.fusion.core.engine.Global;
 import com.fusion.core.engine.plugin.Plugin;
 import com.fusion.core.engine.plugin.UnmodifiableString;
 import com.fusion.core.engine.renderer.RendererReady;
+import fusion.core.editor.assets.AssetManager;
+import fusion.core.editor.profiler.Profiler;
 import imgui.*;
 import imgui.flag.ImGuiCond;
 import imgui.flag.ImGuiConfigFlags;
@@ -14,15 +16,15 @@ import imgui.glfw.ImGuiImplGlfw;
 import open.gl.*;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
+import static org.lwjgl.glfw.GLFW.glfwSetDropCallback;
+import static org.lwjgl.glfw.GLFWDropCallback.getName;
 import static org.lwjgl.opengl.GL30.*;
 
 public class FusionCoreEditor extends Plugin {
@@ -33,10 +35,20 @@ public class FusionCoreEditor extends Plugin {
     private final ImGuiImplGlfw imGuiGLFW = new ImGuiImplGlfw();
     private final ImGuiImplGl3 imGuiGl3 = new ImGuiImplGl3();
 
-    private Viewport viewport;
-    private Properties properties;
-    private Toolbar toolbar;
-    private FileExplorer fileExplorer;
+    private Editor editor;
+
+    private AssetManager assets;
+    //how long the render thread may spend creating GL objects for loaded assets each frame
+    private static final long ASSET_UPLOAD_BUDGET = 2_000_000;
+
+    //times every part of the frame, shown in the Profiler window and exported as traces into Profiles/
+    private final Profiler profiler = new Profiler();
+    private final int assetsZone = profiler.zone("Assets");
+    private final int imguiZone = profiler.zone("ImGui Render");
+    private final int idleCounter = profiler.counter("Idle");
+
+    //stops building frames as fast as possible while nothing changes
+    private final FrameScheduler scheduler = new FrameScheduler();
 
     @Override
     public void init(CoreEngine coreEngine) {
@@ -48,6 +60,10 @@ public class FusionCoreEditor extends Plugin {
             e.printStackTrace();
         }
 
+        //read while the renderer is still starting up
+        assets = new AssetManager();
+        CompletableFuture<byte[]> font = assets.loadBytes(Global.getAssetDir().getAbsolutePath() + File.separator + getId() + File.separator + "Roboto-Bold.ttf");
+
         coreEngine.addRendererReadyCallback(new RendererReady() {
             @Override
             public void onReady() {
@@ -78,55 +94,63 @@ public class FusionCoreEditor extends Plugin {
                 fontConfig.setMergeMode(true);
 
                 final short[] glyphRanges = rangesBuilder.buildRanges();
-                io.getFonts().addFontFromMemoryTTF(loadFromResources(getId() + File.separator + "Roboto-Bold.ttf"), 14, fontConfig, glyphRanges); // cyrillic glyphsio.getFonts().build();
+                io.getFonts().addFontFromMemoryTTF(font.join(), 14, fontConfig, glyphRanges); // cyrillic glyphsio.getFonts().build();
                 io.getFonts().build();
 
                 fontConfig.destroy();
 
+                scheduler.installCallbacks(window.getWindowID());
                 imGuiGLFW.init(window.getWindowID(), true);
                 imGuiGl3.init("#version 330");
 
-                viewport = new Viewport(window);
-                properties = new Properties();
-                toolbar = new Toolbar(window);
-                fileExplorer = new FileExplorer();
+                profiler.enableGpuTiming();
+                editor = new Editor(window, assets, profiler, Viewport.SCENE_DIRECTORY);
+
+                //files dropped onto the window are imported into the scene
+                glfwSetDropCallback(window.getWindowID(), (windowId, count, names) -> {
+                    for (int i = 0; i < count; i++) {
+                        editor.getViewport().importModel(getName(names, i));
+                    }
+                    scheduler.invalidate();
+                });
+                editor.getFileExplorer().getDirectoryCache().setChangeListener(scheduler::invalidate);
             }
         });
     }
 
     @Override
     public void update() {
+        scheduler.waitForEvents();
+        profiler.beginFrame();
+        profiler.begin(assetsZone);
+        int uploads = assets.update(ASSET_UPLOAD_BUDGET);
+        profiler.end();
         glClear(GL_COLOR_BUFFER_BIT);
         imGuiGLFW.newFrame();
         ImGui.newFrame();
 
-        viewport.show(renderer);
-        properties.show(viewport);
-        toolbar.show(viewport);
-        fileExplorer.show();
+        editor.show(renderer);
 
+        profiler.begin(imguiZone);
+        profiler.beginGpu(imguiZone);
         ImGui.render();
         imGuiGl3.renderDrawData(ImGui.getDrawData());
+        profiler.endGpu();
+        profiler.end();
+        profiler.setCounter(idleCounter, scheduler.isIdle() ? 1 : 0);
+        profiler.endFrame();
+
+        scheduler.endFrame(editor.isBusy() || uploads > 0 || assets.getQueuedUploads() > 0);
     }
 
     @Override
     public void shutdown() {
-        viewport.cleanup();
+        editor.cleanup();
+        profiler.cleanup();
+        assets.close();
         ImGui.destroyContext();
     }
 
-    private byte[] loadFromResources(String path){
-        try{
-            File file = new File(Global.getAssetDir().getAbsolutePath() + File.separator + path);
-            if(!file.exists()){
-                throw new FileNotFoundException("File Not Found: " + file);
-            }
-            return Files.readAllBytes(Paths.get(file.toURI()));
-        }catch (IOException e){
-            throw new RuntimeException(e);
-        }
-    }
-
     @Override
     public void setId() {
         id.set("FusionCoreEditor");
@@ -1,16 +1,33 @@
 package fusion.core.editor;
 
+import fusion.core.editor.scene.Selection;
 import imgui.ImGui;
-import imgui.extension.imguizmo.ImGuizmo;
 import imgui.flag.ImGuiCond;
 import imgui.flag.ImGuiInputTextFlags;
-import open.gl.gameobject.MeshInstance;
-import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
 
 public class Properties {
 
+    //Reused every frame so showing a selection does not allocate
+    private final TransformFields fields = new TransformFields();
+    private final float[] translation = fields.translation;
+    private final float[] rotation = fields.rotation;
+    private final float[] scale = fields.scale;
+    private final Vector3f newPos = new Vector3f();
+    private final Quaternionf newRot = new Quaternionf();
+    private final Vector3f newScale = new Vector3f();
+
+    //multi object edits are relative, rotate and scale by are applied around the centre and reset afterwards
+    private final float[] rotateBy = new float[3];
+    private final float[] scaleBy = {1, 1, 1};
+    private final Vector3f center = new Vector3f();
+    private final Quaternionf noRotation = new Quaternionf();
+    private final Vector3f unitScale = new Vector3f(1, 1, 1);
+    //only rebuilt when the selection count changes
+    private String selectedText;
+    private int selectedTextCount = -1;
+
     public Properties() {
     }
 
@@ -19,16 +36,11 @@ public class Properties {
         ImGui.setNextWindowSize(250, 250, ImGuiCond.FirstUseEver);
 
         if(ImGui.begin("Properties")){
-            if(viewport.getSelectedComponent() != null) {
-                MeshInstance meshInstance = viewport.getSelectedComponent().getInstance();
-                Matrix4f instanceMatrix = meshInstance.getModelMatrix();
-
-                float[] modelMatrix = new float[16];
-                instanceMatrix.get(modelMatrix);
-                float[] translation = new float[3];
-                float[] rotation = new float[3];
-                float[] scale = new float[3];
-                ImGuizmo.decomposeMatrixToComponents(modelMatrix, translation, rotation, scale);
+            Selection selection = viewport.getSelection();
+            if(selection.size() > 1){
+                showSelection(viewport, selection);
+            }else if(viewport.getSelectedComponent() != null) {
+                fields.decompose(viewport.getSelectedComponent().getInstance());
 
                 boolean usingTrn = ImGui.inputFloat3("Translation", translation, "%.3f", ImGuiInputTextFlags.EnterReturnsTrue);
                 boolean usingRot = ImGui.inputFloat3("Rotation", rotation, "%.3f", ImGuiInputTextFlags.EnterReturnsTrue);
@@ -41,20 +53,7 @@ public class Properties {
                 }
 
                 if(usingTrn || usingRot || usingScl) {
-                    ImGuizmo.recomposeMatrixFromComponents(modelMatrix, translation, rotation, scale);
-
-                    Matrix4f newModelMatrix = new Matrix4f();
-                    newModelMatrix.set(modelMatrix);
-
-                    Vector3f newPos = new Vector3f();
-                    newModelMatrix.getTranslation(newPos);
-
-                    Quaternionf newRot = new Quaternionf();
-                    newModelMatrix.getNormalizedRotation(newRot);
-
-                    Vector3f newScale = new Vector3f();
-                    newModelMatrix.getScale(newScale);
-
+                    fields.recompose(newPos, newRot, newScale);
                     viewport.updateComponent(viewport.getSelectedComponent(), newPos, newRot, newScale);
                 }
             }
@@ -62,6 +61,37 @@ public class Properties {
         ImGui.end();
     }
 
+    private void showSelection(Viewport viewport, Selection selection){
+        if(selection.size() != selectedTextCount){
+            selectedTextCount = selection.size();
+            selectedText = selectedTextCount + " objects selected";
+        }
+        ImGui.text(selectedText);
+
+        selection.getCenter(center);
+        translation[0] = center.x;
+        translation[1] = center.y;
+        translation[2] = center.z;
+        boolean moved = ImGui.inputFloat3("Translation", translation, "%.3f", ImGuiInputTextFlags.EnterReturnsTrue);
+        boolean rotated = ImGui.inputFloat3("Rotate By", rotateBy, "%.3f", ImGuiInputTextFlags.EnterReturnsTrue);
+        boolean scaled = ImGui.inputFloat3("Scale By", scaleBy, "%.2f", ImGuiInputTextFlags.EnterReturnsTrue);
+
+        if(moved || rotated || scaled){
+            newPos.set(translation[0], translation[1], translation[2]);
+            newRot.rotationXYZ((float) Math.toRadians(normalizeAngle(rotateBy[0])), (float) Math.toRadians(normalizeAngle(rotateBy[1])), (float) Math.toRadians(normalizeAngle(rotateBy[2])));
+            if(scaleBy[0] == 0 || scaleBy[1] == 0 || scaleBy[2] == 0){
+                //a zero scale could never be undone by scaling back
+                newScale.set(1, 1, 1);
+            }else{
+                newScale.set(scaleBy[0], scaleBy[1], scaleBy[2]);
+            }
+            viewport.transformSelection(center, noRotation, unitScale, newPos, newRot, newScale);
+
+            rotateBy[0] = rotateBy[1] = rotateBy[2] = 0;
+            scaleBy[0] = scaleBy[1] = scaleBy[2] = 1;
+        }
+    }
+
     private float normalizeAngle(float angle) {
         float newAngle = angle % 360;
         if (newAngle > 180) {
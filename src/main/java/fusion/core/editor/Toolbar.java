@@ -1,11 +1,14 @@
 package fusion.core.editor;
 
 import com.fusion.core.GlfwWindow;
+import fusion.core.editor.render.DynamicResolution;
+import fusion.core.editor.render.ShadowCascades;
+import fusion.core.editor.scene.Picker;
 import imgui.ImGui;
+import imgui.type.ImInt;
 import open.gl.PerspectiveCamera;
 import open.gl.gameobject.PhysicsComponent;
 import open.gl.physics.HitResults;
-import open.gl.shaders.WorldShader;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
@@ -22,6 +25,21 @@ public class Toolbar {
 
     private HitResults hitResults = new HitResults();
 
+    private static final String[] SHADOW_QUALITIES = {"Low", "Medium", "High"};
+    private static final long[] SHADOW_BUDGETS = {ShadowCascades.LOW_QUALITY, ShadowCascades.MEDIUM_QUALITY, ShadowCascades.HIGH_QUALITY};
+    private final ImInt shadowQuality = new ImInt(2);
+
+    private static final String[] FRAME_RATES = {"30 FPS", "60 FPS", "90 FPS", "144 FPS"};
+    private static final int[] FRAME_RATE_VALUES = {30, 60, 90, 144};
+    private final ImInt frameRate = new ImInt(1);
+
+    //Reused by getMouseRay so dragging a new object in does not allocate every frame
+    private final Matrix4f inverseProjection = new Matrix4f();
+    private final Matrix4f inverseView = new Matrix4f();
+    private final Vector4f ray = new Vector4f();
+    private final Vector3f mouseRay = new Vector3f();
+    private final Vector3f spawnScale = new Vector3f();
+
     public Toolbar(GlfwWindow window) {
         this.window = window;
         objects.add("Cube");
@@ -48,6 +66,66 @@ public class Toolbar {
                 }
             }
 
+            ImGui.sameLine();
+            if(ImGui.button("Undo")){
+                viewport.undo();
+            }
+            ImGui.sameLine();
+            if(ImGui.button("Redo")){
+                viewport.redo();
+            }
+
+            ImGui.sameLine();
+            if(ImGui.button("Save Scene")){
+                viewport.saveScene(viewport.getDefaultScene());
+            }
+            ImGui.sameLine();
+            if(ImGui.button("Load Scene") && viewport.getDefaultScene().exists()){
+                viewport.loadScene(viewport.getDefaultScene());
+            }
+            ImGui.sameLine();
+            if(ImGui.button("Save World")){
+                viewport.saveWorld(viewport.getDefaultWorld());
+            }
+            ImGui.sameLine();
+            if(ImGui.button("Open World") && viewport.getDefaultWorld().isDirectory()){
+                viewport.openWorld(viewport.getDefaultWorld());
+            }
+
+            ImGui.sameLine();
+            ImGui.setNextItemWidth(100);
+            if(ImGui.combo("Shadows", shadowQuality, SHADOW_QUALITIES)){
+                viewport.getShadowCascades().setTexelBudget(SHADOW_BUDGETS[shadowQuality.get()]);
+            }
+            ImGui.sameLine();
+            if(ImGui.checkbox("Cache Shadows", viewport.isShadowCaching())){
+                viewport.setShadowCaching(!viewport.isShadowCaching());
+            }
+            ImGui.sameLine();
+            if(ImGui.checkbox("Pause Physics", viewport.isPhysicsPaused())){
+                viewport.setPhysicsPaused(!viewport.isPhysicsPaused());
+            }
+            ImGui.sameLine();
+            if(ImGui.checkbox("Physics Thread", viewport.isPhysicsThreaded())){
+                viewport.setPhysicsThreaded(!viewport.isPhysicsThreaded());
+            }
+            ImGui.sameLine();
+            DynamicResolution dynamicResolution = viewport.getDynamicResolution();
+            if(ImGui.checkbox("Dynamic Resolution", dynamicResolution.isEnabled())){
+                dynamicResolution.setEnabled(!dynamicResolution.isEnabled());
+            }
+            if(dynamicResolution.isEnabled()){
+                ImGui.sameLine();
+                ImGui.setNextItemWidth(80);
+                if(ImGui.combo("Target", frameRate, FRAME_RATES)){
+                    dynamicResolution.setTargetNanos(1_000_000_000L / FRAME_RATE_VALUES[frameRate.get()]);
+                }
+            }
+            if(viewport.getStatus() != null){
+                ImGui.sameLine();
+                ImGui.textDisabled(viewport.getStatus());
+            }
+
             //if draggin stops and nothing is hovered set selected item to null
             if(!anyItemHovered && !ImGui.isMouseDragging(0)){
                 selectedObject = null;
@@ -58,9 +136,9 @@ public class Toolbar {
                 if(selectedObject != null){
                     //spawn in new item in the viewport
                     if(spawnedInstance != null){
-                       Vector3f mouseRay = getMouseRay(viewport.camera, viewport.worldShader);
+                       Vector3f mouseRay = getMouseRay(viewport);
                        mouseRay.floor();
-                        viewport.updateComponent(spawnedInstance, mouseRay, spawnedInstance.getInstance().getRotation(), new Vector3f(1, 1, 1));
+                        viewport.updateComponent(spawnedInstance, mouseRay, spawnedInstance.getInstance().getRotation(), spawnScale.set(1, 1, 1));
                     }else {
                         //TODO check what the selectedObject is and spawned it based on that
                         spawnedInstance = viewport.addCube();
@@ -71,32 +149,13 @@ public class Toolbar {
         ImGui.end();
     }
 
-    private Vector3f getMouseRay(PerspectiveCamera camera, WorldShader worldShader) {
+    //the cursor relative to the scene image, which is what the projection is sized to
+    private Vector3f getMouseRay(Viewport viewport) {
         double[] cursorPosition = window.getCursorPosition();
-        float mouseX = (float)cursorPosition[0];
-        float mouseY = (float)cursorPosition[1];
-
-        float normalizedX = (2.0f * mouseX) / window.getWidth() - 1f;
-        float normalizedY = 1f - (2.0f * mouseY) / window.getHeight();
-        Vector4f clipCoords = new Vector4f(normalizedX, normalizedY, -1.0f, 1.0f);
-
-        Matrix4f invertedProjection = new Matrix4f(camera.getProjectionMatrix());
-        invertedProjection.invert();
-
-        Vector4f eyeCoords = invertedProjection.transform(clipCoords);
-        eyeCoords.z = -1.0f;
-        eyeCoords.w = 0.0f;
-
-        Matrix4f invertedView = new Matrix4f(worldShader.getViewMatrix());
-        invertedView.invert();
-
-        Vector4f worldRay = invertedView.transform(eyeCoords);
-        Vector3f mouseRay = new Vector3f(worldRay.x, worldRay.y, worldRay.z);
-        mouseRay.normalize();
-
-        Vector3f cameraPosition = new Vector3f(camera.getPosition());
-        mouseRay.mul(5f).add(cameraPosition);
-
-        return mouseRay;
+        float mouseX = (float) cursorPosition[0] - viewport.viewportPosition.x;
+        float mouseY = (float) cursorPosition[1] - viewport.viewportPosition.y;
+        PerspectiveCamera camera = viewport.camera;
+        return Picker.getMouseRay(mouseX, mouseY, (int) viewport.viewportSize.x, (int) viewport.viewportSize.y,
+                camera.getProjectionMatrix(), viewport.worldShader.getViewMatrix(), camera.getPosition(), inverseProjection, inverseView, ray, mouseRay);
     }
 }
@@ -0,0 +1,37 @@
+package fusion.core.editor;
+
+import imgui.extension.imguizmo.ImGuizmo;
+import open.gl.Transform;
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+//The translation, rotation (degrees) and scale fields of the Properties panel, kept apart from the panel so they can be benchmarked without a Viewport
+public class TransformFields {
+
+    public final float[] translation = new float[3];
+    public final float[] rotation = new float[3];
+    public final float[] scale = new float[3];
+
+    //Reused every frame so showing a selection does not allocate
+    private final Matrix4f instanceMatrix = new Matrix4f();
+    private final float[] modelMatrix = new float[16];
+
+    //fills the fields from the transform
+    public void decompose(Transform transform){
+        instanceMatrix.translationRotateScale(transform.getPosition(), transform.getRotation(), transform.getScale());
+
+        instanceMatrix.get(modelMatrix);
+        ImGuizmo.decomposeMatrixToComponents(modelMatrix, translation, rotation, scale);
+    }
+
+    //turns the edited fields back into a transform
+    public void recompose(Vector3f position, Quaternionf rotation, Vector3f scale){
+        ImGuizmo.recomposeMatrixFromComponents(modelMatrix, translation, this.rotation, this.scale);
+
+        instanceMatrix.set(modelMatrix);
+        instanceMatrix.getTranslation(position);
+        instanceMatrix.getNormalizedRotation(rotation);
+        instanceMatrix.getScale(scale);
+    }
+}
@@ -1,13 +1,37 @@
 package fusion.core.editor;
 
-import com.bulletphysics.collision.shapes.ConvexHullShape;
+import com.bulletphysics.collision.shapes.CollisionShape;
 import com.bulletphysics.dynamics.RigidBody;
-import com.bulletphysics.linearmath.Transform;
-import com.bulletphysics.util.ObjectArrayList;
 import com.fusion.core.EventMouseButton;
 import com.fusion.core.GlfwInput;
 import com.fusion.core.GlfwWindow;
 import com.fusion.core.engine.Global;
+import fusion.core.editor.assets.AssetManager;
+import fusion.core.editor.assets.MeshSource;
+import fusion.core.editor.history.EditHistory;
+import fusion.core.editor.history.TransformEdit;
+import fusion.core.editor.journal.JournalReader;
+import fusion.core.editor.journal.OperationJournal;
+import fusion.core.editor.physics.PhysicsScheduler;
+import fusion.core.editor.physics.ShapeCache;
+import fusion.core.editor.profiler.Profiler;
+import fusion.core.editor.profiler.ProfilerFrame;
+import fusion.core.editor.render.DynamicResolution;
+import fusion.core.editor.render.InstancedRenderer;
+import fusion.core.editor.render.InstancedShader;
+import fusion.core.editor.render.RenderTarget;
+import fusion.core.editor.render.ShaderUniforms;
+import fusion.core.editor.render.ShadowCascades;
+import fusion.core.editor.render.WorldUniforms;
+import fusion.core.editor.scene.PickResults;
+import fusion.core.editor.scene.Picker;
+import fusion.core.editor.scene.SceneBatch;
+import fusion.core.editor.scene.SceneCuller;
+import fusion.core.editor.scene.SceneFile;
+import fusion.core.editor.scene.SceneLoader;
+import fusion.core.editor.scene.SceneSnapshot;
+import fusion.core.editor.scene.Selection;
+import fusion.core.editor.scene.WorldStreamer;
 import imgui.ImColor;
 import imgui.ImGui;
 import imgui.ImVec2;
@@ -20,7 +44,6 @@ import open.gl.gameobject.Component;
 import open.gl.gameobject.Mesh;
 import open.gl.gameobject.MeshInstance;
 import open.gl.gameobject.PhysicsComponent;
-import open.gl.physics.HitResults;
 import open.gl.physics.PhysicsWorld;
 import open.gl.shaders.DepthShader;
 import open.gl.shaders.OpenGlShader;
@@ -28,18 +51,24 @@ import open.gl.shaders.WorldShader;
 import open.gl.shaders.lights.DirLight;
 import open.gl.shaders.lights.PointLight;
 import open.gl.shaders.material.BoxMaterial;
+import open.gl.shaders.material.Material;
 import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
 
-import javax.vecmath.Quat4f;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static imgui.flag.ImGuiWindowFlags.*;
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL11.GL_DEPTH_BUFFER_BIT;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE1;
 import static org.lwjgl.opengl.GL13.GL_TEXTURE4;
 import static org.lwjgl.opengl.GL13.glActiveTexture;
 
@@ -48,16 +77,130 @@ public class Viewport {
     private GlfwWindow window;
 
     public PhysicsWorld physicsWorld;
-    private HitResults hitResults;
-    private PhysicsComponent lastHitComponent = null;
+    //steps the world at a fixed rate, anything touching physicsWorld has to hold physicsScheduler.getLock()
+    private PhysicsScheduler physicsScheduler;
+    private ShapeCache shapeCache = new ShapeCache();
+    private PickResults hitResults;
+    //every selected component is left to the gizmo instead of physics, the primary one is what single object tools edit
+    private final Selection selection = new Selection();
+    private final List<PhysicsComponent> picked = new ArrayList<>();
     private float[] previousTransform = new float[16];
 
+    //box selection, started by dragging over the viewport instead of clicking
+    private static final float BOX_SELECT_THRESHOLD = 4;
+    private boolean boxSelecting = false;
+    private float boxStartX, boxStartY;
+
+    //multi object gizmo, the pivot sits in the middle of the selection and every object follows its changes
+    private final float[] pivotTransform = new float[16];
+    private final float[] previousPivot = new float[16];
+    private final Vector3f pivotPosition = new Vector3f();
+    private final Quaternionf pivotRotation = new Quaternionf();
+    private final Vector3f pivotScale = new Vector3f();
+    private final Quaternionf inverseRotation = new Quaternionf();
+    private final Quaternionf deltaRotation = new Quaternionf();
+    private final Vector3f scaleFactor = new Vector3f();
+    private final Vector3f pivotOffset = new Vector3f();
+    private int[] selectionObjects = new int[0];
+    private float[] selectionBefore = new float[0];
+    private float[] selectionAfter = new float[0];
+    private CollisionShape[] selectionShapes = new CollisionShape[0];
+
+    private AssetManager assets;
+    private Profiler profiler;
+    private final int sceneZone, physicsZone, cullingZone, shadowZone, mainZone, interfaceZone;
+    private final int objectCounter, visibleCounter, shadowCasterCounter, activeBodyCounter;
+    private final int shadowRedrawnCounter, shadowPatchedCounter, shadowReusedCounter, sceneSkippedCounter, renderScaleCounter;
+    private final int cellCounter, cellMemoryCounter, cellSkippedCounter;
+    private final int uniformUploadCounter, uniformSkippedCounter;
     private Mesh cube;
+    //how far in front of the camera imported models are placed
+    private static final float IMPORT_DISTANCE = 10f;
+
+    //holds the default scene and its journal unless the editor is given another folder
+    public static final File SCENE_DIRECTORY = new File("Scenes");
+    //loaded on startup when it exists, otherwise the scene is filled with random cubes
+    private final File defaultScene;
+    //how long restoring a scene may take per frame
+    private static final long SCENE_RESTORE_BUDGET = 4_000_000;
+    private SceneLoader sceneLoader;
+    private int restoredCount = 0;
+    private int skippedCount = 0;
+    //what the last save, load or recovery did, shown in the toolbar
+    private String status;
+
+    //a world split into cells, only the ones around the camera are in the scene, null while editing a single scene
+    private final File defaultWorld;
+    private WorldStreamer streamer;
+    private final WorldStreamer.Target streamingTarget = new WorldStreamer.Target() {
+        @Override
+        public PhysicsComponent restore(SceneBatch batch, int index, Mesh mesh) {
+            return restoreObject(batch, index, mesh);
+        }
+
+        @Override
+        public void remove(List<PhysicsComponent> removed) {
+            removeComponents(removed);
+        }
+
+        @Override
+        public SceneSnapshot capture(List<PhysicsComponent> captured) {
+            return captureScene(captured);
+        }
+    };
+
+    //edits to the default scene since its last snapshot, replayed on startup after a crash
+    private final File defaultJournal;
+    private OperationJournal journal;
+    private boolean recoverJournal = false;
+    private List<JournalReader.Operation> replay;
+    private int replayIndex = 0;
+    //kept until the spawn is replayed, a failed load is not cached so asking every frame would retry it forever
+    private CompletableFuture<List<Mesh>> replayMeshes;
+    //journal object numbers, the position of each component in components
+    private final Map<Component, Integer> componentIndices = new IdentityHashMap<>();
+
+    //undo and redo, a drag or a run of property edits is one step, closed once the mouse is released
+    private static final long HISTORY_BUDGET = 16 << 20;
+    private final EditHistory history = new EditHistory(new EditHistory.Target() {
+        @Override
+        public void applyTransform(int object, float[] values, int offset) {
+            editPosition.set(values[offset], values[offset + 1], values[offset + 2]);
+            editRotation.set(values[offset + 3], values[offset + 4], values[offset + 5], values[offset + 6]);
+            editScale.set(values[offset + 7], values[offset + 8], values[offset + 9]);
+            updateComponent((PhysicsComponent) components.get(object), editPosition, editRotation, editScale);
+        }
+
+        @Override
+        public PhysicsComponent remove(int object) {
+            return removeComponent(object);
+        }
+
+        @Override
+        public void restore(PhysicsComponent component) {
+            restoreComponent(component);
+        }
+
+        @Override
+        public int getObjectCount() {
+            return components.size();
+        }
+    }, HISTORY_BUDGET);
+    private final float[] historyBefore = new float[TransformEdit.STRIDE];
+    private final float[] historyAfter = new float[TransformEdit.STRIDE];
 
     Map<Mesh, List<MeshInstance>> instances = new HashMap<>();
 
     List<Component> components = new ArrayList<>();
 
+    //Culling, the index has to be told about every instance that is added or moved
+    private SceneCuller sceneCuller = new SceneCuller();
+    private Picker picker = new Picker(sceneCuller);
+    private Map<Mesh, List<MeshInstance>> visibleInstances = new HashMap<>();
+    private boolean culling = true;
+    private int visibleCount = 0;
+    private int shadowCasterCount = 0;
+
     public PerspectiveCamera camera;
     private CameraController cameraController;
     private DirLight dirLight;
@@ -65,34 +208,122 @@ public class Viewport {
 
     private DepthShader depthShader;
     public WorldShader worldShader;
-    private FrameBuffer depthFrameBuffer, framebuffer;
+    //follows the pixel size of the Viewport panel, measured while building the interface and applied next frame
+    private RenderTarget renderTarget;
+    private int panelWidth, panelHeight;
+    private int projectionWidth, projectionHeight;
+    //draws fewer pixels while frames take longer than the target, a still image is drawn again at full size
+    private final DynamicResolution dynamicResolution = new DynamicResolution();
+    private float renderedScale = 1;
+    private boolean drewLastFrame = false;
+
+    //cascaded shadow maps, fitted to the camera once per frame, a cascade is only redrawn when it changed
+    private static final float SHADOW_DISTANCE = 200f;
+    private static final int SHADOW_CASCADES = 4;
+    //texture units the cascades are bound to, the following ones are taken as well
+    private static final int SHADOW_MAP_UNIT = 4;
+    private ShadowCascades shadowCascades;
 
     private WhileRendering whileDepthRendering, whileRendering;
 
-    private Vector3f center = new Vector3f(0.0f, 0.0f, 0.0f);
-
-    private Matrix4f lightSpaceMatrix = new Matrix4f();
-    private Matrix4f lightProjectionMatrix = new Matrix4f();
-
+    //Uniform handles resolved once per shader, unchanged values are not uploaded again
+    private ShaderUniforms depthUniforms;
+    private WorldUniforms worldUniforms;
+    private int depthLightSpaceMatrix, depthModel;
+
+    //Instancing, only used when the driver supports it
+    //one renderer per pass, each keeps its own instance buffers since the passes draw different lists
+    private InstancedRenderer[] instancedDepthRenderers = new InstancedRenderer[ShadowCascades.MAX_CASCADES];
+    private InstancedRenderer instancedWorldRenderer;
+    private InstancedShader instancedDepthShader, instancedWorldShader;
+    private WhileRendering whileInstancedDepthRendering, whileInstancedRendering;
+    private ShaderUniforms instancedDepthUniforms;
+    private WorldUniforms instancedWorldUniforms;
+    private int instancedDepthLightSpaceMatrix;
+    private boolean instancing = false;
+
+    //what the framebuffer was last drawn with, the scene is only drawn again when one of them changes
+    private long renderedVersion = -1;
+    private final Matrix4f renderedView = new Matrix4f();
+    private final Matrix4f renderedProjection = new Matrix4f();
+    private final Vector3f renderedLight = new Vector3f();
+    private boolean redrawRequested = true;
+    private boolean drawScene = false;
+    private boolean busy = false;
+
+    //the matrix of the cascade the depth pass is currently drawing
+    private Matrix4f lightSpaceMatrix;
+    private final Matrix4f viewMatrix = new Matrix4f();
+
+    //where the scene image is drawn on screen, picking, the gizmo and the toolbar's drop ray all work in it
     public ImVec2 viewportPosition = new ImVec2();
     public ImVec2 viewportSize = new ImVec2();
 
     private int operation = Operation.TRANSLATE;
     private int mode = Mode.WORLD;
 
+    //Scratch objects for the gizmo and editing path so a steady frame does not allocate
+    private final ImVec2 regionAvail = new ImVec2();
+    private final float[] viewArray = new float[16];
+    private final float[] projectionArray = new float[16];
+    private final float[] gizmoTransform = new float[16];
+    private final float[] snap = {1, 1, 1};
+    private final float[] viewCubeSize = {200, 200};
+    private final float[] viewCubePosition = new float[2];
+    private final Matrix4f gizmoMatrix = new Matrix4f();
+    private final Vector3f editPosition = new Vector3f();
+    private final Quaternionf editRotation = new Quaternionf();
+    private final Vector3f editScale = new Vector3f();
+    private final javax.vecmath.Vector3f zero = new javax.vecmath.Vector3f();
+
     private boolean performRaycast = false;
     private boolean mouseConsumed = false;
 
     int flags = NoCollapse | NoMove;
+    //the sun moves a little every frame, the light only follows in steps so cached shadow maps stay valid in between
+    private static final float SUN_SPEED = 0.001f;
+    private static final float SUN_STEP = 0.01f;
     private float angle = 0;
+    private float sunAngle = Float.NaN;
 
     //Materials
     private BoxMaterial boxMaterial;
 
-    public Viewport(GlfwWindow window) {
+    public Viewport(GlfwWindow window, AssetManager assets, Profiler profiler) {
+        this(window, assets, profiler, SCENE_DIRECTORY);
+    }
+
+    public Viewport(GlfwWindow window, AssetManager assets, Profiler profiler, File sceneDirectory) {
         this.window = window;
+        this.defaultScene = new File(sceneDirectory, "Default" + SceneFile.EXTENSION);
+        this.defaultJournal = new File(sceneDirectory, "Default.journal");
+        this.defaultWorld = new File(sceneDirectory, "World");
+        this.assets = assets;
+        this.profiler = profiler;
+        sceneZone = profiler.zone("Scene");
+        physicsZone = profiler.zone("Physics");
+        cullingZone = profiler.zone("Culling");
+        shadowZone = profiler.zone("Shadow Pass");
+        mainZone = profiler.zone("Main Pass");
+        interfaceZone = profiler.zone("Viewport UI");
+        objectCounter = profiler.counter("Objects");
+        visibleCounter = profiler.counter("Visible");
+        shadowCasterCounter = profiler.counter("Shadow Casters");
+        activeBodyCounter = profiler.counter("Active Bodies");
+        shadowRedrawnCounter = profiler.counter("Shadow Maps Redrawn");
+        shadowPatchedCounter = profiler.counter("Shadow Maps Patched");
+        shadowReusedCounter = profiler.counter("Shadow Maps Reused");
+        sceneSkippedCounter = profiler.counter("Scene Skipped");
+        renderScaleCounter = profiler.counter("Render Scale %");
+        cellCounter = profiler.counter("Loaded Cells");
+        cellMemoryCounter = profiler.counter("Cell Memory KB");
+        cellSkippedCounter = profiler.counter("Cell Objects Skipped");
+        uniformUploadCounter = profiler.counter("Uniform Uploads");
+        uniformSkippedCounter = profiler.counter("Uniform Uploads Skipped");
+        journal = new OperationJournal(defaultJournal, defaultScene);
         physicsWorld = new PhysicsWorld();
-        hitResults = new HitResults();
+        physicsScheduler = new PhysicsScheduler(physicsWorld);
+        hitResults = new PickResults();
 
         camera = new PerspectiveCamera(window.getWidth(), window.getHeight(), 70, 0.1f, 1000f);
         cameraController = new CameraController(camera);
@@ -106,11 +337,9 @@ public class Viewport {
         pointLight.linear = 0.09f;
         pointLight.quadratic = 0.032f;
 
-        Model cubeModel = ModelLoader.loadModels(Global.getAssetDir() + File.separator + "FusionCoreEditor/cube.fbx").get(0);
-        cube = new Mesh(cubeModel);
-
-        depthFrameBuffer = new FrameBuffer(4096, 4096, false);
-        framebuffer = new FrameBuffer(1920, 1080, false);
+        renderTarget = new RenderTarget(window.getWidth(), window.getHeight());
+        panelWidth = projectionWidth = window.getWidth();
+        panelHeight = projectionHeight = window.getHeight();
 
         depthShader = new DepthShader();
         worldShader = new WorldShader();
@@ -121,6 +350,11 @@ public class Viewport {
         worldShader.bind();
         OpenGlShader.loadMatrix4f(worldShader.getProjection(), camera.getProjectionMatrix());
 
+        depthUniforms = new ShaderUniforms(depthShader);
+        depthLightSpaceMatrix = depthUniforms.handle("lightSpaceMatrix");
+        depthModel = depthUniforms.handle("model");
+        worldUniforms = new WorldUniforms(worldShader);
+
         //Create Materials
         boxMaterial = new BoxMaterial(worldShader);
 
@@ -136,61 +370,60 @@ public class Viewport {
         whileDepthRendering = new WhileRendering(depthShader) {
             @Override
             public void ShaderAfterBind() {
-                calculateDirLightPosition();
-                OpenGlShader.loadMatrix4f(depthShader.getLightSpaceMatrix(), lightSpaceMatrix);
+                depthUniforms.loadMatrix4f(depthLightSpaceMatrix, lightSpaceMatrix);
             }
 
             @Override
             public void MeshInstanceUpdate(Mesh currentMesh, MeshInstance currentInstance) {
-                OpenGlShader.loadMatrix4f(depthShader.getUniformLocation("model"), currentMesh.createTransformationMatrix(currentInstance));
+                depthUniforms.uploadMatrix4f(depthModel, currentMesh.createTransformationMatrix(currentInstance));
             }
         };
 
         whileRendering = new WhileRendering(worldShader){
             @Override
             public void ShaderAfterBind() {
-                OpenGlShader.loadMatrix4f(worldShader.getProjection(), camera.getProjectionMatrix());
+                worldUniforms.loadMatrix4f(worldUniforms.projection, camera.getProjectionMatrix());
                 worldShader.loadViewMatrix(camera);
-                OpenGlShader.loadVector3f(worldShader.getUniformLocation("viewPos"), camera.getPosition());
-                worldShader.updateDepthMap(depthFrameBuffer.getTextureId());
-
-                calculateDirLightPosition();
-                OpenGlShader.loadMatrix4f(worldShader.getUniformLocation("lightSpaceMatrix"), lightSpaceMatrix);
-                OpenGlShader.loadInt(worldShader.getUniformLocation("shadowMap"), 4);
-                glActiveTexture(GL_TEXTURE4);
-                glBindTexture(GL_TEXTURE_2D, depthFrameBuffer.getTextureId());
-
-                OpenGlShader.loadVector3f(worldShader.getUniformLocation("light.position"), pointLight.position);
-                OpenGlShader.loadVector3f(worldShader.getUniformLocation("light.ambient"), pointLight.ambient);
-                OpenGlShader.loadVector3f(worldShader.getUniformLocation("light.diffuse"), pointLight.diffuse);
-                OpenGlShader.loadVector3f(worldShader.getUniformLocation("light.specular"), pointLight.specular);
-                OpenGlShader.loadFloat(worldShader.getUniformLocation("light.constant"), pointLight.constant);
-                OpenGlShader.loadFloat(worldShader.getUniformLocation("light.linear"), pointLight.linear);
-                OpenGlShader.loadFloat(worldShader.getUniformLocation("light.quadratic"), pointLight.quadratic);
-
-                angle += 0.001;
-                float x = (float) Math.sin(angle);
-                float y = (float) Math.max(-Math.PI, Math.cos(angle)); // This will make the sun rise and set, as it won't go below the horizon
-                float z = (float) Math.cos(angle);
-
-                dirLight.direction.set(x, y, z).normalize();
-                if(angle >= 2 * Math.PI){
-                    angle = (float) -Math.PI;
-                }
+                worldUniforms.loadVector3f(worldUniforms.viewPos, camera.getPosition());
+                //the sampler takes the texture unit the first cascade is bound to
+                worldShader.updateDepthMap(SHADOW_MAP_UNIT);
 
-                worldShader.updateDirLight(dirLight);
-
-                OpenGlShader.loadFloat(worldShader.getUniformLocation("gamma"), 2.2f);
+                loadLighting(worldUniforms);
             }
 
             @Override
             public void MeshInstanceUpdate(Mesh currentMesh, MeshInstance currentInstance) {
-                OpenGlShader.loadMatrix4f(worldShader.getUniformLocation("model"), currentMesh.createTransformationMatrix(currentInstance));
+                worldUniforms.uploadMatrix4f(worldUniforms.model, currentMesh.createTransformationMatrix(currentInstance));
             }
         };
 
+        createInstancing();
+        //the regular world shader only reads one shadow map
+        shadowCascades = new ShadowCascades(instancing ? SHADOW_CASCADES : 1, ShadowCascades.HIGH_QUALITY, SHADOW_DISTANCE);
+
+        //the cube arrives from the asset workers a few frames later, the scene fills once it is uploaded
+        assets.loadMeshes(Global.getAssetDir() + File.separator + "FusionCoreEditor/cube.fbx").thenAccept(meshes -> {
+            cube = meshes.get(0);
+            instancesOf(cube);
+            if(!defaultScene.exists()){
+                spawnCubes();
+                //gives the journal a snapshot to start from
+                compactJournal();
+            }
+        }).exceptionally(e -> {
+            e.printStackTrace();
+            return null;
+        });
+
+        if(defaultScene.exists()){
+            recoverJournal = true;
+            loadScene(defaultScene);
+        }
+    }
+
+    private void spawnCubes() {
         Random r = new Random();
-        List<MeshInstance> instanceList = new ArrayList<>();
+        List<MeshInstance> instanceList = instancesOf(cube);
         for (int i = 0; i < 100; i++) {
             int distance = 100 / 2;
             int x = r.nextInt(distance) - (distance / 2);
@@ -201,82 +434,842 @@ public class Viewport {
 
             instance.setPosition(x, y, z);
             instanceList.add(instance);
+            //physics may already be running on its own thread by the time the cube arrives
+            addInstance(instance);
+        }
+    }
 
-//            javax.vecmath.Vector3f halfExtents = physicsWorld.toPhysicsVector(new Vector3f(instance.getScale().x / 2, instance.getScale().y / 2, instance.getScale().z / 2));
-//            BoxShape box = new BoxShape(halfExtents);
+    private void createInstancing() {
+        if(!InstancedRenderer.isSupported()){
+            return;
+        }
 
-            ConvexHullShape shape = createShape(instance);
+        String editorDir = Global.getAssetDir() + File.separator + "FusionCoreEditor" + File.separator;
+        try {
+            instancedDepthShader = new InstancedShader(editorDir + "InstancedDepthVertex.glsl", "shaders/DepthFragment.glsl");
+            instancedWorldShader = new InstancedShader(editorDir + "InstancedWorldVertex.glsl", editorDir + "InstancedLightingFragment.glsl");
+        }catch (RuntimeException e){
+            //shaders failed to compile, stay on the per instance path
+            e.printStackTrace();
+            return;
+        }
+        //one per cascade, each keeps the instance buffers of its own caster list
+        for (int i = 0; i < instancedDepthRenderers.length; i++) {
+            instancedDepthRenderers[i] = new InstancedRenderer();
+        }
+        instancedWorldRenderer = new InstancedRenderer();
+        instancedDepthUniforms = new ShaderUniforms(instancedDepthShader);
+        instancedDepthLightSpaceMatrix = instancedDepthUniforms.handle("lightSpaceMatrix");
+        instancedWorldUniforms = new WorldUniforms(instancedWorldShader);
 
-            RigidBody rigidBody = physicsWorld.addShapeToWorld(shape, 0.0f, instance.getRotation(), instance.getPosition(), 1.0f);
-            components.add(new PhysicsComponent(rigidBody, instance));
+        whileInstancedDepthRendering = new WhileRendering(instancedDepthShader) {
+            @Override
+            public void ShaderAfterBind() {
+                instancedDepthUniforms.loadMatrix4f(instancedDepthLightSpaceMatrix, lightSpaceMatrix);
+            }
+        };
+
+        whileInstancedRendering = new WhileRendering(instancedWorldShader) {
+            @Override
+            public void ShaderAfterBind() {
+                instancedWorldUniforms.loadMatrix4f(instancedWorldUniforms.projection, camera.getProjectionMatrix());
+                instancedWorldUniforms.loadMatrix4f(instancedWorldUniforms.view, viewMatrix);
+                instancedWorldUniforms.loadVector3f(instancedWorldUniforms.viewPos, camera.getPosition());
+
+                loadLighting(instancedWorldUniforms);
+            }
+
+            @Override
+            public void MeshAfterBind(Mesh mesh) {
+                //every instance of a mesh is drawn in one call so they all share the first instance's material
+                Material material = instances.get(mesh).get(0).material;
+                if(material instanceof BoxMaterial){
+                    BoxMaterial box = (BoxMaterial) material;
+                    instancedWorldUniforms.loadInt(instancedWorldUniforms.materialDiffuse, 0);
+                    instancedWorldUniforms.loadInt(instancedWorldUniforms.materialSpecular, 1);
+                    instancedWorldUniforms.loadFloat(instancedWorldUniforms.materialShininess, box.shininess);
+                    glActiveTexture(GL_TEXTURE0);
+                    glBindTexture(GL_TEXTURE_2D, box.diffuse);
+                    glActiveTexture(GL_TEXTURE1);
+                    glBindTexture(GL_TEXTURE_2D, box.specular);
+                }
+            }
+        };
+
+        instancing = true;
+    }
+
+    private void loadLighting(WorldUniforms uniforms) {
+        uniforms.loadCascades(shadowCascades, SHADOW_MAP_UNIT);
+        for (int i = 0; i < shadowCascades.getCount(); i++) {
+            glActiveTexture(GL_TEXTURE0 + SHADOW_MAP_UNIT + i);
+            glBindTexture(GL_TEXTURE_2D, shadowCascades.get(i).getFrameBuffer().getTextureId());
+        }
+
+        uniforms.loadPointLight(pointLight);
+        uniforms.loadDirLight(dirLight);
+
+        uniforms.loadFloat(uniforms.gamma, 2.2f);
+    }
+
+    private void animateSun() {
+        angle += SUN_SPEED;
+        if(angle >= 2 * Math.PI){
+            angle = (float) -Math.PI;
+        }
+        if(shadowCascades.isCaching() && Math.abs(angle - sunAngle) < SUN_STEP){
+            return;
         }
-        instances.put(cube, instanceList);
+        sunAngle = angle;
+
+        float x = (float) Math.sin(sunAngle);
+        float y = (float) Math.max(-Math.PI, Math.cos(sunAngle)); // This will make the sun rise and set, as it won't go below the horizon
+        float z = (float) Math.cos(sunAngle);
+
+        dirLight.direction.set(x, y, z).normalize();
+    }
+
+    //uniform uploads done and skipped by the last rendered frame
+    public int getUniformUploads() {
+        int uploads = depthUniforms.getUploads() + worldUniforms.getUploads();
+        if(instancedWorldRenderer != null){
+            uploads += instancedDepthUniforms.getUploads() + instancedWorldUniforms.getUploads();
+        }
+        return uploads;
+    }
+
+    public int getSkippedUniformUploads() {
+        int skipped = depthUniforms.getSkipped() + worldUniforms.getSkipped();
+        if(instancedWorldRenderer != null){
+            skipped += instancedDepthUniforms.getSkipped() + instancedWorldUniforms.getSkipped();
+        }
+        return skipped;
+    }
+
+    private void resetUniformCounters() {
+        depthUniforms.resetCounters();
+        worldUniforms.resetCounters();
+        if(instancedWorldRenderer != null){
+            instancedDepthUniforms.resetCounters();
+            instancedWorldUniforms.resetCounters();
+        }
+    }
+
+    public boolean isCulling() {
+        return culling;
+    }
+
+    public void setCulling(boolean culling) {
+        this.culling = culling;
+        shadowCascades.invalidate();
+        redrawRequested = true;
+    }
+
+    //instances drawn by the colour pass during the last frame
+    public int getVisibleCount() {
+        return culling ? visibleCount : sceneCuller.size();
+    }
+
+    //instances drawn by the shadow pass during the last frame, counted once for every cascade they were drawn into
+    public int getShadowCasterCount() {
+        return shadowCasterCount;
+    }
+
+    //draws the scene again next frame even if nothing it tracks changed
+    public void requestRedraw() {
+        redrawRequested = true;
+    }
+
+    //whether the last frame drew the scene or kept the previous image
+    public boolean isSceneDrawn() {
+        return drawScene;
+    }
+
+    //true while something other than the sun changes the viewport, e.g. edits, camera moves, loading or physics
+    public boolean isBusy() {
+        return busy;
+    }
+
+    public DynamicResolution getDynamicResolution() {
+        return dynamicResolution;
+    }
+
+    public RenderTarget getRenderTarget() {
+        return renderTarget;
+    }
+
+    public ShadowCascades getShadowCascades() {
+        return shadowCascades;
+    }
+
+    public boolean isShadowCaching() {
+        return shadowCascades.isCaching();
+    }
+
+    //keeps shadow maps between frames while the light and the objects in them stay where they are
+    public void setShadowCaching(boolean caching) {
+        shadowCascades.setCaching(caching);
+    }
+
+    public boolean isInstancing() {
+        return instancing;
     }
 
+    public void setInstancing(boolean instancing) {
+        //can only be turned on when the instanced shaders were created
+        this.instancing = instancing && instancedWorldRenderer != null;
+        shadowCascades.setCount(this.instancing ? SHADOW_CASCADES : 1);
+        shadowCascades.invalidate();
+        redrawRequested = true;
+    }
+
+    //null until the cube mesh has been uploaded
     public PhysicsComponent addCube(){
+        if(cube == null){
+            return null;
+        }
         MeshInstance instance = new MeshInstance(cube, boxMaterial);
-        instances.get(cube).add(instance);
+        instancesOf(cube).add(instance);
+        PhysicsComponent physicsComponent = addInstance(instance);
+        recordSpawn(instance);
+        history.recordSpawn(components.size() - 1, physicsComponent);
+        return physicsComponent;
+    }
 
-        ConvexHullShape shape = createShape(instance);
-        RigidBody rigidBody = physicsWorld.addShapeToWorld(shape, 0.0f, instance.getRotation(), instance.getPosition(), 1.0f);
-        PhysicsComponent physicsComponent = new PhysicsComponent(rigidBody, instance);
-        components.add(physicsComponent);
+    //loads the model in the background and places it in front of the camera once it is ready
+    public void importModel(String path){
+        assets.loadMeshes(path).thenAccept(meshes -> {
+            Vector3f position = camera.getOrientation().positiveZ(new Vector3f()).mul(-IMPORT_DISTANCE).add(camera.getPosition());
+            for (Mesh mesh : meshes) {
+                MeshInstance instance = new MeshInstance(mesh, boxMaterial);
+                instance.setPosition(position.x, position.y, position.z);
+                instancesOf(mesh).add(instance);
+                PhysicsComponent physicsComponent = addInstance(instance);
+                recordSpawn(instance);
+                history.recordSpawn(components.size() - 1, physicsComponent);
+            }
+        }).exceptionally(e -> {
+            e.printStackTrace();
+            return null;
+        });
+    }
+
+    //the instance list of a mesh, a mesh seen for the first time gets its cooked data registered
+    private List<MeshInstance> instancesOf(Mesh mesh){
+        List<MeshInstance> list = instances.get(mesh);
+        if(list == null){
+            registerMesh(mesh);
+            list = new ArrayList<>();
+            instances.put(mesh, list);
+        }
+        return list;
+    }
+
+    //hands the bounds and hull that were cooked with the mesh to the culler and shape cache so neither rebuilds them
+    private void registerMesh(Mesh mesh){
+        float[] bounds = assets.getBounds(mesh);
+        if(bounds != null){
+            sceneCuller.setMeshBounds(mesh, bounds);
+        }
+        float[] hull = assets.getHull(mesh);
+        if(hull != null){
+            shapeCache.setHull(mesh, hull);
+        }
+    }
+
+    private PhysicsComponent addInstance(MeshInstance instance){
+        sceneCuller.add(instance);
+
+        CollisionShape shape = createShape(instance);
+        PhysicsComponent physicsComponent;
+        synchronized (physicsScheduler.getLock()) {
+            RigidBody rigidBody = physicsWorld.addShapeToWorld(shape, 0.0f, instance.getRotation(), instance.getPosition(), 1.0f);
+            physicsComponent = new PhysicsComponent(rigidBody, instance);
+        }
+        addComponent(physicsComponent);
+        if(streamer != null){
+            streamer.adopt(physicsComponent);
+        }
 
         return physicsComponent;
     }
 
-    private void raycast(){
+    private void addComponent(PhysicsComponent physicsComponent){
+        componentIndices.put(physicsComponent, components.size());
+        components.add(physicsComponent);
+        physicsScheduler.add(physicsComponent);
+        picker.setOwner(physicsComponent.getInstance(), physicsComponent);
+    }
+
+    //undoing a spawn, objects a cell streamed in after it may come later, those move down by one
+    private PhysicsComponent removeComponent(int index){
+        PhysicsComponent component = (PhysicsComponent) components.remove(index);
+        componentIndices.remove(component);
+        for (int i = index; i < components.size(); i++) {
+            componentIndices.put(components.get(i), i);
+        }
+        if(selection.remove(component)){
+            component.setManipulate(false);
+        }
+
+        synchronized (physicsScheduler.getLock()) {
+            physicsWorld.removeRigidBody(component.getRigidBody());
+        }
+        physicsScheduler.remove(component);
+        MeshInstance instance = component.getInstance();
+        sceneCuller.remove(instance);
+        picker.removeOwner(instance);
+        List<MeshInstance> list = instances.get(instance.getMesh());
+        list.remove(list.lastIndexOf(instance));
+
+        if(journal.isRecording()){
+            journal.recordDespawn(index);
+        }
+        if(streamer != null){
+            streamer.forget(component);
+        }
+        return component;
+    }
+
+    //redoing a spawn, the same body is put back so later edits in the history still apply to it
+    private void restoreComponent(PhysicsComponent component){
+        MeshInstance instance = component.getInstance();
+        instancesOf(instance.getMesh()).add(instance);
+        sceneCuller.add(instance);
+        synchronized (physicsScheduler.getLock()) {
+            physicsWorld.addRigidBody(component.getRigidBody());
+        }
+        addComponent(component);
+        if(streamer != null){
+            streamer.adopt(component);
+        }
+        recordSpawn(instance);
+    }
+
+    //takes the objects of an unloaded cell out of the scene, the edit history is renumbered to match
+    private void removeComponents(List<PhysicsComponent> removed){
+        Set<Object> removing = Collections.newSetFromMap(new IdentityHashMap<>());
+        synchronized (physicsScheduler.getLock()) {
+            for (PhysicsComponent component : removed) {
+                physicsWorld.removeRigidBody(component.getRigidBody());
+            }
+        }
+        for (PhysicsComponent component : removed) {
+            if(selection.remove(component)){
+                component.setManipulate(false);
+            }
+            physicsScheduler.remove(component);
+            MeshInstance instance = component.getInstance();
+            sceneCuller.remove(instance);
+            picker.removeOwner(instance);
+            removing.add(component);
+            removing.add(instance);
+        }
+        int[] newIndices = new int[components.size()];
+        int next = 0;
+        for (int i = 0; i < newIndices.length; i++) {
+            newIndices[i] = removing.contains(components.get(i)) ? -1 : next++;
+        }
+        //one pass over each list instead of a search per object
+        components.removeIf(removing::contains);
+        for (List<MeshInstance> list : instances.values()) {
+            list.removeIf(removing::contains);
+        }
+        componentIndices.clear();
+        for (int i = 0; i < components.size(); i++) {
+            componentIndices.put(components.get(i), i);
+        }
+        history.remap(newIndices);
+    }
+
+    public boolean undo(){
+        return history.undo();
+    }
+
+    public boolean redo(){
+        return history.redo();
+    }
+
+    public EditHistory getHistory(){
+        return history;
+    }
+
+    //writes every object with its body into the file, the text form is used when the name ends in .txt
+    public void saveScene(File file){
+        long start = System.nanoTime();
+        SceneSnapshot snapshot = captureScene();
+        try {
+            snapshot.write(file);
+        }catch (IOException e){
+            e.printStackTrace();
+            return;
+        }
+        if(isDefaultScene(file)){
+            //the journal only holds edits made after the snapshot it starts from
+            journal.reset();
+        }
+        status = "Saved " + snapshot.size() + " objects to " + file.getName() + " in " + (System.nanoTime() - start) / 1_000_000 + "ms";
+    }
+
+    //copies the transforms of the whole scene, cheap enough for the render thread, writing is left to the caller
+    private SceneSnapshot captureScene(){
+        return captureScene(components);
+    }
+
+    private SceneSnapshot captureScene(List<? extends Component> captured){
+        SceneSnapshot snapshot = new SceneSnapshot();
+        Map<Mesh, Integer> meshIds = new HashMap<>();
+        for (Component component : captured) {
+            if(!(component instanceof PhysicsComponent)){
+                continue;
+            }
+            PhysicsComponent physicsComponent = (PhysicsComponent) component;
+            MeshInstance instance = physicsComponent.getInstance();
+
+            Integer id = meshIds.get(instance.getMesh());
+            if(id == null){
+                MeshSource source = assets.getSource(instance.getMesh());
+                //meshes that were not loaded from a file can not be referenced, -1 skips them
+                id = source == null ? -1 : snapshot.addMesh(source.path, source.index);
+                meshIds.put(instance.getMesh(), id);
+            }
+            if(id < 0){
+                continue;
+            }
+
+            float inverseMass = physicsComponent.getRigidBody().getInvMass();
+            snapshot.add(id, instance, inverseMass == 0 ? 0 : 1.0f / inverseMass);
+        }
+        return snapshot;
+    }
+
+    public File getDefaultScene(){
+        return defaultScene;
+    }
+
+    private boolean isDefaultScene(File file){
+        return file.getAbsoluteFile().equals(defaultScene.getAbsoluteFile());
+    }
+
+    //folds the journal into a new snapshot of the default scene, written on the journal thread
+    private void compactJournal(){
+        journal.compact(captureScene());
+        journal.setRecording(true);
+    }
+
+    private void recordSpawn(MeshInstance instance){
+        if(!journal.isRecording()){
+            return;
+        }
+        MeshSource source = assets.getSource(instance.getMesh());
+        if(source != null){
+            journal.recordSpawn(source.path, source.index, instance);
+        }
+    }
+
+    //replaces the current scene, objects are restored over the next frames as they are read
+    public void loadScene(File file){
+        journal.setRecording(false);
+        clearScene();
+        restoredCount = 0;
+        skippedCount = 0;
+        sceneLoader = new SceneLoader(file, assets);
+    }
+
+    public void clearScene(){
+        if(streamer != null){
+            //changed cells are written before their objects go
+            streamer.close();
+            streamer = null;
+        }
+        if(sceneLoader != null){
+            sceneLoader.cancel();
+            sceneLoader = null;
+        }
+        clearSelection();
+
+        synchronized (physicsScheduler.getLock()) {
+            for (Component component : components) {
+                if(component instanceof PhysicsComponent){
+                    physicsWorld.removeRigidBody(((PhysicsComponent) component).getRigidBody());
+                }
+            }
+        }
+        physicsScheduler.clear();
+        history.clear();
+        components.clear();
+        componentIndices.clear();
+        sceneCuller.clear();
+        picker.clearOwners();
+        for (List<MeshInstance> list : instances.values()) {
+            list.clear();
+        }
+    }
+
+    //restores queued objects until the frame budget is used up, the physics lock is taken once per batch
+    private void restoreScene(){
+        long start = System.nanoTime();
+        SceneBatch batch;
+        while ((batch = sceneLoader.next()) != null) {
+            int i = batch.getNext();
+            boolean outOfTime = false;
+            synchronized (physicsScheduler.getLock()) {
+                while (i < batch.size() && !outOfTime) {
+                    int meshId = batch.getMesh(i);
+                    Mesh mesh = sceneLoader.getMesh(meshId);
+                    if(mesh == null){
+                        if(!sceneLoader.isMissing(meshId)){
+                            //still loading, carry on once it is uploaded
+                            break;
+                        }
+                        skippedCount++;
+                    }else{
+                        restoreObject(batch, i, mesh);
+                        restoredCount++;
+                    }
+                    i++;
+                    outOfTime = (i & 63) == 0 && System.nanoTime() - start > SCENE_RESTORE_BUDGET;
+                }
+            }
+            batch.setNext(i);
+            if(i < batch.size()){
+                return;
+            }
+        }
+
+        if(sceneLoader.isDone()){
+            if(sceneLoader.getError() != null){
+                sceneLoader.getError().printStackTrace();
+            }
+            status = "Loaded " + restoredCount + " objects from " + sceneLoader.getFile().getName() + " in " + sceneLoader.getElapsedNanos() / 1_000_000 + "ms" + (skippedCount > 0 ? ", skipped " + skippedCount + " with missing meshes" : "");
+            File file = sceneLoader.getFile();
+            sceneLoader = null;
+            if(isDefaultScene(file)){
+                startJournal();
+            }
+        }
+    }
+
+    //after the default scene is restored, replays what the journal recorded on top of it if the editor did not shut down cleanly
+    private void startJournal(){
+        if(recoverJournal && skippedCount == 0){
+            try {
+                replay = JournalReader.read(defaultJournal, defaultScene);
+            }catch (IOException e){
+                e.printStackTrace();
+            }
+        }else if(recoverJournal){
+            //journal object numbers no longer line up with the restored objects
+            status = "Not replaying " + defaultJournal.getName() + ", objects of the scene are missing" + keepJournal();
+        }
+        recoverJournal = false;
+        replayIndex = 0;
+
+        if(replay == null || replay.isEmpty()){
+            replay = null;
+            journal.reset();
+            journal.setRecording(true);
+        }
+    }
+
+    //applies journal operations in order, a spawn waits until its mesh is loaded
+    private void replayJournal(){
+        while (replayIndex < replay.size()) {
+            JournalReader.Operation operation = replay.get(replayIndex);
+            float[] values = operation.values;
+            if(operation.isSpawn()){
+                if(replayMeshes == null){
+                    replayMeshes = assets.loadMeshes(operation.meshPath);
+                }
+                if(!replayMeshes.isDone()){
+                    return;
+                }
+                List<Mesh> loaded = replayMeshes.isCompletedExceptionally() ? null : replayMeshes.join();
+                replayMeshes = null;
+                if(loaded == null || operation.target >= loaded.size()){
+                    status = "Stopped replaying " + defaultJournal.getName() + ", " + operation.meshPath + " could not be loaded";
+                    break;
+                }
+                Mesh mesh = loaded.get(operation.target);
+                MeshInstance instance = new MeshInstance(mesh, boxMaterial);
+                instance.setPosition(values[0], values[1], values[2]);
+                instance.getRotation().set(values[3], values[4], values[5], values[6]);
+                instance.getScale().set(values[7], values[8], values[9]);
+                instancesOf(mesh).add(instance);
+                addInstance(instance);
+            }else if(operation.isDespawn()){
+                if(operation.target != components.size() - 1){
+                    status = "Stopped replaying " + defaultJournal.getName() + ", object " + operation.target + " is not the last one";
+                    break;
+                }
+                removeComponent(operation.target);
+            }else{
+                if(operation.target >= components.size()){
+                    status = "Stopped replaying " + defaultJournal.getName() + ", object " + operation.target + " does not exist";
+                    break;
+                }
+                editPosition.set(values[0], values[1], values[2]);
+                editRotation.set(values[3], values[4], values[5], values[6]);
+                editScale.set(values[7], values[8], values[9]);
+                updateComponent((PhysicsComponent) components.get(operation.target), editPosition, editRotation, editScale);
+            }
+            replayIndex++;
+        }
+
+        if(replayIndex == replay.size()){
+            status = "Recovered " + replayIndex + " edits from " + defaultJournal.getName();
+        }else{
+            //the edits that were not replayed are gone from the journal once it is compacted
+            status += keepJournal();
+        }
+        replay = null;
+        replayMeshes = null;
+        //the recovered state becomes the new snapshot, it can not be undone
+        history.clear();
+        compactJournal();
+    }
+
+    //copies the journal aside before it is reset, returns what to add to the status
+    private String keepJournal(){
+        File failed = new File(defaultJournal.getPath() + ".failed");
+        try {
+            Files.copy(defaultJournal.toPath(), failed.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }catch (IOException e){
+            e.printStackTrace();
+            return "";
+        }
+        return ", kept as " + failed.getName();
+    }
+
+    private PhysicsComponent restoreObject(SceneBatch batch, int index, Mesh mesh){
+        MeshInstance instance = new MeshInstance(mesh, boxMaterial);
+        batch.apply(index, instance);
+        instancesOf(mesh).add(instance);
+        sceneCuller.add(instance);
+
+        CollisionShape shape = createShape(instance);
+        RigidBody rigidBody = physicsWorld.addShapeToWorld(shape, batch.getMass(index), instance.getRotation(), instance.getPosition(), 1.0f);
+        PhysicsComponent component = new PhysicsComponent(rigidBody, instance);
+        addComponent(component);
+        //not an edit, undone spawns have to stay numbered after it
+        history.appended(components.size() - 1, 1);
+        return component;
+    }
+
+    //replaces the current scene with a streamed world, cells around the camera are loaded over the next frames
+    public void openWorld(File directory){
+        journal.setRecording(false);
+        clearScene();
+        streamer = new WorldStreamer(directory, assets, physicsScheduler.getLock(), streamingTarget);
+    }
+
+    //writes the changed cells of the open world, or splits the current scene into a new one
+    public void saveWorld(File directory){
+        long start = System.nanoTime();
+        if(streamer != null && streamer.getDirectory().equals(directory.getAbsoluteFile())){
+            streamer.save();
+            return;
+        }
+        try {
+            WorldStreamer.write(directory, components, streamingTarget);
+        }catch (IOException e){
+            e.printStackTrace();
+            return;
+        }
+        status = "Saved " + components.size() + " objects into cells of " + directory.getName() + " in " + (System.nanoTime() - start) / 1_000_000 + "ms";
+    }
+
+    public File getDefaultWorld(){
+        return defaultWorld;
+    }
+
+    //null unless a world is open
+    public WorldStreamer getStreamer(){
+        return streamer;
+    }
+
+    //null until something was saved or loaded
+    public String getStatus(){
+        return status;
+    }
+
+    public boolean isLoadingScene(){
+        return sceneLoader != null;
+    }
+
+    //the cube has arrived and nothing is being restored or replayed, edits made from now on are kept
+    public boolean isReady(){
+        return cube != null && sceneLoader == null && replay == null;
+    }
+
+    //a click picks one object and dragging selects everything inside the rectangle, shift adds to the selection and ctrl toggles
+    private void updatePicking(){
         double[] cursorPosition = window.getCursorPosition();
+        // Convert cursor position to be relative to the scene image
+        float x = (float) (cursorPosition[0] - viewportPosition.x);
+        float y = (float) (cursorPosition[1] - viewportPosition.y);
+
+        if(performRaycast && ImGui.isWindowHovered() && ImGui.isMouseClicked(0)){
+            boxSelecting = true;
+            boxStartX = x;
+            boxStartY = y;
+        }
+        performRaycast = false;
+        if(!boxSelecting){
+            return;
+        }
 
-        // Convert cursor position to be relative to the viewport window
-        double relativeCursorPositionX = cursorPosition[0] - viewportPosition.x;
-        double relativeCursorPositionY = cursorPosition[1] - viewportPosition.y;
-        physicsWorld.cursorRaycast(relativeCursorPositionX, relativeCursorPositionY, (int) viewportSize.x, (int) viewportSize.y, camera.getProjectionMatrix(), worldShader.getViewMatrix(), hitResults);
+        boolean dragged = Math.abs(x - boxStartX) > BOX_SELECT_THRESHOLD || Math.abs(y - boxStartY) > BOX_SELECT_THRESHOLD;
+        if(ImGui.isMouseDown(0)){
+            if(dragged){
+                float minX = viewportPosition.x + Math.min(x, boxStartX);
+                float minY = viewportPosition.y + Math.min(y, boxStartY);
+                float maxX = viewportPosition.x + Math.max(x, boxStartX);
+                float maxY = viewportPosition.y + Math.max(y, boxStartY);
+                ImGui.getWindowDrawList().addRectFilled(minX, minY, maxX, maxY, ImColor.rgba(0.3f, 0.5f, 1f, 0.15f));
+                ImGui.getWindowDrawList().addRect(minX, minY, maxX, maxY, ImColor.rgba(0.3f, 0.5f, 1f, 0.8f));
+            }
+            return;
+        }
+
+        boxSelecting = false;
+        if(dragged){
+            boxSelect(boxStartX, boxStartY, x, y);
+        }else{
+            raycast(boxStartX, boxStartY);
+        }
+    }
 
-        if(hitResults.hitComponent != null && hitResults.hitComponent != lastHitComponent){
-            lastHitComponent = hitResults.hitComponent;
-            lastHitComponent.setManipulate(true);
+    private void raycast(double x, double y){
+        //picks against the culling tree and the mesh triangles, the physics world is not involved
+        picker.cursorPick(x, y, (int) viewportSize.x, (int) viewportSize.y, camera.getProjectionMatrix(), worldShader.getViewMatrix(), hitResults);
+        PhysicsComponent hit = hitResults.hitComponent;
 
-            setPreviousTransform(lastHitComponent.getInstance());
+        if(ImGui.getIO().getKeyCtrl()){
+            if(hit != null && !deselect(hit)){
+                select(hit);
+            }
+        }else if(ImGui.getIO().getKeyShift()){
+            if(hit != null){
+                select(hit);
+            }
+        }else if(hit != null && !(selection.size() == 1 && selection.contains(hit))){
+            clearSelection();
+            select(hit);
         }else{
-            if(lastHitComponent != null) {
-                lastHitComponent.getRigidBody().setLinearVelocity(new javax.vecmath.Vector3f(0, 0, 0));
-                lastHitComponent.getRigidBody().setAngularVelocity(new javax.vecmath.Vector3f(0, 0, 0));
-                lastHitComponent.setManipulate(false);
+            //clicking empty space or the selected object again
+            clearSelection();
+        }
+    }
+
+    private void boxSelect(float startX, float startY, float endX, float endY){
+        boolean ctrl = ImGui.getIO().getKeyCtrl();
+        if(!ctrl && !ImGui.getIO().getKeyShift()){
+            clearSelection();
+        }
+        picker.boxPick(startX, startY, endX, endY, (int) viewportSize.x, (int) viewportSize.y, camera.getProjectionMatrix(), worldShader.getViewMatrix(), picked);
+        for (int i = 0; i < picked.size(); i++) {
+            if(ctrl){
+                deselect(picked.get(i));
+            }else{
+                select(picked.get(i));
             }
-            System.out.println("Set to null");
-            lastHitComponent = null;
         }
+        picked.clear();
+    }
 
-        performRaycast = false;
+    public void select(PhysicsComponent component){
+        if(selection.add(component)){
+            component.setManipulate(true);
+        }
+        setPreviousTransform(component.getInstance());
     }
 
-    private void calculateDirLightPosition() {
-        float distanceFromCenter = 200f;
-        Matrix4f lightView = dirLight.getLightViewMatrix(center, distanceFromCenter);
-        float near = 1.0f;
-        float far = 500f;
-        float size = 50f;
-        lightProjectionMatrix = dirLight.getLightProjectionMatrix(-size, size, -size, size, near, far);
-        lightSpaceMatrix = lightProjectionMatrix.mul(lightView, lightSpaceMatrix);
+    //false when it was not selected
+    public boolean deselect(PhysicsComponent component){
+        if(!selection.remove(component)){
+            return false;
+        }
+        release(component);
+        if(selection.getPrimary() != null){
+            setPreviousTransform(selection.getPrimary().getInstance());
+        }
+        return true;
     }
 
-    public void show(OpenGlRenderer renderer){
-        physicsWorld.update(1.0f);
-        cameraController.update();
+    public void clearSelection(){
+        for (int i = 0; i < selection.size(); i++) {
+            release(selection.get(i));
+        }
+        selection.clear();
+    }
 
-        depthFrameBuffer.bind();
-        {
-            glClearColor(0.53f, 0.81f, 0.98f, 1.0f);
-            glEnable(GL_DEPTH_TEST);
-            glEnable(GL_CULL_FACE);
-            glCullFace(GL_FRONT);
-            glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+    //hands the component back to physics without the velocity it had when it was picked up
+    private void release(PhysicsComponent component){
+        synchronized (physicsScheduler.getLock()) {
+            component.getRigidBody().setLinearVelocity(zero);
+            component.getRigidBody().setAngularVelocity(zero);
+        }
+        component.setManipulate(false);
+    }
+
+    public Selection getSelection() {
+        return selection;
+    }
+
+    public int getObjectCount(){
+        return components.size();
+    }
 
-            renderer.render(depthShader, instances, whileDepthRendering);
+    //objects are numbered in the order they were added, the numbers the journal and the history use
+    public PhysicsComponent getObject(int index){
+        return (PhysicsComponent) components.get(index);
+    }
+
+    //the shadow maps that need it and the colour pass into the viewport framebuffer
+    private void renderScene(OpenGlRenderer renderer, Map<Mesh, List<MeshInstance>> visible, long sceneVersion, float scale){
+        profiler.begin(shadowZone);
+        profiler.beginGpu(shadowZone);
+        for (int i = 0; i < shadowCascades.getCount(); i++) {
+            ShadowCascades.Cascade cascade = shadowCascades.get(i);
+            if(cascade.getUpdate() == ShadowCascades.REUSE){
+                continue;
+            }
+            Map<Mesh, List<MeshInstance>> casters = culling ? cascade.getCasters() : instances;
+            lightSpaceMatrix = cascade.getMatrix();
+            cascade.getFrameBuffer().bind();
+            {
+                boolean patch = cascade.getUpdate() == ShadowCascades.PATCH;
+                if(patch){
+                    //the clear and the draws only touch the rectangle around what changed
+                    int[] rect = cascade.getPatch();
+                    glEnable(GL_SCISSOR_TEST);
+                    glScissor(rect[0], rect[1], rect[2], rect[3]);
+                }
+                glClearColor(0.53f, 0.81f, 0.98f, 1.0f);
+                glEnable(GL_DEPTH_TEST);
+                glEnable(GL_CULL_FACE);
+                glCullFace(GL_FRONT);
+                glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+
+                if(instancing){
+                    instancedDepthRenderers[i].render(instancedDepthShader, casters, whileInstancedDepthRendering);
+                }else {
+                    renderer.render(depthShader, casters, whileDepthRendering);
+                }
+                if(patch){
+                    glDisable(GL_SCISSOR_TEST);
+                }
+            }
+            cascade.getFrameBuffer().unbind();
+            cascade.drawn(sceneVersion);
         }
-        depthFrameBuffer.unbind();
-        framebuffer.bind();
+        profiler.endGpu();
+        profiler.end();
+
+        profiler.begin(mainZone);
+        profiler.beginGpu(mainZone);
+        renderTarget.bind(scale);
         {
             glClearColor(0.53f, 0.81f, 0.98f, 1.0f);
             glEnable(GL_DEPTH_TEST);
@@ -286,7 +1279,11 @@ public class Viewport {
 
 //            List<MeshInstance> meshInstances = sceneMap.getAllMeshInstances();
 
-            renderer.render(worldShader, instances, whileRendering);
+            if(instancing){
+                instancedWorldRenderer.render(instancedWorldShader, visible, whileInstancedRendering);
+            }else {
+                renderer.render(worldShader, visible, whileRendering);
+            }
 
 //            if(lastHitComponent != null){
 //                //TODO render this on it's own shader and give it a color this will also work for an outline on selected component
@@ -303,86 +1300,198 @@ public class Viewport {
 //                lastHitComponent.getInstance().getMesh().disable();
 //            }
         }
-        framebuffer.unbind();
+        renderTarget.unbind();
+        profiler.endGpu();
+        profiler.end();
+    }
 
-        for (int i = 0; i < components.size(); i++) {
-            components.get(i).update();
+    //keeps the projection at the panel's aspect ratio and the framebuffer at its size, and adjusts the render scale
+    private void updateRenderSize(){
+        if(panelWidth > 0 && panelHeight > 0 && (panelWidth != projectionWidth || panelHeight != projectionHeight)){
+            camera.createProjectionMatrix(panelWidth, panelHeight);
+            projectionWidth = panelWidth;
+            projectionHeight = panelHeight;
+        }
+        if(renderTarget.resize(panelWidth, panelHeight)){
+            redrawRequested = true;
+        }
+        //only frames that drew the scene say something about what it costs
+        if(drewLastFrame && dynamicResolution.update(lastFrameNanos())){
+            redrawRequested = true;
+        }
+    }
+
+    //the slower of the cpu and gpu side of the newest frames the profiler finished, the gpu lags a few frames behind
+    private long lastFrameNanos(){
+        ProfilerFrame last = profiler.getLastFrame();
+        if(last == null || profiler.isPaused()){
+            return 0;
+        }
+        long nanos = last.getDurationNanos();
+        if(profiler.isGpuTiming()){
+            for (int i = profiler.getFrameCount() - 1; i >= 0; i--) {
+                ProfilerFrame frame = profiler.getFrame(i);
+                if(frame.hasGpuTimes()){
+                    long gpu = 0;
+                    for (int j = 0; j < frame.getGpuZoneCount(); j++) {
+                        if(frame.getGpuDepth(j) == 0){
+                            gpu += frame.getGpuZoneNanos(j);
+                        }
+                    }
+                    return Math.max(nanos, gpu);
+                }
+            }
+        }
+        return nanos;
+    }
+
+    public void show(OpenGlRenderer renderer){
+        //steps at a fixed rate and moves the instances to the interpolated transforms, the selected one is left to the gizmo
+        profiler.begin(sceneZone);
+        if(sceneLoader != null){
+            restoreScene();
+        }else if(replay != null){
+            replayJournal();
+        }else if(journal.needsCompaction()){
+            compactJournal();
+        }
+        if(streamer != null){
+            streamer.update(camera.getPosition(), SCENE_RESTORE_BUDGET);
+            profiler.setCounter(cellCounter, streamer.getLoadedCount());
+            profiler.setCounter(cellMemoryCounter, streamer.getResidentBytes() >> 10);
+            profiler.setCounter(cellSkippedCounter, streamer.getSkippedCount());
+        }
+        profiler.end();
+
+        profiler.begin(physicsZone);
+        physicsScheduler.update(selection.asSet());
+        //only bodies that actually moved are written back, those need their culling bounds refreshed
+        for (int i = 0; i < physicsScheduler.getMovedCount(); i++) {
+            sceneCuller.update(physicsScheduler.getMoved(i));
+            if(streamer != null){
+                streamer.changed(physicsScheduler.getMoved(i));
+            }
+        }
+        profiler.end();
+        cameraController.update();
+        resetUniformCounters();
+        updateRenderSize();
+
+        profiler.begin(cullingZone);
+        animateSun();
+        viewMatrix.set(worldShader.createQuaternionCameraViewMatrix(camera));
+        shadowCascades.update(camera.getProjectionMatrix(), viewMatrix, dirLight.direction);
+        long sceneVersion = sceneCuller.getVersion();
+        shadowCascades.plan(sceneVersion, sceneCuller.getChangedBounds());
+        sceneCuller.clearChanges();
+        shadowCasterCount = 0;
+        for (int i = 0; i < shadowCascades.getCount(); i++) {
+            ShadowCascades.Cascade cascade = shadowCascades.get(i);
+            //casters are only gathered for cascades that are going to be drawn, a patch only needs the ones inside it
+            if(cascade.getUpdate() == ShadowCascades.REDRAW){
+                shadowCasterCount += culling ? sceneCuller.cull(cascade.getMatrix(), cascade.getCasters()) : sceneCuller.size();
+            }else if(cascade.getUpdate() == ShadowCascades.PATCH){
+                shadowCasterCount += culling ? sceneCuller.cull(cascade.getPatchMatrix(), cascade.getCasters()) : sceneCuller.size();
+            }
+        }
+        //the framebuffer keeps the last image while nothing it shows changed
+        boolean sceneChanged = sceneVersion != renderedVersion;
+        boolean viewChanged = !viewMatrix.equals(renderedView) || !camera.getProjectionMatrix().equals(renderedProjection);
+        boolean lightChanged = !dirLight.direction.equals(renderedLight) || shadowCascades.getReused() < shadowCascades.getCount();
+        drawScene = redrawRequested || sceneChanged || viewChanged || lightChanged;
+        float scale = dynamicResolution.getScale();
+        if(!drawScene && renderedScale < 1){
+            //the image stopped changing, it is worth drawing once at full resolution
+            drawScene = true;
+            scale = 1;
+        }
+        //the sun alone does not keep the editor awake
+        busy = redrawRequested || sceneChanged || viewChanged || renderTarget.isResizing() || sceneLoader != null || (streamer != null && streamer.isBusy()) || replay != null || physicsScheduler.getActiveCount() > 0;
+
+        Map<Mesh, List<MeshInstance>> visible = instances;
+        if(culling && drawScene){
+            visibleCount = sceneCuller.cull(camera.getProjectionMatrix(), viewMatrix, visibleInstances);
+            visible = visibleInstances;
+        }
+        profiler.end();
+        profiler.setCounter(objectCounter, components.size());
+        profiler.setCounter(visibleCounter, getVisibleCount());
+        profiler.setCounter(shadowCasterCounter, getShadowCasterCount());
+        profiler.setCounter(activeBodyCounter, physicsScheduler.getActiveCount());
+        profiler.setCounter(shadowRedrawnCounter, shadowCascades.getRedrawn());
+        profiler.setCounter(shadowPatchedCounter, shadowCascades.getPatched());
+        profiler.setCounter(shadowReusedCounter, shadowCascades.getReused());
+        profiler.setCounter(sceneSkippedCounter, drawScene ? 0 : 1);
+        profiler.setCounter(renderScaleCounter, Math.round(renderedScale * 100));
+
+        drewLastFrame = drawScene;
+        if(drawScene){
+            renderScene(renderer, visible, sceneVersion, scale);
+            renderedScale = scale;
+            renderedVersion = sceneVersion;
+            renderedView.set(viewMatrix);
+            renderedProjection.set(camera.getProjectionMatrix());
+            renderedLight.set(dirLight.direction);
+            redrawRequested = false;
         }
+        profiler.setCounter(uniformUploadCounter, getUniformUploads());
+        profiler.setCounter(uniformSkippedCounter, getSkippedUniformUploads());
 
+        profiler.begin(interfaceZone);
         ImGui.setNextWindowPos(0, 0, ImGuiCond.FirstUseEver);
         ImGui.setNextWindowSize(window.getWidth(), window.getHeight(), ImGuiCond.FirstUseEver);
 
         ImGui.getStyle().setWindowPadding(0, 0);
 
 
+        updateHistory();
+
         if(ImGui.begin("Viewport", flags)){
-            ImGui.getWindowPos(viewportPosition);
-            ImGui.getWindowSize(viewportSize);
-            ImVec2 winSize = ImGui.getWindowSize();
-            ImVec2 regionAvail = ImGui.getContentRegionAvail();
+            ImGui.getContentRegionAvail(regionAvail);
 
-            float titleBarHeight = ImGui.getFont().getFontSize() + ImGui.getStyle().getFramePadding().y * 2;
+            float titleBarHeight = ImGui.getFont().getFontSize() + ImGui.getStyle().getFramePaddingY() * 2;
 
             ImGui.setCursorPos(0, titleBarHeight);
 
-            float aspectRatio = 1920 / 1080;
-
-            ImVec2 imageSize = new ImVec2();
-            if(regionAvail.x / regionAvail.y > aspectRatio){
-                imageSize.y = regionAvail.y;
-                imageSize.x = regionAvail.y * aspectRatio;
-            }else{
-                imageSize.x = regionAvail.x;
-                imageSize.y = regionAvail.x / aspectRatio;
-            }
-
+            //in pixels, the framebuffer and projection pick it up next frame
+            panelWidth = Math.round(regionAvail.x * ImGui.getIO().getDisplayFramebufferScaleX());
+            panelHeight = Math.round(regionAvail.y * ImGui.getIO().getDisplayFramebufferScaleY());
 
-            ImGui.image(framebuffer.getTextureId(), regionAvail.x, regionAvail.y, 0, 1, 1, 0);
+            //only the drawn part of the framebuffer is stretched over the panel, flipped since GL starts at the bottom
+            ImGui.image(renderTarget.getTextureId(), regionAvail.x, regionAvail.y, 0, renderTarget.getV(), renderTarget.getU(), 0);
+            ImGui.getItemRectMin(viewportPosition);
+            ImGui.getItemRectSize(viewportSize);
 
             ImGui.setCursorPos(regionAvail.x, regionAvail.y);
             ImGuizmo.beginFrame();
             ImGuizmo.setOrthographic(false);
             ImGuizmo.setEnabled(true);
             ImGuizmo.setDrawList();
-            ImGuizmo.setRect(ImGui.getWindowPosX(), ImGui.getWindowPosY(), winSize.x, winSize.y);
-
-            float[] viewMatrix = new float[16];
-            viewMatrix = worldShader.getViewMatrix().get(viewMatrix);
+            ImGuizmo.setRect(viewportPosition.x, viewportPosition.y, viewportSize.x, viewportSize.y);
 
-            float[] projectionMatrix = new float[16];
-            projectionMatrix = camera.getProjectionMatrix().get(projectionMatrix);
-
-            float[] gridMatrix = new float[16];
-            Matrix4f identity = new Matrix4f();
-            identity.get(gridMatrix);
+            float[] viewMatrix = worldShader.getViewMatrix().get(viewArray);
+            float[] projectionMatrix = camera.getProjectionMatrix().get(projectionArray);
 
             //TODO: drawGrid() shouldn't appear ontop of objects that are infront of the grid
 //            ImGuizmo.drawGrid(viewMatrix, projectionMatrix, gridMatrix, 1000);
 
-            float[] size = {200, 200};
-            float[] position = {5, regionAvail.y - (size[1])};
-
-            ImGuizmo.viewManipulate(viewMatrix, 10, position, size, ImColor.floatToColor(0, 0, 0, 0));
-
-            //TODO not create new objects each frame
-            Matrix4f newCamMatrix = new Matrix4f();
-            newCamMatrix.set(viewMatrix);
-            Quaternionf newCameraRot = new Quaternionf().setFromNormalized(newCamMatrix);
+            viewCubePosition[0] = 5;
+            viewCubePosition[1] = regionAvail.y - viewCubeSize[1];
 
-            camera.getOrientation().set(newCameraRot);
+            ImGuizmo.viewManipulate(viewMatrix, 10, viewCubePosition, viewCubeSize, ImColor.floatToColor(0, 0, 0, 0));
 
-            if(lastHitComponent != null){
-                lastHitComponent.getRigidBody().activate();
-                MeshInstance instance = lastHitComponent.getInstance();
-                Matrix4f matrix = new Matrix4f();
-                matrix.translate(instance.getPosition());
-                matrix.rotate(instance.getRotation());
-                matrix.scale(instance.getScale());
+            gizmoMatrix.set(viewMatrix);
+            camera.getOrientation().setFromNormalized(gizmoMatrix);
 
-                float[] transform = new float[16];
-                transform = matrix.get(transform);
-
-                float[] snap = new float[]{1, 1, 1};
+            if(selection.size() > 1){
+                manipulateSelection(viewMatrix, projectionMatrix);
+            }else if(selection.size() == 1){
+                PhysicsComponent selected = selection.getPrimary();
+                synchronized (physicsScheduler.getLock()) {
+                    selected.getRigidBody().activate();
+                }
+                MeshInstance instance = selected.getInstance();
+                float[] transform = gizmoMatrix.translationRotateScale(instance.getPosition(), instance.getRotation(), instance.getScale()).get(gizmoTransform);
 
                 ImGuizmo.manipulate(viewMatrix, projectionMatrix, transform, operation, mode, snap);
 
@@ -397,16 +1506,7 @@ public class Viewport {
                     updateComponent(transform);
             }
 
-            ImVec2 translateSize = new ImVec2();
-            ImVec2 rotateSize = new ImVec2();
-            ImVec2 scaleSize = new ImVec2();
-
-            ImGui.calcTextSize(translateSize, "Translate");
-            ImGui.calcTextSize(rotateSize, "Rotate");
-            ImGui.calcTextSize(scaleSize, "Scale");
-
             ImGui.setCursorPos(regionAvail.x - 300, titleBarHeight + 5);
-            ImVec2 cursorPos = ImGui.getCursorPos();
             //starX, startY, endX, endY, color
             float winPosX = ImGui.getWindowPosX();
             float winPosY = ImGui.getWindowPosY();
@@ -443,87 +1543,239 @@ public class Viewport {
                 performRaycast = false;
             }
 
-            if(performRaycast && ImGui.isWindowHovered() && ImGui.isMouseClicked(0)){
-                raycast();
-            }
+            updatePicking();
         }
         ImGui.end();
+        profiler.end();
     }
 
-    public void updateComponent(PhysicsComponent component, Vector3f newPosition, Quaternionf newRotation, Vector3f newScale){
-        component.getInstance().setPosition(newPosition);
-        component.getInstance().setRotation(newRotation);
-        component.getInstance().setScale(newScale);
-
-        javax.vecmath.Vector3f physicsPosition = physicsWorld.toPhysicsVector(newPosition);
-        javax.vecmath.Quat4f physicsRotation = new Quat4f(newRotation.x, newRotation.y, newRotation.z, newRotation.w);
+    //ends the open edit once the mouse is let go and handles ctrl+z, ctrl+y and ctrl+shift+z
+    private void updateHistory(){
+        if(ImGui.isMouseDown(0)){
+            //a drag still edits the objects of the open entry, undoing under it could remove the one being dragged
+            return;
+        }
+        history.close();
+        if(ImGui.getIO().getWantTextInput() || !ImGui.getIO().getKeyCtrl()){
+            return;
+        }
+        if(ImGui.isKeyPressed(GLFW_KEY_Z)){
+            if(ImGui.getIO().getKeyShift()){
+                history.redo();
+            }else{
+                history.undo();
+            }
+        }else if(ImGui.isKeyPressed(GLFW_KEY_Y)){
+            history.redo();
+        }
+    }
 
-        com.bulletphysics.linearmath.Transform physicsTransform = new Transform();
-        physicsTransform.set(new javax.vecmath.Matrix4f(physicsRotation, physicsPosition, 1.0f));
-        component.getRigidBody().setWorldTransform(physicsTransform);
-        component.getRigidBody().getMotionState().setWorldTransform(physicsTransform);
+    //the values are copied, callers can keep reusing the vectors they pass in
+    public void updateComponent(PhysicsComponent component, Vector3f newPosition, Quaternionf newRotation, Vector3f newScale){
+        Integer index = componentIndices.get(component);
+        if(index == null){
+            //no longer in the scene, e.g. a spawn that was undone or a cell that was unloaded
+            return;
+        }
+        TransformEdit.copy(component.getInstance(), historyBefore, 0);
+        component.getInstance().getPosition().set(newPosition);
+        component.getInstance().getRotation().set(newRotation);
+        component.getInstance().getScale().set(newScale);
+
+        //translation and rotation keep the same cached shape so only scale changes touch the collision shape
+        CollisionShape shape = createShape(component.getInstance());
+        synchronized (physicsScheduler.getLock()) {
+            physicsScheduler.setTransform(component, shape);
+        }
+        physicsScheduler.teleport(component);
 
         setPreviousTransform(component.getInstance());
+        sceneCuller.update(component.getInstance());
+        if(streamer != null){
+            streamer.changed(component.getInstance());
+        }
+        TransformEdit.copy(component.getInstance(), historyAfter, 0);
+        history.recordTransform(index, historyBefore, historyAfter);
+        if(journal.isRecording()){
+            journal.recordTransform(index, component.getInstance());
+        }
 
 
 //        javax.vecmath.Vector3f halfExtents = physicsWorld.toPhysicsVector(new Vector3f(lastHitComponent.getInstance().getScale().x / 2, lastHitComponent.getInstance().getScale().y / 2, lastHitComponent.getInstance().getScale().z / 2));
 //        BoxShape box = new BoxShape(halfExtents);
+    }
 
-        ConvexHullShape shape = createShape(component.getInstance());
-        component.getRigidBody().setCollisionShape(shape);
+    //the gizmo edits the pivot, the selection follows whatever changed since the last frame
+    private void manipulateSelection(float[] viewMatrix, float[] projectionMatrix){
+        if(!ImGuizmo.isUsing()){
+            //the gizmo has to keep getting back its own matrix while dragging, it is only rebuilt in between
+            selection.getCenter(editPosition);
+            if(mode == Mode.LOCAL){
+                editRotation.set(selection.getPrimary().getInstance().getRotation());
+            }else{
+                editRotation.identity();
+            }
+            gizmoMatrix.translationRotateScale(editPosition, editRotation, 1.0f).get(pivotTransform);
+            System.arraycopy(pivotTransform, 0, previousPivot, 0, pivotTransform.length);
+        }
+
+        ImGuizmo.manipulate(viewMatrix, projectionMatrix, pivotTransform, operation, mode, snap);
+
+        if(Arrays.equals(pivotTransform, previousPivot)){
+            return;
+        }
+        gizmoMatrix.set(previousPivot);
+        gizmoMatrix.getTranslation(pivotPosition);
+        gizmoMatrix.getNormalizedRotation(pivotRotation);
+        gizmoMatrix.getScale(pivotScale);
+        gizmoMatrix.set(pivotTransform);
+        gizmoMatrix.getTranslation(editPosition);
+        gizmoMatrix.getNormalizedRotation(editRotation);
+        gizmoMatrix.getScale(editScale);
+        System.arraycopy(pivotTransform, 0, previousPivot, 0, pivotTransform.length);
+
+        transformSelection(pivotPosition, pivotRotation, pivotScale, editPosition, editRotation, editScale);
     }
 
-    private ConvexHullShape createShape(MeshInstance instance){
-        float[] vertices = instance.getMesh().getModel().getVertices();
-        ObjectArrayList<javax.vecmath.Vector3f> points = new ObjectArrayList<>();
-        for (int i = 0; i < vertices.length; i += 3) {
-            javax.vecmath.Vector3f point = (new javax.vecmath.Vector3f(vertices[i], vertices[i + 1], vertices[i + 2]));
-            point.x *= instance.getScale().x;
-            point.y *= instance.getScale().y;
-            point.z *= instance.getScale().z;
-            points.add(point);
+    //moves the selection by the change of the pivot under one lock, recorded as a single history entry
+    public void transformSelection(Vector3f fromPosition, Quaternionf fromRotation, Vector3f fromScale, Vector3f toPosition, Quaternionf toRotation, Vector3f toScale){
+        int count = selection.size();
+        if(count == 0){
+            return;
+        }
+        if(selectionObjects.length < count){
+            int capacity = Math.max(count, selectionObjects.length * 2);
+            selectionObjects = new int[capacity];
+            selectionBefore = new float[capacity * TransformEdit.STRIDE];
+            selectionAfter = new float[capacity * TransformEdit.STRIDE];
+            selectionShapes = new CollisionShape[capacity];
         }
-        ConvexHullShape shape = new ConvexHullShape(points);
 
-        return shape;
+        fromRotation.invert(inverseRotation);
+        toRotation.mul(inverseRotation, deltaRotation);
+        toScale.div(fromScale, scaleFactor);
+        boolean scaling = scaleFactor.x != 1 || scaleFactor.y != 1 || scaleFactor.z != 1;
+
+        for (int i = 0; i < count; i++) {
+            PhysicsComponent component = selection.get(i);
+            MeshInstance instance = component.getInstance();
+            selectionObjects[i] = componentIndices.get(component);
+            TransformEdit.copy(instance, selectionBefore, i * TransformEdit.STRIDE);
+
+            //offset from the pivot in its own space, scaled there and turned with the new pivot
+            inverseRotation.transform(pivotOffset.set(instance.getPosition()).sub(fromPosition));
+            toRotation.transform(pivotOffset.mul(scaleFactor));
+            instance.getPosition().set(toPosition).add(pivotOffset);
+            deltaRotation.mul(instance.getRotation(), instance.getRotation()).normalize();
+            if(scaling){
+                instance.getScale().mul(scaleFactor);
+            }
+            selectionShapes[i] = scaling ? createShape(instance) : null;
+            TransformEdit.copy(instance, selectionAfter, i * TransformEdit.STRIDE);
+        }
+
+        synchronized (physicsScheduler.getLock()) {
+            for (int i = 0; i < count; i++) {
+                physicsScheduler.setTransform(selection.get(i), selectionShapes[i]);
+                selection.get(i).getRigidBody().activate();
+                selectionShapes[i] = null;
+            }
+        }
+        physicsScheduler.teleport(selection.asList());
+
+        boolean recording = journal.isRecording();
+        for (int i = 0; i < count; i++) {
+            MeshInstance instance = selection.get(i).getInstance();
+            sceneCuller.update(instance);
+            if(streamer != null){
+                streamer.changed(instance);
+            }
+            if(recording){
+                journal.recordTransform(selectionObjects[i], instance);
+            }
+        }
+        history.recordTransforms(selectionObjects, count, selectionBefore, selectionAfter);
+        setPreviousTransform(selection.getPrimary().getInstance());
+    }
+
+    private CollisionShape createShape(MeshInstance instance){
+        return shapeCache.getShape(instance.getMesh(), instance.getScale());
     }
 
     private void setPreviousTransform(MeshInstance instance) {
 //        MeshInstance instance = hitResults.hitComponent.getInstance();
-        Matrix4f matrix = new Matrix4f();
-        matrix.translate(instance.getPosition());
-        matrix.rotate(instance.getRotation());
-        matrix.scale(instance.getScale());
-
-        previousTransform = matrix.get(previousTransform);
+        gizmoMatrix.translationRotateScale(instance.getPosition(), instance.getRotation(), instance.getScale()).get(previousTransform);
     }
 
     private void updateComponent(float[] transform) {
-        Matrix4f newTransform = new Matrix4f();
-        newTransform = newTransform.set(transform);
+        gizmoMatrix.set(transform);
+        gizmoMatrix.getTranslation(editPosition);
+        gizmoMatrix.getNormalizedRotation(editRotation);
+        gizmoMatrix.getScale(editScale);
+
+        updateComponent(getSelectedComponent(), editPosition, editRotation, editScale);
+    }
+
+    public boolean isPhysicsPaused() {
+        return physicsScheduler.isPaused();
+    }
+
+    //pausing stops stepping and interpolating completely, nothing physics related runs while editing
+    public void setPhysicsPaused(boolean paused) {
+        physicsScheduler.setPaused(paused);
+    }
+
+    public boolean isPhysicsThreaded() {
+        return physicsScheduler.isThreaded();
+    }
 
-        Vector3f newPosition = new Vector3f();
-        newPosition = newTransform.getTranslation(newPosition);
+    public void setPhysicsThreaded(boolean threaded) {
+        physicsScheduler.setThreaded(threaded);
+    }
 
-        Quaternionf newRotation = new Quaternionf();
-        newRotation = newTransform.getNormalizedRotation(newRotation);
+    public int getActivePhysicsCount() {
+        return physicsScheduler.getActiveCount();
+    }
 
-        Vector3f newScale = new Vector3f();
-        newScale = newTransform.getScale(newScale);
+    public int getPhysicsCount() {
+        return physicsScheduler.getTotalCount();
+    }
 
-        updateComponent(getSelectedComponent(), newPosition, newRotation, newScale);
+    public PhysicsScheduler getPhysicsScheduler() {
+        return physicsScheduler;
     }
 
     public void cleanup()
     {
-        cube.cleanup();
+        if(sceneLoader != null){
+            sceneLoader.cancel();
+        }
+        if(streamer != null){
+            streamer.close();
+        }
+        //flushes and syncs whatever is still pending
+        journal.close();
+        physicsScheduler.shutdown();
+        shapeCache.clear();
+        for (Mesh mesh : instances.keySet()) {
+            mesh.cleanup();
+        }
         depthShader.cleanup();
         worldShader.cleanup();
-        depthFrameBuffer.cleanup();
-        framebuffer.cleanup();
+        if(instancedWorldRenderer != null){
+            for (InstancedRenderer depthRenderer : instancedDepthRenderers) {
+                depthRenderer.cleanup();
+            }
+            instancedWorldRenderer.cleanup();
+            instancedDepthShader.cleanup();
+            instancedWorldShader.cleanup();
+        }
+        shadowCascades.cleanup();
+        renderTarget.cleanup();
     }
 
+    //the primary component of the selection
     public PhysicsComponent getSelectedComponent() {
-        return lastHitComponent;
+        return selection.getPrimary();
     }
 }
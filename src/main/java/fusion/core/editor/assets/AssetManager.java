@@ -0,0 +1,213 @@
+package fusion.core.editor.assets;
+
+import open.gl.gameobject.Mesh;
+import open.gl.texture.Texture;
+import open.gl.texture.TextureLoader;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//Loads models, textures and files on worker threads. GL work is queued and run from update on the render
+//thread within a time budget, model and texture futures complete there so their callbacks may use GL
+public class AssetManager {
+
+    private final ExecutorService workers;
+    private final ConcurrentLinkedQueue<Runnable> uploads = new ConcurrentLinkedQueue<>();
+
+    private final Map<String, CompletableFuture<List<Mesh>>> meshes = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Texture>> textures = new ConcurrentHashMap<>();
+
+    //precomputed data of loaded meshes, only touched on the render thread
+    private final Map<Mesh, float[]> bounds = new HashMap<>();
+    private final Map<Mesh, float[]> hulls = new HashMap<>();
+    private final Map<Mesh, MeshSource> sources = new HashMap<>();
+
+    private long uploadCount = 0;
+    private long lastUpdateNanos = 0;
+    private long maxUpdateNanos = 0;
+
+    public AssetManager() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public AssetManager(int threads) {
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Asset Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //the meshes of every model in the file, the same future is returned for the same path
+    public CompletableFuture<List<Mesh>> loadMeshes(String path) {
+        return meshes.computeIfAbsent(new File(path).getAbsolutePath(), absolutePath -> {
+            CompletableFuture<List<Mesh>> future = new CompletableFuture<>();
+            workers.execute(() -> {
+                try {
+                    List<ImportedModel> imported = CookedMeshCache.importModels(absolutePath);
+                    upload(meshes, absolutePath, future, () -> createMeshes(absolutePath, imported));
+                } catch (IOException | RuntimeException e) {
+                    fail(meshes, absolutePath, future, e);
+                }
+            });
+            return future;
+        });
+    }
+
+    public CompletableFuture<Texture> loadTexture(String path) {
+        return textures.computeIfAbsent(new File(path).getAbsolutePath(), absolutePath -> {
+            CompletableFuture<Texture> future = new CompletableFuture<>();
+            workers.execute(() -> {
+                try {
+                    ImageData image = ImageData.decode(new File(absolutePath));
+                    upload(textures, absolutePath, future, () -> createTexture(absolutePath, image));
+                } catch (IOException | RuntimeException e) {
+                    fail(textures, absolutePath, future, e);
+                }
+            });
+            return future;
+        });
+    }
+
+    //file contents, e.g. fonts that are handed to ImGui as bytes
+    public CompletableFuture<byte[]> loadBytes(String path) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return Files.readAllBytes(new File(path).toPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, workers);
+    }
+
+    private <T> void upload(Map<String, CompletableFuture<T>> loaded, String path, CompletableFuture<T> future, Upload<T> upload) {
+        uploads.add(() -> {
+            try {
+                future.complete(upload.run());
+            } catch (RuntimeException e) {
+                loaded.remove(path, future);
+                future.completeExceptionally(e);
+            }
+        });
+    }
+
+    //completes on the render thread like a successful load, the path is forgotten so asking again retries it
+    private <T> void fail(Map<String, CompletableFuture<T>> loaded, String path, CompletableFuture<T> future, Exception e) {
+        uploads.add(() -> {
+            loaded.remove(path, future);
+            future.completeExceptionally(e);
+        });
+    }
+
+    private List<Mesh> createMeshes(String path, List<ImportedModel> imported) {
+        List<Mesh> result = new ArrayList<>(imported.size());
+        for (ImportedModel model : imported) {
+            if (model.diffuse != null) {
+                model.model.setDiffuseTexture(createTexture(model.diffusePath, model.diffuse));
+            }
+            if (model.specular != null) {
+                model.model.setSpecularTexture(createTexture(model.specularPath, model.specular));
+            }
+            Mesh mesh = new Mesh(model.model);
+            if (model.bounds != null) {
+                bounds.put(mesh, model.bounds);
+            }
+            if (model.hull != null) {
+                hulls.put(mesh, model.hull);
+            }
+            sources.put(mesh, new MeshSource(path, result.size()));
+            result.add(mesh);
+        }
+        return result;
+    }
+
+    //shares TextureLoader's pool so a texture is only on the GPU once, no matter which way it was loaded
+    private Texture createTexture(String path, ImageData image) {
+        Texture texture = TextureLoader.texturePool.get(path);
+        if (texture != null) {
+            return texture;
+        }
+
+        ByteBuffer buffer = MemoryUtil.memAlloc(image.getPixels().length);
+        try {
+            buffer.put(image.getPixels()).flip();
+            texture = new Texture(image.getWidth(), image.getHeight());
+            texture.genTextureID(buffer);
+        } finally {
+            MemoryUtil.memFree(buffer);
+        }
+        TextureLoader.texturePool.put(path, texture);
+        return texture;
+    }
+
+    //file and index a mesh was loaded from, null for meshes that did not come through this manager
+    public MeshSource getSource(Mesh mesh) {
+        return sources.get(mesh);
+    }
+
+    //min xyz, max xyz of a loaded mesh, null when it was not cooked
+    public float[] getBounds(Mesh mesh) {
+        return bounds.get(mesh);
+    }
+
+    //simplified convex hull points of a loaded mesh, null when it was not cooked
+    public float[] getHull(Mesh mesh) {
+        return hulls.get(mesh);
+    }
+
+    //runs queued uploads on the render thread until the budget is used up, at least one runs so loading always progresses
+    public int update(long budgetNanos) {
+        long start = System.nanoTime();
+        int count = 0;
+        Runnable upload;
+        while ((upload = uploads.poll()) != null) {
+            upload.run();
+            count++;
+            if (System.nanoTime() - start >= budgetNanos) {
+                break;
+            }
+        }
+        uploadCount += count;
+        lastUpdateNanos = System.nanoTime() - start;
+        maxUpdateNanos = Math.max(maxUpdateNanos, lastUpdateNanos);
+        return count;
+    }
+
+    public int getQueuedUploads() {
+        return uploads.size();
+    }
+
+    public long getUploadCount() {
+        return uploadCount;
+    }
+
+    public long getLastUpdateNanos() {
+        return lastUpdateNanos;
+    }
+
+    public long getMaxUpdateNanos() {
+        return maxUpdateNanos;
+    }
+
+    public void close() {
+        workers.shutdownNow();
+        uploads.clear();
+    }
+
+    private interface Upload<T> {
+        T run();
+    }
+}
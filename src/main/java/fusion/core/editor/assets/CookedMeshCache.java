@@ -0,0 +1,262 @@
+package fusion.core.editor.assets;
+
+import fusion.core.editor.physics.ShapeCache;
+import fusion.core.editor.scene.SceneCuller;
+import open.gl.Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+//Keeps a cooked copy of every imported model next to its source ("cube.fbx.cooked") with its arrays, bounds
+//and hull, loaded with a memory map instead of assimp. Rebuilt when the source's size or checksum changes
+public class CookedMeshCache {
+
+    public static final String EXTENSION = ".cooked";
+
+    private static final int MAGIC = 0x46434d53; //FCMS
+    //2: hulls are no longer inflated by the collision margin
+    private static final int VERSION = 2;
+    //magic, version, source size and checksum
+    private static final int HEADER_SIZE = 20;
+
+    //same layout on every machine, and the native order of the machines the editor runs on
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    //imports through the cooked file, cooking the source first when there is no valid one
+    public static List<ImportedModel> importModels(String path) throws IOException {
+        File source = new File(path).getAbsoluteFile();
+        SourceHash hash = hash(source);
+
+        File cooked = cookedFile(source);
+        List<ImportedModel> models = read(cooked, hash);
+        if (models != null) {
+            return models;
+        }
+
+        models = ModelImporter.importModels(source.getPath());
+        for (ImportedModel model : models) {
+            cook(model);
+        }
+        try {
+            write(cooked, hash, models);
+        } catch (IOException e) {
+            //read only asset folders still import, just without the cache
+            e.printStackTrace();
+        }
+        return models;
+    }
+
+    public static File cookedFile(File source) {
+        return new File(source.getPath() + EXTENSION);
+    }
+
+    public static void cook(ImportedModel model) {
+        float[] vertices = model.model.getVertices();
+        model.bounds = SceneCuller.computeBounds(vertices);
+        model.hull = ShapeCache.simplifyHull(vertices);
+    }
+
+    //returns null when the file is missing, from an older version or was cooked from a different source
+    public static List<ImportedModel> read(File cooked, SourceHash hash) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(cooked.toPath(), StandardOpenOption.READ)) {
+            //a stale file is replaced right after, a mapping of it would block that on Windows until it is collected
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ORDER);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    break;
+                }
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION || header.getLong() != hash.size || header.getInt() != hash.checksum) {
+                return null;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, channel.size() - HEADER_SIZE);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        buffer.order(ORDER);
+
+        try {
+            String directory = cooked.getParent();
+            int count = buffer.getInt();
+            List<ImportedModel> models = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int vertexCount = buffer.getInt();
+                int indexCount = buffer.getInt();
+                int hullCount = buffer.getInt();
+
+                float[] bounds = readFloats(buffer, 6);
+                String diffuse = readString(buffer);
+                String specular = readString(buffer);
+
+                float[] vertices = readFloats(buffer, vertexCount * 3);
+                float[] texCoords = readFloats(buffer, vertexCount * 2);
+                float[] normals = readFloats(buffer, vertexCount * 3);
+                int[] indices = readInts(buffer, indexCount);
+                float[] hull = readFloats(buffer, hullCount * 3);
+
+                ImportedModel model = new ImportedModel(new Model(vertices, texCoords, normals, indices));
+                model.bounds = bounds;
+                model.hull = hull;
+                model.diffusePath = resolve(directory, diffuse);
+                model.specularPath = resolve(directory, specular);
+                ModelImporter.decodeTextures(model);
+                models.add(model);
+            }
+            return models;
+        } catch (RuntimeException e) {
+            //truncated or corrupt, it gets cooked again
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public static void write(File cooked, SourceHash hash, List<ImportedModel> models) throws IOException {
+        String directory = cooked.getParent();
+        List<byte[]> strings = new ArrayList<>();
+        long size = HEADER_SIZE + 4;
+        for (ImportedModel model : models) {
+            byte[] diffuse = relativize(directory, model.diffusePath);
+            byte[] specular = relativize(directory, model.specularPath);
+            strings.add(diffuse);
+            strings.add(specular);
+
+            Model data = model.model;
+            size += 12 + 6 * 4 + stringSize(diffuse) + stringSize(specular);
+            size += 4L * (data.getVertices().length + data.getTexCoords().length + data.getNormals().length + data.getIndices().length + model.hull.length);
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Model too large to cook: " + cooked);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ORDER);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(hash.size).putInt(hash.checksum).putInt(models.size());
+        for (int i = 0; i < models.size(); i++) {
+            ImportedModel model = models.get(i);
+            Model data = model.model;
+            buffer.putInt(data.getVertices().length / 3).putInt(data.getIndices().length).putInt(model.hull.length / 3);
+            writeFloats(buffer, model.bounds);
+            writeString(buffer, strings.get(i * 2));
+            writeString(buffer, strings.get(i * 2 + 1));
+
+            writeFloats(buffer, data.getVertices());
+            writeFloats(buffer, data.getTexCoords());
+            writeFloats(buffer, data.getNormals());
+            writeInts(buffer, data.getIndices());
+            writeFloats(buffer, model.hull);
+        }
+
+        //written next to the target and moved over it so a reader never sees half a file
+        Path target = cooked.toPath();
+        Path temporary = Files.createTempFile(target.getParent(), "cook", ".tmp");
+        Files.write(temporary, buffer.array());
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public static SourceHash hash(File source) throws IOException {
+        try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            CRC32C crc = new CRC32C();
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            return new SourceHash(size, (int) crc.getValue());
+        }
+    }
+
+    //a bulk copy straight out of the mapping, no per element reads
+    private static float[] readFloats(ByteBuffer buffer, int count) {
+        float[] values = new float[count];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    private static void writeFloats(ByteBuffer buffer, float[] values) {
+        buffer.asFloatBuffer().put(values);
+        buffer.position(buffer.position() + values.length * 4);
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    private static void writeInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().put(values);
+        buffer.position(buffer.position() + values.length * 4);
+    }
+
+    //length prefixed and padded to 4 bytes so the arrays after it stay aligned
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        buffer.position(buffer.position() + padding(length));
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length).put(bytes);
+        buffer.position(buffer.position() + padding(bytes.length));
+    }
+
+    private static int stringSize(byte[] bytes) {
+        return 4 + bytes.length + padding(bytes.length);
+    }
+
+    private static int padding(int length) {
+        return (4 - (length & 3)) & 3;
+    }
+
+    //texture paths are stored relative to the model so the cooked file survives the project being moved
+    private static byte[] relativize(String directory, String path) {
+        if (path == null) {
+            return new byte[0];
+        }
+        String relative = new File(directory).toPath().relativize(new File(path).toPath()).toString();
+        return relative.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String resolve(String directory, String relative) {
+        if (relative == null) {
+            return null;
+        }
+        File file = new File(directory, relative);
+        return file.exists() ? file.getAbsolutePath() : null;
+    }
+
+    public static final class SourceHash {
+        public final long size;
+        public final int checksum;
+
+        public SourceHash(long size, int checksum) {
+            this.size = size;
+            this.checksum = checksum;
+        }
+    }
+}
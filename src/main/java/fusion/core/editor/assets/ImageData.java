@@ -0,0 +1,52 @@
+package fusion.core.editor.assets;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+//Decoded RGBA pixels waiting to be uploaded, laid out the same way TextureLoader uploads them
+public class ImageData {
+
+    private final int width;
+    private final int height;
+    private final byte[] pixels;
+
+    public ImageData(int width, int height, byte[] pixels) {
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    public static ImageData decode(File file) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Could not decode " + file);
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+        byte[] pixels = new byte[width * height * 4];
+        for (int i = 0; i < argb.length; i++) {
+            int pixel = argb[i];
+            pixels[i * 4] = (byte) (pixel >> 16);
+            pixels[i * 4 + 1] = (byte) (pixel >> 8);
+            pixels[i * 4 + 2] = (byte) pixel;
+            pixels[i * 4 + 3] = (byte) (pixel >>> 24);
+        }
+        return new ImageData(width, height, pixels);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public byte[] getPixels() {
+        return pixels;
+    }
+}
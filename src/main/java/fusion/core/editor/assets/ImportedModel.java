@@ -0,0 +1,24 @@
+package fusion.core.editor.assets;
+
+import open.gl.Model;
+
+//One mesh of an imported file, parsed but not uploaded yet
+public class ImportedModel {
+
+    public final Model model;
+
+    //absolute paths of the material textures, null when the material has none or the file is missing
+    public String diffusePath;
+    public String specularPath;
+
+    public ImageData diffuse;
+    public ImageData specular;
+
+    //min xyz, max xyz and the simplified convex hull, filled in when the model is cooked
+    public float[] bounds;
+    public float[] hull;
+
+    public ImportedModel(Model model) {
+        this.model = model;
+    }
+}
@@ -0,0 +1,13 @@
+package fusion.core.editor.assets;
+
+//Where a loaded mesh came from, the index is its position among the meshes of the model file
+public class MeshSource {
+
+    public final String path;
+    public final int index;
+
+    public MeshSource(String path, int index) {
+        this.path = path;
+        this.index = index;
+    }
+}
@@ -0,0 +1,134 @@
+package fusion.core.editor.assets;
+
+import open.gl.Model;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.assimp.AIFace;
+import org.lwjgl.assimp.AIMaterial;
+import org.lwjgl.assimp.AIMaterialProperty;
+import org.lwjgl.assimp.AIMesh;
+import org.lwjgl.assimp.AIScene;
+import org.lwjgl.assimp.AIString;
+import org.lwjgl.assimp.AIVector3D;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.assimp.Assimp.*;
+
+//ModelLoader.loadModels without creating textures so it can run on a worker thread, the decoded textures
+//are uploaded by the AssetManager
+public class ModelImporter {
+
+    //same post processing ModelLoader uses
+    private static final int FLAGS = aiProcess_JoinIdenticalVertices | aiProcess_Triangulate | aiProcess_FixInfacingNormals;
+
+    public static List<ImportedModel> importModels(String path) throws IOException {
+        AIScene scene = aiImportFile(path, FLAGS);
+        if (scene == null) {
+            throw new IOException("Could not import " + path + ": " + aiGetErrorString());
+        }
+
+        try {
+            String directory = new File(path).getAbsoluteFile().getParent();
+            PointerBuffer materials = scene.mMaterials();
+            PointerBuffer meshes = scene.mMeshes();
+
+            List<ImportedModel> models = new ArrayList<>();
+            for (int i = 0; i < scene.mNumMeshes(); i++) {
+                AIMesh mesh = AIMesh.create(meshes.get(i));
+                ImportedModel imported = new ImportedModel(readModel(mesh));
+
+                if (materials != null && mesh.mMaterialIndex() < scene.mNumMaterials()) {
+                    AIMaterial material = AIMaterial.create(materials.get(mesh.mMaterialIndex()));
+                    imported.diffusePath = findTexture(directory, material, aiTextureType_DIFFUSE);
+                    imported.specularPath = findTexture(directory, material, aiTextureType_SPECULAR);
+                }
+                decodeTextures(imported);
+                models.add(imported);
+            }
+            return models;
+        } finally {
+            aiReleaseImport(scene);
+        }
+    }
+
+    static void decodeTextures(ImportedModel imported) throws IOException {
+        if (imported.diffusePath != null) {
+            imported.diffuse = ImageData.decode(new File(imported.diffusePath));
+        }
+        if (imported.specularPath != null) {
+            imported.specular = ImageData.decode(new File(imported.specularPath));
+        }
+    }
+
+    private static Model readModel(AIMesh mesh) {
+        int vertexCount = mesh.mNumVertices();
+        float[] vertices = new float[vertexCount * 3];
+        float[] normals = new float[vertexCount * 3];
+        float[] texCoords = new float[vertexCount * 2];
+
+        AIVector3D.Buffer positionBuffer = mesh.mVertices();
+        AIVector3D.Buffer normalBuffer = mesh.mNormals();
+        AIVector3D.Buffer texCoordBuffer = mesh.mTextureCoords(0);
+        for (int i = 0; i < vertexCount; i++) {
+            AIVector3D position = positionBuffer.get(i);
+            vertices[i * 3] = position.x();
+            vertices[i * 3 + 1] = position.y();
+            vertices[i * 3 + 2] = position.z();
+
+            if (normalBuffer != null) {
+                AIVector3D normal = normalBuffer.get(i);
+                normals[i * 3] = normal.x();
+                normals[i * 3 + 1] = normal.y();
+                normals[i * 3 + 2] = normal.z();
+            }
+
+            if (texCoordBuffer != null) {
+                AIVector3D texCoord = texCoordBuffer.get(i);
+                texCoords[i * 2] = texCoord.x();
+                texCoords[i * 2 + 1] = texCoord.y();
+            }
+        }
+
+        //triangulated, anything that still isn't a triangle (points, lines) is skipped
+        AIFace.Buffer faces = mesh.mFaces();
+        int[] indices = new int[mesh.mNumFaces() * 3];
+        int indexCount = 0;
+        for (int i = 0; i < mesh.mNumFaces(); i++) {
+            AIFace face = faces.get(i);
+            if (face.mNumIndices() != 3) {
+                continue;
+            }
+            IntBuffer faceIndices = face.mIndices();
+            indices[indexCount++] = faceIndices.get(0);
+            indices[indexCount++] = faceIndices.get(1);
+            indices[indexCount++] = faceIndices.get(2);
+        }
+        if (indexCount != indices.length) {
+            int[] trimmed = new int[indexCount];
+            System.arraycopy(indices, 0, trimmed, 0, indexCount);
+            indices = trimmed;
+        }
+
+        return new Model(vertices, texCoords, normals, indices);
+    }
+
+    private static String findTexture(String directory, AIMaterial material, int type) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            PointerBuffer property = stack.mallocPointer(1);
+            if (aiGetMaterialProperty(material, stack.ASCII(_AI_MATKEY_TEXTURE_BASE), type, 0, property) != aiReturn_SUCCESS) {
+                return null;
+            }
+            AIMaterialProperty texture = AIMaterialProperty.create(property.get(0));
+            String name = AIString.create(MemoryUtil.memAddress(texture.mData())).dataString();
+
+            File file = new File(directory + File.separator + name);
+            return file.exists() ? file.getAbsolutePath() : null;
+        }
+    }
+}
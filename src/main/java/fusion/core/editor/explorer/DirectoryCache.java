@@ -0,0 +1,273 @@
+package fusion.core.editor.explorer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+//Lists folders on a background thread and keeps a DirectorySnapshot per folder, rescanned when its
+//WatchService reports a change. The old snapshot stays visible until the new one is ready
+public class DirectoryCache {
+
+    private static final Comparator<DirectorySnapshot.Entry> ORDER = (a, b) -> {
+        if (a.isDirectory() != b.isDirectory()) {
+            return a.isDirectory() ? -1 : 1;
+        }
+        return a.getName().compareToIgnoreCase(b.getName());
+    };
+
+    private final Map<File, DirectorySnapshot> snapshots;
+    private final Set<File> queued = ConcurrentHashMap.newKeySet();
+    private final Map<WatchKey, File> watchedDirectories = new ConcurrentHashMap<>();
+    private final Map<File, WatchKey> watchKeys = new ConcurrentHashMap<>();
+
+    private final ExecutorService scanner;
+    private WatchService watchService;
+    private Thread watcher;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong scans = new AtomicLong();
+    private final AtomicLong totalScanNanos = new AtomicLong();
+    private volatile long lastScanNanos = 0;
+    //told on the scanner thread whenever a snapshot was replaced
+    private volatile Runnable changeListener;
+
+    public DirectoryCache() {
+        this(256);
+    }
+
+    public DirectoryCache(int maxDirectories) {
+        //least recently shown folders are dropped and no longer watched
+        snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<File, DirectorySnapshot> eldest) {
+                if (size() > maxDirectories) {
+                    unwatch(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        scanner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Directory Scanner");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            watcher = new Thread(this::watch, "Directory Watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        } catch (IOException | UnsupportedOperationException e) {
+            //folders are still scanned when first shown or refreshed, they just won't update by themselves
+            watchService = null;
+        }
+    }
+
+    //returns the last snapshot of the folder, or null if it was never scanned in which case a scan is queued
+    public DirectorySnapshot get(File directory) {
+        File key = directory.getAbsoluteFile();
+        DirectorySnapshot snapshot;
+        synchronized (snapshots) {
+            snapshot = snapshots.get(key);
+        }
+        if (snapshot != null) {
+            hits.incrementAndGet();
+            return snapshot;
+        }
+
+        misses.incrementAndGet();
+        request(key);
+        return null;
+    }
+
+    public void refresh(File directory) {
+        request(directory.getAbsoluteFile());
+    }
+
+    private void request(File directory) {
+        //changes arriving while a scan is already queued are covered by that scan
+        if (queued.add(directory)) {
+            try {
+                scanner.execute(() -> scan(directory));
+            } catch (RejectedExecutionException e) {
+                queued.remove(directory);
+            }
+        }
+    }
+
+    private void scan(File directory) {
+        queued.remove(directory);
+        long start = System.nanoTime();
+
+        List<DirectorySnapshot.Entry> entries;
+        boolean exists = true;
+        try {
+            entries = list(directory);
+        } catch (NoSuchFileException e) {
+            entries = new ArrayList<>();
+            exists = false;
+        } catch (IOException e) {
+            e.printStackTrace();
+            entries = new ArrayList<>();
+        }
+
+        long nanos = System.nanoTime() - start;
+        lastScanNanos = nanos;
+        scans.incrementAndGet();
+        totalScanNanos.addAndGet(nanos);
+
+        synchronized (snapshots) {
+            snapshots.put(directory, new DirectorySnapshot(directory, entries, nanos));
+        }
+        if (exists) {
+            register(directory);
+        } else {
+            unwatch(directory);
+        }
+
+        Runnable listener = changeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    //the entries of a folder in the order they are shown, folders first and then by name
+    public static List<DirectorySnapshot.Entry> list(File directory) throws IOException {
+        List<DirectorySnapshot.Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath())) {
+            for (Path path : stream) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    entries.add(new DirectorySnapshot.Entry(path.toFile(), attributes.isDirectory(), attributes.size(), attributes.lastModifiedTime().toMillis()));
+                } catch (IOException e) {
+                    //deleted between listing and reading it
+                }
+            }
+        }
+        entries.sort(ORDER);
+        return entries;
+    }
+
+    private void register(File directory) {
+        if (watchService == null || watchKeys.containsKey(directory)) {
+            return;
+        }
+        try {
+            WatchKey key = directory.toPath().register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            watchedDirectories.put(key, directory);
+            watchKeys.put(directory, key);
+        } catch (IOException | ClosedWatchServiceException e) {
+            //not watchable, it is still rescanned on refresh()
+        }
+    }
+
+    private void unwatch(File directory) {
+        WatchKey key = watchKeys.remove(directory);
+        if (key != null) {
+            key.cancel();
+            watchedDirectories.remove(key);
+        }
+    }
+
+    private void watch() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            //the events themselves don't matter, any change (or an overflow) means the folder is rescanned
+            key.pollEvents();
+            File directory = watchedDirectories.get(key);
+            if (directory != null) {
+                request(directory);
+            }
+
+            if (!key.reset()) {
+                //folder was deleted or became inaccessible
+                watchedDirectories.remove(key);
+                if (directory != null) {
+                    watchKeys.remove(directory);
+                }
+            }
+        }
+    }
+
+    public void setChangeListener(Runnable changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    public boolean isScanning() {
+        return !queued.isEmpty();
+    }
+
+    public boolean isWatching() {
+        return watchService != null;
+    }
+
+    public int getCachedCount() {
+        synchronized (snapshots) {
+            return snapshots.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getScans() {
+        return scans.get();
+    }
+
+    public long getLastScanNanos() {
+        return lastScanNanos;
+    }
+
+    public long getAverageScanNanos() {
+        long count = scans.get();
+        return count == 0 ? 0 : totalScanNanos.get() / count;
+    }
+
+    public void close() {
+        scanner.shutdownNow();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
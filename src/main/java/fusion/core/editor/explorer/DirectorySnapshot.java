@@ -0,0 +1,74 @@
+package fusion.core.editor.explorer;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+//Contents of one folder at the time it was scanned, never changes after creation
+public class DirectorySnapshot {
+
+    private final File directory;
+    private final List<Entry> entries;
+    private final long scanNanos;
+
+    public DirectorySnapshot(File directory, List<Entry> entries, long scanNanos) {
+        this.directory = directory;
+        this.entries = Collections.unmodifiableList(entries);
+        this.scanNanos = scanNanos;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    //folders first, then files, both by name
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    //how long the scan that produced this snapshot took
+    public long getScanNanos() {
+        return scanNanos;
+    }
+
+    public static class Entry {
+
+        private final File file;
+        private final String name;
+        private final boolean directory;
+        private final long size;
+        private final long lastModified;
+
+        public Entry(File file, boolean directory, long size, long lastModified) {
+            this.file = file;
+            this.name = file.getName();
+            this.directory = directory;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package fusion.core.editor.explorer;
+
+//Layout of the explorer's icon grid, all cells have the same size so only the visible rows are submitted
+public class ExplorerGrid {
+
+    private int itemCount = 0;
+    private int columns = 1;
+    private int rows = 0;
+    private float cellWidth = 1;
+    private float cellHeight = 1;
+
+    private int firstRow = 0;
+    private int lastRow = 0;
+
+    public void layout(int itemCount, float availableWidth, float cellWidth, float cellHeight) {
+        this.itemCount = itemCount;
+        this.cellWidth = Math.max(1, cellWidth);
+        this.cellHeight = Math.max(1, cellHeight);
+        columns = Math.max(1, (int) (availableWidth / this.cellWidth));
+        rows = (itemCount + columns - 1) / columns;
+    }
+
+    //offset is how far the top of the view is below the top of the grid, it can be negative when the grid starts further down
+    public void clip(float offset, float viewHeight) {
+        firstRow = clamp((int) Math.floor(offset / cellHeight), 0, rows);
+        lastRow = clamp((int) Math.ceil((offset + viewHeight) / cellHeight), firstRow, rows);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    //first item inside the clipped rows
+    public int getFirstIndex() {
+        return firstRow * columns;
+    }
+
+    //one past the last item inside the clipped rows
+    public int getLastIndex() {
+        return Math.min(itemCount, lastRow * columns);
+    }
+
+    public float getX(int index) {
+        return (index % columns) * cellWidth;
+    }
+
+    public float getY(int index) {
+        return (index / columns) * cellHeight;
+    }
+
+    public float getContentHeight() {
+        return rows * cellHeight;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getVisibleCount() {
+        return getLastIndex() - getFirstIndex();
+    }
+}
@@ -0,0 +1,30 @@
+package fusion.core.editor.explorer;
+
+import open.gl.texture.Texture;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL11.glDeleteTextures;
+
+//Uploads thumbnails as regular engine textures, has to be used on the thread that owns the GL context
+public class GlThumbnailUploader implements ThumbnailCache.TextureUploader {
+
+    @Override
+    public int upload(Thumbnail thumbnail) {
+        ByteBuffer buffer = MemoryUtil.memAlloc(thumbnail.getByteSize());
+        try {
+            buffer.put(thumbnail.getPixels()).flip();
+            Texture texture = new Texture(thumbnail.getWidth(), thumbnail.getHeight());
+            texture.genTextureID(buffer);
+            return texture.getID();
+        } finally {
+            MemoryUtil.memFree(buffer);
+        }
+    }
+
+    @Override
+    public void delete(int texture) {
+        glDeleteTextures(texture);
+    }
+}
@@ -0,0 +1,34 @@
+package fusion.core.editor.explorer;
+
+//Decoded RGBA pixels of a thumbnail, rows from top to bottom
+public class Thumbnail {
+
+    private final int width;
+    private final int height;
+    private final byte[] pixels;
+
+    public Thumbnail(int width, int height, byte[] pixels) {
+        if (pixels.length != width * height * 4) {
+            throw new IllegalArgumentException("Expected " + (width * height * 4) + " bytes but got " + pixels.length);
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public byte[] getPixels() {
+        return pixels;
+    }
+
+    public int getByteSize() {
+        return pixels.length;
+    }
+}
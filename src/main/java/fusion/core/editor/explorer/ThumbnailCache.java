@@ -0,0 +1,280 @@
+package fusion.core.editor.explorer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Thumbnail textures keyed by path and modification time, read from disk or generated on worker threads,
+//newest request first. Uploaded a few per frame in update and kept in an LRU bounded by texture memory
+public class ThumbnailCache {
+
+    public interface TextureUploader {
+        int upload(Thumbnail thumbnail);
+
+        void delete(int texture);
+    }
+
+    //requests that were not shown for this long are dropped before being decoded
+    private static final long STALE_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final ThumbnailGenerator generator;
+    private final ThumbnailDiskCache diskCache;
+    private final TextureUploader uploader;
+    private final long maxBytes;
+
+    private final LinkedHashMap<Key, CachedTexture> textures = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes = 0;
+
+    private final Map<Key, Request> requests = new ConcurrentHashMap<>();
+    private final Set<Key> failed = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<Request> finished = new ConcurrentLinkedQueue<>();
+    private final ThreadPoolExecutor workers;
+
+    private final Key lookupKey = new Key();
+
+    private long hits = 0;
+    private long misses = 0;
+    private long uploads = 0;
+    private long evictions = 0;
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public ThumbnailCache(ThumbnailGenerator generator, ThumbnailDiskCache diskCache, TextureUploader uploader, long maxBytes) {
+        this(generator, diskCache, uploader, maxBytes, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    public ThumbnailCache(ThumbnailGenerator generator, ThumbnailDiskCache diskCache, TextureUploader uploader, long maxBytes, int threads) {
+        this.generator = generator;
+        this.diskCache = diskCache;
+        this.uploader = uploader;
+        this.maxBytes = maxBytes;
+
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LifoQueue(), runnable -> {
+            Thread thread = new Thread(runnable, "Thumbnail Loader");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    //returns the texture of the thumbnail, or 0 while it is not ready (or can't be made) in which case it is requested
+    public int get(File file, long lastModified) {
+        lookupKey.set(file.getPath(), lastModified);
+
+        CachedTexture texture = textures.get(lookupKey);
+        if (texture != null) {
+            hits++;
+            return texture.id;
+        }
+
+        misses++;
+        Request request = requests.get(lookupKey);
+        if (request != null) {
+            request.lastRequested = System.nanoTime();
+            return 0;
+        }
+        if (failed.contains(lookupKey)) {
+            return 0;
+        }
+
+        Request created = new Request(lookupKey.copy(), file);
+        created.lastRequested = System.nanoTime();
+        requests.put(created.key, created);
+        workers.execute(() -> load(created));
+        return 0;
+    }
+
+    private void load(Request request) {
+        if (System.nanoTime() - request.lastRequested > STALE_NANOS) {
+            //scrolled away before we got to it, it is requested again if it comes back into view
+            requests.remove(request.key);
+            dropped.incrementAndGet();
+            return;
+        }
+
+        try {
+            Thumbnail thumbnail = diskCache != null ? diskCache.read(request.key.path, request.key.lastModified) : null;
+            if (thumbnail != null) {
+                diskHits.incrementAndGet();
+            } else {
+                thumbnail = generator.generate(request.file);
+                if (thumbnail != null) {
+                    generated.incrementAndGet();
+                    if (diskCache != null) {
+                        diskCache.write(request.key.path, request.key.lastModified, thumbnail);
+                    }
+                }
+            }
+
+            if (thumbnail == null) {
+                fail(request);
+            } else {
+                request.thumbnail = thumbnail;
+                finished.add(request);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not create thumbnail for " + request.file + ": " + e.getMessage());
+            fail(request);
+        }
+    }
+
+    private void fail(Request request) {
+        failed.add(request.key);
+        requests.remove(request.key);
+    }
+
+    //turns at most maxUploads finished thumbnails into textures, call once per frame on the render thread
+    public void update(int maxUploads) {
+        for (int i = 0; i < maxUploads; i++) {
+            Request request = finished.poll();
+            if (request == null) {
+                break;
+            }
+            requests.remove(request.key);
+
+            Thumbnail thumbnail = request.thumbnail;
+            CachedTexture texture = new CachedTexture(uploader.upload(thumbnail), thumbnail.getByteSize());
+            CachedTexture replaced = textures.put(request.key, texture);
+            if (replaced != null) {
+                uploader.delete(replaced.id);
+                usedBytes -= replaced.bytes;
+            }
+            usedBytes += texture.bytes;
+            uploads++;
+        }
+
+        Iterator<CachedTexture> iterator = textures.values().iterator();
+        while (usedBytes > maxBytes && textures.size() > 1 && iterator.hasNext()) {
+            CachedTexture eldest = iterator.next();
+            iterator.remove();
+            uploader.delete(eldest.id);
+            usedBytes -= eldest.bytes;
+            evictions++;
+        }
+    }
+
+    //forgets files that could not be read so they are tried again, e.g. after they were fixed on disk
+    public void retryFailed() {
+        failed.clear();
+    }
+
+    public int getPendingCount() {
+        return requests.size();
+    }
+
+    public int getTextureCount() {
+        return textures.size();
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getUploads() {
+        return uploads;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getGenerated() {
+        return generated.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public void close() {
+        workers.shutdownNow();
+        finished.clear();
+        requests.clear();
+        for (CachedTexture texture : textures.values()) {
+            uploader.delete(texture.id);
+        }
+        textures.clear();
+        usedBytes = 0;
+    }
+
+    private static class CachedTexture {
+        private final int id;
+        private final int bytes;
+
+        private CachedTexture(int id, int bytes) {
+            this.id = id;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class Request {
+        private final Key key;
+        private final File file;
+        private volatile long lastRequested;
+        private Thumbnail thumbnail;
+
+        private Request(Key key, File file) {
+            this.key = key;
+            this.file = file;
+        }
+    }
+
+    private static class Key {
+        private String path;
+        private long lastModified;
+
+        private void set(String path, long lastModified) {
+            this.path = path;
+            this.lastModified = lastModified;
+        }
+
+        private Key copy() {
+            Key key = new Key();
+            key.set(path, lastModified);
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return lastModified == key.lastModified && path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode() * 31 + Long.hashCode(lastModified);
+        }
+    }
+
+    //the executor takes from the head, adding there as well makes the newest request run first
+    private static class LifoQueue extends LinkedBlockingDeque<Runnable> {
+        @Override
+        public boolean offer(Runnable runnable) {
+            return offerFirst(runnable);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package fusion.core.editor.explorer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+//Generated thumbnails as raw RGBA files, named after the source path and modification time so an edited
+//file never finds a stale entry
+public class ThumbnailDiskCache {
+
+    private static final int MAGIC = 0x46435448; //FCTH
+    private static final int HEADER_SIZE = 12;
+
+    private final File directory;
+
+    public ThumbnailDiskCache(File directory) {
+        this.directory = directory;
+    }
+
+    //returns null when there is no usable entry
+    public Thumbnail read(String path, long lastModified) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(fileFor(path, lastModified).toPath()));
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                return null;
+            }
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            if (width <= 0 || height <= 0 || buffer.remaining() != width * height * 4) {
+                return null;
+            }
+            byte[] pixels = new byte[buffer.remaining()];
+            buffer.get(pixels);
+            return new Thumbnail(width, height, pixels);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public void write(String path, long lastModified, Thumbnail thumbnail) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + thumbnail.getByteSize());
+        buffer.putInt(MAGIC).putInt(thumbnail.getWidth()).putInt(thumbnail.getHeight()).put(thumbnail.getPixels());
+
+        try {
+            if (!directory.exists()) {
+                directory.mkdirs();
+            }
+            //written next to the target and moved over it so a reader never sees half a file
+            Path target = fileFor(path, lastModified).toPath();
+            Path temporary = Files.createTempFile(directory.toPath(), "thumb", ".tmp");
+            Files.write(temporary, buffer.array());
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public File fileFor(String path, long lastModified) {
+        return new File(directory, Long.toHexString(hash(path)) + "-" + Long.toHexString(lastModified) + ".thumb");
+    }
+
+    //64 bit FNV-1a, String.hashCode collides too easily for a whole asset tree
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public void clear() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".thumb"));
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+}
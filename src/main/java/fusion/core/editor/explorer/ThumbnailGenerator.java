@@ -0,0 +1,222 @@
+package fusion.core.editor.explorer;
+
+import open.gl.Model;
+import open.gl.ModelLoader;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+//Square thumbnails of images and models without OpenGL, models are drawn by a small software rasterizer
+public class ThumbnailGenerator {
+
+    private static final String[] IMAGE_EXTENSIONS = {".png", ".jpg", ".jpeg", ".bmp", ".gif"};
+    private static final String[] MODEL_EXTENSIONS = {".obj", ".fbx", ".dae", ".gltf", ".glb", ".3ds", ".blend", ".ply", ".stl"};
+
+    //isometric view, rotated 45 degrees around y and tilted 30 degrees
+    private static final float YAW = (float) Math.toRadians(45);
+    private static final float PITCH = (float) Math.toRadians(30);
+    private static final float[] LIGHT = normalize(0.4f, 0.6f, 1.0f);
+
+    private final int size;
+
+    public ThumbnailGenerator(int size) {
+        this.size = size;
+    }
+
+    public static boolean isSupported(String name) {
+        return isImage(name) || isModel(name);
+    }
+
+    public static boolean isImage(String name) {
+        return hasExtension(name, IMAGE_EXTENSIONS);
+    }
+
+    public static boolean isModel(String name) {
+        return hasExtension(name, MODEL_EXTENSIONS);
+    }
+
+    private static boolean hasExtension(String name, String[] extensions) {
+        for (String extension : extensions) {
+            if (name.regionMatches(true, name.length() - extension.length(), extension, 0, extension.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //returns null for files that are not images or models
+    public Thumbnail generate(File file) throws IOException {
+        String name = file.getName();
+        if (isImage(name)) {
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                throw new IOException("Could not decode " + file);
+            }
+            return fromImage(image);
+        }
+        if (isModel(name)) {
+            List<Model> models;
+            try {
+                models = ModelLoader.loadModels(file.getAbsolutePath());
+            } catch (RuntimeException e) {
+                throw new IOException("Could not load " + file, e);
+            }
+            return fromModels(models);
+        }
+        return null;
+    }
+
+    //scales the image to fit, keeping its aspect ratio, the rest stays transparent
+    public Thumbnail fromImage(BufferedImage image) {
+        float scale = Math.min((float) size / image.getWidth(), (float) size / image.getHeight());
+        int width = Math.max(1, Math.round(image.getWidth() * scale));
+        int height = Math.max(1, Math.round(image.getHeight() * scale));
+
+        BufferedImage scaled = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.drawImage(image, (size - width) / 2, (size - height) / 2, width, height, null);
+        graphics.dispose();
+
+        int[] argb = scaled.getRGB(0, 0, size, size, null, 0, size);
+        byte[] pixels = new byte[size * size * 4];
+        for (int i = 0; i < argb.length; i++) {
+            int pixel = argb[i];
+            pixels[i * 4] = (byte) (pixel >> 16);
+            pixels[i * 4 + 1] = (byte) (pixel >> 8);
+            pixels[i * 4 + 2] = (byte) pixel;
+            pixels[i * 4 + 3] = (byte) (pixel >>> 24);
+        }
+        return new Thumbnail(size, size, pixels);
+    }
+
+    public Thumbnail fromModels(List<Model> models) {
+        float[][] rotated = new float[models.size()][];
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int m = 0; m < models.size(); m++) {
+            rotated[m] = rotate(models.get(m).getVertices());
+            for (int i = 0; i < rotated[m].length; i += 3) {
+                minX = Math.min(minX, rotated[m][i]);
+                maxX = Math.max(maxX, rotated[m][i]);
+                minY = Math.min(minY, rotated[m][i + 1]);
+                maxY = Math.max(maxY, rotated[m][i + 1]);
+            }
+        }
+
+        byte[] pixels = new byte[size * size * 4];
+        if (minX > maxX) {
+            return new Thumbnail(size, size, pixels);
+        }
+
+        //fit the projected bounds into the thumbnail with a small border, y is flipped since rows go down
+        float scale = size * 0.9f / Math.max(Math.max(maxX - minX, maxY - minY), 1e-6f);
+        float offsetX = size / 2.0f - (minX + maxX) / 2.0f * scale;
+        float offsetY = size / 2.0f + (minY + maxY) / 2.0f * scale;
+        for (float[] vertices : rotated) {
+            for (int i = 0; i < vertices.length; i += 3) {
+                vertices[i] = offsetX + vertices[i] * scale;
+                vertices[i + 1] = offsetY - vertices[i + 1] * scale;
+                vertices[i + 2] = vertices[i + 2] * scale;
+            }
+        }
+
+        float[] depth = new float[size * size];
+        Arrays.fill(depth, -Float.MAX_VALUE);
+        for (int m = 0; m < models.size(); m++) {
+            int[] indices = models.get(m).getIndices();
+            float[] vertices = rotated[m];
+            int triangles = indices != null && indices.length > 0 ? indices.length / 3 : vertices.length / 9;
+            for (int t = 0; t < triangles; t++) {
+                int a = indices != null && indices.length > 0 ? indices[t * 3] : t * 3;
+                int b = indices != null && indices.length > 0 ? indices[t * 3 + 1] : t * 3 + 1;
+                int c = indices != null && indices.length > 0 ? indices[t * 3 + 2] : t * 3 + 2;
+                if (Math.max(a, Math.max(b, c)) * 3 + 2 < vertices.length) {
+                    drawTriangle(vertices, a * 3, b * 3, c * 3, depth, pixels);
+                }
+            }
+        }
+        return new Thumbnail(size, size, pixels);
+    }
+
+    private static float[] rotate(float[] vertices) {
+        float cosYaw = (float) Math.cos(YAW), sinYaw = (float) Math.sin(YAW);
+        float cosPitch = (float) Math.cos(PITCH), sinPitch = (float) Math.sin(PITCH);
+        float[] rotated = new float[vertices.length - vertices.length % 3];
+        for (int i = 0; i < rotated.length; i += 3) {
+            float x = vertices[i] * cosYaw + vertices[i + 2] * sinYaw;
+            float z = -vertices[i] * sinYaw + vertices[i + 2] * cosYaw;
+            float y = vertices[i + 1];
+            rotated[i] = x;
+            rotated[i + 1] = y * cosPitch - z * sinPitch;
+            rotated[i + 2] = y * sinPitch + z * cosPitch;
+        }
+        return rotated;
+    }
+
+    //screen space triangle with a depth test, larger z is closer
+    private void drawTriangle(float[] v, int a, int b, int c, float[] depth, byte[] pixels) {
+        float ax = v[a], ay = v[a + 1], az = v[a + 2];
+        float bx = v[b], by = v[b + 1], bz = v[b + 2];
+        float cx = v[c], cy = v[c + 1], cz = v[c + 2];
+
+        float area = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+        if (area == 0) {
+            return;
+        }
+
+        //flat shading from the face normal, both sides are lit since models aren't always closed
+        float ux = bx - ax, uy = by - ay, uz = bz - az;
+        float wx = cx - ax, wy = cy - ay, wz = cz - az;
+        float[] normal = normalize(uy * wz - uz * wy, uz * wx - ux * wz, ux * wy - uy * wx);
+        float light = 0.3f + 0.7f * Math.abs(normal[0] * LIGHT[0] - normal[1] * LIGHT[1] + normal[2] * LIGHT[2]);
+        byte red = (byte) (180 * light), green = (byte) (190 * light), blue = (byte) (210 * light);
+
+        int startX = Math.max(0, (int) Math.floor(Math.min(ax, Math.min(bx, cx))));
+        int endX = Math.min(size - 1, (int) Math.ceil(Math.max(ax, Math.max(bx, cx))));
+        int startY = Math.max(0, (int) Math.floor(Math.min(ay, Math.min(by, cy))));
+        int endY = Math.min(size - 1, (int) Math.ceil(Math.max(ay, Math.max(by, cy))));
+
+        for (int y = startY; y <= endY; y++) {
+            float py = y + 0.5f;
+            for (int x = startX; x <= endX; x++) {
+                float px = x + 0.5f;
+                float w0 = ((bx - px) * (cy - py) - (by - py) * (cx - px)) / area;
+                float w1 = ((cx - px) * (ay - py) - (cy - py) * (ax - px)) / area;
+                float w2 = 1 - w0 - w1;
+                if (w0 < 0 || w1 < 0 || w2 < 0) {
+                    continue;
+                }
+
+                float z = w0 * az + w1 * bz + w2 * cz;
+                int index = y * size + x;
+                if (z <= depth[index]) {
+                    continue;
+                }
+                depth[index] = z;
+                pixels[index * 4] = red;
+                pixels[index * 4 + 1] = green;
+                pixels[index * 4 + 2] = blue;
+                pixels[index * 4 + 3] = (byte) 255;
+            }
+        }
+    }
+
+    private static float[] normalize(float x, float y, float z) {
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if (length == 0) {
+            return new float[]{0, 0, 1};
+        }
+        return new float[]{x / length, y / length, z / length};
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,292 @@
+package fusion.core.editor.headless;
+
+import fusion.core.editor.Viewport;
+import open.gl.PerspectiveCamera;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+//A scripted editing session replayed against the Viewport, one command per line, # starts a comment.
+//Commands taking a number of frames spread their edit over them like a gizmo drag, one undo step each
+//  wait 120                 idle frames
+//  clear                    empties the scene
+//  spawn 1000 50            cubes on a grid, 50 per frame
+//  load Scenes/Big.scene    replaces the scene and waits until it is restored
+//  save Scenes/Out.scene
+//  select 0 100             selects objects 0 to 99, nothing when the count is 0
+//  move 10 0 0 60           drags the selection by 10 along x over 60 frames
+//  rotate 90 60             turns the selection around y by 90 degrees
+//  scale 2 60
+//  undo 3                   one per frame
+//  redo 3
+//  camera 0 20 40           moves the camera and looks at the origin
+//  orbit 360 240            circles the camera around the origin
+//  physics off              pauses the simulation, on resumes it
+public class EditingSession {
+
+    //spacing of the spawn grid
+    private static final float GRID_SPACING = 2.5f;
+
+    private interface Step {
+        //called once per frame until it returns true, frame counts from 0
+        boolean run(Viewport viewport, int frame);
+    }
+
+    private interface Action {
+        void run(Viewport viewport);
+    }
+
+    //takes no frame of its own, runs together with the step after it
+    private static final class Instant implements Step {
+        private final Action action;
+
+        private Instant(Action action) {
+            this.action = action;
+        }
+
+        @Override
+        public boolean run(Viewport viewport, int frame) {
+            action.run(viewport);
+            return true;
+        }
+    }
+
+    private final String name;
+    private final List<Step> steps = new ArrayList<>();
+    private int current = 0;
+    private int stepFrame = 0;
+    private boolean started = false;
+    private boolean mouseDown = false;
+
+    private final Vector3f from = new Vector3f();
+    private final Vector3f to = new Vector3f();
+    private final Quaternionf fromRotation = new Quaternionf();
+    private final Quaternionf toRotation = new Quaternionf();
+    private final Vector3f fromScale = new Vector3f(1, 1, 1);
+    private final Vector3f toScale = new Vector3f();
+    private final Vector3f direction = new Vector3f();
+    private final Vector3f up = new Vector3f(0, 1, 0);
+
+    private EditingSession(String name) {
+        this.name = name;
+    }
+
+    public static EditingSession read(BufferedReader reader, String name) throws IOException {
+        EditingSession session = new EditingSession(name);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                session.steps.add(session.parse(line.split("\\s+")));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException(name + " line " + lineNumber + ": can not read \"" + line + "\"", e);
+            } catch (IOException e) {
+                throw new IOException(name + " line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return session;
+    }
+
+    private Step parse(String[] parts) throws IOException {
+        switch (parts[0]) {
+            case "wait": {
+                int frames = Integer.parseInt(parts[1]);
+                return (viewport, frame) -> frame + 1 >= frames;
+            }
+            case "clear":
+                return new Instant(Viewport::clearScene);
+            case "spawn":
+                return spawn(Integer.parseInt(parts[1]), parts.length > 2 ? Integer.parseInt(parts[2]) : 1);
+            case "load": {
+                File file = new File(parts[1]);
+                return (viewport, frame) -> {
+                    if (frame == 0) {
+                        viewport.loadScene(file);
+                    }
+                    return !viewport.isLoadingScene();
+                };
+            }
+            case "save": {
+                File file = new File(parts[1]);
+                return new Instant(viewport -> viewport.saveScene(file));
+            }
+            case "select": {
+                int first = Integer.parseInt(parts[1]);
+                int count = parts.length > 2 ? Integer.parseInt(parts[2]) : 1;
+                return new Instant(viewport -> {
+                    viewport.clearSelection();
+                    for (int i = first; i < Math.min(first + count, viewport.getObjectCount()); i++) {
+                        viewport.select(viewport.getObject(i));
+                    }
+                });
+            }
+            case "move":
+                return move(Float.parseFloat(parts[1]), Float.parseFloat(parts[2]), Float.parseFloat(parts[3]), Integer.parseInt(parts[4]));
+            case "rotate":
+                return rotate((float) Math.toRadians(Float.parseFloat(parts[1])), Integer.parseInt(parts[2]));
+            case "scale":
+                return scale(Float.parseFloat(parts[1]), Integer.parseInt(parts[2]));
+            case "undo": {
+                int count = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+                return (viewport, frame) -> !viewport.undo() || frame + 1 >= count;
+            }
+            case "redo": {
+                int count = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+                return (viewport, frame) -> !viewport.redo() || frame + 1 >= count;
+            }
+            case "camera": {
+                float x = Float.parseFloat(parts[1]);
+                float y = Float.parseFloat(parts[2]);
+                float z = Float.parseFloat(parts[3]);
+                return new Instant(viewport -> lookAtOrigin(viewport.camera, x, y, z));
+            }
+            case "orbit":
+                return orbit((float) Math.toRadians(Float.parseFloat(parts[1])), Integer.parseInt(parts[2]));
+            case "physics": {
+                boolean paused = parts[1].equals("off");
+                return new Instant(viewport -> viewport.setPhysicsPaused(paused));
+            }
+            default:
+                throw new IOException("Unknown command " + parts[0]);
+        }
+    }
+
+    private Step spawn(int count, int perFrame) {
+        int side = Math.max(1, (int) Math.ceil(Math.sqrt(count)));
+        float offset = (side - 1) * GRID_SPACING / 2;
+        return (viewport, frame) -> {
+            int end = Math.min(count, (frame + 1) * perFrame);
+            for (int i = frame * perFrame; i < end; i++) {
+                to.set((i % side) * GRID_SPACING - offset, 0, (i / side) * GRID_SPACING - offset);
+                viewport.updateComponent(viewport.addCube(), to, fromRotation.identity(), fromScale.set(1, 1, 1));
+            }
+            return end == count;
+        };
+    }
+
+    private Step move(float x, float y, float z, int frames) {
+        return drag(frames, (viewport, frame) -> {
+            viewport.getSelection().getCenter(from);
+            to.set(x, y, z).div(frames).add(from);
+            fromRotation.identity();
+            toRotation.identity();
+            toScale.set(1, 1, 1);
+        });
+    }
+
+    private Step rotate(float angle, int frames) {
+        return drag(frames, (viewport, frame) -> {
+            viewport.getSelection().getCenter(from);
+            to.set(from);
+            fromRotation.identity();
+            toRotation.rotationY(angle / frames);
+            toScale.set(1, 1, 1);
+        });
+    }
+
+    private Step scale(float factor, int frames) {
+        float step = (float) Math.pow(factor, 1.0 / frames);
+        return drag(frames, (viewport, frame) -> {
+            viewport.getSelection().getCenter(from);
+            to.set(from);
+            fromRotation.identity();
+            toRotation.identity();
+            toScale.set(step);
+        });
+    }
+
+    private interface DragFrame {
+        void prepare(Viewport viewport, int frame);
+    }
+
+    //one increment of the edit per frame, relative to where the selection is so physics or other steps may move it
+    private Step drag(int frames, DragFrame dragFrame) {
+        return (viewport, frame) -> {
+            if (viewport.getSelection().isEmpty()) {
+                return true;
+            }
+            mouseDown = true;
+            dragFrame.prepare(viewport, frame);
+            fromScale.set(1, 1, 1);
+            viewport.transformSelection(from, fromRotation, fromScale, to, toRotation, toScale);
+            if (frame + 1 < frames) {
+                return false;
+            }
+            //letting go of the mouse, a drag straight after this one is its own undo step
+            viewport.getHistory().close();
+            return true;
+        };
+    }
+
+    private Step orbit(float angle, int frames) {
+        return (viewport, frame) -> {
+            PerspectiveCamera camera = viewport.camera;
+            float radius = (float) Math.sqrt(camera.getPosition().x * camera.getPosition().x + camera.getPosition().z * camera.getPosition().z);
+            float current = (float) Math.atan2(camera.getPosition().z, camera.getPosition().x) + angle / frames;
+            lookAtOrigin(camera, (float) Math.cos(current) * radius, camera.getPosition().y, (float) Math.sin(current) * radius);
+            return frame + 1 >= frames;
+        };
+    }
+
+    private void lookAtOrigin(PerspectiveCamera camera, float x, float y, float z) {
+        camera.setPosition(x, y, z);
+        direction.set(-x, -y, -z);
+        if (direction.lengthSquared() > 0) {
+            camera.getOrientation().identity().lookAlong(direction.normalize(), up);
+        }
+    }
+
+    //runs this frame's part of the session before the editor's frame, false once every step is done
+    public boolean update(Viewport viewport) {
+        mouseDown = false;
+        if (!started) {
+            if (!viewport.isReady()) {
+                return true;
+            }
+            started = true;
+        }
+        while (current < steps.size()) {
+            Step step = steps.get(current);
+            if (step.run(viewport, stepFrame++)) {
+                current++;
+                stepFrame = 0;
+            }
+            if (!(step instanceof Instant)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //false while the editor is still starting up, those frames are not part of the session
+    public boolean isStarted() {
+        return started;
+    }
+
+    //held down during drags, the history keeps one step open for as long as it is
+    public boolean isMouseDown() {
+        return mouseDown;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getStepCount() {
+        return steps.size();
+    }
+
+    public int getCurrentStep() {
+        return current;
+    }
+}
@@ -0,0 +1,128 @@
+package fusion.core.editor.headless;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+
+//Time and render thread allocations of every frame of a headless run, garbage collections over the whole run
+public class FrameStats {
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final long threadId = Thread.currentThread().getId();
+
+    private long[] nanos = new long[1024];
+    private long[] allocated = new long[1024];
+    private int count = 0;
+
+    private long frameStart;
+    private long allocatedAtStart;
+    private long gcCountAtStart = -1;
+    private long gcMillisAtStart;
+
+    public FrameStats() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threads = null;
+        }
+    }
+
+    //has to be called on the thread the frames run on
+    public void beginFrame() {
+        if (gcCountAtStart < 0) {
+            gcCountAtStart = getGcCount();
+            gcMillisAtStart = getGcMillis();
+        }
+        allocatedAtStart = getAllocatedBytes();
+        frameStart = System.nanoTime();
+    }
+
+    public void endFrame() {
+        long end = System.nanoTime();
+        if (count == nanos.length) {
+            nanos = Arrays.copyOf(nanos, count * 2);
+            allocated = Arrays.copyOf(allocated, count * 2);
+        }
+        nanos[count] = end - frameStart;
+        allocated[count] = getAllocatedBytes() - allocatedAtStart;
+        count++;
+    }
+
+    //bytes the current thread allocated so far, -1 when the JVM can not tell
+    public long getAllocatedBytes() {
+        return threads == null ? -1 : threads.getThreadAllocatedBytes(threadId);
+    }
+
+    public long getLastAllocatedBytes() {
+        return count == 0 ? 0 : allocated[count - 1];
+    }
+
+    public int getFrameCount() {
+        return count;
+    }
+
+    private static long getGcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long getGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    //frame time at the given percentile, in milliseconds
+    public double getPercentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))] / 1_000_000.0;
+    }
+
+    public String summary() {
+        long totalNanos = 0;
+        long totalAllocated = 0;
+        long maxAllocated = 0;
+        for (int i = 0; i < count; i++) {
+            totalNanos += nanos[i];
+            totalAllocated += allocated[i];
+            maxAllocated = Math.max(maxAllocated, allocated[i]);
+        }
+        double average = count == 0 ? 0 : totalNanos / 1_000_000.0 / count;
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "frames %d, %.1f s%n", count, totalNanos / 1_000_000_000.0));
+        builder.append(String.format(Locale.ROOT, "frame time ms: avg %.3f, p50 %.3f, p95 %.3f, p99 %.3f, max %.3f (%.0f fps)%n",
+                average, getPercentileMillis(50), getPercentileMillis(95), getPercentileMillis(99), getPercentileMillis(100), average == 0 ? 0 : 1000 / average));
+        if (threads != null) {
+            builder.append(String.format(Locale.ROOT, "allocated per frame: avg %d B, max %d B, total %.1f MB%n",
+                    count == 0 ? 0 : totalAllocated / count, maxAllocated, totalAllocated / (1024.0 * 1024.0)));
+        }
+        builder.append(String.format(Locale.ROOT, "gc: %d collections, %d ms%n", getGcCount() - gcCountAtStart, getGcMillis() - gcMillisAtStart));
+        return builder.toString();
+    }
+
+    //one line per frame, for plotting or comparing runs
+    public void writeCsv(File file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            writer.println("frame,ms,allocated_bytes");
+            for (int i = 0; i < count; i++) {
+                writer.printf(Locale.ROOT, "%d,%.4f,%d%n", i, nanos[i] / 1_000_000.0, allocated[i]);
+            }
+        }
+    }
+}
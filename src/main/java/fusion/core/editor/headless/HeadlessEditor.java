@@ -0,0 +1,136 @@
+package fusion.core.editor.headless;
+
+import fusion.core.editor.Editor;
+import fusion.core.editor.assets.AssetManager;
+import fusion.core.editor.profiler.ChromeTrace;
+import fusion.core.editor.profiler.Profiler;
+import imgui.ImGui;
+import imgui.ImGuiIO;
+import imgui.flag.ImGuiConfigFlags;
+import imgui.gl3.ImGuiImplGl3;
+import open.gl.OpenGlRenderer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.lwjgl.opengl.GL30.*;
+
+//Runs the editor in a hidden window and replays an EditingSession for performance runs on build machines.
+//Usage: HeadlessEditor [session script] [output directory], writes frames.csv and a Chrome trace
+public class HeadlessEditor {
+
+    private static final long ASSET_UPLOAD_BUDGET = 2_000_000;
+    //frames the editor may take to start up before the run is given up
+    private static final int STARTUP_FRAMES = 600;
+    private static final float FRAME_DELTA = 1f / 60;
+
+    public static void main(String[] args) throws IOException {
+        EditingSession session = args.length > 0 ? readSession(new File(args[0])) : readDefaultSession();
+        File output = new File(args.length > 1 ? args[1] : "Profiles/headless");
+        output.mkdirs();
+
+        OffscreenWindow window = new OffscreenWindow();
+        window.init();
+        OpenGlRenderer renderer = new OpenGlRenderer(window);
+        renderer.init();
+
+        ImGui.createContext();
+        ImGuiIO io = ImGui.getIO();
+        io.setIniFilename(null);
+        io.addConfigFlags(ImGuiConfigFlags.DockingEnable);
+        io.getFonts().addFontDefault();
+        io.getFonts().build();
+        ImGuiImplGl3 imGuiGl3 = new ImGuiImplGl3();
+        imGuiGl3.init("#version 330");
+
+        AssetManager assets = new AssetManager();
+        Profiler profiler = new Profiler();
+        profiler.enableGpuTiming();
+        int assetsZone = profiler.zone("Assets");
+        int imguiZone = profiler.zone("ImGui Render");
+        int allocatedCounter = profiler.counter("Allocated Bytes");
+
+        File sceneDirectory = Files.createTempDirectory("headless-scenes").toFile();
+        Editor editor = new Editor(window, assets, profiler, sceneDirectory);
+        FrameStats stats = new FrameStats();
+
+        System.out.println("Replaying " + session.getName() + " (" + session.getStepCount() + " steps)");
+        int frame = 0;
+        while (true) {
+            window.update();
+            if (!session.update(editor.getViewport())) {
+                break;
+            }
+            if (!session.isStarted() && ++frame > STARTUP_FRAMES) {
+                throw new IllegalStateException("Editor did not start within " + STARTUP_FRAMES + " frames");
+            }
+
+            boolean measured = session.isStarted();
+            if (measured) {
+                stats.beginFrame();
+            }
+            profiler.beginFrame();
+            profiler.begin(assetsZone);
+            assets.update(ASSET_UPLOAD_BUDGET);
+            profiler.end();
+            glClear(GL_COLOR_BUFFER_BIT);
+
+            io.setDisplaySize(window.getWidth(), window.getHeight());
+            io.setDeltaTime(FRAME_DELTA);
+            //keeps ImGui from hovering anything, the session drives the viewport directly
+            io.setMousePos(-Float.MAX_VALUE, -Float.MAX_VALUE);
+            io.setMouseDown(0, session.isMouseDown());
+            ImGui.newFrame();
+
+            editor.show(renderer);
+
+            profiler.begin(imguiZone);
+            profiler.beginGpu(imguiZone);
+            ImGui.render();
+            imGuiGl3.renderDrawData(ImGui.getDrawData());
+            profiler.endGpu();
+            profiler.end();
+            //waits for the GPU so the frame time includes it
+            glFinish();
+            profiler.setCounter(allocatedCounter, stats.getLastAllocatedBytes());
+            profiler.endFrame();
+            if (measured) {
+                stats.endFrame();
+            }
+        }
+
+        System.out.print(stats.summary());
+        stats.writeCsv(new File(output, "frames.csv"));
+        ChromeTrace.write(profiler, new File(output, "trace.json"));
+        System.out.println("Results written to " + output.getAbsolutePath());
+
+        editor.cleanup();
+        profiler.cleanup();
+        assets.close();
+        imGuiGl3.dispose();
+        ImGui.destroyContext();
+        window.close();
+    }
+
+    private static EditingSession readSession(File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+            return EditingSession.read(reader, file.getName());
+        }
+    }
+
+    private static EditingSession readDefaultSession() throws IOException {
+        InputStream stream = HeadlessEditor.class.getResourceAsStream("/DefaultSession.txt");
+        if (stream == null) {
+            throw new IOException("DefaultSession.txt is missing from the classpath");
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            return EditingSession.read(reader, "DefaultSession.txt");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package fusion.core.editor.headless;
+
+import com.fusion.core.GlfwWindow;
+import com.fusion.core.Time;
+import org.lwjgl.glfw.GLFWErrorCallback;
+
+import static org.lwjgl.glfw.GLFW.*;
+
+//A hidden window that only owns a GL context. Frames end with glFinish instead of a swap so their times
+//include the GPU, without one run it under xvfb-run with LIBGL_ALWAYS_SOFTWARE=1
+public class OffscreenWindow extends GlfwWindow {
+
+    private long handle;
+    private final double[] cursorPosition = new double[2];
+
+    @Override
+    public void init() {
+        GLFWErrorCallback.createPrint(System.err).set();
+        if (!glfwInit()) {
+            throw new IllegalStateException("Unable to initialize GLFW");
+        }
+        glfwDefaultWindowHints();
+        glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+        glfwWindowHint(GLFW_RESIZABLE, GLFW_FALSE);
+        handle = glfwCreateWindow(getWidth(), getHeight(), "Headless Editor", 0, 0);
+        if (handle == 0) {
+            throw new RuntimeException("Failed to create GLFW window");
+        }
+        glfwMakeContextCurrent(handle);
+        glfwSwapInterval(0);
+        Time.init();
+    }
+
+    @Override
+    public void update() {
+        Time.update();
+        glfwPollEvents();
+    }
+
+    @Override
+    public void close() {
+        glfwDestroyWindow(handle);
+        glfwTerminate();
+    }
+
+    @Override
+    public boolean isCloseRequested() {
+        return false;
+    }
+
+    @Override
+    public long getWindowID() {
+        return handle;
+    }
+
+    @Override
+    public double[] getCursorPosition() {
+        return new double[]{cursorPosition[0], cursorPosition[1]};
+    }
+
+    public void setCursorPosition(double x, double y) {
+        cursorPosition[0] = x;
+        cursorPosition[1] = y;
+    }
+}
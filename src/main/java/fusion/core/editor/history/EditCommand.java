@@ -0,0 +1,17 @@
+package fusion.core.editor.history;
+
+import java.util.function.IntUnaryOperator;
+
+//One entry of the EditHistory, holds only what is needed to go back and forth between two states
+public abstract class EditCommand {
+
+    abstract void undo(EditHistory.Target target);
+
+    abstract void redo(EditHistory.Target target);
+
+    //rough heap cost, counted against the memory budget of the history
+    abstract long getByteSize();
+
+    //renumbers the objects after the scene changed, a negative number is a removed object and returns false
+    abstract boolean remap(IntUnaryOperator numbering);
+}
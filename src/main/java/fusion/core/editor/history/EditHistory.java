@@ -0,0 +1,227 @@
+package fusion.core.editor.history;
+
+import open.gl.gameobject.PhysicsComponent;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.function.IntUnaryOperator;
+
+//Undo and redo stacks. Edits while an entry is open, e.g. a gizmo drag, fold into it until close, the
+//oldest entries are dropped past the memory budget
+public class EditHistory {
+
+    //what the history edits, objects are numbered by their position in the scene. Objects that are not in the
+    //scene right now, e.g. undone spawns, are numbered past the end in the order redo puts them back
+    public interface Target {
+        void applyTransform(int object, float[] values, int offset);
+
+        //takes the object out, the ones after it move down by one
+        PhysicsComponent remove(int object);
+
+        //puts the component back as the newest object
+        void restore(PhysicsComponent component);
+
+        int getObjectCount();
+    }
+
+    private final Target target;
+    private final ArrayDeque<EditCommand> undo = new ArrayDeque<>();
+    private final ArrayDeque<EditCommand> redo = new ArrayDeque<>();
+
+    private long memoryBudget;
+    private long undoBytes = 0;
+    private long redoBytes = 0;
+
+    private EditCommand open;
+    //edits made by undo and redo themselves are not recorded
+    private boolean applying = false;
+
+    private final int[] single = new int[1];
+
+    public EditHistory(Target target, long memoryBudget) {
+        this.target = target;
+        this.memoryBudget = memoryBudget;
+    }
+
+    public void recordTransform(int object, float[] before, float[] after) {
+        single[0] = object;
+        recordTransforms(single, 1, before, after);
+    }
+
+    //before and after hold TransformEdit.STRIDE values per object, in the order of objects
+    public void recordTransforms(int[] objects, int count, float[] before, float[] after) {
+        if (applying || count == 0) {
+            return;
+        }
+        if (open instanceof SpawnEdit && count == 1 && ((SpawnEdit) open).getObject() == objects[0]) {
+            //placing a freshly spawned object, redo brings it back wherever it was left
+            return;
+        }
+        if (open instanceof TransformEdit && ((TransformEdit) open).hasObjects(objects, count)) {
+            ((TransformEdit) open).setAfter(after);
+            return;
+        }
+
+        int values = count * TransformEdit.STRIDE;
+        int[] objectsCopy = new int[count];
+        float[] beforeCopy = new float[values];
+        float[] afterCopy = new float[values];
+        System.arraycopy(objects, 0, objectsCopy, 0, count);
+        System.arraycopy(before, 0, beforeCopy, 0, values);
+        System.arraycopy(after, 0, afterCopy, 0, values);
+        push(new TransformEdit(objectsCopy, beforeCopy, afterCopy));
+    }
+
+    public void recordSpawn(int object, PhysicsComponent component) {
+        if (applying) {
+            return;
+        }
+        push(new SpawnEdit(object, component));
+    }
+
+    private void push(EditCommand command) {
+        redo.clear();
+        redoBytes = 0;
+        undo.addLast(command);
+        undoBytes += command.getByteSize();
+        open = command;
+        trim();
+    }
+
+    //ends the open entry, the next edit starts a new one
+    public void close() {
+        open = null;
+    }
+
+    public boolean undo() {
+        close();
+        EditCommand command = undo.pollLast();
+        if (command == null) {
+            return false;
+        }
+        undoBytes -= command.getByteSize();
+        int count = target.getObjectCount();
+        apply(command, true);
+        if (command instanceof SpawnEdit) {
+            //streamed objects may have been added after it, the spawn becomes the first number past the end
+            int object = ((SpawnEdit) command).getObject();
+            IntUnaryOperator numbering = n -> n == object ? count - 1 : n > object && n < count ? n - 1 : n;
+            command.remap(numbering);
+            undoBytes = remap(undo, numbering);
+            redoBytes = remap(redo, numbering);
+        }
+        redo.addLast(command);
+        redoBytes += command.getByteSize();
+        return true;
+    }
+
+    public boolean redo() {
+        close();
+        EditCommand command = redo.pollLast();
+        if (command == null) {
+            return false;
+        }
+        redoBytes -= command.getByteSize();
+        apply(command, false);
+        undo.addLast(command);
+        undoBytes += command.getByteSize();
+        return true;
+    }
+
+    private void apply(EditCommand command, boolean backwards) {
+        applying = true;
+        try {
+            if (backwards) {
+                command.undo(target);
+            } else {
+                command.redo(target);
+            }
+        } finally {
+            applying = false;
+        }
+    }
+
+    //drops the oldest entries until the history fits, the newest one is always kept
+    private void trim() {
+        while (undoBytes + redoBytes > memoryBudget && undo.size() > 1) {
+            undoBytes -= undo.pollFirst().getByteSize();
+        }
+    }
+
+    //objects were taken out of the scene and the rest renumbered, newIndices holds the new number of every old one
+    //or -1 for a removed one. Entries touching a removed object are dropped, everything else can still be undone
+    public void remap(int[] newIndices) {
+        int remaining = 0;
+        for (int index : newIndices) {
+            if (index >= 0) {
+                remaining++;
+            }
+        }
+        int shift = remaining - newIndices.length;
+        IntUnaryOperator numbering = n -> n < newIndices.length ? newIndices[n] : n + shift;
+        undoBytes = remap(undo, numbering);
+        redoBytes = remap(redo, numbering);
+    }
+
+    //count objects were added at first without being recorded, e.g. restored by streaming. Only undone spawns
+    //are numbered from there on, they move up to stay past the end
+    public void appended(int first, int count) {
+        if (!redo.isEmpty()) {
+            redoBytes = remap(redo, n -> n < first ? n : n + count);
+        }
+    }
+
+    private long remap(ArrayDeque<EditCommand> commands, IntUnaryOperator numbering) {
+        long bytes = 0;
+        Iterator<EditCommand> iterator = commands.iterator();
+        while (iterator.hasNext()) {
+            EditCommand command = iterator.next();
+            if (command.remap(numbering)) {
+                bytes += command.getByteSize();
+            } else {
+                iterator.remove();
+                if (command == open) {
+                    open = null;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    public void clear() {
+        undo.clear();
+        redo.clear();
+        undoBytes = 0;
+        redoBytes = 0;
+        open = null;
+    }
+
+    public boolean canUndo() {
+        return !undo.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redo.isEmpty();
+    }
+
+    public int getUndoCount() {
+        return undo.size();
+    }
+
+    public int getRedoCount() {
+        return redo.size();
+    }
+
+    public long getByteSize() {
+        return undoBytes + redoBytes;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        trim();
+    }
+}
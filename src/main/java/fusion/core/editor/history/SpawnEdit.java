@@ -0,0 +1,42 @@
+package fusion.core.editor.history;
+
+import open.gl.gameobject.PhysicsComponent;
+
+import java.util.function.IntUnaryOperator;
+
+//Adds an object, undo removes it and keeps the component so redo brings back the same one
+public class SpawnEdit extends EditCommand {
+
+    private int object;
+    private PhysicsComponent component;
+
+    SpawnEdit(int object, PhysicsComponent component) {
+        this.object = object;
+        this.component = component;
+    }
+
+    int getObject() {
+        return object;
+    }
+
+    @Override
+    void undo(EditHistory.Target target) {
+        component = target.remove(object);
+    }
+
+    @Override
+    void redo(EditHistory.Target target) {
+        target.restore(component);
+    }
+
+    @Override
+    long getByteSize() {
+        return 64;
+    }
+
+    @Override
+    boolean remap(IntUnaryOperator numbering) {
+        object = numbering.applyAsInt(object);
+        return object >= 0;
+    }
+}
@@ -0,0 +1,91 @@
+package fusion.core.editor.history;
+
+import open.gl.Transform;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+//Moves the changed objects between two transforms, ten floats before and after each
+public class TransformEdit extends EditCommand {
+
+    public static final int STRIDE = 10; //position xyz + rotation xyzw + scale xyz
+
+    private final int[] objects;
+    private final float[] before;
+    private final float[] after;
+
+    TransformEdit(int[] objects, float[] before, float[] after) {
+        this.objects = objects;
+        this.before = before;
+        this.after = after;
+    }
+
+    public static void copy(Transform transform, float[] values, int offset) {
+        values[offset] = transform.getPosition().x;
+        values[offset + 1] = transform.getPosition().y;
+        values[offset + 2] = transform.getPosition().z;
+        values[offset + 3] = transform.getRotation().x;
+        values[offset + 4] = transform.getRotation().y;
+        values[offset + 5] = transform.getRotation().z;
+        values[offset + 6] = transform.getRotation().w;
+        values[offset + 7] = transform.getScale().x;
+        values[offset + 8] = transform.getScale().y;
+        values[offset + 9] = transform.getScale().z;
+    }
+
+    boolean hasObjects(int[] other, int count) {
+        if (objects.length != count) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (objects[i] != other[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean hasObject(int object) {
+        return objects.length == 1 && objects[0] == object;
+    }
+
+    //a continuing drag only moves the end point, the start stays where the drag began
+    void setAfter(float[] values) {
+        System.arraycopy(values, 0, after, 0, after.length);
+    }
+
+    @Override
+    void undo(EditHistory.Target target) {
+        for (int i = 0; i < objects.length; i++) {
+            target.applyTransform(objects[i], before, i * STRIDE);
+        }
+    }
+
+    @Override
+    void redo(EditHistory.Target target) {
+        for (int i = 0; i < objects.length; i++) {
+            target.applyTransform(objects[i], after, i * STRIDE);
+        }
+    }
+
+    @Override
+    long getByteSize() {
+        return 64 + objects.length * 4L + (before.length + after.length) * 4L;
+    }
+
+    @Override
+    boolean remap(IntUnaryOperator numbering) {
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = numbering.applyAsInt(objects[i]);
+            if (objects[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "TransformEdit" + Arrays.toString(objects);
+    }
+}
@@ -0,0 +1,135 @@
+package fusion.core.editor.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+import static fusion.core.editor.journal.OperationJournal.*;
+
+//Reads back what OperationJournal wrote, everything after a torn or corrupt record is ignored
+public class JournalReader {
+
+    public static final class Operation {
+        public final byte type;
+        //object number for transforms and despawns, mesh index for spawns
+        public final int target;
+        public final String meshPath;
+        public final float[] values;
+
+        private Operation(byte type, int target, String meshPath, float[] values) {
+            this.type = type;
+            this.target = target;
+            this.meshPath = meshPath;
+            this.values = values;
+        }
+
+        public boolean isSpawn() {
+            return type == SPAWN;
+        }
+
+        public boolean isDespawn() {
+            return type == DESPAWN;
+        }
+    }
+
+    //the operations recorded on top of the snapshot, null when there is no journal for this snapshot
+    public static List<Operation> read(File journal, File snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(journal.toPath(), StandardOpenOption.READ)) {
+            List<Operation> operations = new ArrayList<>();
+            return scan(channel, snapshot, operations) < 0 ? null : operations;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    //length of the journal up to its last good record, -1 when it does not belong to the snapshot
+    static long validSize(FileChannel channel, File snapshot) throws IOException {
+        return scan(channel, snapshot, null);
+    }
+
+    private static long scan(FileChannel channel, File snapshot, List<Operation> operations) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE || !snapshot.exists()) {
+            return -1;
+        }
+        //read rather than mapped, a mapping would stop the journal from being truncated on Windows
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE)).order(ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != snapshot.length() || buffer.getLong() != checksum(snapshot)) {
+            return -1;
+        }
+
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= 8) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                return start;
+            }
+            ByteBuffer payload = buffer.slice().order(ORDER);
+            payload.limit(length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return start;
+            }
+            if (operations != null) {
+                Operation operation = parse(payload);
+                if (operation == null) {
+                    return start;
+                }
+                operations.add(operation);
+            }
+            buffer.position(buffer.position() + length);
+        }
+        return buffer.position();
+    }
+
+    //CRC32C of the snapshot contents, modification times are too coarse to tell two quick snapshots apart
+    static long checksum(File snapshot) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static Operation parse(ByteBuffer payload) {
+        byte type = payload.get();
+        int target = payload.getInt();
+        String meshPath = null;
+        if (type == DESPAWN) {
+            return new Operation(type, target, null, null);
+        } else if (type == SPAWN) {
+            byte[] path = new byte[payload.getInt()];
+            payload.get(path);
+            meshPath = new String(path, StandardCharsets.UTF_8);
+        } else if (type != TRANSFORM) {
+            return null;
+        }
+        float[] values = new float[TRANSFORM_VALUES];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = payload.getFloat();
+        }
+        return new Operation(type, target, meshPath, values);
+    }
+}
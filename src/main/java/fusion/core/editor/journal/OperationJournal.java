@@ -0,0 +1,395 @@
+package fusion.core.editor.journal;
+
+import fusion.core.editor.scene.SceneSnapshot;
+import open.gl.Transform;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+//Append-only log of the edits since the last snapshot, replayed on top of it after a crash. Edits are
+//coalesced per object and appended by the "Journal" thread every FLUSH_INTERVAL, synced every SYNC_INTERVAL.
+//The header holds the snapshot's size and checksum, every record its length and a CRC32
+public class OperationJournal implements Closeable {
+
+    static final int MAGIC = 0x4c4a4346; //FCJL
+    static final int VERSION = 1;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    static final int HEADER_SIZE = 24;
+    static final int TRANSFORM_VALUES = 10;
+
+    static final byte TRANSFORM = 1;
+    static final byte SPAWN = 2;
+    static final byte DESPAWN = 3;
+
+    private static final long FLUSH_INTERVAL = 250;
+    private static final long SYNC_INTERVAL = 1000;
+    //the journal is folded into a new snapshot once it grows past this
+    private static final long COMPACT_SIZE = 1 << 20;
+
+    private final File file;
+    private final File snapshotFile;
+
+    //guarded by lock, swapped with the drain side on every flush
+    private final Object lock = new Object();
+    private PendingTransforms pendingTransforms = new PendingTransforms();
+    //spawns and despawns, kept in the order they happened since they renumber objects
+    private List<Spawn> pendingSpawns = new ArrayList<>();
+    private final ArrayDeque<float[]> freeValues = new ArrayDeque<>();
+    private SceneSnapshot pendingSnapshot;
+    private boolean pendingReset = false;
+
+    //journal thread only
+    private PendingTransforms drainTransforms = new PendingTransforms();
+    private List<Spawn> drainSpawns = new ArrayList<>();
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(ORDER);
+    private final CRC32 crc = new CRC32();
+    private long lastSync = 0;
+    private boolean unsynced = false;
+
+    private final Thread worker;
+    private volatile boolean running = true;
+    private volatile boolean recording = false;
+    private volatile long size = 0;
+    private volatile long recordCount = 0;
+    private volatile long lastFlushNanos = 0;
+    private volatile IOException error;
+
+    public OperationJournal(File file, File snapshotFile) {
+        this.file = file;
+        this.snapshotFile = snapshotFile;
+        worker = new Thread(this::run, "Journal");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    //edits are dropped while not recording, e.g. while a scene is being restored
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    public void recordTransform(int object, Transform transform) {
+        if (!recording) {
+            return;
+        }
+        synchronized (lock) {
+            float[] values = pendingTransforms.get(object);
+            if (values == null) {
+                values = freeValues.isEmpty() ? new float[TRANSFORM_VALUES] : freeValues.pop();
+                pendingTransforms.put(object, values);
+            }
+            copy(transform, values);
+        }
+    }
+
+    //a new object, it gets the next object number in the order spawns are recorded
+    public void recordSpawn(String meshPath, int meshIndex, Transform transform) {
+        if (!recording) {
+            return;
+        }
+        float[] values = new float[TRANSFORM_VALUES];
+        copy(transform, values);
+        synchronized (lock) {
+            pendingSpawns.add(new Spawn(meshPath, meshIndex, values));
+        }
+    }
+
+    //removes the newest object, edits of it still waiting to be written are dropped
+    public void recordDespawn(int object) {
+        if (!recording) {
+            return;
+        }
+        synchronized (lock) {
+            float[] values = pendingTransforms.remove(object);
+            if (values != null) {
+                freeValues.push(values);
+            }
+            pendingSpawns.add(new Spawn(null, object, null));
+        }
+    }
+
+    private static void copy(Transform transform, float[] values) {
+        values[0] = transform.getPosition().x;
+        values[1] = transform.getPosition().y;
+        values[2] = transform.getPosition().z;
+        values[3] = transform.getRotation().x;
+        values[4] = transform.getRotation().y;
+        values[5] = transform.getRotation().z;
+        values[6] = transform.getRotation().w;
+        values[7] = transform.getScale().x;
+        values[8] = transform.getScale().y;
+        values[9] = transform.getScale().z;
+    }
+
+    //the snapshot already contains every edit recorded so far, it is written and the journal restarted on it
+    public void compact(SceneSnapshot snapshot) {
+        synchronized (lock) {
+            discardPending();
+            pendingSnapshot = snapshot;
+            lock.notifyAll();
+        }
+    }
+
+    //the snapshot file was just written by someone else, restarts the journal on it
+    public void reset() {
+        synchronized (lock) {
+            discardPending();
+            pendingSnapshot = null;
+            pendingReset = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void discardPending() {
+        pendingTransforms.clear(freeValues);
+        pendingSpawns.clear();
+    }
+
+    public boolean needsCompaction() {
+        return recording && size > COMPACT_SIZE;
+    }
+
+    private void run() {
+        while (running) {
+            synchronized (lock) {
+                try {
+                    lock.wait(FLUSH_INTERVAL);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+            flush();
+        }
+    }
+
+    private void flush() {
+        SceneSnapshot snapshot;
+        boolean reset;
+        synchronized (lock) {
+            snapshot = pendingSnapshot;
+            reset = pendingReset;
+            pendingSnapshot = null;
+            pendingReset = false;
+
+            PendingTransforms transforms = pendingTransforms;
+            pendingTransforms = drainTransforms;
+            drainTransforms = transforms;
+            List<Spawn> spawns = pendingSpawns;
+            pendingSpawns = drainSpawns;
+            drainSpawns = spawns;
+        }
+
+        if (snapshot == null && !reset && channel == null && drainSpawns.isEmpty() && drainTransforms.isEmpty()) {
+            //nothing has been recorded yet, the file is left alone
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (snapshot != null) {
+                snapshot.write(snapshotFile);
+                reset = true;
+            }
+            if (reset || channel == null) {
+                open(reset);
+            }
+
+            //spawns first, the transforms may refer to objects they created
+            for (Spawn spawn : drainSpawns) {
+                if (spawn.meshPath == null) {
+                    writeDespawn(spawn.meshIndex);
+                } else {
+                    writeSpawn(spawn);
+                }
+            }
+            for (int i = 0; i < drainTransforms.size(); i++) {
+                writeTransform(drainTransforms.getObject(i), drainTransforms.getValues(i));
+            }
+            writeBuffer();
+
+            long now = System.currentTimeMillis();
+            if (unsynced && now - lastSync >= SYNC_INTERVAL) {
+                channel.force(false);
+                lastSync = now;
+                unsynced = false;
+            }
+            error = null;
+        } catch (IOException e) {
+            //reported once, the journal keeps retrying every flush
+            if (error == null) {
+                e.printStackTrace();
+            }
+            error = e;
+        } finally {
+            drainSpawns.clear();
+            synchronized (lock) {
+                drainTransforms.clear(freeValues);
+            }
+            lastFlushNanos = System.nanoTime() - start;
+        }
+    }
+
+    //continues a journal that matches the snapshot, anything else is started over
+    private void open(boolean restart) throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long validSize = restart ? -1 : JournalReader.validSize(channel, snapshotFile);
+        if (validSize < 0) {
+            channel.truncate(0);
+            buffer.clear();
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(snapshotFile.length()).putLong(snapshotFile.exists() ? JournalReader.checksum(snapshotFile) : 0);
+            channel.position(0);
+            writeBuffer();
+            channel.force(false);
+            size = HEADER_SIZE;
+            recordCount = 0;
+        } else {
+            //drops a torn record left by a crash so new records follow the last good one
+            channel.truncate(validSize);
+            channel.position(validSize);
+            size = validSize;
+        }
+    }
+
+    private void writeTransform(int object, float[] values) throws IOException {
+        int length = 1 + 4 + TRANSFORM_VALUES * 4;
+        beginRecord(length);
+        int start = buffer.position();
+        buffer.put(TRANSFORM).putInt(object);
+        for (float value : values) {
+            buffer.putFloat(value);
+        }
+        endRecord(start);
+    }
+
+    private void writeSpawn(Spawn spawn) throws IOException {
+        byte[] path = spawn.meshPath.getBytes(StandardCharsets.UTF_8);
+        int length = 1 + 4 + 4 + path.length + TRANSFORM_VALUES * 4;
+        beginRecord(length);
+        int start = buffer.position();
+        buffer.put(SPAWN).putInt(spawn.meshIndex).putInt(path.length).put(path);
+        for (float value : spawn.values) {
+            buffer.putFloat(value);
+        }
+        endRecord(start);
+    }
+
+    private void writeDespawn(int object) throws IOException {
+        beginRecord(1 + 4);
+        int start = buffer.position();
+        buffer.put(DESPAWN).putInt(object);
+        endRecord(start);
+    }
+
+    //records are laid out as length, crc and payload, the crc is filled in once the payload is written
+    private void beginRecord(int length) throws IOException {
+        if (buffer.remaining() < length + 8) {
+            writeBuffer();
+            if (buffer.capacity() < length + 8) {
+                buffer = ByteBuffer.allocateDirect(length + 8).order(ORDER);
+            }
+        }
+        buffer.putInt(length).putInt(0);
+    }
+
+    private void endRecord(int start) {
+        int end = buffer.position();
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(start).limit(end);
+        crc.reset();
+        crc.update(payload);
+        buffer.putInt(start - 4, (int) crc.getValue());
+        recordCount++;
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            size += channel.write(buffer);
+            unsynced = true;
+        }
+        buffer.clear();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public long getLastFlushNanos() {
+        return lastFlushNanos;
+    }
+
+    public IOException getError() {
+        return error;
+    }
+
+    //writes whatever is pending and forces it to disk
+    @Override
+    public void close() {
+        running = false;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        try {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    //a despawn has no mesh path, its mesh index is the object removed
+    private static final class Spawn {
+        private final String meshPath;
+        private final int meshIndex;
+        private final float[] values;
+
+        private Spawn(String meshPath, int meshIndex, float[] values) {
+            this.meshPath = meshPath;
+            this.meshIndex = meshIndex;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package fusion.core.editor.journal;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+//The newest transform of every object edited since the last flush, in the order objects were first edited.
+//Object numbers are looked up in an open addressing table so recording a drag tick does not box them
+final class PendingTransforms {
+
+    private int[] objects = new int[16];
+    private float[][] values = new float[16][];
+    private int size = 0;
+    //entry index + 1 per slot, 0 is empty
+    private int[] table = new int[32];
+
+    float[] get(int object) {
+        int slot = find(object);
+        return table[slot] == 0 ? null : values[table[slot] - 1];
+    }
+
+    //the object must not have an entry yet
+    void put(int object, float[] transform) {
+        if ((size + 1) * 2 > table.length) {
+            rebuild(table.length * 2);
+        }
+        if (size == objects.length) {
+            int[] grownObjects = new int[size * 2];
+            float[][] grownValues = new float[size * 2][];
+            System.arraycopy(objects, 0, grownObjects, 0, size);
+            System.arraycopy(values, 0, grownValues, 0, size);
+            objects = grownObjects;
+            values = grownValues;
+        }
+        objects[size] = object;
+        values[size] = transform;
+        size++;
+        table[find(object)] = size;
+    }
+
+    float[] remove(int object) {
+        int slot = find(object);
+        if (table[slot] == 0) {
+            return null;
+        }
+        int entry = table[slot] - 1;
+        float[] removed = values[entry];
+        //later entries move up so the order is kept, despawns are rare enough for that
+        System.arraycopy(objects, entry + 1, objects, entry, size - entry - 1);
+        System.arraycopy(values, entry + 1, values, entry, size - entry - 1);
+        size--;
+        values[size] = null;
+        rebuild(table.length);
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int getObject(int entry) {
+        return objects[entry];
+    }
+
+    float[] getValues(int entry) {
+        return values[entry];
+    }
+
+    //hands every value array back for reuse
+    void clear(ArrayDeque<float[]> free) {
+        for (int i = 0; i < size; i++) {
+            free.push(values[i]);
+            values[i] = null;
+        }
+        size = 0;
+        Arrays.fill(table, 0);
+    }
+
+    //slot holding the object, or the empty slot it would go into
+    private int find(int object) {
+        int mask = table.length - 1;
+        int hash = object * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (table[slot] != 0 && objects[table[slot] - 1] != object) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rebuild(int length) {
+        if (length == table.length) {
+            Arrays.fill(table, 0);
+        } else {
+            table = new int[length];
+        }
+        for (int i = 0; i < size; i++) {
+            table[find(objects[i])] = i + 1;
+        }
+    }
+}
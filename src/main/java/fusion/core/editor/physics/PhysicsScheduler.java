@@ -0,0 +1,529 @@
+package fusion.core.editor.physics;
+
+import com.bulletphysics.collision.shapes.CollisionShape;
+import com.bulletphysics.dynamics.RigidBody;
+import com.bulletphysics.linearmath.Transform;
+import open.gl.gameobject.MeshInstance;
+import open.gl.gameobject.PhysicsComponent;
+import open.gl.physics.PhysicsWorld;
+import org.joml.Quaternionf;
+
+import javax.vecmath.Quat4f;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//Steps physics at a fixed rate on the render thread or a worker and interpolates the active bodies'
+//instances between the last two steps. Changes to the physics world have to hold getLock
+public class PhysicsScheduler {
+
+    //jbullet's stepSimulation uses an internal step of 1/60, stepping with the same value gives exactly one sub step per call
+    public static final float FIXED_STEP = 1.0f / 60.0f;
+    private static final double MAX_FRAME_TIME = 0.25;
+    private static final int STRIDE = 7; //position xyz + rotation xyzw
+
+    private final PhysicsWorld world;
+    private final Object lock = new Object();
+
+    //written by whichever thread steps, guarded by lock
+    private final List<PhysicsComponent> bodies = new ArrayList<>();
+    //slot of every body, so editing a single body does not search all of them
+    private final Map<PhysicsComponent, Integer> slots = new IdentityHashMap<>();
+    private float[] previous = new float[0];
+    private float[] current = new float[0];
+    private boolean[] dynamic = new boolean[0];
+    private boolean[] moving = new boolean[0];
+    private int[] dynamicSlots = new int[0];
+    private int dynamicCount = 0;
+    private final SlotList pending = new SlotList();
+
+    //read by the render thread, guarded by swapLock
+    private final Object swapLock = new Object();
+    private float[] frontPrevious = new float[0];
+    private float[] frontCurrent = new float[0];
+    private boolean[] frontMoving = new boolean[0];
+    private final SlotList frontPending = new SlotList();
+    private long frontStepTime;
+
+    private Thread worker;
+    private volatile boolean running = false;
+
+    private int maxSubSteps = 5;
+    private double accumulator = 0;
+    private long lastTime = -1;
+    private volatile boolean paused = false;
+
+    private int stepsLastFrame = 0;
+    private float alpha = 1.0f;
+    private MeshInstance[] moved = new MeshInstance[0];
+    private int movedCount = 0;
+    private int activeCount = 0;
+
+    private final Transform transform = new Transform();
+    private final Quat4f quat = new Quat4f();
+    //only used by setTransform, which can run on the render thread while the worker captures
+    private final Transform bodyTransform = new Transform();
+    private final Quat4f bodyRotation = new Quat4f();
+    private final float[] interpolated = new float[STRIDE];
+
+    public PhysicsScheduler(PhysicsWorld world) {
+        this.world = world;
+    }
+
+    public void add(PhysicsComponent component) {
+        synchronized (lock) {
+            bodies.add(component);
+            int slot = bodies.size() - 1;
+            slots.put(component, slot);
+            ensureCapacity(bodies.size());
+            moving[slot] = false;
+            refresh(slot);
+        }
+    }
+
+    public void remove(PhysicsComponent component) {
+        synchronized (lock) {
+            Integer removed = slots.remove(component);
+            if (removed == null) {
+                return;
+            }
+            //move the last slot into the removed one
+            int slot = removed;
+            int last = bodies.size() - 1;
+            if (slot != last) {
+                bodies.set(slot, bodies.get(last));
+                slots.put(bodies.get(slot), slot);
+            }
+            bodies.remove(last);
+            System.arraycopy(previous, last * STRIDE, previous, slot * STRIDE, STRIDE);
+            System.arraycopy(current, last * STRIDE, current, slot * STRIDE, STRIDE);
+            boolean wasDynamic = dynamic[slot];
+            dynamic[slot] = dynamic[last];
+            moving[slot] = moving[last];
+            //the freed slot is reused by the next add, which only notices a change from static
+            dynamic[last] = false;
+            moving[last] = false;
+
+            if (slot == last) {
+                //the newest body, dynamic slots are in ascending order so it can only be the final one
+                if (wasDynamic) {
+                    dynamicCount--;
+                }
+            } else {
+                //slot numbers changed, rebuild everything that refers to them
+                rebuildDynamicSlots();
+            }
+            pending.clear();
+            for (int i = 0; i < dynamicCount; i++) {
+                if (moving[dynamicSlots[i]]) {
+                    pending.add(dynamicSlots[i]);
+                }
+            }
+            synchronized (swapLock) {
+                frontPending.clear();
+                System.arraycopy(frontPrevious, last * STRIDE, frontPrevious, slot * STRIDE, STRIDE);
+                System.arraycopy(frontCurrent, last * STRIDE, frontCurrent, slot * STRIDE, STRIDE);
+                frontMoving[slot] = frontMoving[last];
+                frontMoving[last] = false;
+            }
+            publish();
+        }
+    }
+
+    //drops every body at once, remove() is linear in the number of bodies
+    public void clear() {
+        synchronized (lock) {
+            bodies.clear();
+            slots.clear();
+            Arrays.fill(dynamic, false);
+            Arrays.fill(moving, false);
+            dynamicCount = 0;
+            pending.clear();
+            synchronized (swapLock) {
+                Arrays.fill(frontMoving, false);
+                frontPending.clear();
+            }
+        }
+        Arrays.fill(moved, 0, movedCount, null);
+        movedCount = 0;
+        activeCount = 0;
+    }
+
+    //call after moving a body by hand so it is not interpolated back from where it was, also picks up mass changes
+    public void teleport(PhysicsComponent component) {
+        synchronized (lock) {
+            Integer slot = slots.get(component);
+            if (slot != null) {
+                refresh(slot);
+            }
+        }
+    }
+
+    //puts the body where its instance is, the caller holds getLock(), a null shape keeps the current one
+    public void setTransform(PhysicsComponent component, CollisionShape shape) {
+        MeshInstance instance = component.getInstance();
+        Quaternionf rotation = instance.getRotation();
+        bodyRotation.set(rotation.x, rotation.y, rotation.z, rotation.w);
+        bodyTransform.setIdentity();
+        bodyTransform.origin.set(instance.getPosition().x, instance.getPosition().y, instance.getPosition().z);
+        bodyTransform.setRotation(bodyRotation);
+        RigidBody body = component.getRigidBody();
+        body.setWorldTransform(bodyTransform);
+        body.getMotionState().setWorldTransform(bodyTransform);
+        if (shape != null && body.getCollisionShape() != shape) {
+            body.setCollisionShape(shape);
+        }
+    }
+
+    //moves many bodies at once, the locks are taken once for all of them
+    public void teleport(List<PhysicsComponent> components) {
+        synchronized (lock) {
+            for (int i = 0; i < components.size(); i++) {
+                Integer slot = slots.get(components.get(i));
+                if (slot != null) {
+                    refresh(slot);
+                }
+            }
+        }
+    }
+
+    private void refresh(int slot) {
+        RigidBody body = bodies.get(slot).getRigidBody();
+        boolean isDynamic = !body.isStaticObject();
+        if (isDynamic != dynamic[slot]) {
+            dynamic[slot] = isDynamic;
+            if (isDynamic && slot == bodies.size() - 1) {
+                //a newly added body, no need to walk every slot
+                dynamicSlots[dynamicCount++] = slot;
+            } else {
+                rebuildDynamicSlots();
+            }
+        }
+
+        capture(slot);
+        System.arraycopy(current, slot * STRIDE, previous, slot * STRIDE, STRIDE);
+        synchronized (swapLock) {
+            System.arraycopy(current, slot * STRIDE, frontPrevious, slot * STRIDE, STRIDE);
+            System.arraycopy(current, slot * STRIDE, frontCurrent, slot * STRIDE, STRIDE);
+        }
+    }
+
+    private void rebuildDynamicSlots() {
+        dynamicCount = 0;
+        for (int i = 0; i < bodies.size(); i++) {
+            if (dynamic[i]) {
+                dynamicSlots[dynamicCount++] = i;
+            }
+        }
+    }
+
+    private void ensureCapacity(int slots) {
+        if (dynamic.length >= slots) {
+            return;
+        }
+        int size = Math.max(slots, dynamic.length * 2);
+        previous = Arrays.copyOf(previous, size * STRIDE);
+        current = Arrays.copyOf(current, size * STRIDE);
+        dynamic = Arrays.copyOf(dynamic, size);
+        moving = Arrays.copyOf(moving, size);
+        dynamicSlots = Arrays.copyOf(dynamicSlots, size);
+        pending.ensureCapacity(size);
+        synchronized (swapLock) {
+            frontPrevious = Arrays.copyOf(frontPrevious, size * STRIDE);
+            frontCurrent = Arrays.copyOf(frontCurrent, size * STRIDE);
+            frontMoving = Arrays.copyOf(frontMoving, size);
+            frontPending.ensureCapacity(size);
+        }
+        if (moved.length < size) {
+            moved = Arrays.copyOf(moved, size);
+        }
+    }
+
+    //called once per rendered frame from the render thread, the excluded components are left alone (e.g. the selection while it is being dragged)
+    public void update(Set<PhysicsComponent> excluded) {
+        long now = System.nanoTime();
+        double frameTime = lastTime < 0 ? 0 : (now - lastTime) / 1_000_000_000.0;
+        lastTime = now;
+        movedCount = 0;
+        activeCount = 0;
+
+        if (paused) {
+            stepsLastFrame = 0;
+            return;
+        }
+
+        if (running) {
+            synchronized (swapLock) {
+                alpha = (float) Math.min(1.0, (now - frontStepTime) / 1_000_000_000.0 / FIXED_STEP);
+                apply(alpha, excluded);
+            }
+            return;
+        }
+
+        synchronized (lock) {
+            stepsLastFrame = step(Math.min(frameTime, MAX_FRAME_TIME));
+            if (stepsLastFrame > 0) {
+                publish();
+            }
+        }
+        alpha = (float) (accumulator / FIXED_STEP);
+        synchronized (swapLock) {
+            apply(alpha, excluded);
+        }
+    }
+
+    private int step(double frameTime) {
+        accumulator += frameTime;
+        int steps = 0;
+        while (accumulator >= FIXED_STEP && steps < maxSubSteps) {
+            world.update(FIXED_STEP);
+            accumulator -= FIXED_STEP;
+            steps++;
+
+            for (int i = 0; i < dynamicCount; i++) {
+                int slot = dynamicSlots[i];
+                boolean active = bodies.get(slot).getRigidBody().isActive();
+                if (active || moving[slot]) {
+                    //a body that just fell asleep is kept one more step so it ends exactly where it stopped
+                    System.arraycopy(current, slot * STRIDE, previous, slot * STRIDE, STRIDE);
+                    if (active) {
+                        capture(slot);
+                    }
+                    moving[slot] = active;
+                    pending.add(slot);
+                }
+            }
+        }
+        if (steps == maxSubSteps && accumulator >= FIXED_STEP) {
+            //could not keep up, drop the time instead of trying to catch up next frame
+            accumulator %= FIXED_STEP;
+        }
+        return steps;
+    }
+
+    private void capture(int slot) {
+        bodies.get(slot).getRigidBody().getMotionState().getWorldTransform(transform);
+        transform.getRotation(quat);
+        int offset = slot * STRIDE;
+        current[offset] = transform.origin.x;
+        current[offset + 1] = transform.origin.y;
+        current[offset + 2] = transform.origin.z;
+        current[offset + 3] = quat.x;
+        current[offset + 4] = quat.y;
+        current[offset + 5] = quat.z;
+        current[offset + 6] = quat.w;
+    }
+
+    //hands the slots touched by the last steps over to the render thread, only those are copied
+    private void publish() {
+        synchronized (swapLock) {
+            for (int i = 0; i < pending.count; i++) {
+                int slot = pending.slots[i];
+                System.arraycopy(previous, slot * STRIDE, frontPrevious, slot * STRIDE, STRIDE);
+                System.arraycopy(current, slot * STRIDE, frontCurrent, slot * STRIDE, STRIDE);
+                frontMoving[slot] = moving[slot];
+                frontPending.add(slot);
+            }
+            frontStepTime = System.nanoTime();
+        }
+        pending.clear();
+    }
+
+    private void apply(float t, Set<PhysicsComponent> excluded) {
+        boolean excluding = !excluded.isEmpty();
+        activeCount = frontPending.count;
+        int i = 0;
+        while (i < frontPending.count) {
+            int slot = frontPending.slots[i];
+            PhysicsComponent component = bodies.get(slot);
+            if (!excluding || !excluded.contains(component)) {
+                interpolate(frontPrevious, frontCurrent, slot, frontMoving[slot] ? t : 1.0f, interpolated);
+
+                MeshInstance instance = component.getInstance();
+                instance.getPosition().set(interpolated[0], interpolated[1], interpolated[2]);
+                instance.getRotation().set(interpolated[3], interpolated[4], interpolated[5], interpolated[6]);
+                moved[movedCount++] = instance;
+            }
+
+            if (frontMoving[slot]) {
+                i++;
+            } else {
+                //came to rest, this was its last write
+                frontPending.removeAt(i);
+            }
+        }
+    }
+
+    public static void interpolate(float[] from, float[] to, int slot, float t, float[] dest) {
+        int offset = slot * STRIDE;
+        for (int i = 0; i < 3; i++) {
+            dest[i] = from[offset + i] + (to[offset + i] - from[offset + i]) * t;
+        }
+
+        //normalized lerp, flipping to the shorter arc
+        float dot = from[offset + 3] * to[offset + 3] + from[offset + 4] * to[offset + 4]
+                + from[offset + 5] * to[offset + 5] + from[offset + 6] * to[offset + 6];
+        float sign = dot < 0 ? -1.0f : 1.0f;
+        float length = 0;
+        for (int i = 3; i < STRIDE; i++) {
+            dest[i] = from[offset + i] + (sign * to[offset + i] - from[offset + i]) * t;
+            length += dest[i] * dest[i];
+        }
+        if (length > 0) {
+            float inverse = (float) (1.0 / Math.sqrt(length));
+            for (int i = 3; i < STRIDE; i++) {
+                dest[i] *= inverse;
+            }
+        }
+    }
+
+    public void setThreaded(boolean threaded) {
+        if (threaded == running) {
+            return;
+        }
+
+        if (threaded) {
+            running = true;
+            worker = new Thread(this::runWorker, "Physics");
+            worker.setDaemon(true);
+            worker.start();
+        } else {
+            running = false;
+            worker.interrupt();
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker = null;
+            accumulator = 0;
+        }
+    }
+
+    private void runWorker() {
+        long last = System.nanoTime();
+        while (running) {
+            long now = System.nanoTime();
+            double frameTime = Math.min((now - last) / 1_000_000_000.0, MAX_FRAME_TIME);
+            last = now;
+
+            if (!paused) {
+                synchronized (lock) {
+                    if (step(frameTime) > 0) {
+                        publish();
+                    }
+                }
+            }
+
+            long sleep = (long) ((FIXED_STEP - accumulator) * 1000);
+            try {
+                Thread.sleep(Math.max(1, paused ? 50 : sleep));
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    public Object getLock() {
+        return lock;
+    }
+
+    public boolean isThreaded() {
+        return running;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public void setPaused(boolean paused) {
+        if (this.paused == paused) {
+            return;
+        }
+        this.paused = paused;
+        if (!paused) {
+            //bodies might have been moved while paused, start interpolating from where they are now
+            synchronized (lock) {
+                accumulator = 0;
+                for (int i = 0; i < dynamicCount; i++) {
+                    refresh(dynamicSlots[i]);
+                }
+            }
+        }
+    }
+
+    public int getMaxSubSteps() {
+        return maxSubSteps;
+    }
+
+    public void setMaxSubSteps(int maxSubSteps) {
+        this.maxSubSteps = Math.max(1, maxSubSteps);
+    }
+
+    //steps taken during the last update on the render thread
+    public int getStepsLastFrame() {
+        return stepsLastFrame;
+    }
+
+    public float getAlpha() {
+        return alpha;
+    }
+
+    //instances whose transform was written during the last update, their bounds have to be refreshed
+    public int getMovedCount() {
+        return movedCount;
+    }
+
+    public MeshInstance getMoved(int index) {
+        return moved[index];
+    }
+
+    //bodies that were moving or came to rest during the last update, out of getTotalCount()
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public int getTotalCount() {
+        return bodies.size();
+    }
+
+    public void shutdown() {
+        setThreaded(false);
+    }
+
+    //list of slot numbers without duplicates
+    private static class SlotList {
+        private int[] slots = new int[0];
+        private boolean[] listed = new boolean[0];
+        private int count = 0;
+
+        void ensureCapacity(int size) {
+            if (slots.length < size) {
+                slots = Arrays.copyOf(slots, size);
+                listed = Arrays.copyOf(listed, size);
+            }
+        }
+
+        void add(int slot) {
+            if (!listed[slot]) {
+                listed[slot] = true;
+                slots[count++] = slot;
+            }
+        }
+
+        void removeAt(int index) {
+            listed[slots[index]] = false;
+            slots[index] = slots[--count];
+        }
+
+        void clear() {
+            for (int i = 0; i < count; i++) {
+                listed[slots[i]] = false;
+            }
+            count = 0;
+        }
+    }
+}
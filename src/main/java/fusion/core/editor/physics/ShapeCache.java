@@ -0,0 +1,184 @@
+package fusion.core.editor.physics;
+
+import com.bulletphysics.collision.shapes.CollisionShape;
+import com.bulletphysics.collision.shapes.ConvexHullShape;
+import com.bulletphysics.collision.shapes.ShapeHull;
+import com.bulletphysics.collision.shapes.UniformScalingShape;
+import com.bulletphysics.util.ObjectArrayList;
+import open.gl.gameobject.Mesh;
+import org.joml.Vector3f;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Shares collision shapes, a mesh's hull is simplified once and every (mesh, scale) pair gets one shape
+public class ShapeCache {
+
+    //scales are snapped to this step before being used as a key
+    private static final float SCALE_QUANTUM = 0.001f;
+    private static final int UNIT_SCALE = quantize(1.0f);
+
+    private final Map<Mesh, ConvexHullShape> baseShapes = new HashMap<>();
+    private final Map<ShapeKey, CollisionShape> shapes;
+
+    private final ShapeKey lookupKey = new ShapeKey();
+
+    private int hits = 0;
+    private int misses = 0;
+
+    public ShapeCache() {
+        this(4096);
+    }
+
+    public ShapeCache(int maxShapes) {
+        //access ordered so the least recently used scale variants are dropped first, bodies keep their own reference
+        this.shapes = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ShapeKey, CollisionShape> eldest) {
+                return size() > maxShapes;
+            }
+        };
+    }
+
+    public CollisionShape getShape(Mesh mesh, Vector3f scale) {
+        lookupKey.set(mesh, quantize(scale.x), quantize(scale.y), quantize(scale.z));
+
+        CollisionShape shape = shapes.get(lookupKey);
+        if (shape != null) {
+            hits++;
+            return shape;
+        }
+
+        misses++;
+        ShapeKey key = lookupKey.copy();
+        shape = createScaledShape(getBaseShape(mesh), key);
+        shapes.put(key, shape);
+        return shape;
+    }
+
+    private CollisionShape createScaledShape(ConvexHullShape base, ShapeKey key) {
+        if (key.x == UNIT_SCALE && key.y == UNIT_SCALE && key.z == UNIT_SCALE) {
+            return base;
+        }
+
+        if (key.x == key.y && key.y == key.z && key.x > 0) {
+            return new UniformScalingShape(base, key.x * SCALE_QUANTUM);
+        }
+
+        //jbullet only wraps uniform scales, non uniform scales get their own copy of the simplified hull
+        ConvexHullShape scaled = new ConvexHullShape(base.getPoints());
+        scaled.setLocalScaling(new javax.vecmath.Vector3f(key.x * SCALE_QUANTUM, key.y * SCALE_QUANTUM, key.z * SCALE_QUANTUM));
+        return scaled;
+    }
+
+    private ConvexHullShape getBaseShape(Mesh mesh) {
+        ConvexHullShape base = baseShapes.get(mesh);
+        if (base == null) {
+            base = buildHull(mesh.getModel().getVertices());
+            baseShapes.put(mesh, base);
+        }
+        return base;
+    }
+
+    private ConvexHullShape buildHull(float[] vertices) {
+        return new ConvexHullShape(toPoints(simplifyHull(vertices)));
+    }
+
+    //hull points computed ahead of time, e.g. read from a cooked mesh, skips the simplification for this mesh
+    public void setHull(Mesh mesh, float[] hullPoints) {
+        invalidate(mesh);
+        baseShapes.put(mesh, new ConvexHullShape(toPoints(hullPoints)));
+    }
+
+    //reduces the vertices of a mesh to the points of its convex hull, falls back to every vertex if that fails
+    public static float[] simplifyHull(float[] vertices) {
+        ConvexHullShape rawHull = new ConvexHullShape(toPoints(vertices));
+        //the hull is sampled through the supporting vertices, with a margin the points would sit outside the mesh
+        //and the shape built from them adds its own margin on top
+        rawHull.setMargin(0);
+
+        ShapeHull hull = new ShapeHull(rawHull);
+        if (!hull.buildHull(0) || hull.numVertices() == 0) {
+            return vertices;
+        }
+        ObjectArrayList<javax.vecmath.Vector3f> points = hull.getVertexPointer();
+        float[] result = new float[hull.numVertices() * 3];
+        for (int i = 0; i < hull.numVertices(); i++) {
+            javax.vecmath.Vector3f point = points.getQuick(i);
+            result[i * 3] = point.x;
+            result[i * 3 + 1] = point.y;
+            result[i * 3 + 2] = point.z;
+        }
+        return result;
+    }
+
+    private static ObjectArrayList<javax.vecmath.Vector3f> toPoints(float[] vertices) {
+        ObjectArrayList<javax.vecmath.Vector3f> points = new ObjectArrayList<>();
+        for (int i = 0; i < vertices.length; i += 3) {
+            points.add(new javax.vecmath.Vector3f(vertices[i], vertices[i + 1], vertices[i + 2]));
+        }
+        return points;
+    }
+
+    private static int quantize(float value) {
+        return Math.round(value / SCALE_QUANTUM);
+    }
+
+    public void invalidate(Mesh mesh) {
+        baseShapes.remove(mesh);
+        shapes.keySet().removeIf(key -> key.mesh == mesh);
+    }
+
+    public void clear() {
+        baseShapes.clear();
+        shapes.clear();
+    }
+
+    public int size() {
+        return shapes.size();
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    private static final class ShapeKey {
+        private Mesh mesh;
+        private int x, y, z;
+
+        private void set(Mesh mesh, int x, int y, int z) {
+            this.mesh = mesh;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        private ShapeKey copy() {
+            ShapeKey key = new ShapeKey();
+            key.set(mesh, x, y, z);
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ShapeKey)) return false;
+            ShapeKey other = (ShapeKey) o;
+            return mesh == other.mesh && x == other.x && y == other.y && z == other.z;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(mesh);
+            result = 31 * result + x;
+            result = 31 * result + y;
+            result = 31 * result + z;
+            return result;
+        }
+    }
+}
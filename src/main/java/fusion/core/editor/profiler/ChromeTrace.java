@@ -0,0 +1,117 @@
+package fusion.core.editor.profiler;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+
+//Writes the Profiler's history in the Chrome trace event format, CPU and GPU zones on separate threads
+public class ChromeTrace {
+
+    private static final int PID = 1;
+    private static final int CPU_THREAD = 1;
+    private static final int GPU_THREAD = 2;
+
+    public static void write(Profiler profiler, File file) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        File temp = new File(directory, file.getName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            write(profiler, writer);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static void write(Profiler profiler, Writer writer) throws IOException {
+        int frameCount = profiler.getFrameCount();
+        //timestamps are written in microseconds from the first frame
+        long origin = frameCount == 0 ? 0 : profiler.getFrame(0).getStart();
+
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+        writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":" + PID + ",\"tid\":" + CPU_THREAD + ",\"args\":{\"name\":\"Render Thread\"}},\n");
+        writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":" + PID + ",\"tid\":" + GPU_THREAD + ",\"args\":{\"name\":\"GPU\"}}");
+
+        StringBuilder line = new StringBuilder(256);
+        for (int f = 0; f < frameCount; f++) {
+            ProfilerFrame frame = profiler.getFrame(f);
+            line.setLength(0);
+            line.append(",\n");
+            complete(line, "Frame " + frame.getNumber(), CPU_THREAD, frame.getStart() - origin, frame.getDurationNanos());
+            for (int i = 0; i < frame.getZoneCount(); i++) {
+                line.append(",\n");
+                complete(line, profiler.getZoneName(frame.getZone(i)), CPU_THREAD, frame.getZoneStart(i) - origin, frame.getZoneNanos(i));
+            }
+            if (frame.hasGpuTimes()) {
+                for (int i = 0; i < frame.getGpuZoneCount(); i++) {
+                    line.append(",\n");
+                    complete(line, profiler.getZoneName(frame.getGpuZone(i)), GPU_THREAD, frame.getGpuZoneStart(i) - origin, frame.getGpuZoneNanos(i));
+                }
+            }
+            if (profiler.getCounterNameCount() > 0) {
+                line.append(",\n{\"name\":\"Counters\",\"ph\":\"C\",\"pid\":").append(PID)
+                        .append(",\"ts\":");
+                micros(line, frame.getStart() - origin);
+                line.append(",\"args\":{");
+                for (int c = 0; c < profiler.getCounterNameCount(); c++) {
+                    if (c > 0) {
+                        line.append(',');
+                    }
+                    string(line, profiler.getCounterName(c));
+                    line.append(':').append(frame.getCounter(c));
+                }
+                line.append("}}");
+            }
+            writer.append(line);
+        }
+        writer.write("\n]}\n");
+    }
+
+    private static void complete(StringBuilder line, String name, int thread, long start, long duration) {
+        line.append("{\"name\":");
+        string(line, name);
+        line.append(",\"ph\":\"X\",\"pid\":").append(PID).append(",\"tid\":").append(thread)
+                .append(",\"ts\":");
+        micros(line, start);
+        line.append(",\"dur\":");
+        micros(line, Math.max(0, duration));
+        line.append('}');
+    }
+
+    //microseconds with three decimals, written by hand since String.format dominates the export otherwise
+    private static void micros(StringBuilder line, long nanos) {
+        if (nanos < 0) {
+            line.append('-');
+            nanos = -nanos;
+        }
+        long fraction = nanos % 1000;
+        line.append(nanos / 1000).append('.');
+        if (fraction < 100) {
+            line.append('0');
+        }
+        if (fraction < 10) {
+            line.append('0');
+        }
+        line.append(fraction);
+    }
+
+    private static void string(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,46 @@
+package fusion.core.editor.profiler;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL32.glGetInteger64;
+import static org.lwjgl.opengl.GL33.*;
+
+//Timestamp queries, needs GL 3.3 or ARB_timer_query and has to be used from the render thread
+class GpuTimer {
+
+    static boolean isSupported() {
+        GLCapabilities capabilities = GL.getCapabilities();
+        return capabilities.OpenGL33 || capabilities.GL_ARB_timer_query;
+    }
+
+    void create(int[] queries, int from, int to) {
+        int[] created = new int[to - from];
+        glGenQueries(created);
+        System.arraycopy(created, 0, queries, from, created.length);
+    }
+
+    void delete(int[] queries, int count) {
+        for (int i = 0; i < count; i++) {
+            glDeleteQueries(queries[i]);
+        }
+    }
+
+    void timestamp(int query) {
+        glQueryCounter(query, GL_TIMESTAMP);
+    }
+
+    boolean isAvailable(int query) {
+        return glGetQueryObjecti(query, GL_QUERY_RESULT_AVAILABLE) != 0;
+    }
+
+    long result(int query) {
+        return glGetQueryObjecti64(query, GL_QUERY_RESULT);
+    }
+
+    //current gpu time, used to line gpu timestamps up with System.nanoTime
+    long now() {
+        return glGetInteger64(GL_TIMESTAMP);
+    }
+}
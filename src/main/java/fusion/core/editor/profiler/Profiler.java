@@ -0,0 +1,255 @@
+package fusion.core.editor.profiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Hierarchical frame profiler keeping the last HISTORY frames in preallocated buffers. GPU zones use
+//timestamp queries read a few frames later so the render thread never waits. Render thread only
+public class Profiler {
+
+    public static final int HISTORY = 300;
+    private static final int MAX_DEPTH = 64;
+    //how often the gpu clock is lined up with System.nanoTime again
+    private static final int GPU_SYNC_FRAMES = 120;
+
+    private final List<String> zoneNames = new ArrayList<>();
+    private final List<String> counterNames = new ArrayList<>();
+    private final ProfilerFrame[] frames = new ProfilerFrame[HISTORY];
+    private final int[] createdQueries = new int[HISTORY];
+    private long frameCount = 0;
+    private ProfilerFrame current;
+
+    private final int[] stack = new int[MAX_DEPTH];
+    private int depth = 0;
+    //zones opened past MAX_DEPTH are not recorded, their ends are still counted so the stack stays balanced
+    private int overflow = 0;
+
+    private final int[] gpuStack = new int[MAX_DEPTH];
+    private int gpuDepth = 0;
+    private GpuTimer gpu;
+    private long gpuOffset = 0;
+    //oldest frame whose gpu queries have not been read yet
+    private long gpuResolved = 0;
+
+    private boolean paused = false;
+
+    public Profiler() {
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = new ProfilerFrame();
+        }
+    }
+
+    //the id is used to open the zone, registering the same name again returns the same id
+    public int zone(String name) {
+        int index = zoneNames.indexOf(name);
+        if (index >= 0) {
+            return index;
+        }
+        zoneNames.add(name);
+        return zoneNames.size() - 1;
+    }
+
+    public int counter(String name) {
+        int index = counterNames.indexOf(name);
+        if (index >= 0) {
+            return index;
+        }
+        counterNames.add(name);
+        return counterNames.size() - 1;
+    }
+
+    //turns on gpu zones, needs a current GL context, false when the context has no timer queries
+    public boolean enableGpuTiming() {
+        if (gpu == null && GpuTimer.isSupported()) {
+            gpu = new GpuTimer();
+        }
+        return gpu != null;
+    }
+
+    public boolean isGpuTiming() {
+        return gpu != null;
+    }
+
+    public void beginFrame() {
+        if (gpu != null) {
+            resolveGpu();
+        }
+        if (paused) {
+            current = null;
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (gpu != null && frameCount % GPU_SYNC_FRAMES == 0) {
+            gpuOffset = now - gpu.now();
+        }
+        current = frames[(int) (frameCount % HISTORY)];
+        if (current.gpuPending) {
+            //still waiting on the gpu after a whole history of frames, the results are not worth stalling for
+            current.gpuPending = false;
+            gpuResolved = Math.max(gpuResolved, current.number + 1);
+        }
+        current.reset(frameCount, now, counterNames.size());
+        current.gpuOffset = gpuOffset;
+        depth = 0;
+        overflow = 0;
+        gpuDepth = 0;
+    }
+
+    public void endFrame() {
+        if (current == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        //zones left open end with the frame
+        while (depth > 0) {
+            current.ends[stack[--depth]] = now;
+        }
+        while (gpuDepth > 0) {
+            endGpu();
+        }
+        current.end = now;
+        current.gpuPending = current.gpuCount > 0;
+        frameCount++;
+        current = null;
+    }
+
+    public void begin(int zone) {
+        if (current == null) {
+            return;
+        }
+        if (depth == MAX_DEPTH) {
+            overflow++;
+            return;
+        }
+        stack[depth] = current.addZone(zone, depth, System.nanoTime());
+        depth++;
+    }
+
+    public void end() {
+        if (current == null) {
+            return;
+        }
+        if (overflow > 0) {
+            overflow--;
+        } else if (depth > 0) {
+            current.ends[stack[--depth]] = System.nanoTime();
+        }
+    }
+
+    //gpu zones measure the commands issued between begin and end, they can nest but not overlap
+    public void beginGpu(int zone) {
+        if (current == null || gpu == null || gpuDepth == MAX_DEPTH) {
+            return;
+        }
+        int index = current.addGpuZone(zone, gpuDepth);
+        gpuStack[gpuDepth++] = index;
+        gpu.timestamp(query(index * 2));
+    }
+
+    public void endGpu() {
+        if (current == null || gpu == null || gpuDepth == 0) {
+            return;
+        }
+        gpu.timestamp(query(gpuStack[--gpuDepth] * 2 + 1));
+    }
+
+    //query objects belong to their slot in the ring buffer and are created as a frame needs more of them
+    private int query(int index) {
+        int slot = (int) (current.number % HISTORY);
+        if (index >= createdQueries[slot]) {
+            int size = Math.max(index + 1, createdQueries[slot] * 2);
+            if (current.queries.length < size) {
+                current.queries = Arrays.copyOf(current.queries, size);
+            }
+            gpu.create(current.queries, createdQueries[slot], size);
+            createdQueries[slot] = size;
+        }
+        return current.queries[index];
+    }
+
+    //reads back every finished frame in order, stops at the first one the gpu is still working on
+    private void resolveGpu() {
+        while (gpuResolved < frameCount) {
+            ProfilerFrame frame = frames[(int) (gpuResolved % HISTORY)];
+            if (frame.number == gpuResolved && frame.gpuPending) {
+                for (int i = 0; i < frame.gpuCount; i++) {
+                    if (!gpu.isAvailable(frame.queries[i * 2 + 1])) {
+                        return;
+                    }
+                }
+                for (int i = 0; i < frame.gpuCount; i++) {
+                    frame.gpuStarts[i] = gpu.result(frame.queries[i * 2]);
+                    frame.gpuEnds[i] = gpu.result(frame.queries[i * 2 + 1]);
+                }
+                frame.gpuPending = false;
+            }
+            gpuResolved++;
+        }
+    }
+
+    //counters registered during a frame are recorded from the next one on
+    public void setCounter(int counter, long value) {
+        if (current != null && counter < current.counters.length) {
+            current.counters[counter] = value;
+        }
+    }
+
+    public void addToCounter(int counter, long value) {
+        if (current != null && counter < current.counters.length) {
+            current.counters[counter] += value;
+        }
+    }
+
+    //stops recording, the history stays as it is so it can be looked at or exported
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    //number of finished frames in the history
+    public int getFrameCount() {
+        return (int) Math.min(frameCount, HISTORY);
+    }
+
+    //0 is the oldest finished frame still in the history
+    public ProfilerFrame getFrame(int index) {
+        long first = frameCount - getFrameCount();
+        return frames[(int) ((first + index) % HISTORY)];
+    }
+
+    //the newest finished frame, null before the first one ended
+    public ProfilerFrame getLastFrame() {
+        return frameCount == 0 ? null : frames[(int) ((frameCount - 1) % HISTORY)];
+    }
+
+    public String getZoneName(int zone) {
+        return zoneNames.get(zone);
+    }
+
+    public int getZoneNameCount() {
+        return zoneNames.size();
+    }
+
+    public String getCounterName(int counter) {
+        return counterNames.get(counter);
+    }
+
+    public int getCounterNameCount() {
+        return counterNames.size();
+    }
+
+    public void cleanup() {
+        if (gpu == null) {
+            return;
+        }
+        for (int i = 0; i < frames.length; i++) {
+            gpu.delete(frames[i].queries, createdQueries[i]);
+            createdQueries[i] = 0;
+        }
+    }
+}
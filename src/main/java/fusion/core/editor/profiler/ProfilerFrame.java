@@ -0,0 +1,136 @@
+package fusion.core.editor.profiler;
+
+import java.util.Arrays;
+
+//One frame of the Profiler ring buffer, the arrays are kept and only grow so a reused frame does not allocate
+public class ProfilerFrame {
+
+    long number;
+    long start;
+    long end;
+
+    //cpu zones in the order they were opened, a zone's parent is the closest earlier zone with a smaller depth
+    int count;
+    int[] zones = new int[64];
+    int[] depths = new int[64];
+    long[] starts = new long[64];
+    long[] ends = new long[64];
+
+    long[] counters = new long[0];
+
+    //gpu zones, two timestamp queries each, read back once the gpu has finished the frame
+    int gpuCount;
+    int[] gpuZones = new int[16];
+    int[] gpuDepths = new int[16];
+    int[] queries = new int[32];
+    int queryCount;
+    long[] gpuStarts = new long[16];
+    long[] gpuEnds = new long[16];
+    boolean gpuPending;
+    //added to gpu timestamps to put them on the System.nanoTime clock
+    long gpuOffset;
+
+    void reset(long number, long start, int counterCount) {
+        this.number = number;
+        this.start = start;
+        end = 0;
+        count = 0;
+        gpuCount = 0;
+        gpuPending = false;
+        if (counters.length < counterCount) {
+            counters = new long[counterCount];
+        }
+        Arrays.fill(counters, 0);
+    }
+
+    int addZone(int zone, int depth, long start) {
+        if (count == zones.length) {
+            int size = count * 2;
+            zones = Arrays.copyOf(zones, size);
+            depths = Arrays.copyOf(depths, size);
+            starts = Arrays.copyOf(starts, size);
+            ends = Arrays.copyOf(ends, size);
+        }
+        zones[count] = zone;
+        depths[count] = depth;
+        starts[count] = start;
+        ends[count] = 0;
+        return count++;
+    }
+
+    int addGpuZone(int zone, int depth) {
+        if (gpuCount == gpuZones.length) {
+            int size = gpuCount * 2;
+            gpuZones = Arrays.copyOf(gpuZones, size);
+            gpuDepths = Arrays.copyOf(gpuDepths, size);
+            gpuStarts = Arrays.copyOf(gpuStarts, size);
+            gpuEnds = Arrays.copyOf(gpuEnds, size);
+        }
+        gpuZones[gpuCount] = zone;
+        gpuDepths[gpuCount] = depth;
+        gpuStarts[gpuCount] = 0;
+        gpuEnds[gpuCount] = 0;
+        return gpuCount++;
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getDurationNanos() {
+        return end - start;
+    }
+
+    public int getZoneCount() {
+        return count;
+    }
+
+    public int getZone(int index) {
+        return zones[index];
+    }
+
+    public int getDepth(int index) {
+        return depths[index];
+    }
+
+    public long getZoneStart(int index) {
+        return starts[index];
+    }
+
+    public long getZoneNanos(int index) {
+        return ends[index] - starts[index];
+    }
+
+    public long getCounter(int counter) {
+        return counter < counters.length ? counters[counter] : 0;
+    }
+
+    //gpu zones are only valid once the frame is no longer pending
+    public boolean hasGpuTimes() {
+        return gpuCount > 0 && !gpuPending;
+    }
+
+    public int getGpuZoneCount() {
+        return gpuCount;
+    }
+
+    public int getGpuZone(int index) {
+        return gpuZones[index];
+    }
+
+    public int getGpuDepth(int index) {
+        return gpuDepths[index];
+    }
+
+    public long getGpuZoneStart(int index) {
+        return gpuStarts[index] + gpuOffset;
+    }
+
+    public long getGpuZoneNanos(int index) {
+        return gpuEnds[index] - gpuStarts[index];
+    }
+}
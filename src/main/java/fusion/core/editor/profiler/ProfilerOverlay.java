@@ -0,0 +1,170 @@
+package fusion.core.editor.profiler;
+
+import imgui.ImGui;
+import imgui.flag.ImGuiCond;
+import imgui.flag.ImGuiTableFlags;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+//ImGui window with the frame time graph, the zone tree averaged over AVERAGE_FRAMES frames and the counters
+public class ProfilerOverlay {
+
+    private static final int AVERAGE_FRAMES = 60;
+    private static final float INDENT = 12;
+
+    private final Profiler profiler;
+    private final File traceDirectory;
+
+    private final float[] frameTimes = new float[Profiler.HISTORY];
+    private long[] zoneTotals = new long[0];
+    private long[] zoneMaxima = new long[0];
+    private long[] frameTotals = new long[0];
+    private String exportStatus;
+
+    public ProfilerOverlay(Profiler profiler, File traceDirectory) {
+        this.profiler = profiler;
+        this.traceDirectory = traceDirectory;
+    }
+
+    public void show() {
+        ImGui.setNextWindowSize(420, 480, ImGuiCond.FirstUseEver);
+        ImGui.setNextWindowCollapsed(true, ImGuiCond.FirstUseEver);
+        if (ImGui.begin("Profiler")) {
+            ProfilerFrame last = profiler.getLastFrame();
+            if (last != null) {
+                showFrameTimes();
+                showZones(last);
+                showGpuZones(last);
+                showCounters(last);
+            }
+
+            if (ImGui.checkbox("Pause", profiler.isPaused())) {
+                profiler.setPaused(!profiler.isPaused());
+            }
+            ImGui.sameLine();
+            if (ImGui.button("Export Trace")) {
+                exportTrace();
+            }
+            if (exportStatus != null) {
+                ImGui.textDisabled(exportStatus);
+            }
+        }
+        ImGui.end();
+    }
+
+    private void showFrameTimes() {
+        int count = profiler.getFrameCount();
+        float total = 0;
+        float max = 0;
+        for (int i = 0; i < count; i++) {
+            float ms = profiler.getFrame(i).getDurationNanos() / 1_000_000f;
+            frameTimes[i] = ms;
+            total += ms;
+            max = Math.max(max, ms);
+        }
+        float average = total / count;
+        ImGui.text(String.format("Frame %.2f ms avg, %.2f ms max, %.0f fps", average, max, 1000 / average));
+        ImGui.plotLines("##Frame Times", frameTimes, count, 0, "", 0, Math.max(max, 1000f / 60), ImGui.getContentRegionAvailX(), 60);
+    }
+
+    //sums every zone over the last frames, a zone opened several times in one frame counts once with its total
+    private void accumulate() {
+        int zones = profiler.getZoneNameCount();
+        if (zoneTotals.length < zones) {
+            zoneTotals = new long[zones];
+            zoneMaxima = new long[zones];
+            frameTotals = new long[zones];
+        }
+        for (int z = 0; z < zones; z++) {
+            zoneTotals[z] = 0;
+            zoneMaxima[z] = 0;
+        }
+
+        int count = profiler.getFrameCount();
+        for (int f = Math.max(0, count - AVERAGE_FRAMES); f < count; f++) {
+            ProfilerFrame frame = profiler.getFrame(f);
+            for (int i = 0; i < frame.getZoneCount(); i++) {
+                frameTotals[frame.getZone(i)] = 0;
+            }
+            for (int i = 0; i < frame.getZoneCount(); i++) {
+                frameTotals[frame.getZone(i)] += frame.getZoneNanos(i);
+            }
+            for (int i = 0; i < frame.getZoneCount(); i++) {
+                int zone = frame.getZone(i);
+                if (frameTotals[zone] >= 0) {
+                    zoneTotals[zone] += frameTotals[zone];
+                    zoneMaxima[zone] = Math.max(zoneMaxima[zone], frameTotals[zone]);
+                    //marks the zone as counted for this frame
+                    frameTotals[zone] = -1;
+                }
+            }
+        }
+    }
+
+    private void showZones(ProfilerFrame frame) {
+        accumulate();
+        int averaged = Math.min(profiler.getFrameCount(), AVERAGE_FRAMES);
+        if (ImGui.beginTable("Zones", 4, ImGuiTableFlags.RowBg | ImGuiTableFlags.BordersInnerV)) {
+            ImGui.tableSetupColumn("Zone");
+            ImGui.tableSetupColumn("Last ms");
+            ImGui.tableSetupColumn("Avg ms");
+            ImGui.tableSetupColumn("Max ms");
+            ImGui.tableHeadersRow();
+            for (int i = 0; i < frame.getZoneCount(); i++) {
+                int zone = frame.getZone(i);
+                ImGui.tableNextColumn();
+                ImGui.setCursorPosX(ImGui.getCursorPosX() + frame.getDepth(i) * INDENT);
+                ImGui.text(profiler.getZoneName(zone));
+                ImGui.tableNextColumn();
+                ImGui.text(String.format("%.3f", frame.getZoneNanos(i) / 1_000_000.0));
+                ImGui.tableNextColumn();
+                ImGui.text(String.format("%.3f", zoneTotals[zone] / 1_000_000.0 / averaged));
+                ImGui.tableNextColumn();
+                ImGui.text(String.format("%.3f", zoneMaxima[zone] / 1_000_000.0));
+            }
+            ImGui.endTable();
+        }
+    }
+
+    //gpu results arrive a few frames late, the newest frame that has them is shown
+    private void showGpuZones(ProfilerFrame last) {
+        if (!profiler.isGpuTiming()) {
+            ImGui.textDisabled("GPU timing not supported");
+            return;
+        }
+        ProfilerFrame frame = null;
+        for (int f = profiler.getFrameCount() - 1; f >= 0 && frame == null; f--) {
+            if (profiler.getFrame(f).hasGpuTimes()) {
+                frame = profiler.getFrame(f);
+            }
+        }
+        if (frame == null) {
+            return;
+        }
+        ImGui.text("GPU (frame " + frame.getNumber() + ", " + (last.getNumber() - frame.getNumber()) + " behind)");
+        for (int i = 0; i < frame.getGpuZoneCount(); i++) {
+            ImGui.setCursorPosX(ImGui.getCursorPosX() + frame.getGpuDepth(i) * INDENT);
+            ImGui.text(String.format("%s %.3f ms", profiler.getZoneName(frame.getGpuZone(i)), frame.getGpuZoneNanos(i) / 1_000_000.0));
+        }
+    }
+
+    private void showCounters(ProfilerFrame frame) {
+        for (int c = 0; c < profiler.getCounterNameCount(); c++) {
+            ImGui.text(profiler.getCounterName(c) + ": " + frame.getCounter(c));
+        }
+    }
+
+    private void exportTrace() {
+        File file = new File(traceDirectory, "trace-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".json");
+        try {
+            ChromeTrace.write(profiler, file);
+            exportStatus = "Exported " + profiler.getFrameCount() + " frames to " + file.getPath();
+        } catch (IOException e) {
+            e.printStackTrace();
+            exportStatus = "Export failed: " + e.getMessage();
+        }
+    }
+}
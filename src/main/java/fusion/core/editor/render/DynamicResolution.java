@@ -0,0 +1,76 @@
+package fusion.core.editor.render;
+
+//Scales the drawn part of the viewport so the smoothed frame time stays close to the target
+public class DynamicResolution {
+
+    public static final float MIN_SCALE = 0.5f;
+    private static final float STEP = 0.05f;
+    //frames between two changes, a new scale needs a few frames before its cost shows up
+    private static final int SETTLE_FRAMES = 8;
+    //weight of the newest frame in the smoothed time
+    private static final double SMOOTHING = 0.1;
+    //the scale drops above OVER times the target and rises below UNDER times it
+    private static final double OVER = 1.05;
+    private static final double UNDER = 0.75;
+
+    private boolean enabled = false;
+    private long targetNanos = 16_666_667;
+    private float scale = 1;
+    private double averageNanos = 0;
+    private int settleFrames = 0;
+
+    //returns true when the scale changed
+    public boolean update(long frameNanos) {
+        if (!enabled || frameNanos <= 0) {
+            return false;
+        }
+        averageNanos = averageNanos == 0 ? frameNanos : averageNanos + (frameNanos - averageNanos) * SMOOTHING;
+        if (settleFrames > 0) {
+            settleFrames--;
+            return false;
+        }
+
+        float next = scale;
+        if (averageNanos > targetNanos * OVER) {
+            next = Math.max(MIN_SCALE, scale - STEP);
+        } else if (averageNanos < targetNanos * UNDER) {
+            next = Math.min(1, scale + STEP);
+        }
+        if (next == scale) {
+            return false;
+        }
+        scale = next;
+        settleFrames = SETTLE_FRAMES;
+        return true;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            scale = 1;
+        }
+        averageNanos = 0;
+        settleFrames = 0;
+    }
+
+    public long getTargetNanos() {
+        return targetNanos;
+    }
+
+    public void setTargetNanos(long targetNanos) {
+        this.targetNanos = targetNanos;
+    }
+
+    //part of each side of the framebuffer that is drawn, 1 when disabled
+    public float getScale() {
+        return enabled ? scale : 1;
+    }
+
+    public double getAverageNanos() {
+        return averageNanos;
+    }
+}
@@ -0,0 +1,115 @@
+package fusion.core.editor.render;
+
+import open.gl.Transform;
+import org.joml.Matrix4f;
+
+import java.util.Arrays;
+import java.util.List;
+
+//Model matrices of one mesh's instances, 16 floats each, with the dirty range that has to be uploaded
+public class InstanceBuffer {
+
+    public static final int FLOATS_PER_INSTANCE = 16;
+
+    private float[] data;
+    private int count = 0;
+
+    private int dirtyStart = Integer.MAX_VALUE;
+    private int dirtyEnd = -1;
+
+    private final Matrix4f matrix = new Matrix4f();
+    private final float[] packed = new float[FLOATS_PER_INSTANCE];
+
+    public InstanceBuffer() {
+        this(64);
+    }
+
+    public InstanceBuffer(int initialCapacity) {
+        data = new float[Math.max(1, initialCapacity) * FLOATS_PER_INSTANCE];
+    }
+
+    public void pack(List<? extends Transform> transforms) {
+        int newCount = transforms.size();
+        ensureCapacity(newCount);
+
+        for (int i = 0; i < newCount; i++) {
+            Transform transform = transforms.get(i);
+            matrix.translationRotateScale(transform.getPosition(), transform.getRotation(), transform.getScale());
+            set(i, matrix);
+        }
+
+        count = newCount;
+    }
+
+    public void set(int index, Matrix4f modelMatrix) {
+        ensureCapacity(index + 1);
+        modelMatrix.get(packed);
+
+        int offset = index * FLOATS_PER_INSTANCE;
+        boolean changed = index >= count;
+        for (int i = 0; i < FLOATS_PER_INSTANCE; i++) {
+            if (data[offset + i] != packed[i]) {
+                data[offset + i] = packed[i];
+                changed = true;
+            }
+        }
+
+        if (index >= count) {
+            count = index + 1;
+        }
+
+        if (changed) {
+            markDirty(index);
+        }
+    }
+
+    public void markDirty(int index) {
+        dirtyStart = Math.min(dirtyStart, index);
+        dirtyEnd = Math.max(dirtyEnd, index);
+    }
+
+    public void markAllDirty() {
+        if (count > 0) {
+            dirtyStart = 0;
+            dirtyEnd = count - 1;
+        }
+    }
+
+    private void ensureCapacity(int instances) {
+        if (instances * FLOATS_PER_INSTANCE > data.length) {
+            int newCapacity = Math.max(instances, (data.length / FLOATS_PER_INSTANCE) * 2);
+            data = Arrays.copyOf(data, newCapacity * FLOATS_PER_INSTANCE);
+        }
+    }
+
+    public boolean isDirty() {
+        return dirtyEnd >= dirtyStart && dirtyStart < count;
+    }
+
+    //first dirty instance, inclusive
+    public int getDirtyStart() {
+        return dirtyStart;
+    }
+
+    //last dirty instance, clamped to the current instance count
+    public int getDirtyEnd() {
+        return Math.min(dirtyEnd, count - 1);
+    }
+
+    public void clearDirty() {
+        dirtyStart = Integer.MAX_VALUE;
+        dirtyEnd = -1;
+    }
+
+    public float[] getData() {
+        return data;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int capacity() {
+        return data.length / FLOATS_PER_INSTANCE;
+    }
+}
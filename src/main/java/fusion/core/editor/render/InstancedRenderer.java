@@ -0,0 +1,161 @@
+package fusion.core.editor.render;
+
+import open.gl.OpenGlRenderer;
+import open.gl.WhileRendering;
+import open.gl.gameobject.Mesh;
+import open.gl.gameobject.MeshInstance;
+import open.gl.shaders.OpenGlShader;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+
+//Draws every instance of a mesh with one glDrawElementsInstanced call, uploading only the dirty range
+public class InstancedRenderer {
+
+    private static final int MATRIX_BYTES = InstanceBuffer.FLOATS_PER_INSTANCE * Float.BYTES;
+
+    private final Map<Mesh, Batch> batches = new HashMap<>();
+
+    private int uploadedInstances = 0;
+
+    public static boolean isSupported() {
+        GLCapabilities capabilities = GL.getCapabilities();
+        return capabilities.OpenGL33 || (capabilities.OpenGL31 && capabilities.GL_ARB_instanced_arrays);
+    }
+
+    public void render(OpenGlShader shader, Map<Mesh, List<MeshInstance>> instances, WhileRendering whileRendering) {
+        uploadedInstances = 0;
+
+        whileRendering.ShaderBeforeBind();
+        shader.bind();
+        whileRendering.ShaderAfterBind();
+
+        for (Map.Entry<Mesh, List<MeshInstance>> entry : instances.entrySet()) {
+            Mesh mesh = entry.getKey();
+            List<MeshInstance> meshInstances = entry.getValue();
+            if (meshInstances.isEmpty()) {
+                continue;
+            }
+
+            Batch batch = batches.computeIfAbsent(mesh, m -> new Batch(m.getModel().getIndices().length));
+            batch.buffer.pack(meshInstances);
+
+            whileRendering.MeshBeforeBind(mesh);
+            mesh.enable();
+            whileRendering.MeshAfterBind(mesh);
+
+            batch.upload();
+            batch.bindAttributes();
+
+            OpenGlRenderer.addDrawCall();
+            glDrawElementsInstanced(GL_TRIANGLES, batch.indexCount, GL_UNSIGNED_INT, 0, batch.buffer.size());
+
+            batch.unbindAttributes();
+
+            whileRendering.MeshBeforeUnbind(mesh);
+            mesh.disable();
+            whileRendering.MeshAfterUnbind(mesh);
+        }
+
+        whileRendering.ShaderBeforeUnbind();
+        OpenGlShader.unbind();
+        whileRendering.ShaderAfterUnbind();
+    }
+
+    //number of instances whose matrices were sent to the GPU during the last render call
+    public int getUploadedInstances() {
+        return uploadedInstances;
+    }
+
+    public void remove(Mesh mesh) {
+        Batch batch = batches.remove(mesh);
+        if (batch != null) {
+            batch.cleanup();
+        }
+    }
+
+    public void cleanup() {
+        for (Batch batch : batches.values()) {
+            batch.cleanup();
+        }
+        batches.clear();
+    }
+
+    private class Batch {
+        private final InstanceBuffer buffer = new InstanceBuffer();
+        private final int indexCount;
+        private final int vbo;
+
+        private int gpuCapacity = 0;
+        private FloatBuffer staging;
+
+        private Batch(int indexCount) {
+            this.indexCount = indexCount;
+            this.vbo = glGenBuffers();
+        }
+
+        private void upload() {
+            glBindBuffer(GL_ARRAY_BUFFER, vbo);
+
+            if (buffer.capacity() > gpuCapacity) {
+                //buffer grew, reallocate the gpu side once and send everything
+                gpuCapacity = buffer.capacity();
+                glBufferData(GL_ARRAY_BUFFER, (long) gpuCapacity * MATRIX_BYTES, GL_DYNAMIC_DRAW);
+                if (staging != null) {
+                    MemoryUtil.memFree(staging);
+                }
+                staging = MemoryUtil.memAllocFloat(gpuCapacity * InstanceBuffer.FLOATS_PER_INSTANCE);
+                buffer.markAllDirty();
+            }
+
+            if (buffer.isDirty()) {
+                int first = buffer.getDirtyStart();
+                int count = buffer.getDirtyEnd() - first + 1;
+
+                staging.clear();
+                staging.put(buffer.getData(), first * InstanceBuffer.FLOATS_PER_INSTANCE, count * InstanceBuffer.FLOATS_PER_INSTANCE);
+                staging.flip();
+                glBufferSubData(GL_ARRAY_BUFFER, (long) first * MATRIX_BYTES, staging);
+
+                uploadedInstances += count;
+                buffer.clearDirty();
+            }
+        }
+
+        private void bindAttributes() {
+            glBindBuffer(GL_ARRAY_BUFFER, vbo);
+            for (int i = 0; i < 4; i++) {
+                int location = InstancedShader.MODEL_ATTRIBUTE + i;
+                glEnableVertexAttribArray(location);
+                glVertexAttribPointer(location, 4, GL_FLOAT, false, MATRIX_BYTES, (long) i * 4 * Float.BYTES);
+                glVertexAttribDivisor(location, 1);
+            }
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+        }
+
+        private void unbindAttributes() {
+            for (int i = 0; i < 4; i++) {
+                glDisableVertexAttribArray(InstancedShader.MODEL_ATTRIBUTE + i);
+            }
+        }
+
+        private void cleanup() {
+            glDeleteBuffers(vbo);
+            if (staging != null) {
+                MemoryUtil.memFree(staging);
+                staging = null;
+            }
+        }
+    }
+}
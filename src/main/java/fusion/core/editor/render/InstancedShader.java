@@ -0,0 +1,18 @@
+package fusion.core.editor.render;
+
+import open.gl.shaders.OpenGlShader;
+
+public class InstancedShader extends OpenGlShader {
+
+    public static final int MODEL_ATTRIBUTE = 3;
+
+    public InstancedShader(String vertexFile, String fragmentFile) {
+        super(vertexFile, fragmentFile);
+        bindAttribLocation(0, "aPos");
+        bindAttribLocation(1, "aTexCoord");
+        bindAttribLocation(2, "aNormal");
+        //mat4 attribute, occupies MODEL_ATTRIBUTE to MODEL_ATTRIBUTE + 3
+        bindAttribLocation(MODEL_ATTRIBUTE, "aModel");
+        linkAndValidate();
+    }
+}
@@ -0,0 +1,108 @@
+package fusion.core.editor.render;
+
+import open.gl.FrameBuffer;
+
+import static org.lwjgl.opengl.GL11.glViewport;
+
+//The viewport's framebuffer, reallocated once the panel size stopped changing for RESIZE_DELAY.
+//The scene may only fill its lower left part, getU and getV are that part's far corner
+public class RenderTarget {
+
+    //how long a new size has to stay the same before the framebuffer is recreated
+    private static final long RESIZE_DELAY = 150_000_000;
+
+    private FrameBuffer frameBuffer;
+    private int width;
+    private int height;
+
+    private int requestedWidth;
+    private int requestedHeight;
+    private long requestedAt;
+
+    private int renderWidth;
+    private int renderHeight;
+
+    public RenderTarget(int width, int height) {
+        allocate(width, height);
+        requestedWidth = width;
+        requestedHeight = height;
+    }
+
+    //returns true when the framebuffer was recreated, its contents are gone and it has to be drawn again
+    public boolean resize(int width, int height) {
+        width = Math.max(1, width);
+        height = Math.max(1, height);
+        long now = System.nanoTime();
+        if (width != requestedWidth || height != requestedHeight) {
+            requestedWidth = width;
+            requestedHeight = height;
+            requestedAt = now;
+        }
+        if (!isResizing() || now - requestedAt < RESIZE_DELAY) {
+            return false;
+        }
+        //FrameBuffer.updateSize keeps the old texture size, a new one is simpler than fixing it up
+        frameBuffer.cleanup();
+        allocate(requestedWidth, requestedHeight);
+        return true;
+    }
+
+    private void allocate(int width, int height) {
+        frameBuffer = new FrameBuffer(width, height, false);
+        this.width = width;
+        this.height = height;
+        renderWidth = width;
+        renderHeight = height;
+    }
+
+    //scale is the part of each side that is drawn, 1 uses the whole framebuffer
+    public void bind(float scale) {
+        renderWidth = Math.max(1, Math.min(width, Math.round(width * scale)));
+        renderHeight = Math.max(1, Math.min(height, Math.round(height * scale)));
+        frameBuffer.bind();
+        if (renderWidth != width || renderHeight != height) {
+            glViewport(0, 0, renderWidth, renderHeight);
+        }
+    }
+
+    public void unbind() {
+        frameBuffer.unbind();
+    }
+
+    //a size was requested that the framebuffer does not have yet
+    public boolean isResizing() {
+        return requestedWidth != width || requestedHeight != height;
+    }
+
+    public int getTextureId() {
+        return frameBuffer.getTextureId();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getRenderWidth() {
+        return renderWidth;
+    }
+
+    public int getRenderHeight() {
+        return renderHeight;
+    }
+
+    public float getU() {
+        return renderWidth / (float) width;
+    }
+
+    public float getV() {
+        return renderHeight / (float) height;
+    }
+
+    public void cleanup() {
+        frameBuffer.cleanup();
+    }
+}
@@ -0,0 +1,131 @@
+package fusion.core.editor.render;
+
+import open.gl.shaders.OpenGlShader;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+
+//Uniform handles of a shader with the last value sent through each so unchanged uploads are skipped,
+//call invalidate after anything else wrote to them
+public class ShaderUniforms {
+
+    private final OpenGlShader shader;
+
+    private int[] locations = new int[8];
+    private float[][] values = new float[8][];
+    private int count = 0;
+
+    private final float[] matrix = new float[16];
+
+    private int uploads = 0;
+    private int skipped = 0;
+
+    public ShaderUniforms(OpenGlShader shader) {
+        this.shader = shader;
+    }
+
+    //resolve a uniform name, call this while setting up, not every frame
+    public int handle(String name) {
+        if (count == locations.length) {
+            locations = Arrays.copyOf(locations, count * 2);
+            values = Arrays.copyOf(values, count * 2);
+        }
+        locations[count] = shader.getUniformLocation(name);
+        return count++;
+    }
+
+    public int location(int handle) {
+        return locations[handle];
+    }
+
+    public void loadInt(int handle, int value) {
+        float[] last = last(handle, 1);
+        if (last == null || last[0] != value) {
+            store(handle, 1)[0] = value;
+            OpenGlShader.loadInt(locations[handle], value);
+            uploads++;
+        } else {
+            skipped++;
+        }
+    }
+
+    public void loadFloat(int handle, float value) {
+        float[] last = last(handle, 1);
+        if (last == null || last[0] != value) {
+            store(handle, 1)[0] = value;
+            OpenGlShader.loadFloat(locations[handle], value);
+            uploads++;
+        } else {
+            skipped++;
+        }
+    }
+
+    public void loadVector3f(int handle, Vector3f value) {
+        float[] last = last(handle, 3);
+        if (last == null || last[0] != value.x || last[1] != value.y || last[2] != value.z) {
+            float[] stored = store(handle, 3);
+            stored[0] = value.x;
+            stored[1] = value.y;
+            stored[2] = value.z;
+            OpenGlShader.loadVector3f(locations[handle], value);
+            uploads++;
+        } else {
+            skipped++;
+        }
+    }
+
+    public void loadMatrix4f(int handle, Matrix4f value) {
+        value.get(matrix);
+        float[] last = last(handle, 16);
+        if (last == null || !Arrays.equals(last, matrix)) {
+            System.arraycopy(matrix, 0, store(handle, 16), 0, 16);
+            OpenGlShader.loadMatrix4f(locations[handle], value);
+            uploads++;
+        } else {
+            skipped++;
+        }
+    }
+
+    //uploads without comparing, for values that change on every call such as per instance model matrices
+    public void uploadMatrix4f(int handle, Matrix4f value) {
+        values[handle] = null;
+        OpenGlShader.loadMatrix4f(locations[handle], value);
+        uploads++;
+    }
+
+    private float[] last(int handle, int size) {
+        float[] last = values[handle];
+        return last != null && last.length == size ? last : null;
+    }
+
+    private float[] store(int handle, int size) {
+        float[] stored = values[handle];
+        if (stored == null || stored.length != size) {
+            stored = new float[size];
+            values[handle] = stored;
+        }
+        return stored;
+    }
+
+    public void invalidate() {
+        Arrays.fill(values, null);
+    }
+
+    public void resetCounters() {
+        uploads = 0;
+        skipped = 0;
+    }
+
+    public int getUploads() {
+        return uploads;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public OpenGlShader getShader() {
+        return shader;
+    }
+}
@@ -0,0 +1,401 @@
+package fusion.core.editor.render;
+
+import open.gl.FrameBuffer;
+import open.gl.gameobject.Mesh;
+import open.gl.gameobject.MeshInstance;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Cascaded shadow maps for the directional light, each slice of the view frustum gets a texel snapped
+//light matrix. plan decides per cascade whether its cached map is kept, patched or drawn again
+public class ShadowCascades {
+
+    public static final int MAX_CASCADES = 4;
+
+    //texel budgets of the quality presets, shared by all cascades
+    public static final long LOW_QUALITY = 1L << 20;
+    public static final long MEDIUM_QUALITY = 4L << 20;
+    public static final long HIGH_QUALITY = 12L << 20;
+
+    private static final int MIN_SIZE = 256;
+    private static final int MAX_SIZE = 4096;
+    //blend between logarithmic and uniform splits, 1 is fully logarithmic
+    private static final float SPLIT_LAMBDA = 0.75f;
+    //how far behind a slice, towards the light, casters are still drawn
+    private static final float CASTER_RANGE = 200f;
+    //changes covering more of a map than this redraw all of it
+    private static final float PATCH_LIMIT = 0.5f;
+    //texels added around a patch, the shaders filter over the neighbouring texels
+    private static final int PATCH_MARGIN = 2;
+
+    //what a cascade needs this frame
+    public static final int REUSE = 0;
+    public static final int PATCH = 1;
+    public static final int REDRAW = 2;
+
+    public static class Cascade {
+        private final Matrix4f matrix = new Matrix4f();
+        private final Matrix4f drawnMatrix = new Matrix4f();
+        private final Vector3f direction = new Vector3f(Float.NaN, Float.NaN, Float.NaN);
+        private final Matrix4f patchMatrix = new Matrix4f();
+        private final int[] patch = new int[4];
+        private int update = REDRAW;
+        private final Map<Mesh, List<MeshInstance>> casters = new HashMap<>();
+        private FrameBuffer frameBuffer;
+        private int size;
+        private float far;
+        private long drawnVersion = -1;
+
+        //projection * view of the light for this slice
+        public Matrix4f getMatrix() {
+            return matrix;
+        }
+
+        //filled by the caller with the instances inside the matrix volume, kept between frames
+        public Map<Mesh, List<MeshInstance>> getCasters() {
+            return casters;
+        }
+
+        public FrameBuffer getFrameBuffer() {
+            return frameBuffer;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        //view space distance the slice ends at
+        public float getFar() {
+            return far;
+        }
+
+        //REUSE, PATCH or REDRAW, decided by plan
+        public int getUpdate() {
+            return update;
+        }
+
+        //matrix around the patched rectangle only, for culling the casters of a patch
+        public Matrix4f getPatchMatrix() {
+            return patchMatrix;
+        }
+
+        //x, y, width and height of the patched rectangle in texels
+        public int[] getPatch() {
+            return patch;
+        }
+
+        public void drawn(long sceneVersion) {
+            drawnVersion = sceneVersion;
+            drawnMatrix.set(matrix);
+        }
+
+        public void invalidate() {
+            drawnVersion = -1;
+        }
+    }
+
+    private final Cascade[] cascades = new Cascade[MAX_CASCADES];
+    private int count;
+    private long texelBudget;
+    private float shadowDistance;
+    private boolean caching = true;
+
+    private int redrawn, patched, reused;
+    private long redrawnTotal, patchedTotal, reusedTotal;
+
+    private final Matrix4f slice = new Matrix4f();
+    private final Matrix4f lightRotation = new Matrix4f();
+    private final Vector3f corner = new Vector3f();
+    private final Vector3f sphereCenter = new Vector3f();
+    private final Vector3f up = new Vector3f();
+    private final Vector3f boxCorner = new Vector3f();
+    private final Matrix4f crop = new Matrix4f();
+
+    public ShadowCascades(int count, long texelBudget, float shadowDistance) {
+        for (int i = 0; i < MAX_CASCADES; i++) {
+            cascades[i] = new Cascade();
+        }
+        this.shadowDistance = shadowDistance;
+        this.texelBudget = texelBudget;
+        setCount(count);
+    }
+
+    public void setCount(int count) {
+        this.count = Math.max(1, Math.min(MAX_CASCADES, count));
+        allocate();
+    }
+
+    public void setTexelBudget(long texelBudget) {
+        if (this.texelBudget != texelBudget) {
+            this.texelBudget = texelBudget;
+            allocate();
+        }
+    }
+
+    public void setShadowDistance(float shadowDistance) {
+        this.shadowDistance = shadowDistance;
+    }
+
+    //without caching every cascade is drawn again every frame
+    public void setCaching(boolean caching) {
+        this.caching = caching;
+        invalidate();
+    }
+
+    public boolean isCaching() {
+        return caching;
+    }
+
+    //largest power of two base size whose maps all fit into the budget
+    private static int baseSize(int count, long texelBudget) {
+        int base = MAX_SIZE;
+        while (base > MIN_SIZE && texels(count, base) > texelBudget) {
+            base >>= 1;
+        }
+        return base;
+    }
+
+    private static long texels(int count, int base) {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            long size = cascadeSize(count, base, i);
+            total += size * size;
+        }
+        return total;
+    }
+
+    private static int cascadeSize(int count, int base, int index) {
+        return Math.max(MIN_SIZE, index < (count + 1) / 2 ? base : base / 2);
+    }
+
+    //creates the maps that changed size, unused cascades give their maps back
+    private void allocate() {
+        int base = baseSize(count, texelBudget);
+        for (int i = 0; i < MAX_CASCADES; i++) {
+            Cascade cascade = cascades[i];
+            int size = i < count ? cascadeSize(count, base, i) : 0;
+            if (cascade.size == size) {
+                continue;
+            }
+            if (cascade.frameBuffer != null) {
+                cascade.frameBuffer.cleanup();
+                cascade.frameBuffer = null;
+            }
+            if (size > 0) {
+                cascade.frameBuffer = new FrameBuffer(size, size, false);
+            }
+            cascade.size = size;
+            cascade.casters.clear();
+            cascade.invalidate();
+        }
+    }
+
+    //fits every cascade around its slice of the frustum, lightDirection points towards the light
+    public void update(Matrix4f projection, Matrix4f view, Vector3f lightDirection) {
+        float near = projection.perspectiveNear();
+        float far = Math.min(shadowDistance, projection.perspectiveFar());
+
+        boolean lightTaken = false;
+        float sliceNear = near;
+        for (int i = 0; i < count; i++) {
+            Cascade cascade = cascades[i];
+            //a cascade without a map takes the light right away, the rest one per frame, nearest first
+            if (!cascade.direction.equals(lightDirection) && (!caching || cascade.drawnVersion < 0 || !lightTaken)) {
+                lightTaken |= cascade.drawnVersion >= 0;
+                cascade.direction.set(lightDirection);
+            }
+            cascade.far = split(near, far, i + 1);
+            fit(cascade, projection, view, sliceNear, cascade.far);
+            sliceNear = cascade.far;
+        }
+    }
+
+    //decides what every cascade needs this frame, after update. changedBounds is min xyz, max xyz around
+    //everything that changed or null when unknown
+    public void plan(long sceneVersion, float[] changedBounds) {
+        redrawn = 0;
+        patched = 0;
+        reused = 0;
+        for (int i = 0; i < count; i++) {
+            Cascade cascade = cascades[i];
+            if (!caching || cascade.drawnVersion < 0 || !cascade.drawnMatrix.equals(cascade.matrix)) {
+                cascade.update = REDRAW;
+            } else if (cascade.drawnVersion == sceneVersion) {
+                cascade.update = REUSE;
+            } else if (changedBounds == null) {
+                cascade.update = REDRAW;
+            } else {
+                cascade.update = planPatch(cascade, changedBounds);
+                if (cascade.update == REUSE) {
+                    //nothing that changed is inside this cascade
+                    cascade.drawn(sceneVersion);
+                }
+            }
+
+            if (cascade.update == REDRAW) {
+                redrawn++;
+            } else if (cascade.update == PATCH) {
+                patched++;
+            } else {
+                reused++;
+            }
+        }
+        redrawnTotal += redrawn;
+        patchedTotal += patched;
+        reusedTotal += reused;
+    }
+
+    //projects the changed box into the map, small enough rectangles are patched
+    private int planPatch(Cascade cascade, float[] bounds) {
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
+        for (int i = 0; i < 8; i++) {
+            boxCorner.set(bounds[(i & 1) == 0 ? 0 : 3], bounds[(i & 2) == 0 ? 1 : 4], bounds[(i & 4) == 0 ? 2 : 5]);
+            //orthographic, no divide needed
+            cascade.matrix.transformPosition(boxCorner);
+            minX = Math.min(minX, boxCorner.x);
+            minY = Math.min(minY, boxCorner.y);
+            minZ = Math.min(minZ, boxCorner.z);
+            maxX = Math.max(maxX, boxCorner.x);
+            maxY = Math.max(maxY, boxCorner.y);
+            maxZ = Math.max(maxZ, boxCorner.z);
+        }
+        if (maxX < -1 || minX > 1 || maxY < -1 || minY > 1 || maxZ < -1 || minZ > 1) {
+            return REUSE;
+        }
+
+        int size = cascade.size;
+        int x0 = Math.max(0, (int) Math.floor((minX + 1) * 0.5f * size) - PATCH_MARGIN);
+        int y0 = Math.max(0, (int) Math.floor((minY + 1) * 0.5f * size) - PATCH_MARGIN);
+        int x1 = Math.min(size, (int) Math.ceil((maxX + 1) * 0.5f * size) + PATCH_MARGIN);
+        int y1 = Math.min(size, (int) Math.ceil((maxY + 1) * 0.5f * size) + PATCH_MARGIN);
+        if ((float) (x1 - x0) * (y1 - y0) > PATCH_LIMIT * size * size) {
+            return REDRAW;
+        }
+        cascade.patch[0] = x0;
+        cascade.patch[1] = y0;
+        cascade.patch[2] = x1 - x0;
+        cascade.patch[3] = y1 - y0;
+
+        //maps the rectangle onto the whole clip space so culling only finds casters inside it
+        float left = x0 * 2f / size - 1, right = x1 * 2f / size - 1;
+        float bottom = y0 * 2f / size - 1, top = y1 * 2f / size - 1;
+        crop.scaling(2 / (right - left), 2 / (top - bottom), 1)
+                .translate(-(left + right) / 2, -(bottom + top) / 2, 0);
+        crop.mul(cascade.matrix, cascade.patchMatrix);
+        return PATCH;
+    }
+
+    //practical split scheme, the end of slice index out of count
+    private float split(float near, float far, int index) {
+        float ratio = (float) index / count;
+        float logarithmic = near * (float) Math.pow(far / near, ratio);
+        float uniform = near + (far - near) * ratio;
+        return SPLIT_LAMBDA * logarithmic + (1 - SPLIT_LAMBDA) * uniform;
+    }
+
+    private void fit(Cascade cascade, Matrix4f projection, Matrix4f view, float near, float far) {
+        Vector3f direction = cascade.direction;
+        if (Math.abs(direction.y) < 0.999f) {
+            up.set(0, 1, 0);
+        } else {
+            up.set(1, 0, 0);
+        }
+        lightRotation.setLookAlong(-direction.x, -direction.y, -direction.z, up.x, up.y, up.z);
+
+        projection.perspectiveFrustumSlice(near, far, slice).mul(view);
+
+        sphereCenter.zero();
+        for (int i = 0; i < 8; i++) {
+            sphereCenter.add(slice.frustumCorner(i, corner));
+        }
+        sphereCenter.div(8);
+        float radius = 0;
+        for (int i = 0; i < 8; i++) {
+            radius = Math.max(radius, slice.frustumCorner(i, corner).distance(sphereCenter));
+        }
+        //the sphere only depends on the slice, rounding keeps float noise out of the matrix
+        radius = (float) Math.ceil(radius * 16) / 16;
+
+        //moves the centre in whole texels of the light's view so edges do not shimmer while the camera moves
+        float texel = radius * 2 / cascade.size;
+        lightRotation.transformPosition(sphereCenter);
+        sphereCenter.x = (float) Math.floor(sphereCenter.x / texel) * texel;
+        sphereCenter.y = (float) Math.floor(sphereCenter.y / texel) * texel;
+        sphereCenter.z = (float) Math.floor(sphereCenter.z / texel) * texel;
+
+        cascade.matrix.setOrtho(sphereCenter.x - radius, sphereCenter.x + radius, sphereCenter.y - radius, sphereCenter.y + radius,
+                -sphereCenter.z - radius - CASTER_RANGE, -sphereCenter.z + radius).mul(lightRotation);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public Cascade get(int index) {
+        return cascades[index];
+    }
+
+    public long getTexelBudget() {
+        return texelBudget;
+    }
+
+    public float getShadowDistance() {
+        return shadowDistance;
+    }
+
+    //cascades redrawn, patched and kept by the last plan
+    public int getRedrawn() {
+        return redrawn;
+    }
+
+    public int getPatched() {
+        return patched;
+    }
+
+    public int getReused() {
+        return reused;
+    }
+
+    //the same since the editor started
+    public long getRedrawnTotal() {
+        return redrawnTotal;
+    }
+
+    public long getPatchedTotal() {
+        return patchedTotal;
+    }
+
+    public long getReusedTotal() {
+        return reusedTotal;
+    }
+
+    //texels of all maps in use
+    public long getTexels() {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += (long) cascades[i].size * cascades[i].size;
+        }
+        return total;
+    }
+
+    public void invalidate() {
+        for (Cascade cascade : cascades) {
+            cascade.invalidate();
+        }
+    }
+
+    public void cleanup() {
+        for (Cascade cascade : cascades) {
+            if (cascade.frameBuffer != null) {
+                cascade.frameBuffer.cleanup();
+                cascade.frameBuffer = null;
+            }
+            cascade.size = 0;
+        }
+    }
+}
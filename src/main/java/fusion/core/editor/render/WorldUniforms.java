@@ -0,0 +1,110 @@
+package fusion.core.editor.render;
+
+import open.gl.shaders.OpenGlShader;
+import open.gl.shaders.lights.DirLight;
+import open.gl.shaders.lights.PointLight;
+
+//Handles for the uniforms of the lit world shaders, shared by the regular and the instanced variant
+public class WorldUniforms extends ShaderUniforms {
+
+    public final int projection;
+    public final int view;
+    public final int model;
+    public final int viewPos;
+    public final int lightSpaceMatrix;
+    public final int shadowMap;
+    public final int gamma;
+
+    //cascaded shadows, only the instanced shader has these
+    public final int[] lightSpaceMatrices = new int[ShadowCascades.MAX_CASCADES];
+    public final int[] shadowMaps = new int[ShadowCascades.MAX_CASCADES];
+    public final int[] cascadeFar = new int[ShadowCascades.MAX_CASCADES];
+    public final int cascadeCount;
+
+    public final int lightPosition;
+    public final int lightAmbient;
+    public final int lightDiffuse;
+    public final int lightSpecular;
+    public final int lightConstant;
+    public final int lightLinear;
+    public final int lightQuadratic;
+
+    public final int dirDirection;
+    public final int dirAmbient;
+    public final int dirDiffuse;
+    public final int dirSpecular;
+
+    public final int materialDiffuse;
+    public final int materialSpecular;
+    public final int materialShininess;
+
+    public WorldUniforms(OpenGlShader shader) {
+        super(shader);
+        projection = handle("projection");
+        view = handle("view");
+        model = handle("model");
+        viewPos = handle("viewPos");
+        lightSpaceMatrix = handle("lightSpaceMatrix");
+        shadowMap = handle("shadowMap");
+        gamma = handle("gamma");
+
+        for (int i = 0; i < ShadowCascades.MAX_CASCADES; i++) {
+            lightSpaceMatrices[i] = handle("lightSpaceMatrices[" + i + "]");
+            shadowMaps[i] = handle("shadowMaps[" + i + "]");
+            cascadeFar[i] = handle("cascadeFar[" + i + "]");
+        }
+        cascadeCount = handle("cascadeCount");
+
+        lightPosition = handle("light.position");
+        lightAmbient = handle("light.ambient");
+        lightDiffuse = handle("light.diffuse");
+        lightSpecular = handle("light.specular");
+        lightConstant = handle("light.constant");
+        lightLinear = handle("light.linear");
+        lightQuadratic = handle("light.quadratic");
+
+        dirDirection = handle("dirLight.direction");
+        dirAmbient = handle("dirLight.ambient");
+        dirDiffuse = handle("dirLight.diffuse");
+        dirSpecular = handle("dirLight.specular");
+
+        materialDiffuse = handle("material.diffuse");
+        materialSpecular = handle("material.specular");
+        materialShininess = handle("material.shininess");
+    }
+
+    public void loadPointLight(PointLight light) {
+        loadVector3f(lightPosition, light.position);
+        loadVector3f(lightAmbient, light.ambient);
+        loadVector3f(lightDiffuse, light.diffuse);
+        loadVector3f(lightSpecular, light.specular);
+        loadFloat(lightConstant, light.constant);
+        loadFloat(lightLinear, light.linear);
+        loadFloat(lightQuadratic, light.quadratic);
+    }
+
+    //the maps have to be bound to consecutive texture units starting at firstUnit, unused slots point at the first
+    public void loadCascades(ShadowCascades cascades, int firstUnit) {
+        loadInt(cascadeCount, cascades.getCount());
+        for (int i = 0; i < ShadowCascades.MAX_CASCADES; i++) {
+            if (i < cascades.getCount()) {
+                ShadowCascades.Cascade cascade = cascades.get(i);
+                loadMatrix4f(lightSpaceMatrices[i], cascade.getMatrix());
+                loadFloat(cascadeFar[i], cascade.getFar());
+                loadInt(shadowMaps[i], firstUnit + i);
+            } else {
+                loadInt(shadowMaps[i], firstUnit);
+            }
+        }
+        //the single map path of the regular world shader
+        loadMatrix4f(lightSpaceMatrix, cascades.get(0).getMatrix());
+        loadInt(shadowMap, firstUnit);
+    }
+
+    public void loadDirLight(DirLight light) {
+        loadVector3f(dirDirection, light.direction);
+        loadVector3f(dirAmbient, light.ambient);
+        loadVector3f(dirDiffuse, light.diffuse);
+        loadVector3f(dirSpecular, light.specular);
+    }
+}
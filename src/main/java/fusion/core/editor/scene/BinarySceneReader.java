@@ -0,0 +1,80 @@
+package fusion.core.editor.scene;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static fusion.core.editor.scene.BinarySceneWriter.*;
+
+//Reads the chunked binary form one chunk at a time, see BinarySceneWriter for the layout
+public class BinarySceneReader {
+
+    public static void read(ReadableByteChannel channel, SceneFile.Listener listener) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(8).order(ORDER);
+        readFully(channel, header);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a scene file");
+        }
+        int version = header.getInt();
+        if (version > VERSION) {
+            throw new IOException("Scene was saved by a newer editor (version " + version + ")");
+        }
+
+        ByteBuffer payload = ByteBuffer.allocateDirect(4 + SceneBatch.CAPACITY * OBJECT_SIZE).order(ORDER);
+        SceneBatch batch = new SceneBatch();
+        while (true) {
+            header.clear();
+            readFully(channel, header);
+            int tag = header.getInt();
+            int length = header.getInt();
+            if (tag == END) {
+                return;
+            }
+            if (length < 0) {
+                throw new IOException("Corrupt scene chunk");
+            }
+            if (payload.capacity() < length) {
+                payload = ByteBuffer.allocateDirect(length).order(ORDER);
+            }
+            payload.clear().limit(length);
+            readFully(channel, payload);
+
+            //unknown chunks are skipped so newer files still open
+            if (tag == MESH) {
+                int id = payload.getInt();
+                int index = payload.getInt();
+                byte[] bytes = new byte[payload.getInt()];
+                payload.get(bytes);
+                listener.mesh(id, new String(bytes, StandardCharsets.UTF_8), index);
+            } else if (tag == OBJECTS) {
+                readObjects(payload, batch);
+                listener.objects(batch);
+            }
+        }
+    }
+
+    private static void readObjects(ByteBuffer payload, SceneBatch batch) throws IOException {
+        int count = payload.getInt();
+        if (count < 0 || count > SceneBatch.CAPACITY || payload.remaining() != count * OBJECT_SIZE) {
+            throw new IOException("Corrupt object chunk");
+        }
+        batch.clear();
+        payload.asIntBuffer().get(batch.meshes, 0, count);
+        payload.position(payload.position() + count * 4);
+        payload.asFloatBuffer().get(batch.transforms, 0, count * SceneBatch.TRANSFORM_STRIDE);
+        payload.position(payload.position() + count * SceneBatch.TRANSFORM_STRIDE * 4);
+        payload.asFloatBuffer().get(batch.masses, 0, count);
+        batch.count = count;
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Scene file is truncated");
+            }
+        }
+        buffer.flip();
+    }
+}
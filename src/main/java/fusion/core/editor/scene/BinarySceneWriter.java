@@ -0,0 +1,74 @@
+package fusion.core.editor.scene;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+//Chunked binary form: a magic and version, then chunks of tag, length and payload. Unknown tags are skipped
+public class BinarySceneWriter extends SceneWriter {
+
+    static final int MAGIC = 0x46435343; //FCSC
+    static final int VERSION = 1;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int MESH = 0x4853454d; //MESH
+    static final int OBJECTS = 0x534a424f; //OBJS
+    static final int END = 0x20444e45; //END
+
+    //objects are stored column by column so each column is a single bulk copy
+    static final int OBJECT_SIZE = 4 + SceneBatch.TRANSFORM_STRIDE * 4 + 4;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(8 + 4 + SceneBatch.CAPACITY * OBJECT_SIZE).order(ORDER);
+
+    public BinarySceneWriter(WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        buffer.clear();
+        buffer.putInt(MAGIC).putInt(VERSION);
+        write();
+    }
+
+    @Override
+    protected void writeMesh(int id, String path, int index) throws IOException {
+        byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+        buffer.clear();
+        buffer.putInt(MESH).putInt(12 + bytes.length);
+        buffer.putInt(id).putInt(index).putInt(bytes.length).put(bytes);
+        write();
+    }
+
+    @Override
+    protected void writeBatch(SceneBatch batch) throws IOException {
+        int count = batch.size();
+        buffer.clear();
+        buffer.putInt(OBJECTS).putInt(4 + count * OBJECT_SIZE).putInt(count);
+        buffer.asIntBuffer().put(batch.meshes, 0, count);
+        buffer.position(buffer.position() + count * 4);
+        buffer.asFloatBuffer().put(batch.transforms, 0, count * SceneBatch.TRANSFORM_STRIDE);
+        buffer.position(buffer.position() + count * SceneBatch.TRANSFORM_STRIDE * 4);
+        buffer.asFloatBuffer().put(batch.masses, 0, count);
+        buffer.position(buffer.position() + count * 4);
+        write();
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        buffer.clear();
+        buffer.putInt(END).putInt(0);
+        write();
+    }
+
+    @Override
+    protected void closeOutput() throws IOException {
+        channel.close();
+    }
+
+    private void write() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package fusion.core.editor.scene;
+
+import org.joml.FrustumIntersection;
+
+import java.util.Arrays;
+
+//Incrementally updated BVH. Leaves hold fat boxes so small moves do not touch the tree, nodes live in
+//flat arrays recycled through a free list
+public class DynamicAabbTree<T> {
+
+    public static final int NULL = -1;
+
+    public interface Visitor<T> {
+        void visit(T object);
+    }
+
+    public interface RayVisitor<T> {
+        //returns the distance of the closest hit on the object, or maxDistance when the ray misses it
+        float hit(T object, float maxDistance);
+    }
+
+    private final float margin;
+
+    private int capacity;
+    private float[] bounds; //minX, minY, minZ, maxX, maxY, maxZ per node
+    private int[] parent;
+    private int[] child1;
+    private int[] child2;
+    private int[] height;
+    private Object[] objects;
+
+    private int root = NULL;
+    private int freeList;
+    private int nodeCount = 0;
+    private int leafCount = 0;
+
+    private int[] stack = new int[64];
+
+    public DynamicAabbTree() {
+        this(0.1f);
+    }
+
+    public DynamicAabbTree(float margin) {
+        this.margin = margin;
+        allocate(16);
+    }
+
+    private void allocate(int newCapacity) {
+        int oldCapacity = capacity;
+        capacity = newCapacity;
+        bounds = bounds == null ? new float[newCapacity * 6] : Arrays.copyOf(bounds, newCapacity * 6);
+        parent = parent == null ? new int[newCapacity] : Arrays.copyOf(parent, newCapacity);
+        child1 = child1 == null ? new int[newCapacity] : Arrays.copyOf(child1, newCapacity);
+        child2 = child2 == null ? new int[newCapacity] : Arrays.copyOf(child2, newCapacity);
+        height = height == null ? new int[newCapacity] : Arrays.copyOf(height, newCapacity);
+        objects = objects == null ? new Object[newCapacity] : Arrays.copyOf(objects, newCapacity);
+
+        //link the new nodes into the free list
+        for (int i = oldCapacity; i < newCapacity - 1; i++) {
+            parent[i] = i + 1;
+            height[i] = -1;
+        }
+        parent[newCapacity - 1] = NULL;
+        height[newCapacity - 1] = -1;
+        freeList = oldCapacity;
+    }
+
+    private int allocateNode() {
+        if (freeList == NULL) {
+            allocate(capacity * 2);
+        }
+        int node = freeList;
+        freeList = parent[node];
+        parent[node] = NULL;
+        child1[node] = NULL;
+        child2[node] = NULL;
+        height[node] = 0;
+        objects[node] = null;
+        nodeCount++;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        parent[node] = freeList;
+        height[node] = -1;
+        objects[node] = null;
+        freeList = node;
+        nodeCount--;
+    }
+
+    public int createProxy(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, T object) {
+        int proxy = allocateNode();
+        setFatBounds(proxy, minX, minY, minZ, maxX, maxY, maxZ);
+        objects[proxy] = object;
+        insertLeaf(proxy);
+        leafCount++;
+        return proxy;
+    }
+
+    public void destroyProxy(int proxy) {
+        removeLeaf(proxy);
+        freeNode(proxy);
+        leafCount--;
+    }
+
+    //returns true when the proxy had to be reinserted
+    public boolean moveProxy(int proxy, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        int b = proxy * 6;
+        if (bounds[b] <= minX && bounds[b + 1] <= minY && bounds[b + 2] <= minZ
+                && bounds[b + 3] >= maxX && bounds[b + 4] >= maxY && bounds[b + 5] >= maxZ) {
+            return false;
+        }
+
+        removeLeaf(proxy);
+        setFatBounds(proxy, minX, minY, minZ, maxX, maxY, maxZ);
+        insertLeaf(proxy);
+        return true;
+    }
+
+    private void setFatBounds(int node, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        int b = node * 6;
+        bounds[b] = minX - margin;
+        bounds[b + 1] = minY - margin;
+        bounds[b + 2] = minZ - margin;
+        bounds[b + 3] = maxX + margin;
+        bounds[b + 4] = maxY + margin;
+        bounds[b + 5] = maxZ + margin;
+    }
+
+    //the enlarged box the tree keeps for the proxy, written as min xyz, max xyz
+    public void getFatBounds(int proxy, float[] dest) {
+        System.arraycopy(bounds, proxy * 6, dest, 0, 6);
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getObject(int proxy) {
+        return (T) objects[proxy];
+    }
+
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parent[root] = NULL;
+            return;
+        }
+
+        //walk down picking the child that costs the least surface area
+        int index = root;
+        while (child1[index] != NULL) {
+            int c1 = child1[index];
+            int c2 = child2[index];
+
+            float area = area(index);
+            float combinedArea = combinedArea(index, leaf);
+
+            float cost = 2.0f * combinedArea;
+            float inheritanceCost = 2.0f * (combinedArea - area);
+
+            float cost1 = descendCost(c1, leaf) + inheritanceCost;
+            float cost2 = descendCost(c2, leaf) + inheritanceCost;
+
+            if (cost < cost1 && cost < cost2) {
+                break;
+            }
+            index = cost1 < cost2 ? c1 : c2;
+        }
+
+        int sibling = index;
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        height[newParent] = height[sibling] + 1;
+        combine(newParent, sibling, leaf);
+
+        if (oldParent != NULL) {
+            if (child1[oldParent] == sibling) {
+                child1[oldParent] = newParent;
+            } else {
+                child2[oldParent] = newParent;
+            }
+        } else {
+            root = newParent;
+        }
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+
+        refit(parent[leaf]);
+    }
+
+    private float descendCost(int child, int leaf) {
+        float combined = combinedArea(child, leaf);
+        if (child1[child] == NULL) {
+            return combined;
+        }
+        return combined - area(child);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+
+        int p = parent[leaf];
+        int grandParent = parent[p];
+        int sibling = child1[p] == leaf ? child2[p] : child1[p];
+
+        if (grandParent != NULL) {
+            if (child1[grandParent] == p) {
+                child1[grandParent] = sibling;
+            } else {
+                child2[grandParent] = sibling;
+            }
+            parent[sibling] = grandParent;
+            freeNode(p);
+            refit(grandParent);
+        } else {
+            root = sibling;
+            parent[sibling] = NULL;
+            freeNode(p);
+        }
+    }
+
+    private void refit(int index) {
+        while (index != NULL) {
+            index = balance(index);
+
+            int c1 = child1[index];
+            int c2 = child2[index];
+            height[index] = 1 + Math.max(height[c1], height[c2]);
+            combine(index, c1, c2);
+
+            index = parent[index];
+        }
+    }
+
+    //rotates the subtree at a when one side is more than one level deeper, returns the new subtree root
+    private int balance(int a) {
+        if (child1[a] == NULL || height[a] < 2) {
+            return a;
+        }
+
+        int b = child1[a];
+        int c = child2[a];
+        int difference = height[c] - height[b];
+
+        if (difference > 1) {
+            return rotate(a, c, b);
+        }
+        if (difference < -1) {
+            return rotate(a, b, c);
+        }
+        return a;
+    }
+
+    //promotes the deeper child "up" above a, "other" is a's remaining child
+    private int rotate(int a, int up, int other) {
+        int f = child1[up];
+        int g = child2[up];
+
+        child1[up] = a;
+        parent[up] = parent[a];
+        parent[a] = up;
+
+        if (parent[up] != NULL) {
+            if (child1[parent[up]] == a) {
+                child1[parent[up]] = up;
+            } else {
+                child2[parent[up]] = up;
+            }
+        } else {
+            root = up;
+        }
+
+        //keep the taller grandchild under up, hand the shorter one to a
+        int keep = height[f] > height[g] ? f : g;
+        int give = keep == f ? g : f;
+
+        child2[up] = keep;
+        if (child1[a] == up) {
+            child1[a] = give;
+        } else {
+            child2[a] = give;
+        }
+        parent[give] = a;
+
+        combine(a, other, give);
+        combine(up, a, keep);
+        height[a] = 1 + Math.max(height[other], height[give]);
+        height[up] = 1 + Math.max(height[a], height[keep]);
+
+        return up;
+    }
+
+    private void combine(int target, int a, int b) {
+        int t = target * 6, ia = a * 6, ib = b * 6;
+        bounds[t] = Math.min(bounds[ia], bounds[ib]);
+        bounds[t + 1] = Math.min(bounds[ia + 1], bounds[ib + 1]);
+        bounds[t + 2] = Math.min(bounds[ia + 2], bounds[ib + 2]);
+        bounds[t + 3] = Math.max(bounds[ia + 3], bounds[ib + 3]);
+        bounds[t + 4] = Math.max(bounds[ia + 4], bounds[ib + 4]);
+        bounds[t + 5] = Math.max(bounds[ia + 5], bounds[ib + 5]);
+    }
+
+    private float area(int node) {
+        int b = node * 6;
+        float x = bounds[b + 3] - bounds[b];
+        float y = bounds[b + 4] - bounds[b + 1];
+        float z = bounds[b + 5] - bounds[b + 2];
+        return x * y + y * z + z * x;
+    }
+
+    private float combinedArea(int a, int b) {
+        int ia = a * 6, ib = b * 6;
+        float x = Math.max(bounds[ia + 3], bounds[ib + 3]) - Math.min(bounds[ia], bounds[ib]);
+        float y = Math.max(bounds[ia + 4], bounds[ib + 4]) - Math.min(bounds[ia + 1], bounds[ib + 1]);
+        float z = Math.max(bounds[ia + 5], bounds[ib + 5]) - Math.min(bounds[ia + 2], bounds[ib + 2]);
+        return x * y + y * z + z * x;
+    }
+
+    //visits every object whose box is inside or crossing the frustum
+    public void query(FrustumIntersection frustum, Visitor<T> visitor) {
+        if (root == NULL) {
+            return;
+        }
+
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            int b = node * 6;
+            int result = frustum.intersectAab(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3], bounds[b + 4], bounds[b + 5]);
+            //outside is reported as the index of the rejecting plane
+            if (result != FrustumIntersection.INSIDE && result != FrustumIntersection.INTERSECT) {
+                continue;
+            }
+
+            if (result == FrustumIntersection.INSIDE) {
+                top = visitAll(node, top, visitor);
+                continue;
+            }
+
+            if (child1[node] == NULL) {
+                visitor.visit(getObject(node));
+            } else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+    }
+
+    //the whole subtree is visible, report its leaves without testing them, uses the stack above top
+    private int visitAll(int node, int top, Visitor<T> visitor) {
+        int base = top;
+        top = push(top, node);
+        while (top > base) {
+            int current = stack[--top];
+            if (child1[current] == NULL) {
+                visitor.visit(getObject(current));
+            } else {
+                top = push(top, child1[current]);
+                top = push(top, child2[current]);
+            }
+        }
+        return base;
+    }
+
+    //visits every object whose box overlaps the given box
+    public void query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, Visitor<T> visitor) {
+        if (root == NULL) {
+            return;
+        }
+
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            int b = node * 6;
+            if (bounds[b] > maxX || bounds[b + 1] > maxY || bounds[b + 2] > maxZ
+                    || bounds[b + 3] < minX || bounds[b + 4] < minY || bounds[b + 5] < minZ) {
+                continue;
+            }
+
+            if (child1[node] == NULL) {
+                visitor.visit(getObject(node));
+            } else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+    }
+
+    //walks the leaves whose boxes the ray passes through, the visitor can shorten the ray to skip farther subtrees
+    public float raycast(float originX, float originY, float originZ, float dirX, float dirY, float dirZ, float maxDistance, RayVisitor<T> visitor) {
+        if (root == NULL) {
+            return maxDistance;
+        }
+
+        float invX = 1.0f / dirX;
+        float invY = 1.0f / dirY;
+        float invZ = 1.0f / dirZ;
+
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            int b = node * 6;
+
+            float t1 = (bounds[b] - originX) * invX;
+            float t2 = (bounds[b + 3] - originX) * invX;
+            float near = Math.min(t1, t2);
+            float far = Math.max(t1, t2);
+
+            t1 = (bounds[b + 1] - originY) * invY;
+            t2 = (bounds[b + 4] - originY) * invY;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+
+            t1 = (bounds[b + 2] - originZ) * invZ;
+            t2 = (bounds[b + 5] - originZ) * invZ;
+            near = Math.max(near, Math.min(t1, t2));
+            far = Math.min(far, Math.max(t1, t2));
+
+            if (far < Math.max(near, 0.0f) || near > maxDistance) {
+                continue;
+            }
+
+            if (child1[node] == NULL) {
+                maxDistance = visitor.hit(getObject(node), maxDistance);
+            } else {
+                top = push(top, child1[node]);
+                top = push(top, child2[node]);
+            }
+        }
+        return maxDistance;
+    }
+
+    private int push(int top, int node) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[top] = node;
+        return top + 1;
+    }
+
+    public int getHeight() {
+        return root == NULL ? 0 : height[root];
+    }
+
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public void clear() {
+        root = NULL;
+        nodeCount = 0;
+        leafCount = 0;
+        capacity = 0;
+        bounds = null;
+        parent = null;
+        child1 = null;
+        child2 = null;
+        height = null;
+        objects = null;
+        allocate(16);
+    }
+}
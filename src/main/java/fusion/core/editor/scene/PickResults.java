@@ -0,0 +1,24 @@
+package fusion.core.editor.scene;
+
+import open.gl.gameobject.MeshInstance;
+import open.gl.physics.HitResults;
+import org.joml.Vector3f;
+
+//HitResults filled by the Picker, also carries the instance that was hit and where
+public class PickResults extends HitResults {
+
+    public MeshInstance hitInstance;
+    public float distance = Float.POSITIVE_INFINITY;
+    public final Vector3f hitPoint = new Vector3f();
+
+    public boolean hasHit() {
+        return hitInstance != null;
+    }
+
+    public void reset() {
+        hitComponent = null;
+        hitInstance = null;
+        distance = Float.POSITIVE_INFINITY;
+        hitPoint.zero();
+    }
+}
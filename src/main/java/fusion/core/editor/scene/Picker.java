@@ -0,0 +1,204 @@
+package fusion.core.editor.scene;
+
+import open.gl.Model;
+import open.gl.gameobject.Mesh;
+import open.gl.gameobject.MeshInstance;
+import open.gl.gameobject.PhysicsComponent;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Picking without the physics world, against the culler's boxes first and then the triangles of the hits
+public class Picker {
+
+    private static final float EPSILON = 1e-7f;
+
+    private final SceneCuller culler;
+    private final Map<MeshInstance, PhysicsComponent> owners = new IdentityHashMap<>();
+
+    private final Matrix4f inverseViewProjection = new Matrix4f();
+    private final Matrix4f inverseModel = new Matrix4f();
+    private final Matrix4f boxViewProjection = new Matrix4f();
+    private final Map<Mesh, List<MeshInstance>> boxed = new IdentityHashMap<>();
+    private final Vector3f near = new Vector3f();
+    private final Vector3f far = new Vector3f();
+    private final Vector3f cursorDirection = new Vector3f();
+    private final Vector3f rayOrigin = new Vector3f();
+    private final Vector3f rayDirection = new Vector3f();
+    private final Vector3f localOrigin = new Vector3f();
+    private final Vector3f localDirection = new Vector3f();
+
+    private MeshInstance closest;
+    private final DynamicAabbTree.RayVisitor<MeshInstance> refine = this::intersectInstance;
+
+    public Picker(SceneCuller culler) {
+        this.culler = culler;
+    }
+
+    //component reported when the instance is picked, instances without one are still pickable
+    public void setOwner(MeshInstance instance, PhysicsComponent component) {
+        owners.put(instance, component);
+    }
+
+    public void removeOwner(MeshInstance instance) {
+        owners.remove(instance);
+    }
+
+    public void clearOwners() {
+        owners.clear();
+    }
+
+    public boolean cursorPick(double cursorX, double cursorY, int width, int height, Matrix4f projection, Matrix4f view, PickResults results) {
+        float ndcX = (float) (2.0 * cursorX / width - 1.0);
+        float ndcY = (float) (1.0 - 2.0 * cursorY / height);
+
+        projection.mul(view, inverseViewProjection).invert();
+        inverseViewProjection.transformProject(ndcX, ndcY, -1.0f, near);
+        inverseViewProjection.transformProject(ndcX, ndcY, 1.0f, far);
+
+        far.sub(near, cursorDirection);
+        float length = cursorDirection.length();
+        cursorDirection.div(length);
+
+        return pick(near, cursorDirection, length, results);
+    }
+
+    //components whose boxes are at least partly inside the rectangle, culled as a narrower frustum
+    public int boxPick(double startX, double startY, double endX, double endY, int width, int height, Matrix4f projection, Matrix4f view, List<PhysicsComponent> results) {
+        float left = (float) (2.0 * Math.min(startX, endX) / width - 1.0);
+        float right = (float) (2.0 * Math.max(startX, endX) / width - 1.0);
+        float bottom = (float) (1.0 - 2.0 * Math.max(startY, endY) / height);
+        float top = (float) (1.0 - 2.0 * Math.min(startY, endY) / height);
+        if (right - left < EPSILON || top - bottom < EPSILON) {
+            return 0;
+        }
+
+        //maps the rectangle onto the whole clip space, everything outside it ends up outside the frustum
+        boxViewProjection.identity()
+                .translate(-(right + left) / (right - left), -(top + bottom) / (top - bottom), 0)
+                .scale(2.0f / (right - left), 2.0f / (top - bottom), 1)
+                .mul(projection).mul(view);
+        culler.cull(boxViewProjection, boxed);
+
+        int found = 0;
+        for (List<MeshInstance> list : boxed.values()) {
+            for (int i = 0; i < list.size(); i++) {
+                PhysicsComponent component = owners.get(list.get(i));
+                if (component != null) {
+                    results.add(component);
+                    found++;
+                }
+            }
+            list.clear();
+        }
+        return found;
+    }
+
+    public boolean pick(Vector3f origin, Vector3f direction, float maxDistance, PickResults results) {
+        results.reset();
+        rayOrigin.set(origin);
+        rayDirection.set(direction);
+
+        closest = null;
+        float distance = culler.getTree().raycast(rayOrigin.x, rayOrigin.y, rayOrigin.z,
+                rayDirection.x, rayDirection.y, rayDirection.z, maxDistance, refine);
+
+        if (closest != null) {
+            results.hitInstance = closest;
+            results.hitComponent = owners.get(closest);
+            results.distance = distance;
+            rayDirection.mul(distance, results.hitPoint).add(rayOrigin);
+            closest = null;
+            return true;
+        }
+        return false;
+    }
+
+    private float intersectInstance(MeshInstance instance, float maxDistance) {
+        //move the ray into mesh space instead of moving every vertex, an affine map keeps the ray parameter t unchanged
+        inverseModel.translationRotateScale(instance.getPosition(), instance.getRotation(), instance.getScale()).invertAffine();
+        inverseModel.transformPosition(rayOrigin, localOrigin);
+        inverseModel.transformDirection(rayDirection, localDirection);
+
+        float hit = intersectTriangles(instance.getMesh().getModel(), localOrigin, localDirection, maxDistance);
+        if (hit < maxDistance) {
+            closest = instance;
+            return hit;
+        }
+        return maxDistance;
+    }
+
+    public static float intersectTriangles(Model model, Vector3f o, Vector3f d, float maxDistance) {
+        float[] v = model.getVertices();
+        int[] indices = model.getIndices();
+        int triangles = indices != null && indices.length > 0 ? indices.length / 3 : v.length / 9;
+
+        float best = maxDistance;
+        for (int t = 0; t < triangles; t++) {
+            int i0, i1, i2;
+            if (indices != null && indices.length > 0) {
+                i0 = indices[t * 3] * 3;
+                i1 = indices[t * 3 + 1] * 3;
+                i2 = indices[t * 3 + 2] * 3;
+            } else {
+                i0 = t * 9;
+                i1 = i0 + 3;
+                i2 = i0 + 6;
+            }
+
+            //Moller-Trumbore, both faces count as a hit
+            float e1x = v[i1] - v[i0], e1y = v[i1 + 1] - v[i0 + 1], e1z = v[i1 + 2] - v[i0 + 2];
+            float e2x = v[i2] - v[i0], e2y = v[i2 + 1] - v[i0 + 1], e2z = v[i2 + 2] - v[i0 + 2];
+
+            float px = d.y * e2z - d.z * e2y;
+            float py = d.z * e2x - d.x * e2z;
+            float pz = d.x * e2y - d.y * e2x;
+            float det = e1x * px + e1y * py + e1z * pz;
+            if (Math.abs(det) < EPSILON) {
+                continue;
+            }
+            float invDet = 1.0f / det;
+
+            float sx = o.x - v[i0], sy = o.y - v[i0 + 1], sz = o.z - v[i0 + 2];
+            float u = (sx * px + sy * py + sz * pz) * invDet;
+            if (u < 0.0f || u > 1.0f) {
+                continue;
+            }
+
+            float qx = sy * e1z - sz * e1y;
+            float qy = sz * e1x - sx * e1z;
+            float qz = sx * e1y - sy * e1x;
+            float w = (d.x * qx + d.y * qy + d.z * qz) * invDet;
+            if (w < 0.0f || u + w > 1.0f) {
+                continue;
+            }
+
+            float distance = (e2x * qx + e2y * qy + e2z * qz) * invDet;
+            if (distance >= 0.0f && distance < best) {
+                best = distance;
+            }
+        }
+        return best;
+    }
+
+    //the point 5 units from the camera under the cursor, the scratch matrices and vector are overwritten
+    public static Vector3f getMouseRay(float mouseX, float mouseY, int width, int height, Matrix4f projection, Matrix4f view, Vector3f cameraPosition,
+                                       Matrix4f inverseProjection, Matrix4f inverseView, Vector4f ray, Vector3f dest) {
+        float normalizedX = (2.0f * mouseX) / width - 1f;
+        float normalizedY = 1f - (2.0f * mouseY) / height;
+        ray.set(normalizedX, normalizedY, -1.0f, 1.0f);
+
+        projection.invert(inverseProjection).transform(ray);
+        ray.z = -1.0f;
+        ray.w = 0.0f;
+
+        view.invert(inverseView).transform(ray);
+        dest.set(ray.x, ray.y, ray.z).normalize();
+
+        return dest.mul(5f).add(cameraPosition);
+    }
+}
@@ -0,0 +1,98 @@
+package fusion.core.editor.scene;
+
+import open.gl.Transform;
+
+//A run of scene objects stored column by column: mesh id, position, rotation, scale and mass
+public class SceneBatch {
+
+    public static final int CAPACITY = 4096;
+    public static final int TRANSFORM_STRIDE = 10;
+
+    final int[] meshes = new int[CAPACITY];
+    final float[] transforms = new float[CAPACITY * TRANSFORM_STRIDE];
+    final float[] masses = new float[CAPACITY];
+    int count = 0;
+
+    //how many objects have been consumed, lets a batch be restored over several frames
+    private int next = 0;
+
+    public void add(int mesh, Transform transform, float mass) {
+        add(mesh, transform.getPosition().x, transform.getPosition().y, transform.getPosition().z,
+                transform.getRotation().x, transform.getRotation().y, transform.getRotation().z, transform.getRotation().w,
+                transform.getScale().x, transform.getScale().y, transform.getScale().z, mass);
+    }
+
+    public void add(int mesh, float px, float py, float pz, float rx, float ry, float rz, float rw, float sx, float sy, float sz, float mass) {
+        int offset = count * TRANSFORM_STRIDE;
+        transforms[offset] = px;
+        transforms[offset + 1] = py;
+        transforms[offset + 2] = pz;
+        transforms[offset + 3] = rx;
+        transforms[offset + 4] = ry;
+        transforms[offset + 5] = rz;
+        transforms[offset + 6] = rw;
+        transforms[offset + 7] = sx;
+        transforms[offset + 8] = sy;
+        transforms[offset + 9] = sz;
+        meshes[count] = mesh;
+        masses[count] = mass;
+        count++;
+    }
+
+    public void add(SceneBatch source, int index) {
+        System.arraycopy(source.transforms, index * TRANSFORM_STRIDE, transforms, count * TRANSFORM_STRIDE, TRANSFORM_STRIDE);
+        meshes[count] = source.meshes[index];
+        masses[count] = source.masses[index];
+        count++;
+    }
+
+    //copies the transform of an object into the instance
+    public void apply(int index, Transform transform) {
+        int offset = index * TRANSFORM_STRIDE;
+        transform.getPosition().set(transforms[offset], transforms[offset + 1], transforms[offset + 2]);
+        transform.getRotation().set(transforms[offset + 3], transforms[offset + 4], transforms[offset + 5], transforms[offset + 6]);
+        transform.getScale().set(transforms[offset + 7], transforms[offset + 8], transforms[offset + 9]);
+    }
+
+    public float getTransform(int index, int component) {
+        return transforms[index * TRANSFORM_STRIDE + component];
+    }
+
+    public int getMesh(int index) {
+        return meshes[index];
+    }
+
+    public float getMass(int index) {
+        return masses[index];
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isFull() {
+        return count == CAPACITY;
+    }
+
+    public int getNext() {
+        return next;
+    }
+
+    public void setNext(int next) {
+        this.next = next;
+    }
+
+    public void clear() {
+        count = 0;
+        next = 0;
+    }
+
+    public SceneBatch copy() {
+        SceneBatch copy = new SceneBatch();
+        System.arraycopy(meshes, 0, copy.meshes, 0, count);
+        System.arraycopy(transforms, 0, copy.transforms, 0, count * TRANSFORM_STRIDE);
+        System.arraycopy(masses, 0, copy.masses, 0, count);
+        copy.count = count;
+        return copy;
+    }
+}
@@ -0,0 +1,197 @@
+package fusion.core.editor.scene;
+
+import open.gl.Model;
+import open.gl.gameobject.Mesh;
+import open.gl.gameobject.MeshInstance;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Keeps every MeshInstance in a DynamicAabbTree and builds the visible instances per mesh,
+//instances have to be passed to update whenever their transform changes
+public class SceneCuller {
+
+    private final DynamicAabbTree<MeshInstance> tree = new DynamicAabbTree<>(0.5f);
+    private final Map<MeshInstance, Integer> proxies = new IdentityHashMap<>();
+    private final Map<Mesh, float[]> meshBounds = new HashMap<>();
+
+    public SceneCuller() {
+        clearChanges();
+    }
+
+    private final FrustumIntersection frustum = new FrustumIntersection();
+    private final Matrix4f viewProjection = new Matrix4f();
+    private final Matrix4f modelMatrix = new Matrix4f();
+    private final float[] worldBounds = new float[6];
+
+    //bumped by every change to the tree, lets passes tell whether anything moved since they last ran
+    private long version = 0;
+    //box around everything added, moved or removed since clearChanges, old and new places alike
+    private final float[] changedBounds = new float[6];
+    private final float[] oldBounds = new float[6];
+    private boolean everythingChanged = false;
+
+    private Map<Mesh, List<MeshInstance>> target;
+    private int visibleCount;
+    private final DynamicAabbTree.Visitor<MeshInstance> collector = instance -> {
+        List<MeshInstance> list = target.get(instance.getMesh());
+        if (list == null) {
+            list = new ArrayList<>();
+            target.put(instance.getMesh(), list);
+        }
+        list.add(instance);
+        visibleCount++;
+    };
+
+    public void add(MeshInstance instance) {
+        computeWorldBounds(instance);
+        int proxy = tree.createProxy(worldBounds[0], worldBounds[1], worldBounds[2], worldBounds[3], worldBounds[4], worldBounds[5], instance);
+        proxies.put(instance, proxy);
+        version++;
+        addChange(worldBounds);
+    }
+
+    public void update(MeshInstance instance) {
+        Integer proxy = proxies.get(instance);
+        if (proxy == null) {
+            add(instance);
+            return;
+        }
+        tree.getFatBounds(proxy, oldBounds);
+        addChange(oldBounds);
+        computeWorldBounds(instance);
+        tree.moveProxy(proxy, worldBounds[0], worldBounds[1], worldBounds[2], worldBounds[3], worldBounds[4], worldBounds[5]);
+        version++;
+        addChange(worldBounds);
+    }
+
+    public void remove(MeshInstance instance) {
+        Integer proxy = proxies.remove(instance);
+        if (proxy != null) {
+            tree.getFatBounds(proxy, oldBounds);
+            addChange(oldBounds);
+            tree.destroyProxy(proxy);
+            version++;
+        }
+    }
+
+    public void clear() {
+        tree.clear();
+        proxies.clear();
+        version++;
+        everythingChanged = true;
+    }
+
+    private void addChange(float[] bounds) {
+        for (int axis = 0; axis < 3; axis++) {
+            changedBounds[axis] = Math.min(changedBounds[axis], bounds[axis]);
+            changedBounds[axis + 3] = Math.max(changedBounds[axis + 3], bounds[axis + 3]);
+        }
+    }
+
+    //null when the changes can not be narrowed down, e.g. after a clear
+    public float[] getChangedBounds() {
+        return everythingChanged ? null : changedBounds;
+    }
+
+    public void clearChanges() {
+        changedBounds[0] = changedBounds[1] = changedBounds[2] = Float.MAX_VALUE;
+        changedBounds[3] = changedBounds[4] = changedBounds[5] = -Float.MAX_VALUE;
+        everythingChanged = false;
+    }
+
+    public boolean contains(MeshInstance instance) {
+        return proxies.containsKey(instance);
+    }
+
+    //fills visible with the instances inside the volume described by projection * view, returns how many were found
+    public int cull(Matrix4f projection, Matrix4f view, Map<Mesh, List<MeshInstance>> visible) {
+        return cull(projection.mul(view, viewProjection), visible);
+    }
+
+    public int cull(Matrix4f viewProjection, Map<Mesh, List<MeshInstance>> visible) {
+        //lists are kept between frames so culling does not allocate once they are big enough
+        for (List<MeshInstance> list : visible.values()) {
+            list.clear();
+        }
+
+        frustum.set(viewProjection, false);
+        target = visible;
+        visibleCount = 0;
+        tree.query(frustum, collector);
+        target = null;
+        return visibleCount;
+    }
+
+    private void computeWorldBounds(MeshInstance instance) {
+        float[] local = getMeshBounds(instance.getMesh());
+        modelMatrix.translationRotateScale(instance.getPosition(), instance.getRotation(), instance.getScale());
+        transformBounds(modelMatrix, local, worldBounds);
+    }
+
+    //transforms a local box by an affine matrix and returns the box around the result
+    public static void transformBounds(Matrix4f m, float[] local, float[] dest) {
+        for (int row = 0; row < 3; row++) {
+            float min = m.get(3, row);
+            float max = min;
+            for (int column = 0; column < 3; column++) {
+                float e = m.get(column, row);
+                float a = e * local[column];
+                float b = e * local[column + 3];
+                min += Math.min(a, b);
+                max += Math.max(a, b);
+            }
+            dest[row] = min;
+            dest[row + 3] = max;
+        }
+    }
+
+    private float[] getMeshBounds(Mesh mesh) {
+        float[] bounds = meshBounds.get(mesh);
+        if (bounds == null) {
+            bounds = computeBounds(mesh.getModel());
+            meshBounds.put(mesh, bounds);
+        }
+        return bounds;
+    }
+
+    //bounds computed ahead of time, e.g. read from a cooked mesh, in the same min xyz, max xyz layout
+    public void setMeshBounds(Mesh mesh, float[] bounds) {
+        meshBounds.put(mesh, bounds);
+    }
+
+    public static float[] computeBounds(Model model) {
+        return computeBounds(model.getVertices());
+    }
+
+    public static float[] computeBounds(float[] vertices) {
+        float[] bounds = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        for (int i = 0; i < vertices.length; i += 3) {
+            for (int axis = 0; axis < 3; axis++) {
+                bounds[axis] = Math.min(bounds[axis], vertices[i + axis]);
+                bounds[axis + 3] = Math.max(bounds[axis + 3], vertices[i + axis]);
+            }
+        }
+        if (vertices.length == 0) {
+            return new float[6];
+        }
+        return bounds;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return proxies.size();
+    }
+
+    public DynamicAabbTree<MeshInstance> getTree() {
+        return tree;
+    }
+}
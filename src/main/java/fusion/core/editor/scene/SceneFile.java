@@ -0,0 +1,49 @@
+package fusion.core.editor.scene;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+//Opens scene files, ".txt" files use the text form and everything else the binary one
+public class SceneFile {
+
+    public static final String EXTENSION = ".scene";
+    public static final String TEXT_EXTENSION = ".scene.txt";
+
+    //receives the contents of a scene while it is read, batches are reused and only valid during the call
+    public interface Listener {
+        void mesh(int id, String path, int index);
+
+        void objects(SceneBatch batch);
+    }
+
+    public static boolean isText(File file) {
+        return file.getName().endsWith(".txt");
+    }
+
+    public static SceneWriter openWriter(File file) throws IOException {
+        if (isText(file)) {
+            BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+            return new TextSceneWriter(writer);
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new BinarySceneWriter(channel);
+    }
+
+    public static void read(File file, Listener listener) throws IOException {
+        if (isText(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                TextSceneReader.read(reader, listener);
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            BinarySceneReader.read(channel, listener);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package fusion.core.editor.scene;
+
+import fusion.core.editor.assets.AssetManager;
+import open.gl.gameobject.Mesh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+//Reads a scene file on its own thread and hands it to the render thread batch by batch, only a few
+//batches are queued at a time. Objects wait in the queue until their mesh is loaded
+public class SceneLoader {
+
+    private static final int QUEUED_BATCHES = 8;
+
+    private final File file;
+    private final AssetManager assets;
+    private final BlockingQueue<SceneBatch> batches = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+    private final Map<Integer, MeshReference> meshes = new ConcurrentHashMap<>();
+    private final Thread reader;
+
+    private volatile boolean cancelled = false;
+    private volatile boolean finished = false;
+    private volatile Exception error;
+
+    //render thread only
+    private SceneBatch current;
+    private final long startNanos = System.nanoTime();
+
+    public SceneLoader(File file, AssetManager assets) {
+        this.file = file.getAbsoluteFile();
+        this.assets = assets;
+        reader = new Thread(this::read, "Scene Loader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void read() {
+        try {
+            SceneFile.read(file, new SceneFile.Listener() {
+                @Override
+                public void mesh(int id, String path, int index) {
+                    File meshFile = new File(path);
+                    if (!meshFile.isAbsolute()) {
+                        meshFile = new File(file.getParentFile(), path);
+                    }
+                    meshes.put(id, new MeshReference(assets.loadMeshes(meshFile.getPath()), index));
+                }
+
+                @Override
+                public void objects(SceneBatch batch) {
+                    queue(batch.copy());
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            if (!cancelled) {
+                error = e;
+            }
+        } finally {
+            finished = true;
+        }
+    }
+
+    private void queue(SceneBatch batch) {
+        try {
+            while (!batches.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                if (cancelled) {
+                    throw new CancellationException();
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new CancellationException();
+        }
+    }
+
+    //the batch to continue restoring, null when nothing is queued right now
+    public SceneBatch next() {
+        if (current == null || current.getNext() >= current.size()) {
+            current = batches.poll();
+        }
+        return current;
+    }
+
+    //null while the mesh is still loading
+    public Mesh getMesh(int id) {
+        MeshReference reference = meshes.get(id);
+        if (reference == null || !reference.meshes.isDone() || reference.meshes.isCompletedExceptionally()) {
+            return null;
+        }
+        List<Mesh> loaded = reference.meshes.getNow(null);
+        return reference.index < loaded.size() ? loaded.get(reference.index) : null;
+    }
+
+    //the mesh failed to load or the file no longer has it, objects using it can not be restored
+    public boolean isMissing(int id) {
+        MeshReference reference = meshes.get(id);
+        if (reference == null || reference.meshes.isCompletedExceptionally()) {
+            return true;
+        }
+        List<Mesh> loaded = reference.meshes.getNow(null);
+        return loaded != null && reference.index >= loaded.size();
+    }
+
+    public boolean isDone() {
+        return finished && batches.isEmpty() && (current == null || current.getNext() >= current.size());
+    }
+
+    public Exception getError() {
+        return error;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        reader.interrupt();
+        batches.clear();
+        current = null;
+    }
+
+    private static final class MeshReference {
+        private final CompletableFuture<List<Mesh>> meshes;
+        private final int index;
+
+        private MeshReference(CompletableFuture<List<Mesh>> meshes, int index) {
+            this.meshes = meshes;
+            this.index = index;
+        }
+    }
+}
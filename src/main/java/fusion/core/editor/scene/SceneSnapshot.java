@@ -0,0 +1,95 @@
+package fusion.core.editor.scene;
+
+import open.gl.Transform;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+//Copy of every object's transform taken on the render thread, written from any thread
+public class SceneSnapshot {
+
+    //only one snapshot is written at a time, they may target the same file
+    private static final Object WRITE_LOCK = new Object();
+
+    private final List<String> meshPaths = new ArrayList<>();
+    private final List<Integer> meshIndices = new ArrayList<>();
+    private final List<SceneBatch> batches = new ArrayList<>();
+    private int size = 0;
+
+    //returns the id objects of this mesh are added with
+    public int addMesh(String path, int index) {
+        meshPaths.add(path);
+        meshIndices.add(index);
+        return meshPaths.size() - 1;
+    }
+
+    public void add(int mesh, Transform transform, float mass) {
+        if (batches.isEmpty() || batches.get(batches.size() - 1).isFull()) {
+            batches.add(new SceneBatch());
+        }
+        batches.get(batches.size() - 1).add(mesh, transform, mass);
+        size++;
+    }
+
+    //an object read from another scene, mesh is an id of this snapshot
+    public void add(int mesh, SceneBatch source, int index) {
+        if (batches.isEmpty() || batches.get(batches.size() - 1).isFull()) {
+            batches.add(new SceneBatch());
+        }
+        SceneBatch batch = batches.get(batches.size() - 1);
+        batch.add(source, index);
+        batch.meshes[batch.size() - 1] = mesh;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    //writes to a temporary file next to the target and moves it over, a crash never leaves half a scene behind
+    public void write(File file) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+
+        synchronized (WRITE_LOCK) {
+            File temporary = new File(directory, ".tmp-" + file.getName());
+            try (SceneWriter writer = SceneFile.openWriter(temporary)) {
+                //ids are handed out in order, so they match the ones the objects were captured with
+                for (int i = 0; i < meshPaths.size(); i++) {
+                    writer.mesh(relativePath(directory, meshPaths.get(i)), meshIndices.get(i));
+                }
+                for (SceneBatch batch : batches) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        writer.add(batch, i);
+                    }
+                }
+            } catch (IOException e) {
+                temporary.delete();
+                throw e;
+            }
+
+            try {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    //paths are stored relative to the scene so the project can be moved
+    private static String relativePath(File directory, String path) {
+        try {
+            return directory.toPath().relativize(new File(path).toPath()).toString().replace('\\', '/');
+        } catch (IllegalArgumentException e) {
+            //different drive, keep it absolute
+            return path;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package fusion.core.editor.scene;
+
+import open.gl.Transform;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+//Streams objects into a scene file one SceneBatch at a time
+public abstract class SceneWriter implements Closeable {
+
+    private final Map<String, Integer> meshIds = new HashMap<>();
+    private final SceneBatch batch = new SceneBatch();
+    private int objectCount = 0;
+
+    //id of a mesh, the index is the position of the mesh inside its model file, new meshes are written right away
+    public int mesh(String path, int index) throws IOException {
+        String key = index + ":" + path;
+        Integer id = meshIds.get(key);
+        if (id == null) {
+            id = meshIds.size();
+            meshIds.put(key, id);
+            writeMesh(id, path, index);
+        }
+        return id;
+    }
+
+    public void add(int mesh, Transform transform, float mass) throws IOException {
+        batch.add(mesh, transform, mass);
+        added();
+    }
+
+    //copies an object of another batch, its mesh id has to be valid for this writer
+    public void add(SceneBatch source, int index) throws IOException {
+        batch.add(source, index);
+        added();
+    }
+
+    private void added() throws IOException {
+        objectCount++;
+        if (batch.isFull()) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (batch.size() > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            finish();
+        } finally {
+            closeOutput();
+        }
+    }
+
+    public int getObjectCount() {
+        return objectCount;
+    }
+
+    protected abstract void writeMesh(int id, String path, int index) throws IOException;
+
+    protected abstract void writeBatch(SceneBatch batch) throws IOException;
+
+    protected abstract void finish() throws IOException;
+
+    protected abstract void closeOutput() throws IOException;
+}
@@ -0,0 +1,100 @@
+package fusion.core.editor.scene;
+
+import open.gl.gameobject.PhysicsComponent;
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//The selected components with constant time add, remove and lookup, the primary one is the last selected
+public class Selection {
+
+    private final List<PhysicsComponent> components = new ArrayList<>();
+    private final Map<PhysicsComponent, Integer> indices = new IdentityHashMap<>();
+    private final List<PhysicsComponent> listView = Collections.unmodifiableList(components);
+    private final Set<PhysicsComponent> setView = Collections.unmodifiableSet(indices.keySet());
+    private PhysicsComponent primary;
+
+    //false when it was already selected
+    public boolean add(PhysicsComponent component) {
+        if (indices.containsKey(component)) {
+            primary = component;
+            return false;
+        }
+        indices.put(component, components.size());
+        components.add(component);
+        primary = component;
+        return true;
+    }
+
+    public boolean remove(PhysicsComponent component) {
+        Integer removed = indices.remove(component);
+        if (removed == null) {
+            return false;
+        }
+        int index = removed;
+        int last = components.size() - 1;
+        if (index != last) {
+            PhysicsComponent moved = components.get(last);
+            components.set(index, moved);
+            indices.put(moved, index);
+        }
+        components.remove(last);
+        if (component == primary) {
+            primary = components.isEmpty() ? null : components.get(components.size() - 1);
+        }
+        return true;
+    }
+
+    public boolean contains(PhysicsComponent component) {
+        return indices.containsKey(component);
+    }
+
+    public PhysicsComponent get(int index) {
+        return components.get(index);
+    }
+
+    public int size() {
+        return components.size();
+    }
+
+    public boolean isEmpty() {
+        return components.isEmpty();
+    }
+
+    public PhysicsComponent getPrimary() {
+        return primary;
+    }
+
+    //both views are backed by the selection
+    public List<PhysicsComponent> asList() {
+        return listView;
+    }
+
+    //compares by identity
+    public Set<PhysicsComponent> asSet() {
+        return setView;
+    }
+
+    //average position of the selected instances, the pivot multi object edits rotate and scale around
+    public Vector3f getCenter(Vector3f dest) {
+        dest.zero();
+        if (components.isEmpty()) {
+            return dest;
+        }
+        for (PhysicsComponent component : components) {
+            dest.add(component.getInstance().getPosition());
+        }
+        return dest.div(components.size());
+    }
+
+    public void clear() {
+        components.clear();
+        indices.clear();
+        primary = null;
+    }
+}
@@ -0,0 +1,56 @@
+package fusion.core.editor.scene;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+//Reads the text form line by line, handing objects on in batches the same way the binary reader does
+public class TextSceneReader {
+
+    public static void read(BufferedReader reader, SceneFile.Listener listener) throws IOException {
+        String header = reader.readLine();
+        if (header == null || !header.startsWith(TextSceneWriter.HEADER + " ")) {
+            throw new IOException("Not a scene file");
+        }
+
+        SceneBatch batch = new SceneBatch();
+        float[] values = new float[SceneBatch.TRANSFORM_STRIDE + 1];
+        String line;
+        int lineNumber = 1;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                if (line.startsWith("object ")) {
+                    String[] parts = line.split(" ");
+                    if (parts.length != values.length + 2) {
+                        throw new IOException("Expected " + (values.length + 1) + " values");
+                    }
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = Float.parseFloat(parts[i + 2]);
+                    }
+                    batch.add(Integer.parseInt(parts[1]), values[0], values[1], values[2], values[3], values[4], values[5], values[6], values[7], values[8], values[9], values[10]);
+                    if (batch.isFull()) {
+                        listener.objects(batch);
+                        batch.clear();
+                    }
+                } else if (line.startsWith("mesh ")) {
+                    //the path is the rest of the line and may contain spaces
+                    String[] parts = line.split(" ", 4);
+                    if (parts.length != 4) {
+                        throw new IOException("Expected an id, an index and a path");
+                    }
+                    listener.mesh(Integer.parseInt(parts[1]), parts[3], Integer.parseInt(parts[2]));
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+            } catch (IOException e) {
+                throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        if (batch.size() > 0) {
+            listener.objects(batch);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package fusion.core.editor.scene;
+
+import java.io.IOException;
+import java.io.Writer;
+
+//Text form, one line per mesh or object so scenes diff like code:
+//  scene 1
+//  mesh <id> <index> <path>
+//  object <mesh> <px py pz> <rx ry rz rw> <sx sy sz> <mass>
+public class TextSceneWriter extends SceneWriter {
+
+    static final String HEADER = "scene";
+    static final int VERSION = 1;
+
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(128);
+
+    public TextSceneWriter(Writer writer) throws IOException {
+        this.writer = writer;
+        writer.write(HEADER + " " + VERSION + "\n");
+    }
+
+    @Override
+    protected void writeMesh(int id, String path, int index) throws IOException {
+        writer.write("mesh " + id + " " + index + " " + path + "\n");
+    }
+
+    @Override
+    protected void writeBatch(SceneBatch batch) throws IOException {
+        for (int i = 0; i < batch.size(); i++) {
+            line.setLength(0);
+            line.append("object ").append(batch.getMesh(i));
+            for (int component = 0; component < SceneBatch.TRANSFORM_STRIDE; component++) {
+                //Float.toString round trips exactly
+                line.append(' ').append(batch.getTransform(i, component));
+            }
+            line.append(' ').append(batch.getMass(i)).append('\n');
+            writer.append(line);
+        }
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    protected void closeOutput() throws IOException {
+        writer.close();
+    }
+}
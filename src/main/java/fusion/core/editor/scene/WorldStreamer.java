@@ -0,0 +1,536 @@
+package fusion.core.editor.scene;
+
+import fusion.core.editor.assets.AssetManager;
+import open.gl.gameobject.Component;
+import open.gl.gameobject.Mesh;
+import open.gl.gameobject.MeshInstance;
+import open.gl.gameobject.PhysicsComponent;
+import org.joml.Vector3f;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//Keeps the part of a world around the camera in the scene. The world is a folder with one scene file per
+//CELL_SIZE cell, cells are loaded within the load radius and unloaded past it plus HYSTERESIS. Changed cells
+//are written back on the "World Writer" thread, objects moved over a border change cell
+public class WorldStreamer {
+
+    public static final float CELL_SIZE = 64f;
+    //an instance, its rigid body and shape reference and its culling proxy
+    public static final long OBJECT_BYTES = 1024;
+    //how much further than the load radius a cell has to be before it is unloaded
+    private static final float HYSTERESIS = CELL_SIZE;
+    //cells read at the same time, each has its own reader thread
+    private static final int MAX_LOADING = 2;
+
+    private static final Pattern CELL_NAME = Pattern.compile("cell_(-?\\d+)_(-?\\d+)" + Pattern.quote(SceneFile.EXTENSION));
+
+    //what the streamer adds to and takes from, the scene the editor shows
+    public interface Target {
+        //called with the physics lock held
+        PhysicsComponent restore(SceneBatch batch, int index, Mesh mesh);
+
+        void remove(List<PhysicsComponent> components);
+
+        SceneSnapshot capture(List<PhysicsComponent> components);
+    }
+
+    private static final int UNLOADED = 0;
+    private static final int LOADING = 1;
+    private static final int LOADED = 2;
+
+    private static final class Cell {
+        private final int x;
+        private final int z;
+        private final File file;
+        private int state = UNLOADED;
+        private SceneLoader loader;
+        private final List<PhysicsComponent> components = new ArrayList<>();
+        //objects the cell had when it was last loaded, what it is expected to cost next time
+        private int objectCount = 0;
+        //objects whose mesh could not be loaded, writing the cell back would lose them
+        private int skipped = 0;
+        //objects taken from the file so far, restored or skipped, the rest is only on disk
+        private int read = 0;
+        private boolean changed = false;
+        private CompletableFuture<Void> writing = CompletableFuture.completedFuture(null);
+        private float distance;
+
+        private Cell(int x, int z, File file) {
+            this.x = x;
+            this.z = z;
+            this.file = file;
+        }
+    }
+
+    private final File directory;
+    private final AssetManager assets;
+    private final Object physicsLock;
+    private final Target target;
+
+    private final Map<Long, Cell> cells = new HashMap<>();
+    private final Map<MeshInstance, Cell> owners = new IdentityHashMap<>();
+    private final List<Cell> order = new ArrayList<>();
+    private final ExecutorService writer;
+
+    private float loadRadius = 256f;
+    private long memoryBudget = 256L << 20;
+    private int loadedCount = 0;
+    private int loadingCount = 0;
+    private long residentObjects = 0;
+    //objects with missing meshes in the loaded cells, those cells are never written back
+    private int skippedObjects = 0;
+    private boolean busy = false;
+
+    public WorldStreamer(File directory, AssetManager assets, Object physicsLock, Target target) {
+        this.directory = directory.getAbsoluteFile();
+        this.assets = assets;
+        this.physicsLock = physicsLock;
+        this.target = target;
+
+        File[] files = this.directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = CELL_NAME.matcher(file.getName());
+                if (matcher.matches()) {
+                    int x = Integer.parseInt(matcher.group(1));
+                    int z = Integer.parseInt(matcher.group(2));
+                    cells.put(key(x, z), new Cell(x, z, file));
+                }
+            }
+        }
+
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "World Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //loads and unloads cells around the camera and restores loaded objects until the budget is used up
+    public void update(Vector3f camera, long budgetNanos) {
+        long start = System.nanoTime();
+        busy = false;
+
+        order.clear();
+        for (Cell cell : cells.values()) {
+            cell.distance = distance(cell, camera.x, camera.z);
+            order.add(cell);
+        }
+        order.sort((a, b) -> Float.compare(a.distance, b.distance));
+
+        //far cells go first, the ones past the budget after them starting with the farthest
+        long budgetObjects = memoryBudget / OBJECT_BYTES;
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Cell cell = order.get(i);
+            if (cell.state == UNLOADED) {
+                continue;
+            }
+            boolean far = cell.distance > loadRadius + HYSTERESIS;
+            boolean overBudget = residentObjects > budgetObjects && i > 0;
+            if (far || overBudget) {
+                unload(cell);
+            }
+        }
+
+        for (Cell cell : order) {
+            if (cell.distance > loadRadius) {
+                break;
+            }
+            if (cell.state != UNLOADED) {
+                continue;
+            }
+            if (residentObjects + cell.objectCount > budgetObjects) {
+                //known to be too big, checked again once something else is unloaded
+                continue;
+            }
+            if (loadingCount >= MAX_LOADING || !cell.writing.isDone()) {
+                busy = true;
+                continue;
+            }
+            load(cell);
+        }
+
+        for (Cell cell : order) {
+            if (cell.state == LOADING) {
+                busy = true;
+                if (!restore(cell, start, budgetNanos)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void load(Cell cell) {
+        if (!cell.file.exists()) {
+            //was spawned into and left empty again
+            cell.state = LOADED;
+            loadedCount++;
+            return;
+        }
+        cell.loader = new SceneLoader(cell.file, assets);
+        cell.state = LOADING;
+        cell.skipped = 0;
+        cell.read = 0;
+        cell.changed = false;
+        loadingCount++;
+    }
+
+    //returns false once the budget is used up
+    private boolean restore(Cell cell, long start, long budgetNanos) {
+        SceneLoader loader = cell.loader;
+        SceneBatch batch;
+        while ((batch = loader.next()) != null) {
+            int i = batch.getNext();
+            boolean outOfTime = false;
+            synchronized (physicsLock) {
+                while (i < batch.size() && !outOfTime) {
+                    int meshId = batch.getMesh(i);
+                    Mesh mesh = loader.getMesh(meshId);
+                    if (mesh == null) {
+                        if (!loader.isMissing(meshId)) {
+                            //still loading, carry on once it is uploaded
+                            break;
+                        }
+                        cell.skipped++;
+                    } else {
+                        add(cell, target.restore(batch, i, mesh));
+                    }
+                    cell.read++;
+                    i++;
+                    outOfTime = (i & 63) == 0 && System.nanoTime() - start > budgetNanos;
+                }
+            }
+            batch.setNext(i);
+            if (outOfTime) {
+                return false;
+            }
+            if (i < batch.size()) {
+                //waiting for a mesh, the other loading cells can carry on
+                return true;
+            }
+        }
+
+        if (loader.isDone()) {
+            if (loader.getError() != null) {
+                loader.getError().printStackTrace();
+            }
+            skippedObjects += cell.skipped;
+            cell.loader = null;
+            cell.state = LOADED;
+            cell.objectCount = cell.components.size();
+            loadingCount--;
+            loadedCount++;
+        }
+        return System.nanoTime() - start <= budgetNanos;
+    }
+
+    private void unload(Cell cell) {
+        if (cell.state == LOADING) {
+            if (cell.changed) {
+                //writing a cell that is only partly restored would lose the rest, it is unloaded once complete
+                return;
+            }
+            cell.loader.cancel();
+            cell.loader = null;
+            loadingCount--;
+        } else {
+            loadedCount--;
+            skippedObjects -= cell.skipped;
+        }
+        write(cell);
+
+        for (PhysicsComponent component : cell.components) {
+            owners.remove(component.getInstance());
+        }
+        residentObjects -= cell.components.size();
+        if (!cell.components.isEmpty()) {
+            target.remove(cell.components);
+        }
+        cell.components.clear();
+        cell.state = UNLOADED;
+    }
+
+    //captures a changed cell and hands it to the writer, a cell left empty removes its file
+    private void write(Cell cell) {
+        if (!cell.changed || cell.skipped > 0) {
+            return;
+        }
+        cell.changed = false;
+        cell.objectCount = cell.components.size();
+        SceneSnapshot snapshot = cell.components.isEmpty() ? new SceneSnapshot() : target.capture(cell.components);
+        //a cell still being read keeps the objects of its file that are not in the scene yet
+        int restored = cell.state == LOADING ? cell.read : -1;
+        CompletableFuture<Void> previous = cell.writing;
+        cell.writing = previous.thenRunAsync(() -> {
+            try {
+                if (restored >= 0) {
+                    addUnread(cell.file, restored, snapshot);
+                }
+                if (snapshot.size() == 0) {
+                    cell.file.delete();
+                } else {
+                    snapshot.write(cell.file);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, writer);
+    }
+
+    //adds the objects of a scene file past the first ones, mesh ids are handed out again for the snapshot
+    private static void addUnread(File file, int restored, SceneSnapshot snapshot) throws IOException {
+        Map<Integer, Integer> meshes = new HashMap<>();
+        int[] position = new int[1];
+        SceneFile.read(file, new SceneFile.Listener() {
+            @Override
+            public void mesh(int id, String path, int index) {
+                File meshFile = new File(path);
+                if (!meshFile.isAbsolute()) {
+                    meshFile = new File(file.getAbsoluteFile().getParentFile(), path);
+                }
+                meshes.put(id, snapshot.addMesh(meshFile.getPath(), index));
+            }
+
+            @Override
+            public void objects(SceneBatch batch) {
+                for (int i = 0; i < batch.size(); i++) {
+                    if (position[0]++ >= restored) {
+                        snapshot.add(meshes.get(batch.getMesh(i)), batch, i);
+                    }
+                }
+            }
+        });
+    }
+
+    private void add(Cell cell, PhysicsComponent component) {
+        cell.components.add(component);
+        owners.put(component.getInstance(), cell);
+        residentObjects++;
+    }
+
+    //a spawned object joins the cell it is in, a cell on disk is loaded first so its objects are written back too
+    public void adopt(PhysicsComponent component) {
+        Vector3f position = component.getInstance().getPosition();
+        Cell cell = cellAt(cellCoordinate(position.x), cellCoordinate(position.z));
+        if (cell.state == UNLOADED) {
+            //only just unloaded if its file is still being written, reading it back has to wait for that
+            cell.writing.join();
+            load(cell);
+        }
+        add(cell, component);
+        cell.changed = true;
+    }
+
+    //a cell nobody has used yet starts out loaded and empty
+    private Cell cellAt(int cx, int cz) {
+        Cell cell = cells.get(key(cx, cz));
+        if (cell == null) {
+            cell = new Cell(cx, cz, cellFile(directory, cx, cz));
+            cell.state = LOADED;
+            cells.put(key(cx, cz), cell);
+            loadedCount++;
+        }
+        return cell;
+    }
+
+    private static int cellCoordinate(float position) {
+        return (int) Math.floor(position / CELL_SIZE);
+    }
+
+    //undoing a spawn
+    public void forget(PhysicsComponent component) {
+        Cell cell = owners.remove(component.getInstance());
+        if (cell != null) {
+            cell.components.remove(component);
+            cell.changed = true;
+            residentObjects--;
+        }
+    }
+
+    //the object was edited or moved by physics, its cell is written back when it is unloaded
+    public void changed(MeshInstance instance) {
+        Cell cell = owners.get(instance);
+        if (cell == null) {
+            return;
+        }
+        cell.changed = true;
+
+        Vector3f position = instance.getPosition();
+        int cx = cellCoordinate(position.x);
+        int cz = cellCoordinate(position.z);
+        if (cx == cell.x && cz == cell.z) {
+            return;
+        }
+        Cell next = cellAt(cx, cz);
+        if (next.state == UNLOADED) {
+            if (!next.writing.isDone()) {
+                //read back once its file is complete, until then the object stays where it was
+                return;
+            }
+            //the objects already in it have to be in the scene before the cell can be written with the new one
+            load(next);
+        }
+        if (next.skipped > 0) {
+            //never written back, the object would be gone once the cell is unloaded
+            return;
+        }
+        move(instance, cell, next);
+    }
+
+    private void move(MeshInstance instance, Cell from, Cell to) {
+        for (int i = 0; i < from.components.size(); i++) {
+            PhysicsComponent component = from.components.get(i);
+            if (component.getInstance() == instance) {
+                from.components.remove(i);
+                to.components.add(component);
+                owners.put(instance, to);
+                from.changed = true;
+                to.changed = true;
+                return;
+            }
+        }
+    }
+
+    //writes every changed cell that is loaded right now, the others are already on disk
+    public void save() {
+        for (Cell cell : cells.values()) {
+            if (cell.state == LOADED) {
+                write(cell);
+            }
+        }
+    }
+
+    //writes what changed and waits for the writer, the objects are left in the scene
+    public void close() {
+        save();
+        for (Cell cell : cells.values()) {
+            if (cell.loader != null) {
+                cell.loader.cancel();
+                cell.loader = null;
+            }
+            if (cell.state == LOADING) {
+                //objects adopted or moved into it are written together with the ones not restored yet
+                write(cell);
+            }
+        }
+        //a write chained behind one still running is only handed to the writer once that finishes, so wait for
+        //every cell before shutting it down or the later write would be rejected
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (Cell cell : cells.values()) {
+            writes.add(cell.writing);
+        }
+        try {
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            e.printStackTrace();
+        }
+        writer.shutdown();
+    }
+
+    //splits a whole scene into the cells its objects are in and writes a world from it, replacing any cells already there
+    public static void write(File directory, List<? extends Component> components, Target target) throws IOException {
+        Map<Long, List<PhysicsComponent>> split = new HashMap<>();
+        for (Component component : components) {
+            if (!(component instanceof PhysicsComponent)) {
+                continue;
+            }
+            PhysicsComponent physicsComponent = (PhysicsComponent) component;
+            Vector3f position = physicsComponent.getInstance().getPosition();
+            long key = key(cellCoordinate(position.x), cellCoordinate(position.z));
+            split.computeIfAbsent(key, k -> new ArrayList<>()).add(physicsComponent);
+        }
+
+        directory.mkdirs();
+        File[] existing = directory.listFiles();
+        if (existing != null) {
+            for (File file : existing) {
+                if (CELL_NAME.matcher(file.getName()).matches()) {
+                    file.delete();
+                }
+            }
+        }
+        for (Map.Entry<Long, List<PhysicsComponent>> entry : split.entrySet()) {
+            int x = (int) (entry.getKey() >> 32);
+            int z = (int) (long) entry.getKey();
+            target.capture(entry.getValue()).write(cellFile(directory, x, z));
+        }
+    }
+
+    public static File cellFile(File directory, int x, int z) {
+        return new File(directory, "cell_" + x + "_" + z + SceneFile.EXTENSION);
+    }
+
+    private static long key(int x, int z) {
+        return ((long) x << 32) | (z & 0xffffffffL);
+    }
+
+    //from the camera to the closest point of the cell on the ground plane
+    private static float distance(Cell cell, float x, float z) {
+        float minX = cell.x * CELL_SIZE;
+        float minZ = cell.z * CELL_SIZE;
+        float dx = Math.max(0, Math.max(minX - x, x - (minX + CELL_SIZE)));
+        float dz = Math.max(0, Math.max(minZ - z, z - (minZ + CELL_SIZE)));
+        return (float) Math.sqrt(dx * dx + dz * dz);
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public float getLoadRadius() {
+        return loadRadius;
+    }
+
+    public void setLoadRadius(float loadRadius) {
+        this.loadRadius = loadRadius;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    //cells being read or waiting to be, the scene keeps changing without any input
+    public boolean isBusy() {
+        return busy;
+    }
+
+    public int getCellCount() {
+        return cells.size();
+    }
+
+    public int getLoadedCount() {
+        return loadedCount;
+    }
+
+    public int getSkippedCount() {
+        return skippedObjects;
+    }
+
+    public int getLoadingCount() {
+        return loadingCount;
+    }
+
+    public long getResidentBytes() {
+        return residentObjects * OBJECT_BYTES;
+    }
+}
@@ -0,0 +1,10 @@
+#version 330 core
+
+in vec3 aPos;
+in mat4 aModel;
+
+uniform mat4 lightSpaceMatrix;
+
+void main(void){
+    gl_Position = lightSpaceMatrix * aModel * vec4(aPos, 1.0);
+}
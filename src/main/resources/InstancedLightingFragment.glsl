@@ -0,0 +1,128 @@
+#version 330 core
+
+#define MAX_CASCADES 4
+
+struct Material {
+    sampler2D diffuse;
+    sampler2D specular;
+    float shininess;
+};
+
+struct DirLight{
+    vec3 direction;
+
+    vec3 ambient;
+    vec3 diffuse;
+    vec3 specular;
+};
+uniform DirLight dirLight;
+
+struct PointLight {
+    vec3 position;
+
+    vec3 ambient;
+    vec3 diffuse;
+    vec3 specular;
+
+    float constant;
+    float linear;
+    float quadratic;
+};
+uniform PointLight light;
+
+in vec3 FragPos;
+in vec3 Normal;
+in vec2 TexCoords;
+in float ViewDepth;
+flat in vec3 VertexColor;
+
+uniform Material material;
+uniform vec3 viewPos;
+uniform sampler2D shadowMaps[MAX_CASCADES];
+uniform mat4 lightSpaceMatrices[MAX_CASCADES];
+uniform float cascadeFar[MAX_CASCADES];
+uniform int cascadeCount;
+uniform float gamma;
+uniform vec3 objectColor = vec3(1, 1, 1);
+
+out vec4 FragColor;
+
+void setGamma(float value){
+    FragColor.rgb = pow(FragColor.rgb, vec3(1.0 / value));
+}
+
+float ShadowCalc(sampler2D shadowMap, vec4 fragPosLightSpace, vec3 lightDir){
+    vec3 projCoords = fragPosLightSpace.xyz / fragPosLightSpace.w;
+    projCoords = projCoords * 0.5 + 0.5;
+    float currentDepth = projCoords.z;
+
+    float bias = max(0.05 * (1.0 - dot(normalize(Normal), normalize(-lightDir))), 0.005);
+    float shadow = 0.0;
+    vec2 texelSize = 1.0 / textureSize(shadowMap, 0);
+    for(int x = -1; x <= 1; ++x)
+    {
+        for(int y = -1; y <= 1; ++y)
+        {
+            float pcfDepth = texture(shadowMap, projCoords.xy + vec2(x, y) * texelSize).r;
+            shadow += currentDepth - bias > pcfDepth ? 1.0 : 0.0;
+        }
+    }
+    shadow /= 9.0;
+
+    if(projCoords.z > 1.0){
+        shadow = 0.0;
+    }
+
+    return clamp(shadow, 0.0, 1.0);
+}
+
+// samplers in an array can only be indexed with constants in GLSL 330
+float CascadeShadow(vec3 lightDir){
+    int cascade = 0;
+    while(cascade < cascadeCount - 1 && ViewDepth > cascadeFar[cascade]){
+        cascade++;
+    }
+    vec4 fragPosLightSpace = lightSpaceMatrices[cascade] * vec4(FragPos, 1.0);
+    if(cascade == 0){
+        return ShadowCalc(shadowMaps[0], fragPosLightSpace, lightDir);
+    }else if(cascade == 1){
+        return ShadowCalc(shadowMaps[1], fragPosLightSpace, lightDir);
+    }else if(cascade == 2){
+        return ShadowCalc(shadowMaps[2], fragPosLightSpace, lightDir);
+    }
+    return ShadowCalc(shadowMaps[3], fragPosLightSpace, lightDir);
+}
+
+void main(){
+
+    vec3 color = texture(material.diffuse, TexCoords).rgb * objectColor;
+    vec3 norm = normalize(Normal);
+
+    //ambient
+    vec3 ambient = dirLight.ambient * vec3(texture(material.diffuse, TexCoords));
+
+    //diffuse
+    vec3 lightDir = normalize(-dirLight.direction);
+    float diff = max(dot(norm, lightDir), 0.0);
+    vec3 diffuse = dirLight.diffuse * (diff * vec3(texture(material.diffuse, TexCoords)));
+
+    //specular
+    vec3 viewDir = normalize(viewPos - FragPos);
+    vec3 reflectDir = reflect(-lightDir, norm);
+    float spec = pow(max(dot(viewDir, reflectDir), 0.0), material.shininess);
+    vec3 specular = dirLight.specular * spec * vec3(texture(material.specular, TexCoords));
+
+    //attenuation
+    float distance = length(light.position - FragPos);
+    float attenuation = 1.0 / (light.constant + light.linear * distance + light.quadratic * (distance * distance));
+    ambient *= attenuation;
+    diffuse *= attenuation;
+    specular *= attenuation;
+
+    //same lighting as LightingFragment, only the shadow lookup differs
+    float shadow = CascadeShadow(-lightDir);
+    vec3 lighting = (ambient + (shadow) * (diffuse + specular)) * color;
+    FragColor = vec4(lighting, 1.0);
+
+    setGamma(gamma);
+}
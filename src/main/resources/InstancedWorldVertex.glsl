@@ -0,0 +1,38 @@
+#version 330 core
+
+in vec3 aPos;
+in vec2 aTexCoord;
+in vec3 aNormal;
+in mat4 aModel;
+
+uniform mat4 projection;
+uniform mat4 view;
+
+out vec3 FragPos;
+out vec3 Normal;
+out vec2 TexCoords;
+out float ViewDepth;
+flat out vec3 VertexColor;
+
+vec3 positionToColor(float value) {
+    vec3 color = vec3(0.0);
+    color.x = fract(sin(value * 17.0) * 71.0);
+    color.y = fract(sin(value * 13.0) * 67.0);
+    color.z = fract(sin(value * 19.0) * 73.0);
+    return color;
+}
+
+void main()
+{
+    vec4 worldPos = aModel * vec4(aPos, 1.0);
+    vec4 viewPos = view * worldPos;
+    gl_Position = projection * viewPos;
+    FragPos = vec3(worldPos);
+    Normal = mat3(transpose(inverse(aModel))) * aNormal;
+    TexCoords = aTexCoord;
+    //picks the shadow cascade
+    ViewDepth = -viewPos.z;
+
+    int index = gl_VertexID / 3;
+    VertexColor = floor(positionToColor(float(index)) * 8.0) / 8.0;
+}
@@ -0,0 +1,285 @@
+package fusion.core.editor;
+
+import com.bulletphysics.collision.shapes.CollisionShape;
+import com.bulletphysics.dynamics.RigidBody;
+import fusion.core.editor.history.EditHistory;
+import fusion.core.editor.history.TransformEdit;
+import fusion.core.editor.journal.OperationJournal;
+import fusion.core.editor.physics.PhysicsScheduler;
+import fusion.core.editor.physics.ShapeCache;
+import fusion.core.editor.render.InstanceBuffer;
+import fusion.core.editor.scene.Picker;
+import fusion.core.editor.scene.SceneCuller;
+import fusion.core.editor.scene.Selection;
+import imgui.ImGui;
+import open.gl.gameobject.Mesh;
+import open.gl.gameobject.MeshInstance;
+import open.gl.gameobject.PhysicsComponent;
+import open.gl.physics.PhysicsWorld;
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//Bytes allocated per simulated frame of the editor's CPU side: the Properties fields, culling, packing the visible
+//instances and the drop ray, with or without a gizmo drag tick. Anything the ImGui context draws is left out
+public class FrameAllocationTest {
+
+    private static final int WARMUP_FRAMES = 20_000;
+    private static final int FRAMES = 1000;
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+
+    private final TransformFields fields = new TransformFields();
+    private final SceneCuller sceneCuller = new SceneCuller();
+    private final Map<Mesh, List<MeshInstance>> visible = new HashMap<>();
+    private final InstanceBuffer instanceBuffer = new InstanceBuffer();
+    private final List<MeshInstance> instances = new ArrayList<>();
+
+    private final PhysicsWorld physicsWorld = new PhysicsWorld();
+    private final PhysicsScheduler physicsScheduler = new PhysicsScheduler(physicsWorld);
+    private final ShapeCache shapeCache = new ShapeCache();
+    private final List<PhysicsComponent> components = new ArrayList<>();
+    private final Map<PhysicsComponent, Integer> componentIndices = new IdentityHashMap<>();
+    private final Selection selection = new Selection();
+    private final EditHistory history = new EditHistory(new EditHistory.Target() {
+        @Override
+        public void applyTransform(int object, float[] values, int offset) {
+        }
+
+        @Override
+        public PhysicsComponent remove(int object) {
+            return null;
+        }
+
+        @Override
+        public void restore(PhysicsComponent component) {
+        }
+
+        @Override
+        public int getObjectCount() {
+            return components.size();
+        }
+    }, 16 << 20);
+    private OperationJournal journal;
+
+    @TempDir
+    File directory;
+
+    private final Matrix4f projection = new Matrix4f();
+    private final Matrix4f view = new Matrix4f();
+    private final Matrix4f inverseProjection = new Matrix4f();
+    private final Matrix4f inverseView = new Matrix4f();
+    private final Vector3f cameraPosition = new Vector3f(0, 10, 30);
+    private final Vector4f ray = new Vector4f();
+    private final Vector3f mouseRay = new Vector3f();
+
+    private final Vector3f position = new Vector3f();
+    private final Quaternionf rotation = new Quaternionf();
+    private final Vector3f scale = new Vector3f();
+    private int frame = 0;
+
+    //Viewport's scratch state for updateComponent and transformSelection
+    private final float[] historyBefore = new float[TransformEdit.STRIDE];
+    private final float[] historyAfter = new float[TransformEdit.STRIDE];
+    private final Vector3f pivotPosition = new Vector3f();
+    private final Quaternionf pivotRotation = new Quaternionf();
+    private final Vector3f pivotScale = new Vector3f(1, 1, 1);
+    private final Vector3f nextPosition = new Vector3f();
+    private final Quaternionf nextRotation = new Quaternionf();
+    private final Quaternionf inverseRotation = new Quaternionf();
+    private final Quaternionf deltaRotation = new Quaternionf();
+    private final Vector3f scaleFactor = new Vector3f();
+    private final Vector3f pivotOffset = new Vector3f();
+    private int[] selectionObjects = new int[0];
+    private float[] selectionBefore = new float[0];
+    private float[] selectionAfter = new float[0];
+    private CollisionShape[] selectionShapes = new CollisionShape[0];
+
+    @BeforeEach
+    public void setup() {
+        //loads the imgui natives TransformFields calls into
+        ImGui.init();
+        Mesh mesh = TestMeshes.cube();
+        for (int i = 0; i < 1000; i++) {
+            MeshInstance instance = new MeshInstance(mesh, null);
+            instance.getPosition().set((i % 32) * 2 - 32, 0, (i / 32) * 2 - 32);
+            sceneCuller.add(instance);
+            instances.add(instance);
+
+            RigidBody rigidBody = physicsWorld.addShapeToWorld(shapeCache.getShape(mesh, instance.getScale()), 0.0f, instance.getRotation(), instance.getPosition(), 1.0f);
+            PhysicsComponent component = new PhysicsComponent(rigidBody, instance);
+            componentIndices.put(component, components.size());
+            components.add(component);
+            physicsScheduler.add(component);
+        }
+        for (int i = 0; i < 16; i++) {
+            selection.add(components.get(i * 37));
+        }
+        journal = new OperationJournal(new File(directory, "Test.journal"), new File(directory, "Test.scene"));
+        journal.setRecording(true);
+        projection.setPerspective((float) Math.toRadians(70), (float) WIDTH / HEIGHT, 0.1f, 1000f);
+        view.setLookAt(cameraPosition.x, cameraPosition.y, cameraPosition.z, 0, 0, 0, 0, 1, 0);
+        projection.invert(inverseProjection);
+        view.invert(inverseView);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        journal.close();
+        physicsScheduler.shutdown();
+    }
+
+    @Test
+    public void steadyStateFrameDoesNotAllocate() {
+        assertEquals(0, bytesPerFrame(this::frame));
+    }
+
+    //the mouse stays down, every tick is folded into the same history entry
+    @Test
+    public void draggingAnObjectDoesNotAllocate() {
+        assertEquals(0, bytesPerFrame(() -> {
+            frame();
+            PhysicsComponent component = components.get(500);
+            nextPosition.set(component.getInstance().getPosition()).add(0.01f, 0, (frame & 1) == 0 ? 0.01f : -0.01f);
+            scale.set(1 + (frame & 3) * 0.25f);
+            updateComponent(component, nextPosition, component.getInstance().getRotation(), scale);
+        }));
+    }
+
+    @Test
+    public void draggingASelectionDoesNotAllocate() {
+        assertEquals(0, bytesPerFrame(() -> {
+            frame();
+            nextPosition.set(pivotPosition).add(0.01f, 0, 0);
+            nextRotation.set(pivotRotation).rotateY(0.01f);
+            transformSelection(pivotPosition, pivotRotation, pivotScale, nextPosition, nextRotation, pivotScale);
+            pivotPosition.set(nextPosition);
+            pivotRotation.set(nextRotation);
+        }));
+    }
+
+    private void frame() {
+        MeshInstance selected = instances.get(frame % instances.size());
+        frame++;
+
+        //Properties shows the selection every frame and a drag writes the fields back
+        fields.decompose(selected);
+        fields.recompose(position, rotation, scale);
+        selected.getPosition().set(position).add(0, (frame & 1) * 0.01f, 0);
+        selected.getRotation().set(rotation);
+        selected.getScale().set(scale);
+        sceneCuller.update(selected);
+
+        sceneCuller.cull(projection, view, visible);
+        for (List<MeshInstance> list : visible.values()) {
+            instanceBuffer.pack(list);
+        }
+        instanceBuffer.clearDirty();
+
+        Picker.getMouseRay(frame % WIDTH, HEIGHT / 2f, WIDTH, HEIGHT, projection, view, cameraPosition, inverseProjection, inverseView, ray, mouseRay);
+    }
+
+    //kept in step with Viewport.updateComponent, without the streamer
+    private void updateComponent(PhysicsComponent component, Vector3f newPosition, Quaternionf newRotation, Vector3f newScale) {
+        Integer index = componentIndices.get(component);
+        TransformEdit.copy(component.getInstance(), historyBefore, 0);
+        component.getInstance().getPosition().set(newPosition);
+        component.getInstance().getRotation().set(newRotation);
+        component.getInstance().getScale().set(newScale);
+
+        CollisionShape shape = shapeCache.getShape(component.getInstance().getMesh(), component.getInstance().getScale());
+        synchronized (physicsScheduler.getLock()) {
+            physicsScheduler.setTransform(component, shape);
+        }
+        physicsScheduler.teleport(component);
+
+        sceneCuller.update(component.getInstance());
+        TransformEdit.copy(component.getInstance(), historyAfter, 0);
+        history.recordTransform(index, historyBefore, historyAfter);
+        if (journal.isRecording()) {
+            journal.recordTransform(index, component.getInstance());
+        }
+    }
+
+    //kept in step with Viewport.transformSelection, without the streamer
+    private void transformSelection(Vector3f fromPosition, Quaternionf fromRotation, Vector3f fromScale, Vector3f toPosition, Quaternionf toRotation, Vector3f toScale) {
+        int count = selection.size();
+        if (selectionObjects.length < count) {
+            int capacity = Math.max(count, selectionObjects.length * 2);
+            selectionObjects = new int[capacity];
+            selectionBefore = new float[capacity * TransformEdit.STRIDE];
+            selectionAfter = new float[capacity * TransformEdit.STRIDE];
+            selectionShapes = new CollisionShape[capacity];
+        }
+
+        fromRotation.invert(inverseRotation);
+        toRotation.mul(inverseRotation, deltaRotation);
+        toScale.div(fromScale, scaleFactor);
+        boolean scaling = scaleFactor.x != 1 || scaleFactor.y != 1 || scaleFactor.z != 1;
+
+        for (int i = 0; i < count; i++) {
+            PhysicsComponent component = selection.get(i);
+            MeshInstance instance = component.getInstance();
+            selectionObjects[i] = componentIndices.get(component);
+            TransformEdit.copy(instance, selectionBefore, i * TransformEdit.STRIDE);
+
+            inverseRotation.transform(pivotOffset.set(instance.getPosition()).sub(fromPosition));
+            toRotation.transform(pivotOffset.mul(scaleFactor));
+            instance.getPosition().set(toPosition).add(pivotOffset);
+            deltaRotation.mul(instance.getRotation(), instance.getRotation()).normalize();
+            if (scaling) {
+                instance.getScale().mul(scaleFactor);
+            }
+            selectionShapes[i] = scaling ? shapeCache.getShape(instance.getMesh(), instance.getScale()) : null;
+            TransformEdit.copy(instance, selectionAfter, i * TransformEdit.STRIDE);
+        }
+
+        synchronized (physicsScheduler.getLock()) {
+            for (int i = 0; i < count; i++) {
+                physicsScheduler.setTransform(selection.get(i), selectionShapes[i]);
+                selection.get(i).getRigidBody().activate();
+                selectionShapes[i] = null;
+            }
+        }
+        physicsScheduler.teleport(selection.asList());
+
+        boolean recording = journal.isRecording();
+        for (int i = 0; i < count; i++) {
+            MeshInstance instance = selection.get(i).getInstance();
+            sceneCuller.update(instance);
+            if (recording) {
+                journal.recordTransform(selectionObjects[i], instance);
+            }
+        }
+        history.recordTransforms(selectionObjects, count, selectionBefore, selectionAfter);
+    }
+
+    //runs frame until the JIT settled and every reused buffer grew to size, then averages what the next frames allocate
+    static long bytesPerFrame(Runnable frame) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            frame.run();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < FRAMES; i++) {
+            frame.run();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        return allocated / FRAMES;
+    }
+}
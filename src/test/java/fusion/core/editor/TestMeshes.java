@@ -0,0 +1,55 @@
+package fusion.core.editor;
+
+import open.gl.Model;
+import open.gl.gameobject.Mesh;
+import org.joml.Matrix4f;
+import org.objenesis.ObjenesisStd;
+
+import java.lang.reflect.Field;
+
+//Meshes for tests that run without a GL context, created by objenesis without their constructor so nothing is uploaded.
+//Only the model and transformation matrix are filled in, which is all the editor reads on the CPU
+public final class TestMeshes {
+
+    private static final ObjenesisStd OBJENESIS = new ObjenesisStd();
+    private static final Field MODEL;
+    private static final Field TRANSFORMATION_MATRIX;
+
+    static {
+        try {
+            MODEL = Mesh.class.getDeclaredField("model");
+            MODEL.setAccessible(true);
+            TRANSFORMATION_MATRIX = Mesh.class.getDeclaredField("transformationMatrix");
+            TRANSFORMATION_MATRIX.setAccessible(true);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private TestMeshes() {
+    }
+
+    public static Mesh mesh(Model model) {
+        try {
+            Mesh mesh = OBJENESIS.newInstance(Mesh.class);
+            MODEL.set(mesh, model);
+            TRANSFORMATION_MATRIX.set(mesh, new Matrix4f());
+            return mesh;
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //unit cube around the origin
+    public static Mesh cube() {
+        float[] vertices = {
+                -0.5f, -0.5f, -0.5f, 0.5f, -0.5f, -0.5f, 0.5f, 0.5f, -0.5f, -0.5f, 0.5f, -0.5f,
+                -0.5f, -0.5f, 0.5f, 0.5f, -0.5f, 0.5f, 0.5f, 0.5f, 0.5f, -0.5f, 0.5f, 0.5f
+        };
+        int[] indices = {
+                0, 2, 1, 0, 3, 2, 4, 5, 6, 4, 6, 7, 0, 1, 5, 0, 5, 4,
+                3, 6, 2, 3, 7, 6, 0, 4, 7, 0, 7, 3, 1, 2, 6, 1, 6, 5
+        };
+        return mesh(new Model(vertices, new float[8 * 2], vertices.clone(), indices));
+    }
+}
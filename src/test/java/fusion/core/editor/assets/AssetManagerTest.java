@@ -0,0 +1,59 @@
+package fusion.core.editor.assets;
+
+import open.gl.gameobject.Mesh;
+import open.gl.texture.Texture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class AssetManagerTest {
+
+    private final AssetManager assets = new AssetManager(1);
+
+    @AfterEach
+    public void tearDown() {
+        assets.close();
+    }
+
+    //runs frames until the future is done, nothing completes outside update
+    private void update(CompletableFuture<?> future) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!future.isDone()) {
+            if (System.nanoTime() > deadline) {
+                fail("never completed");
+            }
+            Thread.sleep(1);
+            assets.update(1_000_000);
+        }
+    }
+
+    @Test
+    public void failedMeshCompletesOnUpdateAndIsRetried() throws Exception {
+        CompletableFuture<List<Mesh>> first = assets.loadMeshes("missing.obj");
+        assertSame(first, assets.loadMeshes("missing.obj"));
+
+        //the worker fails right away, the future still waits for the render thread
+        Thread.sleep(200);
+        assertFalse(first.isDone());
+
+        update(first);
+        assertTrue(first.isCompletedExceptionally());
+        assertNotSame(first, assets.loadMeshes("missing.obj"));
+    }
+
+    @Test
+    public void failedTextureIsRetried() throws Exception {
+        CompletableFuture<Texture> first = assets.loadTexture("missing.png");
+        update(first);
+        assertTrue(first.isCompletedExceptionally());
+        assertNotSame(first, assets.loadTexture("missing.png"));
+    }
+}
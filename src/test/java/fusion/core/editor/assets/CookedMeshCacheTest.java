@@ -0,0 +1,65 @@
+package fusion.core.editor.assets;
+
+import open.gl.Model;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CookedMeshCacheTest {
+
+    @TempDir
+    File directory;
+
+    private static ImportedModel triangle() {
+        ImportedModel model = new ImportedModel(new Model(
+                new float[]{0, 0, 0, 1, 0, 0, 0, 1, 0},
+                new float[]{0, 0, 1, 0, 0, 1},
+                new float[]{0, 0, 1, 0, 0, 1, 0, 0, 1},
+                new int[]{0, 1, 2}));
+        model.bounds = new float[]{0, 0, 0, 1, 1, 0};
+        model.hull = new float[]{0, 0, 0, 1, 0, 0, 0, 1, 0};
+        return model;
+    }
+
+    @Test
+    public void cookedModelReadsBack() throws Exception {
+        File cooked = new File(directory, "triangle.obj.cooked");
+        CookedMeshCache.SourceHash hash = new CookedMeshCache.SourceHash(100, 7);
+        CookedMeshCache.write(cooked, hash, List.of(triangle()));
+
+        List<ImportedModel> models = CookedMeshCache.read(cooked, hash);
+
+        assertEquals(1, models.size());
+        assertArrayEquals(triangle().model.getVertices(), models.get(0).model.getVertices());
+        assertArrayEquals(new int[]{0, 1, 2}, models.get(0).model.getIndices());
+        assertArrayEquals(triangle().hull, models.get(0).hull);
+    }
+
+    @Test
+    public void staleFileIsReplacedAfterRead() throws Exception {
+        File cooked = new File(directory, "triangle.obj.cooked");
+        CookedMeshCache.write(cooked, new CookedMeshCache.SourceHash(100, 7), List.of(triangle()));
+
+        CookedMeshCache.SourceHash changed = new CookedMeshCache.SourceHash(100, 8);
+        assertNull(CookedMeshCache.read(cooked, changed));
+        CookedMeshCache.write(cooked, changed, List.of(triangle()));
+
+        assertEquals(1, CookedMeshCache.read(cooked, changed).size());
+    }
+
+    @Test
+    public void truncatedFileIsNotRead() throws Exception {
+        File cooked = new File(directory, "triangle.obj.cooked");
+        Files.write(cooked.toPath(), new byte[]{1, 2, 3});
+
+        assertNull(CookedMeshCache.read(cooked, new CookedMeshCache.SourceHash(3, 0)));
+        assertNull(CookedMeshCache.read(new File(directory, "missing.cooked"), new CookedMeshCache.SourceHash(3, 0)));
+    }
+}
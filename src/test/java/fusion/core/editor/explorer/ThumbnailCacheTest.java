@@ -0,0 +1,134 @@
+package fusion.core.editor.explorer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class ThumbnailCacheTest {
+
+    private static final int SIZE = 16;
+    private static final int THUMBNAIL_BYTES = SIZE * SIZE * 4;
+
+    //hands out texture ids in upload order and remembers what was deleted
+    private static class FakeUploader implements ThumbnailCache.TextureUploader {
+        private final List<Integer> uploaded = new ArrayList<>();
+        private final List<Integer> deleted = new ArrayList<>();
+
+        @Override
+        public int upload(Thumbnail thumbnail) {
+            uploaded.add(uploaded.size() + 1);
+            return uploaded.size();
+        }
+
+        @Override
+        public void delete(int texture) {
+            deleted.add(texture);
+        }
+    }
+
+    @TempDir
+    File directory;
+
+    private final FakeUploader uploader = new FakeUploader();
+    private ThumbnailCache cache;
+
+    @BeforeEach
+    public void setup() {
+        cache = new ThumbnailCache(new ThumbnailGenerator(SIZE), null, uploader, 3L * THUMBNAIL_BYTES, 1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        cache.close();
+    }
+
+    private File image(String name) throws IOException {
+        File file = new File(directory, name);
+        ImageIO.write(new BufferedImage(SIZE * 2, SIZE * 2, BufferedImage.TYPE_INT_ARGB), "png", file);
+        return file;
+    }
+
+    //requests the thumbnail and runs frames until it is a texture
+    private int load(File file) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        int texture;
+        while ((texture = cache.get(file, file.lastModified())) == 0) {
+            if (System.nanoTime() > deadline) {
+                fail("thumbnail of " + file + " never arrived");
+            }
+            Thread.sleep(1);
+            cache.update(4);
+        }
+        return texture;
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvictedFirst() throws Exception {
+        File a = image("a.png");
+        File b = image("b.png");
+        File c = image("c.png");
+        File d = image("d.png");
+
+        int textureA = load(a);
+        int textureB = load(b);
+        load(c);
+        assertEquals(3, cache.getTextureCount());
+        assertEquals(3L * THUMBNAIL_BYTES, cache.getUsedBytes());
+
+        //a was used last frame, so b is the oldest once d needs room
+        assertEquals(textureA, cache.get(a, a.lastModified()));
+        load(d);
+
+        assertEquals(List.of(textureB), uploader.deleted);
+        assertEquals(3, cache.getTextureCount());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(textureA, cache.get(a, a.lastModified()));
+        assertEquals(0, cache.get(b, b.lastModified()));
+    }
+
+    @Test
+    public void hitsDoNotUploadAgain() throws Exception {
+        File a = image("a.png");
+        int texture = load(a);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(texture, cache.get(a, a.lastModified()));
+            cache.update(4);
+        }
+        assertEquals(1, uploader.uploaded.size());
+        assertTrue(cache.getHits() >= 10);
+    }
+
+    @Test
+    public void aChangedFileIsANewThumbnail() throws Exception {
+        File a = image("a.png");
+        int first = load(a);
+        assertTrue(a.setLastModified(a.lastModified() + 5000));
+        int second = load(a);
+
+        assertNotEquals(first, second);
+        assertEquals(2, cache.getTextureCount());
+    }
+
+    @Test
+    public void closeDeletesEveryTexture() throws Exception {
+        load(image("a.png"));
+        load(image("b.png"));
+        cache.close();
+
+        assertEquals(2, uploader.deleted.size());
+        assertEquals(0, cache.getUsedBytes());
+    }
+}
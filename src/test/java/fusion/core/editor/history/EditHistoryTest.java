@@ -0,0 +1,191 @@
+package fusion.core.editor.history;
+
+import open.gl.gameobject.PhysicsComponent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EditHistoryTest {
+
+    //remembers which objects were touched, in order
+    private final List<Integer> applied = new ArrayList<>();
+    //the scene as ids of its objects, numbered by position the way Viewport numbers its components
+    private final List<Integer> scene = new ArrayList<>(List.of(0, 1, 2, 3, 4, 5));
+    //ids taken out by undone spawns, redo puts the newest one back
+    private final ArrayDeque<Integer> removed = new ArrayDeque<>();
+
+    private final EditHistory history = new EditHistory(new EditHistory.Target() {
+        @Override
+        public void applyTransform(int object, float[] values, int offset) {
+            applied.add(object);
+        }
+
+        @Override
+        public PhysicsComponent remove(int object) {
+            removed.push(scene.remove(object));
+            return null;
+        }
+
+        @Override
+        public void restore(PhysicsComponent component) {
+            scene.add(removed.pop());
+        }
+
+        @Override
+        public int getObjectCount() {
+            return scene.size();
+        }
+    }, 1 << 20);
+
+    private final float[] before = new float[TransformEdit.STRIDE];
+    private final float[] after = new float[TransformEdit.STRIDE];
+
+    private void move(int object) {
+        history.recordTransform(object, before, after);
+        history.close();
+    }
+
+    @Test
+    public void dragIsOneStep() {
+        for (int i = 0; i < 10; i++) {
+            history.recordTransform(2, before, after);
+        }
+        history.close();
+        history.recordTransform(2, before, after);
+
+        assertEquals(2, history.getUndoCount());
+    }
+
+    @Test
+    public void undoAndRedoApplyInOrder() {
+        move(0);
+        move(1);
+        assertTrue(history.undo());
+        assertTrue(history.undo());
+        assertFalse(history.undo());
+        assertTrue(history.redo());
+
+        assertEquals(List.of(1, 0, 0), applied);
+        assertEquals(1, history.getRedoCount());
+    }
+
+    @Test
+    public void remapRenumbersAndDropsRemovedObjects() {
+        move(0);
+        move(3);
+        move(5);
+        //object 3 was unloaded, everything after it moves down by one
+        history.remap(new int[]{0, 1, 2, -1, 3, 4});
+
+        assertEquals(2, history.getUndoCount());
+        history.undo();
+        history.undo();
+        assertEquals(List.of(4, 0), applied);
+    }
+
+    @Test
+    public void remapKeepsTheRedoStack() {
+        move(1);
+        move(4);
+        history.undo();
+        applied.clear();
+
+        history.remap(new int[]{-1, 0, 1, 2, 3});
+        assertTrue(history.redo());
+        assertEquals(List.of(3), applied);
+    }
+
+    //Viewport takes an object out of the scene and tells the history about it
+    private void unload(int object) {
+        int[] newIndices = new int[scene.size()];
+        for (int i = 0; i < newIndices.length; i++) {
+            newIndices[i] = i < object ? i : i == object ? -1 : i - 1;
+        }
+        scene.remove(object);
+        history.remap(newIndices);
+    }
+
+    //and adds streamed objects without recording them
+    private void stream(int id) {
+        scene.add(id);
+        history.appended(scene.size() - 1, 1);
+    }
+
+    private void spawn(int id) {
+        scene.add(id);
+        history.recordSpawn(scene.size() - 1, null);
+        history.close();
+    }
+
+    @Test
+    public void undoneSpawnsShiftWithTheScene() {
+        //the sixth object was spawned and moved, then both undone
+        scene.remove(5);
+        spawn(5);
+        move(5);
+        history.undo();
+        history.undo();
+        assertEquals(List.of(0, 1, 2, 3, 4), scene);
+
+        unload(1);
+        applied.clear();
+        history.redo();
+        history.redo();
+        //the spawned object comes back as the fifth one now
+        assertEquals(List.of(0, 2, 3, 4, 5), scene);
+        assertEquals(List.of(4), applied);
+    }
+
+    @Test
+    public void undoingASpawnRemovesItAfterACellStreamedIn() {
+        spawn(6);
+        move(6);
+        stream(10);
+        stream(11);
+
+        history.undo();
+        history.undo();
+        assertEquals(List.of(6), applied);
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 10, 11), scene);
+
+        stream(12);
+        history.redo();
+        history.redo();
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 10, 11, 12, 6), scene);
+        //the move follows the spawned object to its new number
+        assertEquals(List.of(6, 9), applied);
+    }
+
+    @Test
+    public void streamedObjectsKeepTheirEditsWhenASpawnBeforeThemIsUndone() {
+        spawn(6);
+        stream(10);
+        move(7);
+        history.undo();
+        history.undo();
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 10), scene);
+
+        applied.clear();
+        history.redo();
+        history.redo();
+        //the streamed object moved down when the spawn left, the spawn came back after it
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 10, 6), scene);
+        assertEquals(List.of(6), applied);
+    }
+
+    @Test
+    public void editsOfARemovedMultiSelectionAreDropped() {
+        history.recordTransforms(new int[]{1, 2}, 2, new float[2 * TransformEdit.STRIDE], new float[2 * TransformEdit.STRIDE]);
+        history.close();
+        move(0);
+
+        history.remap(new int[]{0, 1, -1});
+        assertEquals(1, history.getUndoCount());
+    }
+}
@@ -0,0 +1,56 @@
+package fusion.core.editor.journal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PendingTransformsTest {
+
+    private final PendingTransforms transforms = new PendingTransforms();
+
+    @Test
+    public void keepsTheOrderObjectsWereFirstEditedIn() {
+        for (int i = 0; i < 1000; i++) {
+            transforms.put(i * 7919, new float[]{i});
+        }
+
+        assertEquals(1000, transforms.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i * 7919, transforms.getObject(i));
+            assertEquals(i, transforms.get(i * 7919)[0]);
+        }
+        assertNull(transforms.get(1));
+    }
+
+    @Test
+    public void removeKeepsTheOthersFindable() {
+        float[] removed = new float[1];
+        transforms.put(3, new float[1]);
+        transforms.put(5, removed);
+        transforms.put(9, new float[1]);
+
+        assertSame(removed, transforms.remove(5));
+        assertNull(transforms.remove(5));
+        assertEquals(2, transforms.size());
+        assertEquals(9, transforms.getObject(1));
+        assertSame(transforms.getValues(1), transforms.get(9));
+    }
+
+    @Test
+    public void clearHandsTheValuesBack() {
+        ArrayDeque<float[]> free = new ArrayDeque<>();
+        transforms.put(1, new float[1]);
+        transforms.put(2, new float[1]);
+
+        transforms.clear(free);
+
+        assertTrue(transforms.isEmpty());
+        assertNull(transforms.get(1));
+        assertEquals(2, free.size());
+    }
+}
@@ -0,0 +1,38 @@
+package fusion.core.editor.physics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShapeCacheTest {
+
+    //corners of a 2 unit cube followed by points inside it
+    private static float[] cube() {
+        float[] vertices = new float[(8 + 27) * 3];
+        int i = 0;
+        for (int corner = 0; corner < 8; corner++) {
+            vertices[i++] = (corner & 1) == 0 ? -1 : 1;
+            vertices[i++] = (corner & 2) == 0 ? -1 : 1;
+            vertices[i++] = (corner & 4) == 0 ? -1 : 1;
+        }
+        for (int inner = 0; inner < 27; inner++) {
+            vertices[i++] = (inner % 3 - 1) * 0.5f;
+            vertices[i++] = (inner / 3 % 3 - 1) * 0.5f;
+            vertices[i++] = (inner / 9 - 1) * 0.5f;
+        }
+        return vertices;
+    }
+
+    @Test
+    public void simplifiedHullKeepsTheMeshBounds() {
+        float[] hull = ShapeCache.simplifyHull(cube());
+
+        assertTrue(hull.length < cube().length);
+        float max = 0;
+        for (float value : hull) {
+            max = Math.max(max, Math.abs(value));
+        }
+        assertEquals(1, max, 1e-3f);
+    }
+}
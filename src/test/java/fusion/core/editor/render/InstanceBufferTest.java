@@ -0,0 +1,108 @@
+package fusion.core.editor.render;
+
+import open.gl.Transform;
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InstanceBufferTest {
+
+    private static List<Transform> transforms(int count) {
+        List<Transform> transforms = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Transform transform = new Transform();
+            transform.getPosition().set(i, 0, -i);
+            transforms.add(transform);
+        }
+        return transforms;
+    }
+
+    @Test
+    public void firstPackIsAllDirty() {
+        InstanceBuffer buffer = new InstanceBuffer(4);
+        buffer.pack(transforms(10));
+
+        assertEquals(10, buffer.size());
+        assertTrue(buffer.capacity() >= 10);
+        assertTrue(buffer.isDirty());
+        assertEquals(0, buffer.getDirtyStart());
+        assertEquals(9, buffer.getDirtyEnd());
+    }
+
+    @Test
+    public void packingTheSameMatricesLeavesItClean() {
+        InstanceBuffer buffer = new InstanceBuffer();
+        List<Transform> transforms = transforms(10);
+        buffer.pack(transforms);
+        buffer.clearDirty();
+
+        buffer.pack(transforms);
+        assertFalse(buffer.isDirty());
+    }
+
+    @Test
+    public void onlyChangedInstancesAreDirty() {
+        InstanceBuffer buffer = new InstanceBuffer();
+        List<Transform> transforms = transforms(10);
+        buffer.pack(transforms);
+        buffer.clearDirty();
+
+        transforms.get(3).getPosition().y = 5;
+        transforms.get(6).getScale().set(2);
+        buffer.pack(transforms);
+
+        assertTrue(buffer.isDirty());
+        assertEquals(3, buffer.getDirtyStart());
+        assertEquals(6, buffer.getDirtyEnd());
+
+        float[] expected = new float[InstanceBuffer.FLOATS_PER_INSTANCE];
+        new Matrix4f().translationRotateScale(transforms.get(6).getPosition(), transforms.get(6).getRotation(), transforms.get(6).getScale()).get(expected);
+        float[] packed = new float[InstanceBuffer.FLOATS_PER_INSTANCE];
+        System.arraycopy(buffer.getData(), 6 * InstanceBuffer.FLOATS_PER_INSTANCE, packed, 0, packed.length);
+        assertArrayEquals(expected, packed);
+    }
+
+    @Test
+    public void growingMarksTheNewInstances() {
+        InstanceBuffer buffer = new InstanceBuffer(2);
+        buffer.pack(transforms(4));
+        buffer.clearDirty();
+
+        buffer.pack(transforms(8));
+        assertEquals(4, buffer.getDirtyStart());
+        assertEquals(7, buffer.getDirtyEnd());
+    }
+
+    @Test
+    public void dirtyEndIsClampedAfterShrinking() {
+        InstanceBuffer buffer = new InstanceBuffer();
+        buffer.pack(transforms(8));
+
+        buffer.pack(transforms(3));
+        assertEquals(0, buffer.getDirtyStart());
+        assertEquals(2, buffer.getDirtyEnd());
+
+        buffer.clearDirty();
+        buffer.markDirty(5);
+        //past the end, nothing left to upload
+        assertFalse(buffer.isDirty());
+    }
+
+    @Test
+    public void markAllDirtyCoversEveryInstance() {
+        InstanceBuffer buffer = new InstanceBuffer();
+        buffer.pack(transforms(5));
+        buffer.clearDirty();
+
+        buffer.markAllDirty();
+        assertEquals(0, buffer.getDirtyStart());
+        assertEquals(4, buffer.getDirtyEnd());
+    }
+}
@@ -0,0 +1,105 @@
+package fusion.core.editor.scene;
+
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DynamicAabbTreeTest {
+
+    private static final int OBJECTS = 2000;
+
+    private final DynamicAabbTree<Integer> tree = new DynamicAabbTree<>(0.5f);
+    private final int[] proxies = new int[OBJECTS];
+    private final Random random = new Random(42);
+    private final FrustumIntersection frustum = new FrustumIntersection(new Matrix4f()
+            .perspective((float) Math.toRadians(70), 16 / 9f, 0.1f, 200f)
+            .lookAt(0, 20, 60, 0, 0, 0, 0, 1, 0));
+
+    private void fill() {
+        for (int i = 0; i < OBJECTS; i++) {
+            float x = random.nextFloat() * 400 - 200;
+            float z = random.nextFloat() * 400 - 200;
+            float size = 0.5f + random.nextFloat() * 3;
+            proxies[i] = tree.createProxy(x, 0, z, x + size, size, z + size, i);
+        }
+    }
+
+    //the objects whose fat box the frustum touches, what the tree has to return
+    private Set<Integer> bruteForce(Set<Integer> removed) {
+        Set<Integer> expected = new HashSet<>();
+        float[] bounds = new float[6];
+        for (int i = 0; i < OBJECTS; i++) {
+            if (removed.contains(i)) {
+                continue;
+            }
+            tree.getFatBounds(proxies[i], bounds);
+            if (frustum.testAab(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5])) {
+                expected.add(i);
+            }
+        }
+        return expected;
+    }
+
+    private Set<Integer> query() {
+        Set<Integer> found = new HashSet<>();
+        tree.query(frustum, object -> assertTrue(found.add(object), "visited twice: " + object));
+        return found;
+    }
+
+    @Test
+    public void frustumQueryMatchesBruteForce() {
+        fill();
+        Set<Integer> expected = bruteForce(Set.of());
+        assertTrue(expected.size() > 0 && expected.size() < OBJECTS);
+        assertEquals(expected, query());
+        assertEquals(OBJECTS, tree.getLeafCount());
+    }
+
+    @Test
+    public void frustumQueryAfterMovesAndRemovals() {
+        fill();
+        Set<Integer> removed = new HashSet<>();
+        for (int i = 0; i < OBJECTS; i++) {
+            if (i % 5 == 0) {
+                tree.destroyProxy(proxies[i]);
+                removed.add(i);
+            } else if (i % 3 == 0) {
+                float x = random.nextFloat() * 100 - 50;
+                float z = random.nextFloat() * 100 - 50;
+                tree.moveProxy(proxies[i], x, 0, z, x + 1, 1, z + 1);
+            }
+        }
+        assertEquals(bruteForce(removed), query());
+        assertEquals(OBJECTS - removed.size(), tree.getLeafCount());
+    }
+
+    @Test
+    public void smallMovesStayInsideTheFatBox() {
+        int proxy = tree.createProxy(0, 0, 0, 1, 1, 1, 0);
+        assertEquals(false, tree.moveProxy(proxy, 0.1f, 0, 0, 1.1f, 1, 1));
+        assertEquals(true, tree.moveProxy(proxy, 5, 0, 0, 6, 1, 1));
+    }
+
+    @Test
+    public void boxQueryMatchesBruteForce() {
+        fill();
+        Set<Integer> expected = new HashSet<>();
+        float[] bounds = new float[6];
+        for (int i = 0; i < OBJECTS; i++) {
+            tree.getFatBounds(proxies[i], bounds);
+            if (bounds[0] <= 20 && bounds[3] >= -20 && bounds[2] <= 20 && bounds[5] >= -20 && bounds[1] <= 10 && bounds[4] >= -10) {
+                expected.add(i);
+            }
+        }
+        Set<Integer> found = new HashSet<>();
+        tree.query(-20, -10, -20, 20, 10, 20, found::add);
+        assertEquals(expected, found);
+    }
+}
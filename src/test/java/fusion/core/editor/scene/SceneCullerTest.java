@@ -0,0 +1,123 @@
+package fusion.core.editor.scene;
+
+import fusion.core.editor.TestMeshes;
+import open.gl.gameobject.Mesh;
+import open.gl.gameobject.MeshInstance;
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SceneCullerTest {
+
+    private final SceneCuller culler = new SceneCuller();
+    private final Mesh cube = TestMeshes.cube();
+    private final Mesh otherCube = TestMeshes.cube();
+    private final Map<Mesh, List<MeshInstance>> visible = new HashMap<>();
+    private final Matrix4f projection = new Matrix4f().setPerspective((float) Math.toRadians(70), 16 / 9f, 0.1f, 100f);
+    //at the origin looking down -z
+    private final Matrix4f view = new Matrix4f().setLookAt(0, 0, 0, 0, 0, -1, 0, 1, 0);
+
+    private final List<MeshInstance> inFront = new ArrayList<>();
+    private final List<MeshInstance> behind = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        for (int i = 0; i < 20; i++) {
+            inFront.add(add(i % 2 == 0 ? cube : otherCube, i - 10, 0, -20 - i));
+            behind.add(add(cube, i - 10, 0, 20 + i));
+        }
+    }
+
+    private MeshInstance add(Mesh mesh, float x, float y, float z) {
+        MeshInstance instance = new MeshInstance(mesh, null);
+        instance.getPosition().set(x, y, z);
+        culler.add(instance);
+        return instance;
+    }
+
+    private boolean isVisible(MeshInstance instance) {
+        List<MeshInstance> list = visible.get(instance.getMesh());
+        return list != null && list.contains(instance);
+    }
+
+    @Test
+    public void returnsWhatIsInFrontGroupedByMesh() {
+        int count = culler.cull(projection, view, visible);
+
+        assertEquals(inFront.size(), count);
+        assertEquals(10, visible.get(cube).size());
+        assertEquals(10, visible.get(otherCube).size());
+        for (MeshInstance instance : inFront) {
+            assertTrue(isVisible(instance));
+        }
+        for (MeshInstance instance : behind) {
+            assertFalse(isVisible(instance));
+        }
+    }
+
+    @Test
+    public void objectsPastTheFarPlaneAreCulled() {
+        MeshInstance far = add(cube, 0, 0, -150);
+        culler.cull(projection, view, visible);
+        assertFalse(isVisible(far));
+    }
+
+    @Test
+    public void movedObjectsFollowTheirNewPlace() {
+        MeshInstance moved = inFront.get(0);
+        moved.getPosition().set(0, 0, 40);
+        culler.update(moved);
+        MeshInstance back = behind.get(0);
+        back.getPosition().set(0, 0, -10);
+        culler.update(back);
+
+        int count = culler.cull(projection, view, visible);
+        assertEquals(inFront.size(), count);
+        assertFalse(isVisible(moved));
+        assertTrue(isVisible(back));
+    }
+
+    @Test
+    public void removedObjectsAreNotReturned() {
+        MeshInstance removed = inFront.get(3);
+        culler.remove(removed);
+
+        assertEquals(inFront.size() - 1, culler.cull(projection, view, visible));
+        assertFalse(isVisible(removed));
+        assertFalse(culler.contains(removed));
+    }
+
+    @Test
+    public void listsAreEmptiedBetweenCalls() {
+        culler.cull(projection, view, visible);
+        Matrix4f lookingBack = new Matrix4f().setLookAt(0, 0, 0, 0, 0, 1, 0, 1, 0);
+
+        assertEquals(behind.size(), culler.cull(projection, lookingBack, visible));
+        assertTrue(visible.get(otherCube).isEmpty());
+        for (MeshInstance instance : inFront) {
+            assertFalse(isVisible(instance));
+        }
+    }
+
+    @Test
+    public void scalingWidensTheBounds() {
+        //just outside the left edge of the view, only visible once it is stretched along x
+        MeshInstance instance = add(cube, -30, 0, -20);
+        culler.cull(projection, view, visible);
+        assertFalse(isVisible(instance));
+
+        instance.getScale().set(10, 1, 1);
+        culler.update(instance);
+        culler.cull(projection, view, visible);
+        assertTrue(isVisible(instance));
+    }
+}
@@ -0,0 +1,163 @@
+package fusion.core.editor.scene;
+
+import com.bulletphysics.collision.shapes.BoxShape;
+import fusion.core.editor.TestMeshes;
+import fusion.core.editor.assets.AssetManager;
+import open.gl.gameobject.Mesh;
+import open.gl.gameobject.MeshInstance;
+import open.gl.gameobject.PhysicsComponent;
+import open.gl.physics.PhysicsWorld;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WorldStreamerTest {
+
+    @TempDir
+    File directory;
+
+    private final Mesh cube = TestMeshes.cube();
+    private final PhysicsWorld physicsWorld = new PhysicsWorld();
+    private final AssetManager assets = new AssetManager(1);
+    private final List<PhysicsComponent> removed = new ArrayList<>();
+    private WorldStreamer streamer;
+
+    //objects are written with a mesh path but never restored, restoring needs a GL context
+    private final WorldStreamer.Target target = new WorldStreamer.Target() {
+        @Override
+        public PhysicsComponent restore(SceneBatch batch, int index, Mesh mesh) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void remove(List<PhysicsComponent> components) {
+            removed.addAll(components);
+        }
+
+        @Override
+        public SceneSnapshot capture(List<PhysicsComponent> components) {
+            SceneSnapshot snapshot = new SceneSnapshot();
+            int mesh = snapshot.addMesh("cube.obj", 0);
+            for (PhysicsComponent component : components) {
+                snapshot.add(mesh, component.getInstance(), 1);
+            }
+            return snapshot;
+        }
+    };
+
+    @BeforeEach
+    public void setup() {
+        streamer = new WorldStreamer(directory, assets, new Object(), target);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        assets.close();
+    }
+
+    private PhysicsComponent spawn(float x, float z) {
+        MeshInstance instance = new MeshInstance(cube, null);
+        instance.getPosition().set(x, 0, z);
+        PhysicsComponent component = new PhysicsComponent(physicsWorld.addShapeToWorld(new BoxShape(new javax.vecmath.Vector3f(0.5f, 0.5f, 0.5f)), 0, instance.getRotation(), instance.getPosition(), 1), instance);
+        streamer.adopt(component);
+        return component;
+    }
+
+    private static int objectsIn(File file) throws IOException {
+        int[] count = new int[1];
+        SceneFile.read(file, new SceneFile.Listener() {
+            @Override
+            public void mesh(int id, String path, int index) {
+            }
+
+            @Override
+            public void objects(SceneBatch batch) {
+                count[0] += batch.size();
+            }
+        });
+        return count[0];
+    }
+
+    @Test
+    public void spawnedObjectsAreWrittenToTheirCell() throws IOException {
+        spawn(10, 10);
+        spawn(20, 30);
+        spawn(-10, 10);
+        streamer.close();
+
+        assertEquals(2, objectsIn(WorldStreamer.cellFile(directory, 0, 0)));
+        assertEquals(1, objectsIn(WorldStreamer.cellFile(directory, -1, 0)));
+    }
+
+    @Test
+    public void movedObjectsChangeCell() throws IOException {
+        spawn(10, 10);
+        PhysicsComponent moving = spawn(20, 20);
+        streamer.save();
+
+        moving.getInstance().getPosition().set(WorldStreamer.CELL_SIZE + 5, 0, 20);
+        streamer.changed(moving.getInstance());
+        streamer.close();
+
+        assertEquals(1, objectsIn(WorldStreamer.cellFile(directory, 0, 0)));
+        assertEquals(1, objectsIn(WorldStreamer.cellFile(directory, 1, 0)));
+    }
+
+    @Test
+    public void aCellLeftEmptyLosesItsFile() {
+        PhysicsComponent moving = spawn(10, 10);
+        streamer.save();
+        streamer.update(new org.joml.Vector3f(), 1_000_000);
+        File first = WorldStreamer.cellFile(directory, 0, 0);
+
+        moving.getInstance().getPosition().set(10, 0, -WorldStreamer.CELL_SIZE);
+        streamer.changed(moving.getInstance());
+        streamer.close();
+
+        assertFalse(first.exists());
+        assertTrue(WorldStreamer.cellFile(directory, 0, -1).exists());
+        assertTrue(removed.isEmpty());
+    }
+
+    @Test
+    public void spawningIntoACellOnDiskDoesNotOverwriteIt() throws IOException {
+        spawn(10, 10);
+        spawn(20, 20);
+        streamer.close();
+
+        //a new session, the cell is on disk and not loaded yet
+        streamer = new WorldStreamer(directory, assets, new Object(), target);
+        spawn(30, 30);
+        streamer.close();
+
+        //still being read when the streamer closed, the objects not restored yet are written with the new one
+        assertEquals(3, objectsIn(WorldStreamer.cellFile(directory, 0, 0)));
+        assertEquals(1, streamer.getLoadingCount());
+    }
+
+    @Test
+    public void movingIntoACellOnDiskKeepsItsObjects() throws IOException {
+        spawn(10, 10);
+        spawn(20, 20);
+        streamer.close();
+
+        streamer = new WorldStreamer(directory, assets, new Object(), target);
+        PhysicsComponent moving = spawn(WorldStreamer.CELL_SIZE + 5, 10);
+        moving.getInstance().getPosition().set(30, 0, 30);
+        streamer.changed(moving.getInstance());
+        streamer.close();
+
+        assertEquals(3, objectsIn(WorldStreamer.cellFile(directory, 0, 0)));
+        assertFalse(WorldStreamer.cellFile(directory, 1, 0).exists());
+    }
+}